@@ -0,0 +1,355 @@
+package alignment;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import util.IntPair;
+
+/**
+ * Immutable sorted set of index pairs, stored as runs of consecutive pairs on the same diagonal.
+ * A run (aStart, bStart, length) holds the pairs (aStart+k, bStart+k) for 0 <= k < length, so an alignment without gaps takes three ints instead of one {@link IntPair} and one tree node per aligned position.
+ * The pairs are ordered lexicographically, as {@link IntPair#compareTo(IntPair)}; the runs are stored in that order, and adjacent runs are never on the same diagonal and contiguous.
+ *
+ * The coordinates of all runs are stored relative to an offset, so that {@link #shifted(int, int)} takes constant time.
+ * Sets are built with {@link #ascending()} or {@link #descending()} (for tracebacks), or converted with {@link #of(Collection)}.
+ * @author adriaan
+ */
+public final class AlignedRuns extends AbstractSet<IntPair> implements SortedSet<IntPair> {
+
+	private static final AlignedRuns EMPTY = new AlignedRuns(new int[0], 0, 0, 0);
+
+	/**
+	 * Run i is stored as runs[3*i] (aStart), runs[3*i+1] (bStart) and runs[3*i+2] (length), relative to (shiftA, shiftB).
+	 */
+	private final int[] runs;
+	private final int count;
+	private final int shiftA;
+	private final int shiftB;
+
+	/**
+	 * Number of pairs before run i; element count is the size of the set.
+	 */
+	private final int[] before;
+
+	private AlignedRuns(int[] runs, int count, int shiftA, int shiftB) {
+		this.runs = runs;
+		this.count = count;
+		this.shiftA = shiftA;
+		this.shiftB = shiftB;
+		this.before = new int[count+1];
+		for (int i=0; i<count; i++) {
+			this.before[i+1] = this.before[i] + runs[3*i+2];
+		}
+	}
+
+	private AlignedRuns(AlignedRuns source, int shiftA, int shiftB) {
+		this.runs = source.runs;
+		this.count = source.count;
+		this.before = source.before;
+		this.shiftA = shiftA;
+		this.shiftB = shiftB;
+	}
+
+	public static AlignedRuns empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * The pairs (aStart+k, bStart+k) for 0 <= k < length.
+	 */
+	public static AlignedRuns diagonal(int aStart, int bStart, int length) {
+		if (length < 0) throw new IllegalArgumentException("Run length must be zero or greater.");
+		return length == 0 ? EMPTY : new AlignedRuns(new int[] {aStart, bStart, length}, 1, 0, 0);
+	}
+
+	/**
+	 * The given pairs as runs.
+	 * This takes constant time if the given collection is already an AlignedRuns, and linear time if it is a sorted set in natural order.
+	 */
+	public static AlignedRuns of(Collection<IntPair> pairs) {
+		if (pairs instanceof AlignedRuns) return (AlignedRuns) pairs;
+		if (!(pairs instanceof SortedSet) || ((SortedSet<IntPair>) pairs).comparator() != null) pairs = new TreeSet<>(pairs);
+
+		Builder result = ascending();
+		for (IntPair pair : pairs) {
+			result.add(pair.x, pair.y);
+		}
+		return result.build();
+	}
+
+	/**
+	 * Builder taking pairs in increasing order.
+	 */
+	public static Builder ascending() {
+		return new Builder(false);
+	}
+
+	/**
+	 * Builder taking pairs in decreasing order, as produced by a traceback.
+	 */
+	public static Builder descending() {
+		return new Builder(true);
+	}
+
+	/**
+	 * These pairs with a added to every x and b added to every y.
+	 * This takes constant time, and shares the runs with this set.
+	 */
+	public AlignedRuns shifted(int a, int b) {
+		return (a == 0 && b == 0) || count == 0 ? this : new AlignedRuns(this, shiftA + a, shiftB + b);
+	}
+
+	public int runCount() {
+		return this.count;
+	}
+
+	public int runA(int run) {
+		return this.runs[3*run] + this.shiftA;
+	}
+
+	public int runB(int run) {
+		return this.runs[3*run+1] + this.shiftB;
+	}
+
+	public int runLength(int run) {
+		return this.runs[3*run+2];
+	}
+
+	/**
+	 * Whether every pair is greater than the previous pair in both x and y, i.e. the pairs form an ordered alignment.
+	 */
+	public boolean isMonotone() {
+		for (int i=1; i<count; i++) {
+			int prevEndA = runs[3*i-3] + runs[3*i-1];
+			int prevEndB = runs[3*i-2] + runs[3*i-1];
+			if (runs[3*i] < prevEndA || runs[3*i+1] < prevEndB) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The pair at the given index in the iteration order of this set, found in logarithmic time.
+	 */
+	public IntPair get(int index) {
+		if (index < 0 || index >= this.size()) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + this.size());
+		int lo = 0;
+		int hi = count-1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (before[mid] <= index) lo = mid; else hi = mid-1;
+		}
+		int k = index - before[lo];
+		return IntPair.of(this.runA(lo) + k, this.runB(lo) + k);
+	}
+
+	@Override
+	public int size() {
+		return this.before[count];
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof IntPair)) return false;
+		IntPair p = (IntPair) o;
+		int x = p.x - shiftA;
+		int y = p.y - shiftB;
+		// Last run starting at or before (x, y)
+		int lo = 0;
+		int hi = count-1;
+		if (count == 0 || compare(runs[0], runs[1], x, y) > 0) return false;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (compare(runs[3*mid], runs[3*mid+1], x, y) <= 0) lo = mid; else hi = mid-1;
+		}
+		int k = x - runs[3*lo];
+		return k == y - runs[3*lo+1] && k < runs[3*lo+2];
+	}
+
+	private static int compare(int x1, int y1, int x2, int y2) {
+		return x1 != x2 ? Integer.compare(x1, x2) : Integer.compare(y1, y2);
+	}
+
+	@Override
+	public Iterator<IntPair> iterator() {
+		return new Iterator<>() {
+			int run = 0;
+			int k = 0;
+
+			@Override
+			public boolean hasNext() {
+				return run < count;
+			}
+
+			@Override
+			public IntPair next() {
+				if (run >= count) throw new NoSuchElementException();
+				IntPair result = IntPair.of(runA(run) + k, runB(run) + k);
+				if (++k == runs[3*run+2]) {
+					run++;
+					k = 0;
+				}
+				return result;
+			}
+		};
+	}
+
+	@Override
+	public Comparator<? super IntPair> comparator() {
+		return null;
+	}
+
+	@Override
+	public IntPair first() {
+		if (count == 0) throw new NoSuchElementException();
+		return IntPair.of(this.runA(0), this.runB(0));
+	}
+
+	@Override
+	public IntPair last() {
+		if (count == 0) throw new NoSuchElementException();
+		int k = runs[3*count-1] - 1;
+		return IntPair.of(this.runA(count-1) + k, this.runB(count-1) + k);
+	}
+
+	@Override
+	public AlignedRuns subSet(IntPair fromElement, IntPair toElement) {
+		if (fromElement.compareTo(toElement) > 0) throw new IllegalArgumentException("fromElement > toElement");
+		return this.range(fromElement, toElement);
+	}
+
+	@Override
+	public AlignedRuns headSet(IntPair toElement) {
+		return this.range(null, toElement);
+	}
+
+	@Override
+	public AlignedRuns tailSet(IntPair fromElement) {
+		return this.range(fromElement, null);
+	}
+
+	/**
+	 * Pairs p with from <= p < to, where a null bound is absent.
+	 */
+	private AlignedRuns range(IntPair from, IntPair to) {
+		Builder result = ascending();
+		for (int i=0; i<count; i++) {
+			int a = this.runA(i);
+			int b = this.runB(i);
+			int length = runs[3*i+2];
+			int start = from == null ? 0 : firstNotBefore(a, b, length, from);
+			int end = to == null ? length : firstNotBefore(a, b, length, to);
+			if (start < end) result.addRun(a + start, b + start, end - start);
+		}
+		return result.build();
+	}
+
+	/**
+	 * Smallest k in [0, length] such that (a+k, b+k) is not smaller than the given pair.
+	 */
+	private static int firstNotBefore(int a, int b, int length, IntPair pair) {
+		long k = (long) pair.x - a;
+		if ((long) b + k < pair.y) k++;
+		return (int) Math.max(0, Math.min(length, k));
+	}
+
+	/**
+	 * Collects runs of pairs that are added in strictly increasing (or, for {@link AlignedRuns#descending()}, decreasing) order.
+	 * Consecutive pairs on the same diagonal are merged into one run.
+	 */
+	public static final class Builder {
+
+		private final boolean descending;
+		private int[] runs = new int[24];
+		private int count = 0;
+
+		private Builder(boolean descending) {
+			this.descending = descending;
+		}
+
+		/**
+		 * Add the pair (x, y).
+		 * @throws IllegalArgumentException - If the pair is out of order.
+		 */
+		public Builder add(int x, int y) {
+			return this.addRun(x, y, 1);
+		}
+
+		/**
+		 * Add the pairs (aStart+k, bStart+k) for 0 <= k < length.
+		 * In a descending builder, the run as a whole must come before the pairs added so far.
+		 * @throws IllegalArgumentException - If the run is out of order.
+		 */
+		public Builder addRun(int aStart, int bStart, int length) {
+			if (length <= 0) return this;
+			if (count > 0) {
+				int i = 3*(count-1);
+				int lastA = runs[i];
+				int lastB = runs[i+1];
+				int lastLength = runs[i+2];
+				if (!descending) {
+					int endA = lastA + lastLength;
+					int endB = lastB + lastLength;
+					if (aStart == endA && bStart == endB) {
+						runs[i+2] += length;
+						return this;
+					}
+					if (compare(aStart, bStart, endA-1, endB-1) <= 0) throw new IllegalArgumentException("Pairs must be added in increasing order.");
+				} else {
+					if (aStart + length == lastA && bStart + length == lastB) {
+						runs[i] = aStart;
+						runs[i+1] = bStart;
+						runs[i+2] += length;
+						return this;
+					}
+					if (compare(aStart + length - 1, bStart + length - 1, lastA, lastB) >= 0) throw new IllegalArgumentException("Pairs must be added in decreasing order.");
+				}
+			}
+			if (3*count+3 > runs.length) runs = Arrays.copyOf(runs, 2*runs.length);
+			runs[3*count] = aStart;
+			runs[3*count+1] = bStart;
+			runs[3*count+2] = length;
+			count++;
+			return this;
+		}
+
+		/**
+		 * Add all runs of the given set, which must come after (or, for a descending builder, before) the pairs added so far.
+		 */
+		public Builder addAll(AlignedRuns pairs) {
+			if (!descending) {
+				for (int i=0; i<pairs.count; i++) this.addRun(pairs.runA(i), pairs.runB(i), pairs.runLength(i));
+			} else {
+				for (int i=pairs.count-1; i>=0; i--) this.addRun(pairs.runA(i), pairs.runB(i), pairs.runLength(i));
+			}
+			return this;
+		}
+
+		public AlignedRuns build() {
+			if (count == 0) return EMPTY;
+			int[] result = Arrays.copyOf(runs, 3*count);
+			if (descending) {
+				for (int i=0, j=count-1; i<j; i++, j--) {
+					for (int f=0; f<3; f++) {
+						int swap = result[3*i+f];
+						result[3*i+f] = result[3*j+f];
+						result[3*j+f] = swap;
+					}
+				}
+			}
+			return new AlignedRuns(result, count, 0, 0);
+		}
+
+	}
+
+}
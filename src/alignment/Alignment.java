@@ -1,9 +1,9 @@
 package alignment;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.stream.Stream;
 
 import genome.LinearGenome;
@@ -12,7 +12,7 @@ import util.IntPair;
 
 /**
  * Represents an alignment between two {@link Genome}s.
- * The alignment itself is held as a sorted set of index pairs.
+ * The alignment itself is held as a sorted set of index pairs, stored as runs of consecutive pairs ({@link AlignedRuns}).
  * The Alignment also has an alignment score, and the two genomes it applies to.
  * @author adriaan
  */
@@ -21,9 +21,16 @@ public class Alignment<G extends LinearGenome<G>> extends VarOAlignment<G> {
 	public final int score;
 	
 	public Alignment(int score, SortedSet<IntPair> pairs, G a, G b) {
-		super(List.of(Collections.unmodifiableSortedSet(pairs)), a, b);
+		super(List.of(AlignedRuns.of(pairs)), a, b);
 		this.score = score;
 	}
+
+	/**
+	 * The pairs of this alignment as runs, see {@link #getPairs()}.
+	 */
+	public AlignedRuns getRuns() {
+		return this.getSegmentRuns().isEmpty() ? AlignedRuns.empty() : this.getSegmentRuns().get(0);
+	}
 	
 	public int getScore() {
 		return this.score;
@@ -35,22 +42,25 @@ public class Alignment<G extends LinearGenome<G>> extends VarOAlignment<G> {
     	              strb = new StringBuilder();
     	int ia = 0,
     	    ib = 0;
-    	// Loop over matched pairs
-    	for (IntPair i : this.getPairs()) {
+    	// Loop over runs of matched pairs
+    	AlignedRuns runs = this.getRuns();
+    	for (int run=0; run<runs.runCount(); run++) {
     		// Print any gaps since last match (will usually be only on one side, but can be both, in which case genome a is printed first)
-    		for (; ia<i.x; ia++) {
+    		for (; ia<runs.runA(run); ia++) {
     			stra.append(this.getA().view1(ia));
     			strb.append('-');
     		}
-    		for (; ib<i.y; ib++) {
+    		for (; ib<runs.runB(run); ib++) {
     			stra.append('-');
     			strb.append(this.getB().view1(ib));
     		}
-    		// Print match
-    		stra.append(this.getA().view1(ia));
-    		strb.append(this.getB().sameAt(ib, this.getA(), ia) ? '^' : this.getB().view1(ib));
-    		ia++;
-    		ib++;
+    		// Print matches
+    		for (int k=0; k<runs.runLength(run); k++) {
+	    		stra.append(this.getA().view1(ia));
+	    		strb.append(this.getB().sameAt(ib, this.getA(), ia) ? '^' : this.getB().view1(ib));
+	    		ia++;
+	    		ib++;
+    		}
     	}
     	// Print tails after last match
     	for (; ia < this.getA().size(); ia++) {
@@ -118,7 +128,7 @@ public class Alignment<G extends LinearGenome<G>> extends VarOAlignment<G> {
     }
     
     public static <G extends LinearGenome<G>> Alignment<G> empty(G a, G b) {
-    	return new Alignment<>(0, Collections.emptySortedSet(), a, b);
+    	return new Alignment<>(0, AlignedRuns.empty(), a, b);
     }
     
     public boolean isEmpty() {
@@ -151,7 +161,7 @@ public class Alignment<G extends LinearGenome<G>> extends VarOAlignment<G> {
     public static <G extends LinearGenome<G>> Alignment<G> collateNonEmpty(Iterable<Alignment<G>> alignments) {
     	if (!alignments.iterator().hasNext()) throw new IllegalArgumentException("Cannot collate zero alignments.");
     	
-    	SortedSet<IntPair> mypairs = new TreeSet<>();
+    	List<AlignedRuns> mypairs = new ArrayList<>();
     	int score = 0;
     	G a = null;
     	G b = null;
@@ -159,13 +169,14 @@ public class Alignment<G extends LinearGenome<G>> extends VarOAlignment<G> {
     		if (a == null) a = alignment.getA(); else if (!a.equals(alignment.getA())) throw new IllegalArgumentException("Cannot collate alignments of different genomes.");
     		if (b == null) b = alignment.getB(); else if (!b.equals(alignment.getB())) throw new IllegalArgumentException("Cannot collate alignments of different genomes.");
     		
-    		mypairs.addAll(alignment.getPairs());
+    		if (alignment.isNotEmpty()) mypairs.add(alignment.getRuns());
     		score += alignment.score;
     		a = alignment.getA();
     		b = alignment.getB();
     	}
+    	mypairs.sort(Comparator.comparing(AlignedRuns::first));
     	
-    	return new Alignment<>(score, mypairs, a, b);
+    	return new Alignment<>(score, union(mypairs), a, b);
     }
     
 }
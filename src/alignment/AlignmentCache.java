@@ -0,0 +1,229 @@
+package alignment;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.SortedSet;
+
+import genome.LinearGenome;
+import util.IntPair;
+
+/**
+ * Cache of alignments, for when the same pairs of genomes are aligned over and over (e.g. the fittest parents under tournament selection and elitism).
+ * Alignments are looked up by a SHA-256 hash of the content of each genome, together with the parameters given when a rule is wrapped with {@link #of(AlignmentRule, Object...)}.
+ * Since the hash is of the content, a copy of a genome that was aligned before also hits the cache.
+ *
+ * The cache holds only the aligned pairs, not the genomes: on a hit, the pairs are returned as an alignment of the genomes that were asked for.
+ * Its size is bounded by an estimate of the memory taken by the pairs, and the least recently used alignments are evicted first.
+ *
+ * Note that a cached alignment is returned as it was computed the first time. Rules that choose randomly between equally good alignments will then always give the same one for the same genomes, instead of a new random choice for every call.
+ * The cache can be used from several threads at once; a pair of genomes that is aligned by two threads at the same time may be aligned twice.
+ */
+public final class AlignmentCache<G extends LinearGenome<G>> {
+
+	/**
+	 * Estimated memory taken by an entry without its pairs: the key, its hash, and the entry of the map.
+	 */
+	static final long ENTRY_BYTES = 160;
+
+	/**
+	 * Estimated memory taken by a segment without its runs, and by each of its runs.
+	 */
+	static final long SEGMENT_BYTES = 64;
+	static final long RUN_BYTES = 16;
+
+	private final long maxBytes;
+	private final LinkedHashMap<Key,Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * @param maxBytes - Estimated memory that the cached alignments may take, in bytes.
+	 * @throws IllegalArgumentException - If maxBytes is negative.
+	 */
+	public AlignmentCache(long maxBytes) {
+		if (maxBytes < 0) throw new IllegalArgumentException("Cache size cannot be negative.");
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * The given rule, with alignments looked up in this cache before they are computed.
+	 * @param parameters - Everything that the alignments of the rule depend on besides the genomes (e.g. the name of the algorithm and its scores). Rules wrapped with the same parameters share their alignments.
+	 */
+	public AlignmentRule<G> of(AlignmentRule<G> rule, Object... parameters) {
+		List<Object> params = List.of(parameters);
+		return (rng) -> (a, b) -> {
+			Key key = Key.of(true, params, a, b);
+			Entry entry = this.get(key);
+			if (entry != null) return new Alignment<>(entry.score, entry.runs.get(0), a, b);
+
+			Alignment<G> result = rule.apply(rng).apply(a, b);
+			this.put(key, new Entry(result.score, List.of(result.getRuns())));
+			return result;
+		};
+	}
+
+	/**
+	 * The given rule, with alignments looked up in this cache before they are computed.
+	 * @see #of(AlignmentRule, Object...)
+	 */
+	public VarOAlignmentRule<G> of(VarOAlignmentRule<G> rule, Object... parameters) {
+		List<Object> params = List.of(parameters);
+		return (rng) -> (a, b) -> {
+			Key key = Key.of(false, params, a, b);
+			Entry entry = this.get(key);
+			if (entry != null) return new VarOAlignment<>(new ArrayList<SortedSet<IntPair>>(entry.runs), a, b);
+
+			VarOAlignment<G> result = rule.apply(rng).apply(a, b);
+			this.put(key, new Entry(0, result.getSegmentRuns()));
+			return result;
+		};
+	}
+
+	/**
+	 * Whether the content of the given genome can be hashed, i.e. whether rules wrapped by a cache can align it.
+	 */
+	public static boolean supports(LinearGenome<?> g) {
+		return ContentHash.supports(g);
+	}
+
+	private synchronized Entry get(Key key) {
+		Entry entry = this.entries.get(key);
+		if (entry == null) {
+			this.misses++;
+		} else {
+			this.hits++;
+		}
+		return entry;
+	}
+
+	private synchronized void put(Key key, Entry entry) {
+		if (entry.bytes > this.maxBytes) return;
+		Entry old = this.entries.put(key, entry);
+		if (old != null) this.bytes -= old.bytes;
+		this.bytes += entry.bytes;
+
+		Iterator<Entry> eldest = this.entries.values().iterator();
+		while (this.bytes > this.maxBytes) {
+			this.bytes -= eldest.next().bytes;
+			eldest.remove();
+			this.evictions++;
+		}
+	}
+
+	/**
+	 * Number of alignments that were found in the cache.
+	 */
+	public synchronized long hits() {
+		return this.hits;
+	}
+
+	/**
+	 * Number of alignments that had to be computed.
+	 */
+	public synchronized long misses() {
+		return this.misses;
+	}
+
+	/**
+	 * Number of alignments that were removed from the cache to make place for others.
+	 */
+	public synchronized long evictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Number of alignments in the cache.
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Estimated memory taken by the alignments in the cache, in bytes.
+	 */
+	public synchronized long bytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * Fraction of the lookups that were found in the cache, or 0 if there were none.
+	 */
+	public synchronized double hitRate() {
+		long lookups = this.hits + this.misses;
+		return lookups == 0 ? 0 : (double) this.hits / lookups;
+	}
+
+	/**
+	 * Remove all alignments from the cache, and reset the statistics.
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.bytes = 0;
+		this.hits = 0;
+		this.misses = 0;
+		this.evictions = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("alignment cache: %d hits, %d misses (hit rate %.3f), %d evictions, %d alignments, %d of %d bytes",
+				this.hits, this.misses, this.hitRate(), this.evictions, this.entries.size(), this.bytes, this.maxBytes);
+	}
+
+	/**
+	 * The pairs of a cached alignment, and its score if it is an {@link Alignment}.
+	 */
+	private static final class Entry {
+		final int score;
+		final List<AlignedRuns> runs;
+		final long bytes;
+
+		Entry(int score, List<AlignedRuns> runs) {
+			this.score = score;
+			this.runs = runs;
+			this.bytes = ENTRY_BYTES + runs.stream().mapToLong((segment) -> SEGMENT_BYTES + RUN_BYTES * segment.runCount()).sum();
+		}
+	}
+
+	/**
+	 * Parameters of a rule together with the hashes of two genomes.
+	 * Whether the rule gives an {@link Alignment} is part of the key, so that rules of both kinds can share a cache without mixing their entries.
+	 */
+	static final class Key {
+		private final boolean scored;
+		private final List<Object> parameters;
+		private final ContentHash a;
+		private final ContentHash b;
+
+		Key(boolean scored, List<Object> parameters, ContentHash a, ContentHash b) {
+			this.scored = scored;
+			this.parameters = parameters;
+			this.a = a;
+			this.b = b;
+		}
+
+		/**
+		 * @throws IllegalArgumentException - If the content of a or b cannot be hashed, see {@link AlignmentCache#supports(LinearGenome)}.
+		 */
+		static Key of(boolean scored, List<Object> parameters, LinearGenome<?> a, LinearGenome<?> b) {
+			return new Key(scored, parameters, ContentHash.of(a), ContentHash.of(b));
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * (31 * Boolean.hashCode(scored) + parameters.hashCode()) + a.hashCode()) + b.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return this.scored == other.scored && this.parameters.equals(other.parameters) && this.a.equals(other.a) && this.b.equals(other.b);
+		}
+	}
+
+}
@@ -15,4 +15,12 @@ public interface AlignmentOp<G extends LinearGenome<G>> extends VarOAlignmentOp<
     	return this.apply(a, b).score;
     }
     
+    /**
+     * This alignment restricted to ranges of a and b, see {@link Local#alignInRange(AlignmentOp, LinearGenome, int, int, LinearGenome, int, int)}.
+     * Operators that can reuse work between ranges of the same genomes (such as an index built once for a and b) override this.
+     */
+    public default RangeAlignmentOp<G> inRanges(G a, G b) {
+    	return (aInclusiveStart, aExclusiveEnd, bInclusiveStart, bExclusiveEnd) -> Local.alignInRange(this, a, aInclusiveStart, aExclusiveEnd, b, bInclusiveStart, bExclusiveEnd);
+    }
+    
 }
@@ -1,6 +1,7 @@
 package alignment;
 
 import java.util.Random;
+import java.util.function.Function;
 
 import genome.LinearGenome;
 
@@ -14,5 +15,13 @@ public interface AlignmentRule<G extends LinearGenome<G>> extends VarOAlignmentR
 	
 	@Override
 	AlignmentOp<G> apply(Random t);
+	
+	/**
+	 * This rule restricted to ranges of a and b: gives an {@link AlignmentOp#inRanges(LinearGenome, LinearGenome)} for each random number generator.
+	 * This is used to align ranges of the same genomes with independent generators (e.g. in parallel); rules that index the genomes override it so that all generators share one index.
+	 */
+	default Function<Random, RangeAlignmentOp<G>> inRanges(G a, G b) {
+		return (rng) -> this.apply(rng).inRanges(a, b);
+	}
 
 }
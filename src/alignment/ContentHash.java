@@ -0,0 +1,68 @@
+package alignment;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import genome.LinearGenome;
+import genome.binary.BinaryGenome;
+import genome.integer.IntegerGenome;
+
+/**
+ * SHA-256 hash of the size and content of a genome, used to recognise genomes with the same content (e.g. copies) in {@link AlignmentCache} and {@link DerivedAlignment}.
+ */
+final class ContentHash {
+
+	private final byte[] digest;
+	private final int hash;
+
+	private ContentHash(byte[] digest) {
+		this.digest = digest;
+		this.hash = Arrays.hashCode(digest);
+	}
+
+	/**
+	 * Whether the content of the given genome can be hashed.
+	 */
+	static boolean supports(LinearGenome<?> g) {
+		return g instanceof BinaryGenome || g instanceof IntegerGenome;
+	}
+
+	/**
+	 * @throws IllegalArgumentException - If the content of g cannot be hashed, see {@link #supports(LinearGenome)}.
+	 */
+	static ContentHash of(LinearGenome<?> g) {
+		if (!supports(g)) throw new IllegalArgumentException("Cannot hash the content of genomes of type " + g.getClass().getSimpleName() + ".");
+		ByteBuffer buffer;
+		if (g instanceof BinaryGenome) {
+			long[] words = ((BinaryGenome<?>) g).toWords();
+			buffer = ByteBuffer.allocate(4 + 8*words.length).putInt(g.size());
+			buffer.asLongBuffer().put(words);
+		} else {
+			IntegerGenome<?> ints = (IntegerGenome<?>) g;
+			buffer = ByteBuffer.allocate(4 + 4*g.size()).putInt(g.size());
+			for (int i=0; i<g.size(); i++) buffer.putInt(ints.get(i));
+		}
+		return new ContentHash(sha256().digest(buffer.array()));
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is required of every Java platform.", e);
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof ContentHash && Arrays.equals(this.digest, ((ContentHash) obj).digest);
+	}
+
+}
@@ -0,0 +1,260 @@
+package alignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import genome.LinearGenome;
+import mutation.EditScript;
+import mutation.MutationOp;
+import util.IntPair;
+
+/**
+ * Decorator for alignment rules that derives the alignment of a mutated genome from an earlier alignment of the genome it was mutated from, instead of aligning it from scratch.
+ * When a child is made by mutating a copy of a parent (with {@link MutationOp#mutateAndGetEditScript(Object)}), the edit script tells exactly which positions of the child descend from which positions of the parent.
+ * After {@link #addChild(LinearGenome, LinearGenome, EditScript)}, aligning the child with its parent takes only the edit script, and aligning it with a genome that the parent was aligned with composes that alignment with the edit script.
+ * Either takes time linear in the number of edits and aligned runs, rather than the time of the alignment algorithm.
+ *
+ * Genomes are recognised by a hash of their content, so the derivation also applies to copies of the genomes, and a genome that changed since it was added is no longer taken for the same genome.
+ * The alignments of the wrapped rule and the derived alignments are remembered for further derivation, up to a given number of each, least recently used first out.
+ *
+ * A derived alignment pairs the positions that truly descend from the same ancestral positions, as {@link PerfectAlignment} does with the history of genomes, but based on the alignment it was derived from.
+ * It is not the alignment that the wrapped rule would give, and its segments may be in a different order on the two genomes after a translocation, so this decorates {@link VarOAlignmentRule}s only.
+ */
+public final class DerivedAlignment<G extends LinearGenome<G>> {
+
+	private final LinkedHashMap<ContentHash,Descent> parents;
+	private final LinkedHashMap<Pair,List<AlignedRuns>> alignments;
+	private long computed = 0;
+	private long derived = 0;
+	private long reused = 0;
+
+	/**
+	 * @param capacity - Number of children and of alignments to remember.
+	 * @throws IllegalArgumentException - If capacity is not positive.
+	 */
+	public DerivedAlignment(int capacity) {
+		if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive.");
+		this.parents = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ContentHash,Descent> eldest) {
+				return this.size() > capacity;
+			}
+		};
+		this.alignments = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Pair,List<AlignedRuns>> eldest) {
+				return this.size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Remember that the given child was made from the given parent by the edits of the script.
+	 * @throws IllegalArgumentException - If the sizes of the genomes do not match the script, or their content cannot be hashed (see {@link AlignmentCache#supports(LinearGenome)}).
+	 */
+	public void addChild(G parent, G child, EditScript script) {
+		if (parent.size() != script.originalSize() || child.size() != script.size()) throw new IllegalArgumentException("Edit script does not match the sizes of the genomes.");
+		Descent descent = new Descent(ContentHash.of(parent), script);
+		ContentHash hash = ContentHash.of(child);
+		synchronized (this) {
+			this.parents.put(hash, descent);
+		}
+	}
+
+	/**
+	 * The given rule, where alignments that can be derived from the edit scripts of {@link #addChild(LinearGenome, LinearGenome, EditScript)} are not computed.
+	 */
+	public VarOAlignmentRule<G> of(VarOAlignmentRule<G> rule) {
+		return (rng) -> (a, b) -> {
+			ContentHash hashA = ContentHash.of(a);
+			ContentHash hashB = ContentHash.of(b);
+			List<AlignedRuns> runs = this.lookup(hashA, hashB);
+			if (runs == null) {
+				runs = rule.apply(rng).apply(a, b).getSegmentRuns();
+				synchronized (this) {
+					this.computed++;
+					this.alignments.put(new Pair(hashA, hashB), runs);
+				}
+			}
+			return new VarOAlignment<>(new ArrayList<SortedSet<IntPair>>(runs), a, b);
+		};
+	}
+
+	/**
+	 * The runs of the alignment of the genomes with the given hashes, or null if it cannot be derived.
+	 */
+	private synchronized List<AlignedRuns> lookup(ContentHash a, ContentHash b) {
+		List<AlignedRuns> result = this.alignments.get(new Pair(a, b));
+		if (result != null) {
+			this.reused++;
+			return result;
+		}
+
+		Descent descentA = this.parents.get(a);
+		Descent descentB = this.parents.get(b);
+		if (descentA != null && descentA.parent.equals(b)) {
+			result = derive(identity(descentA.script.originalSize()), descentA.script, false);
+		} else if (descentB != null && descentB.parent.equals(a)) {
+			result = derive(identity(descentB.script.originalSize()), descentB.script, true);
+		} else if (descentA != null && this.alignments.containsKey(new Pair(descentA.parent, b))) {
+			result = derive(this.alignments.get(new Pair(descentA.parent, b)), descentA.script, false);
+		} else if (descentB != null && this.alignments.containsKey(new Pair(a, descentB.parent))) {
+			result = derive(this.alignments.get(new Pair(a, descentB.parent)), descentB.script, true);
+		} else if (descentA != null && descentB != null && this.alignments.containsKey(new Pair(descentA.parent, descentB.parent))) {
+			result = derive(derive(this.alignments.get(new Pair(descentA.parent, descentB.parent)), descentA.script, false), descentB.script, true);
+		} else {
+			return null;
+		}
+		this.derived++;
+		this.alignments.put(new Pair(a, b), result);
+		return result;
+	}
+
+	/**
+	 * Alignment of the parent of the script with its child: the blocks of positions that descend from the parent.
+	 */
+	public static <G extends LinearGenome<G>> VarOAlignment<G> homology(EditScript script, G parent, G child) {
+		return new VarOAlignment<>(new ArrayList<SortedSet<IntPair>>(derive(identity(script.originalSize()), script, true)), parent, child);
+	}
+
+	/**
+	 * Alignment of the child of the script with genome b, derived from an alignment of its parent (as genome a) with b.
+	 * Every pair of the alignment whose parent position descends into the child becomes a pair of the child position and the same position of b.
+	 */
+	public static <G extends LinearGenome<G>> VarOAlignment<G> derive(VarOAlignment<G> parentAlignment, EditScript script, G child) {
+		return new VarOAlignment<>(new ArrayList<SortedSet<IntPair>>(derive(parentAlignment.getSegmentRuns(), script, false)), child, parentAlignment.getB());
+	}
+
+	/**
+	 * Map the positions on one side of the given segments from the parent to the child of the script.
+	 * The mapped pairs form diagonal pieces, one for each part of a run that lies in one block of the script. Consecutive pieces are joined into a segment if no other piece lies between them on either genome, as by {@link VarOAlignment#simplify()},
+	 * so that segments do not interleave after a translocation. The segments are in order of their position on genome a.
+	 * @param childIsB - Whether the child replaces genome b rather than genome a.
+	 */
+	static List<AlignedRuns> derive(List<AlignedRuns> segments, EditScript script, boolean childIsB) {
+		// Blocks in order of their position in the parent
+		int blocks = script.blockCount();
+		int[] order = new int[blocks];
+		long[] keys = new long[blocks];
+		for (int i=0; i<blocks; i++) keys[i] = ((long) script.blockParent(i) << 32) | i;
+		Arrays.sort(keys);
+		int[] starts = new int[blocks];
+		for (int k=0; k<blocks; k++) {
+			order[k] = (int) keys[k];
+			starts[k] = script.blockParent(order[k]);
+		}
+
+		// Pieces as (a, b, length)
+		List<int[]> pieces = new ArrayList<>();
+		for (AlignedRuns segment : segments) {
+			for (int r=0; r<segment.runCount(); r++) {
+				int from = childIsB ? segment.runB(r) : segment.runA(r);
+				int other = childIsB ? segment.runA(r) : segment.runB(r);
+				int to = from + segment.runLength(r);
+
+				// The last block starting at or before the run, if any, may overlap its start
+				int k = Arrays.binarySearch(starts, from);
+				if (k < 0) k = Math.max(0, -k-2);
+				for (; k<blocks && starts[k] < to; k++) {
+					int block = order[k];
+					int start = Math.max(from, starts[k]);
+					int end = Math.min(to, starts[k] + script.blockLength(block));
+					if (start >= end) continue;
+
+					int child = script.blockChild(block) + start - starts[k];
+					int a = childIsB ? other + start - from : child;
+					int b = childIsB ? child : other + start - from;
+					pieces.add(new int[] {a, b, end - start});
+				}
+			}
+		}
+
+		int n = pieces.size();
+		pieces.sort((p, q) -> Integer.compare(p[0], q[0]));
+		Integer[] onB = new Integer[n];
+		for (int i=0; i<n; i++) onB[i] = i;
+		Arrays.sort(onB, (i, j) -> Integer.compare(pieces.get(i)[1], pieces.get(j)[1]));
+		int[] rankOnB = new int[n];
+		for (int r=0; r<n; r++) rankOnB[onB[r]] = r;
+
+		List<AlignedRuns> result = new ArrayList<>();
+		AlignedRuns.Builder builder = AlignedRuns.ascending();
+		for (int i=0; i<n; i++) {
+			if (i > 0 && rankOnB[i] != rankOnB[i-1] + 1) {
+				result.add(builder.build());
+				builder = AlignedRuns.ascending();
+			}
+			int[] piece = pieces.get(i);
+			builder.addRun(piece[0], piece[1], piece[2]);
+		}
+		if (n > 0) result.add(builder.build());
+		return result;
+	}
+
+	private static List<AlignedRuns> identity(int size) {
+		return List.of(AlignedRuns.diagonal(0, 0, size));
+	}
+
+	/**
+	 * Number of alignments that were computed by the wrapped rule.
+	 */
+	public synchronized long computed() {
+		return this.computed;
+	}
+
+	/**
+	 * Number of alignments that were derived from edit scripts.
+	 */
+	public synchronized long derived() {
+		return this.derived;
+	}
+
+	/**
+	 * Number of alignments that were asked for again, and taken from the remembered alignments.
+	 */
+	public synchronized long reused() {
+		return this.reused;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("derived alignment: %d computed, %d derived, %d reused, %d children, %d alignments", this.computed, this.derived, this.reused, this.parents.size(), this.alignments.size());
+	}
+
+	private static final class Descent {
+		final ContentHash parent;
+		final EditScript script;
+
+		Descent(ContentHash parent, EditScript script) {
+			this.parent = parent;
+			this.script = script;
+		}
+	}
+
+	private static final class Pair {
+		final ContentHash a;
+		final ContentHash b;
+
+		Pair(ContentHash a, ContentHash b) {
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * a.hashCode() + b.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Pair && this.a.equals(((Pair) obj).a) && this.b.equals(((Pair) obj).b);
+		}
+	}
+
+}
@@ -1,11 +1,17 @@
 package alignment;
 
 import java.util.Random;
+import java.util.function.ToDoubleBiFunction;
 
 import alignment.algorithms.Affine;
+import alignment.algorithms.Banded;
+import alignment.algorithms.BitParallel;
+import alignment.algorithms.FourRussians;
+import alignment.algorithms.Hirschberg;
 import alignment.algorithms.OneGap;
 import alignment.algorithms.OrderedSynapsing;
 import genome.LinearGenome;
+import genome.binary.BinaryGenome;
 import util.Assert;
 
 /**
@@ -20,6 +26,12 @@ public final class Global {
 		Assert.utilityClass();
 	}
 	
+	/**
+	 * Number of cells of the score matrix (a.size() * b.size()) above which {@link #alignWithAffineGapScore(int, int, int, int, Random, LinearGenome, LinearGenome)} switches to the linear memory algorithm.
+	 * At this size the full score matrix takes about 100 MB.
+	 */
+	public static final long DEFAULT_LINEAR_SPACE_THRESHOLD = 2000L * 2000L;
+
 	/**
 	 * Global alignment with an affine gap scoring scheme.
 	 * Every match in the alignment gives +1 score.
@@ -31,12 +43,125 @@ public final class Global {
 	public static <G extends LinearGenome<G>> AlignmentRule<G> alignmentWithAffineGapScore(
 			int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore) 
 	{
-		return (rng) -> (a, b) -> alignWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		return alignmentWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, DEFAULT_LINEAR_SPACE_THRESHOLD);
+	}
+
+	/**
+	 * Global alignment with an affine gap scoring scheme, see {@link #alignmentWithAffineGapScore(int, int, int, int)}.
+	 * @param linearSpaceThreshold - Number of cells of the score matrix above which the alignment is done in linear memory with {@link Hirschberg} instead of with a full score matrix.
+	 */
+	public static <G extends LinearGenome<G>> AlignmentRule<G> alignmentWithAffineGapScore(
+			int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, long linearSpaceThreshold) 
+	{
+		return (rng) -> (a, b) -> alignWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, linearSpaceThreshold, rng, a, b);
 	}
 	
 	/** See {@link #alignmentWithAffineGapScore(int, int, int, int)} */
 	public static <G extends LinearGenome<G>> Alignment<G> alignWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
-		return Affine.NeedlemanWunsch.align(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		return alignWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, DEFAULT_LINEAR_SPACE_THRESHOLD, rng, a, b);
+	}
+
+	/** See {@link #alignmentWithAffineGapScore(int, int, int, int, long)} */
+	public static <G extends LinearGenome<G>> Alignment<G> alignWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, long linearSpaceThreshold, Random rng, G a, G b) {
+		if ((long) a.size() * b.size() > linearSpaceThreshold) {
+			return Hirschberg.align(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		} else {
+			return Affine.NeedlemanWunsch.align(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		}
+	}
+	
+	/**
+	 * Global alignment with an affine gap scoring scheme, see {@link #alignmentWithAffineGapScore(int, int, int, int)}, spreading each alignment that is too large for a full score matrix over all threads of the common {@link java.util.concurrent.ForkJoinPool}.
+	 * See {@link Hirschberg#alignInParallel(int, int, int, int, Random, LinearGenome, LinearGenome)}. This is meant for single alignments of very long genomes; when many alignments are done at once, aligning each sequentially uses the threads better.
+	 */
+	public static <G extends LinearGenome<G>> AlignmentRule<G> parallelAlignmentWithAffineGapScore(
+			int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore) 
+	{
+		return (rng) -> (a, b) -> alignInParallelWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+	}
+	
+	/** See {@link #parallelAlignmentWithAffineGapScore(int, int, int, int)} */
+	public static <G extends LinearGenome<G>> Alignment<G> alignInParallelWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
+		if ((long) a.size() * b.size() > DEFAULT_LINEAR_SPACE_THRESHOLD) {
+			return Hirschberg.alignInParallel(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		} else {
+			return Affine.NeedlemanWunsch.align(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		}
+	}
+	
+	/**
+	 * Score of the global alignment with an affine gap scoring scheme, see {@link #alignmentWithAffineGapScore(int, int, int, int)}.
+	 * No alignment is built, so this only needs O(min(a.size(), b.size())) memory and no traceback, e.g. for use as a distance in {@link fitness.StringMatch}.
+	 */
+	public static <G extends LinearGenome<G>> ToDoubleBiFunction<G,G> scoreWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore) {
+		return (a, b) -> {
+			if (FourRussians.supports(a, b, matchScore, mismatchScore, gapOpenScore, gapExtendScore)) {
+				return FourRussians.score(matchScore, mismatchScore, gapOpenScore, gapExtendScore, a, b);
+			} else {
+				return Affine.NeedlemanWunsch.score(matchScore, mismatchScore, gapOpenScore, gapExtendScore, a, b);
+			}
+		};
+	}
+	
+	/**
+	 * Global alignment with an affine gap scoring scheme, computing the scores with the block tables of {@link FourRussians} in about a.size()*b.size()/log(a.size()) time.
+	 * This gives an alignment with the same score as {@link #alignmentWithAffineGapScore(int, int, int, int)}, and is faster for long genomes.
+	 * Only linear gap scores (gapOpenScore == gapExtendScore) with small scores are supported, see {@link FourRussians#supports(LinearGenome, LinearGenome, int, int, int, int)}; other genomes and scores are aligned with {@link #alignWithAffineGapScore(int, int, int, int, Random, LinearGenome, LinearGenome)} instead.
+	 */
+	public static <G extends LinearGenome<G>> AlignmentRule<G> fourRussiansAlignmentWithAffineGapScore(
+			int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore) 
+	{
+		return (rng) -> (a, b) -> alignFourRussiansWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+	}
+	
+	/** See {@link #fourRussiansAlignmentWithAffineGapScore(int, int, int, int)} */
+	public static <G extends LinearGenome<G>> Alignment<G> alignFourRussiansWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
+		if (FourRussians.supports(a, b, matchScore, mismatchScore, gapOpenScore, gapExtendScore)) {
+			return FourRussians.align(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		} else {
+			return alignWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		}
+	}
+	
+	/**
+	 * Global alignment with an affine gap scoring scheme, filling only a diagonal band of the score matrix.
+	 * This is much faster than {@link #alignmentWithAffineGapScore(int, int, int, int)} for closely related genomes that differ by few insertions and deletions.
+	 * The band is widened automatically when the alignment touches its edge, see {@link Banded}.
+	 * @param bandWidth - Initial number of diagonals of the band on either side of the diagonals through the corners of the score matrix.
+	 */
+	public static <G extends LinearGenome<G>> AlignmentRule<G> bandedAlignmentWithAffineGapScore(
+			int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int bandWidth) 
+	{
+		return (rng) -> (a, b) -> alignBandedWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, bandWidth, rng, a, b);
+	}
+	
+	/** See {@link #bandedAlignmentWithAffineGapScore(int, int, int, int, int)} */
+	public static <G extends LinearGenome<G>> Alignment<G> alignBandedWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int bandWidth, Random rng, G a, G b) {
+		return Banded.globalAlign(matchScore, mismatchScore, gapOpenScore, gapExtendScore, bandWidth, rng, a, b);
+	}
+	
+	/**
+	 * Global alignment of the longest common subsequence of two binary genomes, i.e. the alignment with the most matched bits regardless of mismatches and gaps.
+	 * Computed with a bit-parallel algorithm (see {@link BitParallel}) that is much faster than {@link #alignmentWithAffineGapScore(int, int, int, int)}.
+	 */
+	public static <G extends BinaryGenome<G>> AlignmentRule<G> longestCommonSubsequence() {
+		return (rng) -> (a, b) -> alignLongestCommonSubsequence(rng, a, b);
+	}
+	
+	public static <G extends BinaryGenome<G>> Alignment<G> alignLongestCommonSubsequence(Random rng, G a, G b) {
+		return BitParallel.alignLcs(rng, a, b);
+	}
+	
+	/**
+	 * Global alignment of two binary genomes with the smallest edit (Levenshtein) distance, where every mismatch and every gap bit costs 1.
+	 * The alignment score is minus the edit distance. Computed with a bit-parallel algorithm (see {@link BitParallel}).
+	 */
+	public static <G extends BinaryGenome<G>> AlignmentRule<G> editDistance() {
+		return (rng) -> (a, b) -> alignEditDistance(rng, a, b);
+	}
+	
+	public static <G extends BinaryGenome<G>> Alignment<G> alignEditDistance(Random rng, G a, G b) {
+		return BitParallel.alignEditDistance(rng, a, b);
 	}
 	
 	/**
@@ -2,6 +2,7 @@ package alignment;
 
 import java.util.Random;
 
+import alignment.algorithms.SeedExtend;
 import alignment.algorithms.UnorderedSynapsing;
 import genome.LinearGenome;
 
@@ -14,7 +15,7 @@ import genome.LinearGenome;
 public class Glocal {
 
 	public static <G extends LinearGenome<G>> VarOAlignment<G> alignUnorderedRepeatedLocal(Random rng, AlignmentRule<G> localAlign, int minScore, G a, G b) {
-		return UnorderedSynapsing.align(rng, localAlign.apply(rng), minScore, a, b);
+		return UnorderedSynapsing.align(rng, localAlign, minScore, a, b);
 	}
 
 	/**
@@ -26,4 +27,19 @@ public class Glocal {
 		return (rng) -> (a, b) -> alignUnorderedRepeatedLocal(rng, localAlign, minScore, a, b);
 	}
 
+	public static <G extends LinearGenome<G>> VarOAlignment<G> alignSeedAndExtend(Random rng, int matchScore, int mismatchScore, int seedSize, int xDrop, int minScore, G a, G b) {
+		return SeedExtend.align(matchScore, mismatchScore, seedSize, xDrop, minScore, rng, a, b);
+	}
+
+	/**
+	 * Glocal alignment of binary genomes from shared k-mers, extended without gaps, see {@link SeedExtend}.
+	 * This finds about the same segments as {@link #unorderedRepeatedLocal(AlignmentRule, int)} with a gapless local alignment for long, mostly homologous genomes, in about linear instead of quadratic time.
+	 * @param seedSize - Length of the shared k-mers from which segments are extended.
+	 * @param xDrop - How far the score of an extension may drop below its best score before the extension stops.
+	 * @param minScore - Minimal score of a segment.
+	 */
+	public static <G extends LinearGenome<G>> VarOAlignmentRule<G> seedAndExtend(int matchScore, int mismatchScore, int seedSize, int xDrop, int minScore) {
+		return (rng) -> (a, b) -> alignSeedAndExtend(rng, matchScore, mismatchScore, seedSize, xDrop, minScore, a, b);
+	}
+
 }
@@ -1,18 +1,19 @@
 package alignment;
 
 import java.util.Random;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.ToDoubleBiFunction;
 
 import alignment.algorithms.Affine;
+import alignment.algorithms.Banded;
+import alignment.algorithms.CommonSubstringIndex;
 import alignment.algorithms.LocalAround;
 import alignment.algorithms.Gapless;
+import alignment.algorithms.Striped;
+import alignment.algorithms.XDrop;
 import genome.LinearGenome;
 import genome.binary.BitGenome;
 import util.Assert;
-import util.IntPair;
 
 /**
  * Utility class giving access to several local alignment methods.
@@ -48,6 +49,69 @@ public final class Local {
 		}		
 	}
 	
+	/**
+	 * Score of the local alignment with an affine gap scoring scheme, see {@link #alignmentWithAffineGapScore(int, int, int, int)}.
+	 * No alignment is built, so this only needs O(min(a.size(), b.size())) memory and no traceback, e.g. for use as a distance in {@link fitness.StringMatch}.
+	 */
+	public static <G extends LinearGenome<G>> ToDoubleBiFunction<G,G> scoreWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore) {
+		return (a, b) -> {
+			if (-gapOpenScore > Math.min(a.size(), b.size())*matchScore) { // Same shortcut as in alignWithAffineGapScore
+				return Gapless.score(matchScore, mismatchScore, a, b);
+			} else if (Striped.supports(a, b, gapOpenScore, gapExtendScore)) {
+				return Striped.score(matchScore, mismatchScore, gapOpenScore, gapExtendScore, a, b);
+			} else {
+				return Affine.SmithWaterman.score(matchScore, mismatchScore, gapOpenScore, gapExtendScore, a, b);
+			}
+		};
+	}
+	
+	/**
+	 * Local alignment with an affine gap scoring scheme, filling only a diagonal band of the score matrix.
+	 * This is much faster than {@link #alignmentWithAffineGapScore(int, int, int, int)} for closely related genomes that differ by few insertions and deletions, but may miss local alignments far from the band.
+	 * The band is widened automatically when the alignment touches its edge, see {@link Banded}.
+	 * @param bandWidth - Initial number of diagonals of the band on either side of the diagonals through the corners of the score matrix.
+	 */
+	public static <G extends LinearGenome<G>> AlignmentRule<G> bandedAlignmentWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int bandWidth) {
+		return (rng) -> (a, b) -> alignBandedWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, bandWidth, rng, a, b);
+	}
+	
+	/** See {@link #bandedAlignmentWithAffineGapScore(int, int, int, int, int)} */
+	public static <G extends LinearGenome<G>> Alignment<G> alignBandedWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int bandWidth, Random rng, G a, G b) {
+		return Banded.localAlign(matchScore, mismatchScore, gapOpenScore, gapExtendScore, bandWidth, rng, a, b);
+	}
+	
+	/**
+	 * Local alignment with an affine gap scoring scheme, finding the best score with the striped algorithm of {@link Striped}.
+	 * This gives an alignment with the same score as {@link #alignmentWithAffineGapScore(int, int, int, int)}, and is faster when the aligned region is much shorter than the genomes.
+	 * Genomes and scores that are not supported by {@link Striped} are aligned with {@link Affine.SmithWaterman} instead.
+	 */
+	public static <G extends LinearGenome<G>> AlignmentRule<G> stripedAlignmentWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore) {
+		return (rng) -> (a, b) -> alignStripedWithAffineGapScore(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+	}
+	
+	/** See {@link #stripedAlignmentWithAffineGapScore(int, int, int, int)} */
+	public static <G extends LinearGenome<G>> Alignment<G> alignStripedWithAffineGapScore(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
+		if (Striped.supports(a, b, gapOpenScore, gapExtendScore)) {
+			return Striped.align(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		} else {
+			return Affine.SmithWaterman.align(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		}
+	}
+	
+	/**
+	 * Local alignment with an affine gap scoring scheme, dropping cells of the score matrix that score more than xDrop below the best score so far, see {@link XDrop}.
+	 * For closely related genomes this only computes a narrow band of the score matrix, and gives the same alignment as {@link #alignmentWithAffineGapScore(int, int, int, int)} as long as the alignment never scores more than xDrop below its best.
+	 * @param xDrop - How far the score of a cell may be below the best score so far before it is dropped.
+	 */
+	public static <G extends LinearGenome<G>> AlignmentRule<G> alignmentWithXDrop(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int xDrop) {
+		return (rng) -> (a, b) -> alignWithXDrop(matchScore, mismatchScore, gapOpenScore, gapExtendScore, xDrop, rng, a, b);
+	}
+	
+	/** See {@link #alignmentWithXDrop(int, int, int, int, int)} */
+	public static <G extends LinearGenome<G>> Alignment<G> alignWithXDrop(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int xDrop, Random rng, G a, G b) {
+		return XDrop.align(matchScore, mismatchScore, gapOpenScore, gapExtendScore, xDrop, rng, a, b);
+	}
+	
 	/**
 	 * Local alignment allowing no gaps.
 	 */
@@ -58,6 +122,13 @@ public final class Local {
 	public static <G extends LinearGenome<G>> Alignment<G> alignWithNoGaps(int matchScore, int mismatchScore, Random rng, G a, G b) {
 		return Gapless.align(rng, matchScore, mismatchScore, a, b);
 	}
+	
+	/**
+	 * Score of the local alignment allowing no gaps, see {@link #alignmentWithNoGaps(int, int)}, without building the alignment.
+	 */
+	public static <G extends LinearGenome<G>> ToDoubleBiFunction<G,G> scoreWithNoGaps(int matchScore, int mismatchScore) {
+		return (a, b) -> Gapless.score(matchScore, mismatchScore, a, b);
+	}
 
 	/**
 	 * Local alignment with affine gap score.
@@ -81,11 +152,48 @@ public final class Local {
 	 * Not to be confused with longest common subsequence, which is a global alignment type.
 	 */
 	public static <G extends LinearGenome<G>> AlignmentRule<G> longestCommonSubstring() {
-		return (rng) -> (a, b) -> alignLongestCommonSubstring(rng, a, b);
+		return new AlignmentRule<G>() {
+			@Override
+			public AlignmentOp<G> apply(Random rng) {
+				return new AlignmentOp<G>() {
+					@Override
+					public Alignment<G> apply(G a, G b) {
+						return alignLongestCommonSubstring(rng, a, b);
+					}
+					
+					// Binary genomes are indexed once, so that repeated alignment in ranges of the same genomes (as in synapsing) does not start over
+					@Override
+					public RangeAlignmentOp<G> inRanges(G a, G b) {
+						if (CommonSubstringIndex.supports(a, b)) {
+							return CommonSubstringIndex.of(a, b).inRanges(rng);
+						} else {
+							return AlignmentOp.super.inRanges(a, b);
+						}
+					}
+				};
+			}
+			
+			@Override
+			public Function<Random, RangeAlignmentOp<G>> inRanges(G a, G b) {
+				if (CommonSubstringIndex.supports(a, b)) {
+					return CommonSubstringIndex.of(a, b)::inRanges;
+				} else {
+					return AlignmentRule.super.inRanges(a, b);
+				}
+			}
+		};
 	}
 	
+	/**
+	 * See {@link #longestCommonSubstring()}.
+	 * Binary genomes are aligned using a suffix array ({@link CommonSubstringIndex}), other genomes by trying all diagonals ({@link Gapless}).
+	 */
 	public static <G extends LinearGenome<G>> Alignment<G> alignLongestCommonSubstring(Random rng, G a, G b) {
-		return Gapless.align(rng, 1, -a.size()-b.size(), a, b);
+		if (CommonSubstringIndex.supports(a, b)) {
+			return CommonSubstringIndex.of(a, b).longest(rng);
+		} else {
+			return Gapless.align(rng, 1, -a.size()-b.size(), a, b);
+		}
 	}
 	
 	
@@ -101,8 +209,7 @@ public final class Local {
 	public static <G extends LinearGenome<G>> Alignment<G> alignInRange(AlignmentOp<G> align, G a, int aInclusiveStart, int aExclusiveEnd, G b, int bInclusiveStart, int bExclusiveEnd) {
 		Alignment<G> alignresult = align.apply(a.view(aInclusiveStart, aExclusiveEnd), b.view(bInclusiveStart, bExclusiveEnd));
 		// Shift resulting pairs to fit in the frame of a and b
-		UnaryOperator<IntPair> shift = (p) -> IntPair.of(p.x + aInclusiveStart, p.y + bInclusiveStart);
-		SortedSet<IntPair> pairs = alignresult.getPairs().stream().map(shift).collect(Collectors.toCollection(TreeSet::new));
+		AlignedRuns pairs = alignresult.getRuns().shifted(aInclusiveStart, bInclusiveStart);
 		// Done
 		return new Alignment<>(alignresult.score, pairs, a, b);
 	}
@@ -2,7 +2,6 @@ package alignment;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.OptionalInt;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -27,10 +26,10 @@ public final class PerfectAlignment {
 		int segmenti = -1;
 		int otheri = -2;
 		
+		int[] firstMatch = new int[1];
 		for (int i=0; i<a.size(); i++) {
-			OptionalInt matchMaybe = b.homologsOf(a, i).findFirst();
-			if (matchMaybe.isEmpty()) continue;
-			int match = matchMaybe.getAsInt();
+			if (b.homologs(a.getId(i), firstMatch) == 0) continue;
+			int match = firstMatch[0];
 			
 			if (match != otheri + 1) {
 				if (segmenti != -1) segments.add(segment);
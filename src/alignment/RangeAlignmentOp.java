@@ -0,0 +1,15 @@
+package alignment;
+
+import genome.LinearGenome;
+
+/**
+ * Alignment operator restricted to ranges of two fixed genomes.
+ * Instances are obtained from {@link AlignmentOp#inRanges(LinearGenome, LinearGenome)}, and are used by algorithms that align many ranges of the same pair of genomes, so that work can be shared between the ranges.
+ * The resulting alignment is in the frame of the full genomes, as for {@link Local#alignInRange(AlignmentOp, LinearGenome, int, int, LinearGenome, int, int)}.
+ */
+@FunctionalInterface
+public interface RangeAlignmentOp<G extends LinearGenome<G>> {
+
+    public Alignment<G> apply(int aInclusiveStart, int aExclusiveEnd, int bInclusiveStart, int bExclusiveEnd);
+
+}
@@ -21,6 +21,7 @@ import util.IntPair;
  */
 public class VarOAlignment<G extends LinearGenome<G>> {
 
+	private final List<AlignedRuns> runs;
 	private final List<SortedSet<IntPair>> segments;
 	private final G a;
 	private final G b;
@@ -29,9 +30,10 @@ public class VarOAlignment<G extends LinearGenome<G>> {
 	public VarOAlignment(List<SortedSet<IntPair>> segments, G a, G b) {
 		this.a = a;
 		this.b = b;
-		segments = segments.stream().filter((pairs) -> !pairs.isEmpty()).collect(Collectors.toList());
-		segments.sort(Comparator.comparing(SortedSet::first));
-		this.segments = Collections.unmodifiableList(segments);
+		List<AlignedRuns> runs = segments.stream().filter((pairs) -> !pairs.isEmpty()).map(AlignedRuns::of).collect(Collectors.toList());
+		runs.sort(Comparator.comparing(AlignedRuns::first));
+		this.runs = Collections.unmodifiableList(runs);
+		this.segments = Collections.unmodifiableList(runs);
 	}
 
 	public G getA () {
@@ -55,13 +57,11 @@ public class VarOAlignment<G extends LinearGenome<G>> {
 		while (i<this.segments.size()) {
 			int indexOnB = bOrder.indexOf(i);
 
-			SortedSet<IntPair> newsegment = new TreeSet<>();
 			int j=0;
 			while (indexOnB+j < this.segments.size() && bOrder.get(indexOnB+j) == i+j) {
-				newsegment.addAll(this.segments.get(i+j));
 				j++;
 			}
-			newsegments.add(newsegment);
+			newsegments.add(union(this.runs.subList(i, i+j)));
 
 			i += j;
 		}
@@ -73,13 +73,29 @@ public class VarOAlignment<G extends LinearGenome<G>> {
 	 * Get all pairs of this alignment.
 	 */
 	public SortedSet<IntPair> getPairs() {
-		if (this.segments.size() == 1) {
-			return Collections.unmodifiableSortedSet(this.segments.get(0));
+		if (this.runs.size() == 1) {
+			return this.runs.get(0);
 		} else  {
+			return union(this.runs);
+		}
+	}
+
+	/**
+	 * All pairs of the given sets, which must be sorted by their first pair.
+	 * If every set lies entirely after the previous one, their runs are simply concatenated.
+	 */
+	static SortedSet<IntPair> union(List<AlignedRuns> sets) {
+		boolean consecutive = true;
+		for (int i=1; i<sets.size(); i++) {
+			if (sets.get(i).first().compareTo(sets.get(i-1).last()) <= 0) consecutive = false;
+		}
+		if (consecutive) {
+			AlignedRuns.Builder result = AlignedRuns.ascending();
+			for (AlignedRuns set : sets) result.addAll(set);
+			return result.build();
+		} else {
 			SortedSet<IntPair> result = new TreeSet<>();
-			for (SortedSet<IntPair> segment : this.getSegments()) {
-				result.addAll(segment);
-			}
+			for (AlignedRuns set : sets) result.addAll(set);
 			return result;
 		}
 	}
@@ -93,6 +109,13 @@ public class VarOAlignment<G extends LinearGenome<G>> {
 		return this.segments;
 	}
 
+	/**
+	 * The segments of this alignment as runs of pairs, see {@link #getSegments()}.
+	 */
+	public List<AlignedRuns> getSegmentRuns() {
+		return this.runs;
+	}
+
 	private static final char[] SEGMENT_NAMES = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%&*+".toCharArray();
 
 	public String displayA() {
@@ -101,38 +124,34 @@ public class VarOAlignment<G extends LinearGenome<G>> {
 
 		int ai = 0;
 		int segmentIndex = -1;
-		for (SortedSet<IntPair> segment : this.getSegments()) {
+		for (AlignedRuns segment : this.getSegmentRuns()) {
 			segmentIndex++;
 			char segmentid = segmentIndex < SEGMENT_NAMES.length ? SEGMENT_NAMES[segmentIndex] : '^';
-			int bi = segment.first().y;
+			int bi = segment.runB(0);
 			// Print head or part between segments
-    		while (ai < segment.first().x) {
+    		while (ai < segment.runA(0)) {
     			aStr.append(this.getA().view1(ai));
     			bStr.append(' ');
     			ai++;
     		}
     		// Print segment
-			for (IntPair pair : segment) {
-	    		while (ai < pair.x) {
+			for (int run=0; run<segment.runCount(); run++) {
+	    		while (ai < segment.runA(run)) {
 	    			aStr.append(this.getA().view1(ai));
 	    			bStr.append('-');
 	    			ai++;
 	    		}
-	    		while (bi < pair.y) {
+	    		while (bi < segment.runB(run)) {
 	    			aStr.append('-');
 	    			bStr.append(this.getB().view1(bi));
 	    			bi++;
 	    		}
-	    		try {
+	    		for (int k=0; k<segment.runLength(run); k++) {
 	    			aStr.append(this.getA().view1(ai));
 	    			bStr.append(this.getB().view1(bi).sameSequence(this.getA().view1(ai)) ? segmentid : (this.getB().view1(bi)));
-	    		} catch (Exception e) {
-	    			System.err.println(pair);
-	    			throw e;
+	    			ai++;
+	    			bi++;
 	    		}
-
-	    		ai++;
-	    		bi++;
 			}
 		}
 		// Print tail
@@ -149,36 +168,38 @@ public class VarOAlignment<G extends LinearGenome<G>> {
 		StringBuilder aStr = new StringBuilder(),
 			          bStr = new StringBuilder();
 
-		List<SortedSet<IntPair>> bOrderedSegments = new ArrayList<>(this.getSegments());
-		bOrderedSegments.sort(Comparator.comparing(pairs -> pairs.first().flip()));
+		List<Integer> bOrder = IntStream.range(0, this.runs.size()).boxed().collect(Collectors.toCollection(ArrayList::new));
+		bOrder.sort(Comparator.comparing(i -> this.runs.get(i).first().flip()));
 
 		int bi = 0;
-		for (SortedSet<IntPair> segment : bOrderedSegments) {
-			int segmentIndex = this.getSegments().indexOf(segment);
+		for (int segmentIndex : bOrder) {
+			AlignedRuns segment = this.runs.get(segmentIndex);
 			char segmentid = segmentIndex < SEGMENT_NAMES.length ? SEGMENT_NAMES[segmentIndex] : '^';
-			int ai = segment.first().x;
+			int ai = segment.runA(0);
 			// Print head or part between segments
-			while (bi < segment.first().y) {
+			while (bi < segment.runB(0)) {
 				aStr.append(' ');
 				bStr.append(this.getB().view1(bi));
 				bi++;
 			}
 			// Print segment
-			for (IntPair pair : segment) {
-	  		while (ai < pair.x) {
+			for (int run=0; run<segment.runCount(); run++) {
+	  		while (ai < segment.runA(run)) {
 	  			aStr.append(this.getA().view1(ai));
 	  			bStr.append('-');
 	  			ai++;
 	  		}
-	  		while (bi < pair.y) {
+	  		while (bi < segment.runB(run)) {
 	  			aStr.append('-');
 	  			bStr.append(this.getB().view1(bi));
 	  			bi++;
 	  		}
-	  		aStr.append(this.getA().view1(ai).sameSequence(this.getB().view1(bi)) ? segmentid : this.getA().view1(ai));
-	  		bStr.append(this.getB().view1(bi));
-	  		ai++;
-	  		bi++;
+	  		for (int k=0; k<segment.runLength(run); k++) {
+	  			aStr.append(this.getA().view1(ai).sameSequence(this.getB().view1(bi)) ? segmentid : this.getA().view1(ai));
+	  			bStr.append(this.getB().view1(bi));
+	  			ai++;
+	  			bi++;
+	  		}
 			}
 		}
 		// Print tail
@@ -1,16 +1,12 @@
 package alignment.algorithms;
 
 import java.util.List;
-import java.util.NavigableSet;
-import java.util.Optional;
 import java.util.Random;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
+import alignment.AlignedRuns;
 import alignment.Alignment;
 import genome.LinearGenome;
 import util.DiscreteDistribution;
-import util.IntPair;
 
 /**
  * Exact alignment algorithm for affine alignment scores, i.e. Needleman-Wunsch and Smith-Waterman implementations.
@@ -35,6 +31,7 @@ public abstract class Affine<G extends LinearGenome<G>> {
 	public final G a;
 	public final G b;
 	public final Random rng;
+	final SameAt sameAt;
 	
 	public Affine(int matchScore ,int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
 		this.matchScore = matchScore;
@@ -44,40 +41,125 @@ public abstract class Affine<G extends LinearGenome<G>> {
 		this.a = a;
 		this.b = b;
 		this.rng = rng;
+		this.sameAt = SameAt.of(a, b);
 	}
 	
-	protected int[][][] scoreMatrix;
+	protected AffineMatrix scoreMatrix;
 	
 	/**
-	 * Simple flyweight decreases computation time by 1/3 by removing the need to initialize large matrix.
-	 * Only works if no two algorithms need the matrix at the same time. But this would require too much memory anyway.
+	 * Borrow a score matrix from the {@link Workspace} pool, which saves the time needed to allocate a large matrix.
+	 * The matrix uses 16-bit cells if no score of this alignment can overflow them, and 32-bit cells otherwise. Its initial values are unspecified.
+	 * Give it back with {@link #releaseMatrix()}.
 	 */
-	private static Optional<int[][][]> globalMatrix = Optional.empty();
-	
 	protected void grabMatrix() {
-		if (globalMatrix.isEmpty() || globalMatrix.get().length < a.size()+1 || globalMatrix.get()[0].length < b.size()+1) {
-			int adim = Math.max(a.size()+1, 2000);
-			int bdim = Math.max(b.size()+1, 2000);
-			globalMatrix = Optional.of(new int[adim][bdim][3]);
-		}
-		scoreMatrix = globalMatrix.get();
+		scoreMatrix = AffineMatrix.grab(a.size()+1, b.size()+1, this.scoreBound(), a.size(), b.size());
 	}
 	
-	protected void newMatrix() {
-		int[][][] newMatrix = new int[a.size()+1][b.size()+1][3];
-		this.scoreMatrix = newMatrix;
+	/**
+	 * Give the score matrix back to the {@link Workspace} pool, after which this algorithm can no longer use it.
+	 */
+	protected void releaseMatrix() {
+		scoreMatrix.release();
+		scoreMatrix = null;
 	}
 	
-	protected void copyMatrix() {
-		int[][][] newMatrix = new int[a.size()+1][b.size()+1][3];
-		for (int im : List.of(MATCH,INS_A,INS_B)) {
-			for (int ia=0; ia<=a.size(); ia++) {
-				for (int ib=0; ib<=b.size(); ib++) {
-					newMatrix[ia][ib][im] = scoreMatrix[ia][ib][im];
+	/**
+	 * Upper bound on the absolute value of any score in the matrix (other than {@link #stop}).
+	 */
+	long scoreBound() {
+		return scoreBound(matchScore, mismatchScore, gapOpenScore, gapExtendScore, a.size(), b.size());
+	}
+	
+	/**
+	 * Upper bound on the absolute value of any score of an alignment of genomes of the given sizes.
+	 * Every alignment path has at most sizeA+sizeB steps, each adding one of the score parameters.
+	 */
+	static long scoreBound(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int sizeA, int sizeB) {
+		int maxStep = Math.max(
+			Math.max(Math.abs(matchScore), Math.abs(mismatchScore)),
+			Math.max(Math.abs(gapOpenScore), Math.abs(gapExtendScore)));
+		return (long) (sizeA + sizeB + 1) * maxStep;
+	}
+	
+	/**
+	 * Score of the best alignment ending at (ia, ib) in state im.
+	 */
+	public int score(int ia, int ib, int im) {
+		return scoreMatrix.get(ia, ib, im);
+	}
+	
+	/**
+	 * Fill the score matrix, given its first row and first column.
+	 * Rows are computed one at a time in int buffers, which only need the previous row, and then stored in the matrix.
+	 */
+	public void fillScoreMatrix() {
+		int cols = b.size()+1;
+		int[] prevMatch = new int[cols];
+		int[] prevInsA = new int[cols];
+		int[] prevInsB = new int[cols];
+		int[] curMatch = new int[cols];
+		int[] curInsA = new int[cols];
+		int[] curInsB = new int[cols];
+		
+		scoreMatrix.getRow(0, prevMatch, prevInsA, prevInsB);
+		for (int ia=1; ia<=a.size(); ia++) {
+			curMatch[0] = scoreMatrix.get(ia, 0, MATCH);
+			curInsA[0] = scoreMatrix.get(ia, 0, INS_A);
+			curInsB[0] = scoreMatrix.get(ia, 0, INS_B);
+			this.step(ia, prevMatch, prevInsA, prevInsB, curMatch, curInsA, curInsB);
+			scoreMatrix.setRow(ia, curMatch, curInsA, curInsB);
+			
+			int[] swap;
+			swap = prevMatch; prevMatch = curMatch; curMatch = swap;
+			swap = prevInsA; prevInsA = curInsA; curInsA = swap;
+			swap = prevInsB; prevInsB = curInsB; curInsB = swap;
+		}
+	}
+	
+	/**
+	 * Fill one row of the score matrix, from column 1 onwards, given the previous row and the first column of this row.
+	 * Each array holds the scores of one state, indexed by position on b.
+	 */
+	protected abstract void step(int ia, int[] prevMatch, int[] prevInsA, int[] prevInsB, int[] curMatch, int[] curInsA, int[] curInsB);
+	
+	/**
+	 * Best score of the alignment, computed with {@link #step} in two rolling rows without a score matrix or traceback.
+	 * This takes O(b.size()) memory, so callers put the shorter genome in b (the score does not depend on which genome is a).
+	 * @param local - Whether to start from the boundary of {@link SmithWaterman#initializeScoreMatrix()} and return the best score in any cell, rather than that of {@link NeedlemanWunsch#initializeScoreMatrix()} and the score in the last cell.
+	 */
+	int scoreWithoutMatrix(boolean local) {
+		int cols = b.size()+1;
+		int[] prevMatch = new int[cols];
+		int[] prevInsA = new int[cols];
+		int[] prevInsB = new int[cols];
+		int[] curMatch = new int[cols];
+		int[] curInsA = new int[cols];
+		int[] curInsB = new int[cols];
+		
+		for (int ib=1; ib<cols; ib++) {
+			prevMatch[ib] = local ? 0 : stop;
+			prevInsA[ib] = local ? 0 : stop;
+			prevInsB[ib] = local ? 0 : gapOpenScore + (ib-1)*gapExtendScore;
+		}
+		int best = 0;
+		for (int ia=1; ia<=a.size(); ia++) {
+			curMatch[0] = local ? 0 : stop;
+			curInsA[0] = local ? 0 : gapOpenScore + (ia-1)*gapExtendScore;
+			curInsB[0] = local ? 0 : stop;
+			this.step(ia, prevMatch, prevInsA, prevInsB, curMatch, curInsA, curInsB);
+			if (local) {
+				for (int ib=1; ib<cols; ib++) {
+					best = Math.max(best, max3(curMatch[ib], curInsA[ib], curInsB[ib]));
 				}
 			}
+			
+			int[] swap;
+			swap = prevMatch; prevMatch = curMatch; curMatch = swap;
+			swap = prevInsA; prevInsA = curInsA; curInsA = swap;
+			swap = prevInsB; prevInsB = curInsB; curInsB = swap;
 		}
-		this.scoreMatrix = newMatrix;
+		
+		return local ? best : max3(prevMatch[cols-1], prevInsA[cols-1], prevInsB[cols-1]);
 	}
 	
 	public static class NeedlemanWunsch<G extends LinearGenome<G>> extends Affine<G> {
@@ -86,6 +168,17 @@ public abstract class Affine<G extends LinearGenome<G>> {
 			super(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
 		}
 		
+	    /**
+	     * Score of {@link #align(int, int, int, int, Random, LinearGenome, LinearGenome)}, without building the alignment.
+	     * Only two rows over the shorter genome are kept, so this takes O(min(a.size(), b.size())) memory.
+	     */
+	    public static <G extends LinearGenome<G>> int score(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, G a, G b) {
+	    	NeedlemanWunsch<G> algorithm = a.size() >= b.size()
+	    			? new NeedlemanWunsch<>(matchScore, mismatchScore, gapOpenScore, gapExtendScore, null, a, b)
+	    			: new NeedlemanWunsch<>(matchScore, mismatchScore, gapOpenScore, gapExtendScore, null, b, a);
+	    	return algorithm.scoreWithoutMatrix(false);
+	    }
+	    
 	    public static <G extends LinearGenome<G>> Alignment<G> align(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
 	    	NeedlemanWunsch<G> algorithm = new NeedlemanWunsch<>(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
 	    	
@@ -96,30 +189,23 @@ public abstract class Affine<G extends LinearGenome<G>> {
 	        
 			int endia = a.size();
 			int endib = b.size();
-			int endim = DiscreteDistribution.getBestIndexOf(rng, algorithm.scoreMatrix[endia][endib]);
-			int endscore = max3(algorithm.scoreMatrix[a.size()][b.size()]);
+			int endim = DiscreteDistribution.getBestIndexOf(rng, algorithm.score(endia, endib, MATCH), algorithm.score(endia, endib, INS_A), algorithm.score(endia, endib, INS_B));
+			int endscore = max3(algorithm.score(endia, endib, MATCH), algorithm.score(endia, endib, INS_A), algorithm.score(endia, endib, INS_B));
 			
-			SortedSet<IntPair> alignedPairs = algorithm.traceback(endia, endib, endim, stop);
+			AlignedRuns alignedPairs = algorithm.traceback(endia, endib, endim, stop);
+			algorithm.releaseMatrix();
 			
 	        return new Alignment<>(endscore, alignedPairs, a, b);
 	    }
 
-		public void fillScoreMatrix() {
-			for (int ia=1; ia<=a.size(); ia++) {
-	            for (int ib=1; ib<=b.size(); ib++) {
-	            	this.step(ia, ib);
-	            }
-	        }
-		}
-	    
 	    /**
 	     * Sets the end of the score matrix to stop value.
 	     * This allows using the same stop condition as for local alignment in traceback.
 	     */
 	    public void finalizeScoreMatrix() {
-	    	scoreMatrix[0][0][MATCH] = stop;
-	    	scoreMatrix[0][0][INS_A] = stop;
-	    	scoreMatrix[0][0][INS_B] = stop;
+	    	scoreMatrix.set(0, 0, MATCH, stop);
+	    	scoreMatrix.set(0, 0, INS_A, stop);
+	    	scoreMatrix.set(0, 0, INS_B, stop);
 	    }
 	    
 	    /**
@@ -130,58 +216,55 @@ public abstract class Affine<G extends LinearGenome<G>> {
 		public void initializeScoreMatrix() {
 			
 			// Matrix corner -- alignment complete
-			scoreMatrix[0][0][INS_A] = 0;
-		    scoreMatrix[0][0][INS_B] = 0;
-		    scoreMatrix[0][0][MATCH] = 0;
+			scoreMatrix.set(0, 0, INS_A, 0);
+			scoreMatrix.set(0, 0, INS_B, 0);
+			scoreMatrix.set(0, 0, MATCH, 0);
 		    
 		    // Boundary (b is in initial state, alignment opens with gap in a)
-		    scoreMatrix[1][0][INS_A] = gapOpenScore;
-		    scoreMatrix[1][0][INS_B] = stop;
-		    scoreMatrix[1][0][MATCH] = stop;
-		    for (int ia=2; ia<=a.size(); ia++) {
-		        scoreMatrix[ia][0][INS_A] = scoreMatrix[ia-1][0][INS_A] + gapExtendScore;
-		        scoreMatrix[ia][0][INS_B] = stop;
-		        scoreMatrix[ia][0][MATCH] = stop;
+		    for (int ia=1; ia<=a.size(); ia++) {
+		        scoreMatrix.set(ia, 0, INS_A, gapOpenScore + (ia-1)*gapExtendScore);
+		        scoreMatrix.set(ia, 0, INS_B, stop);
+		        scoreMatrix.set(ia, 0, MATCH, stop);
 		    }
 		
 		    // Boundary (a is in initial state, alignment opens with gap in b)
-		    scoreMatrix[0][1][INS_A] = stop;
-		    scoreMatrix[0][1][INS_B] = gapOpenScore;
-		    scoreMatrix[0][1][MATCH] = stop;
-		    for (int ib=2; ib<=b.size(); ib++) {
-		        scoreMatrix[0][ib][INS_A] = stop;
-		        scoreMatrix[0][ib][INS_B] = scoreMatrix[0][ib-1][INS_B] + gapExtendScore;
-		        scoreMatrix[0][ib][MATCH] = stop;
+		    for (int ib=1; ib<=b.size(); ib++) {
+		        scoreMatrix.set(0, ib, INS_A, stop);
+		        scoreMatrix.set(0, ib, INS_B, gapOpenScore + (ib-1)*gapExtendScore);
+		        scoreMatrix.set(0, ib, MATCH, stop);
 		    }
 		    
 		    // Rest of the matrix to be filled
 		}
 
 	    /**
-	     * Fill one cell in the matrix for Needleman-Wunsch with affine gap Score.
-	     * This is the core of the algorithm; it finds and records the best way to align subsequences (0--ia) and (0--ib) of the two genomes, given the best alignments of the subsequences up until then.
+	     * Fill one row in the matrix for Needleman-Wunsch with affine gap Score.
+	     * This is the core of the algorithm; for each ib it finds and records the best way to align subsequences (0--ia) and (0--ib) of the two genomes, given the best alignments of the subsequences up until then.
 	     * Because of the affine gap Score the algorithm needs to take into account the three separate cases of there having been an A-gap, B-gap or match in this step as well as the last step.
 	     */
-		public void step(int ia, int ib) {
-			int matchCost = a.sameAt(ia-1, b, ib-1) ? matchScore : mismatchScore;
-			
-			scoreMatrix[ia][ib][MATCH] = max3(
-				scoreMatrix[ia-1][ib-1][INS_A] + matchCost,
-				scoreMatrix[ia-1][ib-1][INS_B] + matchCost,
-				scoreMatrix[ia-1][ib-1][MATCH] + matchCost
-				);
-			
-			scoreMatrix[ia][ib][INS_A] = max3(
-				scoreMatrix[ia-1][ib][INS_A] + gapExtendScore,
-				scoreMatrix[ia-1][ib][INS_B] + gapOpenScore,
-				scoreMatrix[ia-1][ib][MATCH] + gapOpenScore
-				);
-			
-			scoreMatrix[ia][ib][INS_B] = max3(
-				scoreMatrix[ia][ib-1][INS_A] + gapOpenScore,
-				scoreMatrix[ia][ib-1][INS_B] + gapExtendScore,
-				scoreMatrix[ia][ib-1][MATCH] + gapOpenScore
-				);
+		@Override
+		protected void step(int ia, int[] prevMatch, int[] prevInsA, int[] prevInsB, int[] curMatch, int[] curInsA, int[] curInsB) {
+			for (int ib=1; ib<curMatch.length; ib++) {
+				int matchCost = sameAt.test(ia-1, ib-1) ? matchScore : mismatchScore;
+				
+				curMatch[ib] = max3(
+					prevInsA[ib-1],
+					prevInsB[ib-1],
+					prevMatch[ib-1]
+					) + matchCost;
+				
+				curInsA[ib] = max3(
+					prevInsA[ib] + gapExtendScore,
+					prevInsB[ib] + gapOpenScore,
+					prevMatch[ib] + gapOpenScore
+					);
+				
+				curInsB[ib] = max3(
+					curInsA[ib-1] + gapOpenScore,
+					curInsB[ib-1] + gapExtendScore,
+					curMatch[ib-1] + gapOpenScore
+					);
+			}
 		}
 	}
 	
@@ -208,54 +291,61 @@ public abstract class Affine<G extends LinearGenome<G>> {
 		    int endim = best[2];
 		    int endscore = best[3];
 		    
-		    SortedSet<IntPair> alignedPairs = algorithm.traceback(endia, endib, endim, 0);
+		    AlignedRuns alignedPairs = algorithm.traceback(endia, endib, endim, 0);
+		    algorithm.releaseMatrix();
 		    
 		    // Done
 		    return new Alignment<>(endscore, alignedPairs, a, b);
 		}
-
-		public void fillScoreMatrix() {
-			for (int ia=1; ia<=a.size(); ia++) {
-		        for (int ib=1; ib<=b.size(); ib++) {
-		        	this.step(ia, ib);
-		        }
-		    }
-		}
 		
+		/**
+		 * Score of {@link #align(int, int, int, int, Random, LinearGenome, LinearGenome)}, without building the alignment.
+		 * Only two rows over the shorter genome are kept, so this takes O(min(a.size(), b.size())) memory.
+		 */
+		public static <G extends LinearGenome<G>> int score(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, G a, G b) {
+			SmithWaterman<G> algorithm = a.size() >= b.size()
+					? new SmithWaterman<>(matchScore, mismatchScore, gapOpenScore, gapExtendScore, null, a, b)
+					: new SmithWaterman<>(matchScore, mismatchScore, gapOpenScore, gapExtendScore, null, b, a);
+			return algorithm.scoreWithoutMatrix(true);
+		}
+
 		public void initializeScoreMatrix() {
-			// Explicitly setting these to 0 might be necessary due to flyweight matrix
+			// Explicitly setting these to 0 is necessary because pooled matrices are not cleared
 			for (int ia=0; ia<=a.size(); ia++) {
-				scoreMatrix[ia][0][MATCH] = 0;
-				scoreMatrix[ia][0][INS_A] = 0;
-				scoreMatrix[ia][0][INS_B] = 0;
+				scoreMatrix.set(ia, 0, MATCH, 0);
+				scoreMatrix.set(ia, 0, INS_A, 0);
+				scoreMatrix.set(ia, 0, INS_B, 0);
 			}
 			for (int ib=0; ib<=b.size(); ib++) {
-				scoreMatrix[0][ib][MATCH] = 0;
-				scoreMatrix[0][ib][INS_A] = 0;
-				scoreMatrix[0][ib][INS_B] = 0;
+				scoreMatrix.set(0, ib, MATCH, 0);
+				scoreMatrix.set(0, ib, INS_A, 0);
+				scoreMatrix.set(0, ib, INS_B, 0);
 			}
 		}
 		
-		public void step(int ia, int ib) {
-			int matchCost = a.sameAt(ia-1, b, ib-1) ? matchScore : mismatchScore;
-			
-			scoreMatrix[ia][ib][MATCH] = max4(0,
-				scoreMatrix[ia-1][ib-1][INS_A] + matchCost,
-				scoreMatrix[ia-1][ib-1][INS_B] + matchCost,
-				scoreMatrix[ia-1][ib-1][MATCH] + matchCost
-				);
-			
-			scoreMatrix[ia][ib][INS_A] = max4(0,
-				scoreMatrix[ia-1][ib][INS_A] + gapExtendScore,
-				scoreMatrix[ia-1][ib][INS_B] + gapOpenScore,
-				scoreMatrix[ia-1][ib][MATCH] + gapOpenScore
-				);
-			
-			scoreMatrix[ia][ib][INS_B] = max4(0,
-				scoreMatrix[ia][ib-1][INS_A] + gapOpenScore,
-				scoreMatrix[ia][ib-1][INS_B] + gapExtendScore,
-				scoreMatrix[ia][ib-1][MATCH] + gapOpenScore
-				);
+		@Override
+		protected void step(int ia, int[] prevMatch, int[] prevInsA, int[] prevInsB, int[] curMatch, int[] curInsA, int[] curInsB) {
+			for (int ib=1; ib<curMatch.length; ib++) {
+				int matchCost = sameAt.test(ia-1, ib-1) ? matchScore : mismatchScore;
+				
+				curMatch[ib] = Math.max(0, max3(
+					prevInsA[ib-1],
+					prevInsB[ib-1],
+					prevMatch[ib-1]
+					) + matchCost);
+				
+				curInsA[ib] = max4(0,
+					prevInsA[ib] + gapExtendScore,
+					prevInsB[ib] + gapOpenScore,
+					prevMatch[ib] + gapOpenScore
+					);
+				
+				curInsB[ib] = max4(0,
+					curInsA[ib-1] + gapOpenScore,
+					curInsB[ib-1] + gapExtendScore,
+					curMatch[ib-1] + gapOpenScore
+					);
+			}
 		}
 		
 		public int[] maxValue() {
@@ -268,7 +358,7 @@ public abstract class Affine<G extends LinearGenome<G>> {
 			for (int im : List.of(MATCH, INS_A, INS_B)) {
 				for (int ia=0; ia<=a.size(); ia++) {
 					for (int ib=0; ib<=b.size(); ib++) {
-						int score = scoreMatrix[ia][ib][im];
+						int score = scoreMatrix.get(ia, ib, im);
 						if (score > bestscore) {
 							bestia = ia;
 							bestib = ib;
@@ -298,32 +388,35 @@ public abstract class Affine<G extends LinearGenome<G>> {
 	 * @param im - Match/gap state of the final part of the alignment (third index of score matrix)
 	 * @param stop - Minimal score value, at which traceback should stop. Use {@link #stop} for global alignment, 0 for local alignment. 
 	 */
-	public SortedSet<IntPair> traceback(int ia, int ib, int im, int stop) {
-		// Set of matches to build up and return
-		NavigableSet<IntPair> matches = new TreeSet<>();
+	public AlignedRuns traceback(int ia, int ib, int im, int stop) {
+		// Runs of matches to build up (backwards) and return
+		AlignedRuns.Builder matches = AlignedRuns.descending();
 		
 		// Trace back until all paths are worse than "stop" level (only true in corner of matrix for global)
-		while (scoreMatrix[ia][ib][im] > stop) {
+		while (scoreMatrix.get(ia, ib, im) > stop) {
 			// Add pair to output if processing a MATCH
-			if (im == MATCH) matches.add(IntPair.of(ia-1, ib-1));
+			if (im == MATCH) matches.add(ia-1, ib-1);
 			// Match status informs of last position in alignment matrix
 			if (im == MATCH || im == INS_A) ia--;
 			if (im == MATCH || im == INS_B) ib--;
 			// Given this position, which of the three states (MATCH, INS_A, INS_B)?
-			// Reverse the max3 operation in affineNeedlemanWunschStep
-			// Since the actual values don't matter, only which one is highest, we can make a shortcut
-			int newim;
-			if (im != MATCH) {
-				scoreMatrix[ia][ib][im] += gapExtendScore - gapOpenScore;
-				newim = DiscreteDistribution.getBestIndexOf(rng, scoreMatrix[ia][ib]);
-				scoreMatrix[ia][ib][im] -= gapExtendScore - gapOpenScore;
-			} else {
-				newim = DiscreteDistribution.getBestIndexOf(rng, scoreMatrix[ia][ib]);
-			}
-			im = newim;
+			im = this.previousState(ia, ib, im);
 		}
 		
-		return matches;
+		return matches.build();
+	}
+	
+	/**
+	 * Find which state at (ia, ib) the best alignment ending in state im in the next step came from, choosing randomly between equally good states.
+	 * This reverses the max3 operation in {@link #step}: since the actual values don't matter, only which one is highest, we can make a shortcut by comparing the scores of the three states, with a gap extension instead of a gap opening if im continues a gap.
+	 */
+	public int previousState(int ia, int ib, int im) {
+		int match = scoreMatrix.get(ia, ib, MATCH);
+		int insA = scoreMatrix.get(ia, ib, INS_A);
+		int insB = scoreMatrix.get(ia, ib, INS_B);
+		if (im == INS_A) insA += gapExtendScore - gapOpenScore;
+		if (im == INS_B) insB += gapExtendScore - gapOpenScore;
+		return DiscreteDistribution.getBestIndexOf(rng, match, insA, insB);
 	}
 	
 	public static int max3(int[] xs) {
@@ -0,0 +1,140 @@
+package alignment.algorithms;
+
+import static alignment.algorithms.Affine.INS_A;
+import static alignment.algorithms.Affine.INS_B;
+import static alignment.algorithms.Affine.MATCH;
+
+/**
+ * Score matrix of {@link Affine}, holding for each cell (ia, ib) the best score of alignments ending there in each of the three match/gap states.
+ * Each state has its own flat row-major plane (H for {@link Affine#MATCH}, E for {@link Affine#INS_A}, F for {@link Affine#INS_B}), so that a row of one state is contiguous in memory and a whole row can be read or written with a simple loop.
+ *
+ * When all scores that can occur are known to fit in 16 bits, the planes are stored as shorts, which halves the memory and memory traffic of the matrix; otherwise they are stored as ints.
+ * The buffers are borrowed from the {@link Workspace} pool, and should be given back with {@link #release()}.
+ */
+final class AffineMatrix {
+
+	/**
+	 * Stored value standing for {@link Affine#stop} in 16-bit planes.
+	 * Real scores are always greater than this.
+	 */
+	private static final short SHORT_STOP = Short.MIN_VALUE;
+
+	final int rows;
+	final int cols;
+	private final int plane;
+	private short[] shorts;
+	private int[] ints;
+
+	private AffineMatrix(int rows, int cols, boolean narrow, int sizeA, int sizeB) {
+		this.rows = rows;
+		this.cols = cols;
+		try {
+			this.plane = Math.multiplyExact(rows, cols);
+			Math.multiplyExact(3, this.plane);
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException(String.format("Score matrix of %d by %d cells for genomes of size %d and %d is too large to hold in an array.", rows, cols, sizeA, sizeB), e);
+		}
+		if (narrow) {
+			this.shorts = Workspace.shorts(3 * this.plane);
+		} else {
+			this.ints = Workspace.ints(3 * this.plane);
+		}
+	}
+
+	/**
+	 * Borrow a matrix with the given number of rows and columns.
+	 * Values in the matrix are unspecified.
+	 * @param bound - Upper bound on the absolute value of any score that will be stored, other than {@link Affine#stop}. Decides whether 16-bit planes can be used.
+	 * @param sizeA - Size of the first aligned genome, for the error message.
+	 * @param sizeB - Size of the second aligned genome, for the error message.
+	 * @throws IllegalArgumentException - If the matrix has too many cells to fit in an array.
+	 */
+	static AffineMatrix grab(int rows, int cols, long bound, int sizeA, int sizeB) {
+		return new AffineMatrix(rows, cols, fitsShort(bound), sizeA, sizeB);
+	}
+
+	/**
+	 * Whether scores with the given bound on their absolute value can be stored in 16-bit planes.
+	 */
+	static boolean fitsShort(long bound) {
+		return bound < Short.MAX_VALUE;
+	}
+
+	/**
+	 * Whether this matrix stores its scores in 16 bits.
+	 */
+	boolean isNarrow() {
+		return this.shorts != null;
+	}
+
+	private int index(int ia, int ib, int im) {
+		return im * this.plane + ia * this.cols + ib;
+	}
+
+	int get(int ia, int ib, int im) {
+		if (this.shorts != null) {
+			short value = this.shorts[this.index(ia, ib, im)];
+			return value == SHORT_STOP ? Affine.stop : value;
+		} else {
+			return this.ints[this.index(ia, ib, im)];
+		}
+	}
+
+	void set(int ia, int ib, int im, int value) {
+		if (this.shorts != null) {
+			this.shorts[this.index(ia, ib, im)] = narrow(value);
+		} else {
+			this.ints[this.index(ia, ib, im)] = value;
+		}
+	}
+
+	/**
+	 * Values that are too small for 16 bits can only be derived from {@link Affine#stop}, so they are stored as stop.
+	 */
+	private static short narrow(int value) {
+		return value <= SHORT_STOP ? SHORT_STOP : (short) value;
+	}
+
+	/**
+	 * Read one row of all three planes.
+	 */
+	void getRow(int ia, int[] match, int[] insA, int[] insB) {
+		for (int ib=0; ib<this.cols; ib++) {
+			match[ib] = this.get(ia, ib, MATCH);
+			insA[ib] = this.get(ia, ib, INS_A);
+			insB[ib] = this.get(ia, ib, INS_B);
+		}
+	}
+
+	/**
+	 * Write one row of all three planes.
+	 */
+	void setRow(int ia, int[] match, int[] insA, int[] insB) {
+		int h = this.index(ia, 0, MATCH);
+		int e = this.index(ia, 0, INS_A);
+		int f = this.index(ia, 0, INS_B);
+		if (this.shorts != null) {
+			short[] s = this.shorts;
+			for (int ib=0; ib<this.cols; ib++) {
+				s[h+ib] = narrow(match[ib]);
+				s[e+ib] = narrow(insA[ib]);
+				s[f+ib] = narrow(insB[ib]);
+			}
+		} else {
+			System.arraycopy(match, 0, this.ints, h, this.cols);
+			System.arraycopy(insA, 0, this.ints, e, this.cols);
+			System.arraycopy(insB, 0, this.ints, f, this.cols);
+		}
+	}
+
+	/**
+	 * Give the buffers back to the {@link Workspace} pool, after which this matrix can no longer be used.
+	 */
+	void release() {
+		if (this.shorts != null) Workspace.release(this.shorts);
+		if (this.ints != null) Workspace.release(this.ints);
+		this.shorts = null;
+		this.ints = null;
+	}
+
+}
@@ -0,0 +1,298 @@
+package alignment.algorithms;
+
+import static alignment.algorithms.Affine.INS_A;
+import static alignment.algorithms.Affine.INS_B;
+import static alignment.algorithms.Affine.MATCH;
+import static alignment.algorithms.Affine.max3;
+import static alignment.algorithms.Affine.max4;
+
+import java.util.Random;
+
+import alignment.AlignedRuns;
+import alignment.Alignment;
+import genome.LinearGenome;
+import util.DiscreteDistribution;
+
+/**
+ * Affine gap alignment restricted to a diagonal band of the score matrix, for genomes that differ by few insertions and deletions.
+ * Only the cells (ia, ib) with lo <= ib-ia <= hi are filled, where the band [lo, hi] covers the diagonals through both corners of the matrix (0 and b.size()-a.size()), widened by the band width on either side.
+ * This takes time and memory proportional to the genome size times the band width, instead of a.size()*b.size().
+ *
+ * An alignment found within the band is only optimal if the optimal alignment does not leave the band.
+ * Whenever the traceback touches an edge of the band, the band is therefore doubled in width and the alignment is repeated, until the traceback stays clear of the edges or the band covers the whole matrix.
+ * When the band covers the whole matrix, the result is the same as that of {@link Affine}.
+ *
+ * @param <G> - The genome type
+ */
+public class Banded<G extends LinearGenome<G>> {
+
+	static final int stop = Affine.stop;
+
+	public final int matchScore;
+	public final int mismatchScore;
+	public final int gapOpenScore;
+	public final int gapExtendScore;
+	public final G a;
+	public final G b;
+	public final Random rng;
+	final SameAt sameAt;
+	final boolean local;
+
+	/**
+	 * Lowest and highest diagonal (ib-ia) in the band.
+	 */
+	int lo;
+	int hi;
+
+	/**
+	 * Score matrix of the band; cell (ia, ib) is stored in row ia, column ib-ia-lo.
+	 */
+	AffineMatrix scoreMatrix;
+
+	/**
+	 * Whether the last traceback visited a cell on an edge of the band that is not also an edge of the matrix.
+	 */
+	boolean touchedEdge;
+
+	private Banded(boolean local, int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
+		this.local = local;
+		this.matchScore = matchScore;
+		this.mismatchScore = mismatchScore;
+		this.gapOpenScore = gapOpenScore;
+		this.gapExtendScore = gapExtendScore;
+		this.a = a;
+		this.b = b;
+		this.rng = rng;
+		this.sameAt = SameAt.of(a, b);
+	}
+
+	/**
+	 * Global alignment within a band, widening the band as needed.
+	 * Parameters and result are as for {@link Affine.NeedlemanWunsch#align(int, int, int, int, Random, LinearGenome, LinearGenome)}.
+	 * @param bandWidth - Initial number of diagonals on either side of the corner diagonals.
+	 */
+	public static <G extends LinearGenome<G>> Alignment<G> globalAlign(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int bandWidth, Random rng, G a, G b) {
+		return new Banded<>(false, matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b).align(bandWidth);
+	}
+
+	/**
+	 * Local alignment within a band, widening the band as needed.
+	 * Parameters and result are as for {@link Affine.SmithWaterman#align(int, int, int, int, Random, LinearGenome, LinearGenome)}.
+	 * @param bandWidth - Initial number of diagonals on either side of the corner diagonals.
+	 */
+	public static <G extends LinearGenome<G>> Alignment<G> localAlign(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int bandWidth, Random rng, G a, G b) {
+		return new Banded<>(true, matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b).align(bandWidth);
+	}
+
+	private Alignment<G> align(int bandWidth) {
+		if (bandWidth < 0) throw new IllegalArgumentException("Band width must be zero or greater.");
+
+		int width = bandWidth;
+		while (true) {
+			this.setBand(width);
+			this.scoreMatrix = AffineMatrix.grab(a.size()+1, hi-lo+1, Affine.scoreBound(matchScore, mismatchScore, gapOpenScore, gapExtendScore, a.size(), b.size()), a.size(), b.size());
+			this.fillScoreMatrix();
+
+			int endia, endib, endim, endscore;
+			if (local) {
+				int[] best = this.maxValue();
+				endia = best[0];
+				endib = best[1];
+				endim = best[2];
+				endscore = best[3];
+			} else {
+				endia = a.size();
+				endib = b.size();
+				endim = DiscreteDistribution.getBestIndexOf(rng, this.at(endia, endib, MATCH), this.at(endia, endib, INS_A), this.at(endia, endib, INS_B));
+				endscore = max3(this.at(endia, endib, MATCH), this.at(endia, endib, INS_A), this.at(endia, endib, INS_B));
+				// Allows using the same stop condition as for local alignment in traceback
+				this.scoreMatrix.set(0, -lo, MATCH, stop);
+				this.scoreMatrix.set(0, -lo, INS_A, stop);
+				this.scoreMatrix.set(0, -lo, INS_B, stop);
+			}
+
+			AlignedRuns alignedPairs = this.traceback(endia, endib, endim, local ? 0 : stop);
+			this.scoreMatrix.release();
+			this.scoreMatrix = null;
+
+			if (!touchedEdge || this.coversMatrix()) {
+				return new Alignment<>(endscore, alignedPairs, a, b);
+			}
+			width = 2*width + 1;
+		}
+	}
+
+	/**
+	 * Set the band to the diagonals through both corners of the matrix, widened by the given number of diagonals on either side, but not extending past the matrix.
+	 */
+	void setBand(int width) {
+		int corner = b.size() - a.size();
+		this.lo = (int) Math.max(-a.size(), (long) Math.min(0, corner) - width);
+		this.hi = (int) Math.min(b.size(), (long) Math.max(0, corner) + width);
+	}
+
+	boolean coversMatrix() {
+		return lo == -a.size() && hi == b.size();
+	}
+
+	/**
+	 * Score of the best alignment ending at (ia, ib) in state im, or {@link #stop} if the cell is outside the band.
+	 */
+	int at(int ia, int ib, int im) {
+		int col = ib - ia - lo;
+		return (col < 0 || col > hi - lo) ? stop : scoreMatrix.get(ia, col, im);
+	}
+
+	private void set(int ia, int ib, int im, int score) {
+		scoreMatrix.set(ia, ib - ia - lo, im, score);
+	}
+
+	/**
+	 * Fill the cells of the band, row by row.
+	 * Boundary cells are as in {@link Affine.NeedlemanWunsch#initializeScoreMatrix()} and {@link Affine.SmithWaterman#initializeScoreMatrix()}, other cells follow the same recurrence as their step method.
+	 * Neighbours outside the band count as impossible.
+	 */
+	void fillScoreMatrix() {
+		for (int ia=0; ia<=a.size(); ia++) {
+			int first = Math.max(0, ia + lo);
+			int last = Math.min(b.size(), ia + hi);
+			for (int ib=first; ib<=last; ib++) {
+				if (ia == 0 || ib == 0) {
+					this.boundary(ia, ib);
+				} else if (local) {
+					this.localStep(ia, ib);
+				} else {
+					this.globalStep(ia, ib);
+				}
+			}
+		}
+	}
+
+	private void boundary(int ia, int ib) {
+		if (local || (ia == 0 && ib == 0)) {
+			this.set(ia, ib, MATCH, 0);
+			this.set(ia, ib, INS_A, 0);
+			this.set(ia, ib, INS_B, 0);
+		} else if (ib == 0) {
+			// b is in initial state, alignment opens with gap in a
+			this.set(ia, ib, MATCH, stop);
+			this.set(ia, ib, INS_A, gapOpenScore + (ia-1)*gapExtendScore);
+			this.set(ia, ib, INS_B, stop);
+		} else {
+			// a is in initial state, alignment opens with gap in b
+			this.set(ia, ib, MATCH, stop);
+			this.set(ia, ib, INS_A, stop);
+			this.set(ia, ib, INS_B, gapOpenScore + (ib-1)*gapExtendScore);
+		}
+	}
+
+	private void globalStep(int ia, int ib) {
+		int matchCost = sameAt.test(ia-1, ib-1) ? matchScore : mismatchScore;
+
+		this.set(ia, ib, MATCH, max3(
+			this.at(ia-1, ib-1, INS_A),
+			this.at(ia-1, ib-1, INS_B),
+			this.at(ia-1, ib-1, MATCH)
+			) + matchCost);
+
+		this.set(ia, ib, INS_A, max3(
+			this.at(ia-1, ib, INS_A) + gapExtendScore,
+			this.at(ia-1, ib, INS_B) + gapOpenScore,
+			this.at(ia-1, ib, MATCH) + gapOpenScore
+			));
+
+		this.set(ia, ib, INS_B, max3(
+			this.at(ia, ib-1, INS_A) + gapOpenScore,
+			this.at(ia, ib-1, INS_B) + gapExtendScore,
+			this.at(ia, ib-1, MATCH) + gapOpenScore
+			));
+	}
+
+	private void localStep(int ia, int ib) {
+		int matchCost = sameAt.test(ia-1, ib-1) ? matchScore : mismatchScore;
+
+		this.set(ia, ib, MATCH, Math.max(0, max3(
+			this.at(ia-1, ib-1, INS_A),
+			this.at(ia-1, ib-1, INS_B),
+			this.at(ia-1, ib-1, MATCH)
+			) + matchCost));
+
+		this.set(ia, ib, INS_A, max4(0,
+			this.at(ia-1, ib, INS_A) + gapExtendScore,
+			this.at(ia-1, ib, INS_B) + gapOpenScore,
+			this.at(ia-1, ib, MATCH) + gapOpenScore
+			));
+
+		this.set(ia, ib, INS_B, max4(0,
+			this.at(ia, ib-1, INS_A) + gapOpenScore,
+			this.at(ia, ib-1, INS_B) + gapExtendScore,
+			this.at(ia, ib-1, MATCH) + gapOpenScore
+			));
+	}
+
+	/**
+	 * Best cell in the band, as in {@link Affine.SmithWaterman#maxValue()}.
+	 */
+	int[] maxValue() {
+		int bestia = 0;
+		int bestib = 0;
+		int bestim = MATCH;
+		int bestscore = -1;
+		double exaequo = 0;
+
+		for (int im=MATCH; im<=INS_B; im++) {
+			for (int ia=0; ia<=a.size(); ia++) {
+				int first = Math.max(0, ia + lo);
+				int last = Math.min(b.size(), ia + hi);
+				for (int ib=first; ib<=last; ib++) {
+					int score = this.at(ia, ib, im);
+					if (score > bestscore) {
+						bestia = ia;
+						bestib = ib;
+						bestim = im;
+						bestscore = score;
+						exaequo = 1;
+					} else if (score == bestscore) {
+						if (rng.nextDouble() < 1/(++exaequo)) {
+							bestia = ia;
+							bestib = ib;
+							bestim = im;
+						}
+					}
+				}
+			}
+		}
+
+		return new int[] {bestia,bestib,bestim,bestscore};
+	}
+
+	/**
+	 * Trace back as in {@link Affine#traceback(int, int, int, int)}, recording whether the path touches an edge of the band.
+	 */
+	AlignedRuns traceback(int ia, int ib, int im, int stop) {
+		AlignedRuns.Builder matches = AlignedRuns.descending();
+		this.touchedEdge = false;
+
+		while (this.at(ia, ib, im) > stop) {
+			this.touchedEdge |= this.onEdge(ia, ib);
+			if (im == MATCH) matches.add(ia-1, ib-1);
+			if (im == MATCH || im == INS_A) ia--;
+			if (im == MATCH || im == INS_B) ib--;
+
+			int match = this.at(ia, ib, MATCH);
+			int insA = this.at(ia, ib, INS_A);
+			int insB = this.at(ia, ib, INS_B);
+			if (im == INS_A) insA += gapExtendScore - gapOpenScore;
+			if (im == INS_B) insB += gapExtendScore - gapOpenScore;
+			im = DiscreteDistribution.getBestIndexOf(rng, match, insA, insB);
+		}
+
+		return matches.build();
+	}
+
+	private boolean onEdge(int ia, int ib) {
+		int diagonal = ib - ia;
+		return (diagonal == lo && lo > -a.size()) || (diagonal == hi && hi < b.size());
+	}
+
+}
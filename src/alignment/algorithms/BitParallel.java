@@ -0,0 +1,273 @@
+package alignment.algorithms;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import alignment.AlignedRuns;
+import alignment.Alignment;
+import genome.binary.BinaryGenome;
+import util.Assert;
+
+/**
+ * Bit-parallel longest common subsequence and edit distance for binary genomes.
+ * One column of the dynamic programming matrix, over all positions of b, is stored as bit vectors of 64 cells per word, so that a whole column is computed with a few word operations per 64 cells.
+ * This takes O(a.size()*b.size()/64) time instead of O(a.size()*b.size()).
+ *
+ * The longest common subsequence uses the bit vector algorithm of Allison and Dix (as improved by Hyyro), where bit ib of the vector after ia bits of a is zero where the LCS of a[0..ia) and b[0..ib+1) is longer than that of a[0..ia) and b[0..ib).
+ * The edit distance uses Myers' algorithm, in the block-based form of Hyyro: the vectors hold the vertical differences (+1 or -1) between successive cells of the column.
+ *
+ * The alignments trace back through the stored columns, choosing randomly between equally good steps.
+ */
+public final class BitParallel {
+
+	private BitParallel() {
+		Assert.utilityClass();
+	}
+
+	/**
+	 * Bit masks of the positions in b holding a 0 (element 0) and a 1 (element 1).
+	 * Bits past the end of b are 0 in both masks.
+	 */
+	static long[][] positionMasks(BinaryGenome<?> b) {
+		long[] ones = b.toWords();
+		long[] zeroes = new long[ones.length];
+		for (int w=0; w<ones.length; w++) {
+			zeroes[w] = ~ones[w];
+		}
+		if ((b.size() & 63) != 0) zeroes[zeroes.length-1] &= (1L << b.size()) - 1;
+		return new long[][] {zeroes, ones};
+	}
+
+	/**
+	 * Length of the longest common subsequence of a and b, i.e. the largest number of pairs of identical bits that can be aligned without crossing.
+	 */
+	public static <G extends BinaryGenome<G>> int lcsLength(G a, G b) {
+		if (a.size() == 0 || b.size() == 0) return 0;
+		long[][] eq = positionMasks(b);
+		long[] aWords = a.toWords();
+		long[] v = new long[eq[0].length];
+		Arrays.fill(v, -1L);
+		for (int ia=0; ia<a.size(); ia++) {
+			lcsStep(v, 0, eq[BinaryGenome.getBit(aWords, ia) ? 1 : 0]);
+		}
+		return zeroesBefore(v, 0, b.size());
+	}
+
+	/**
+	 * Compute the next LCS column in place, starting at the given offset of v: V' = (V + (V & Eq)) | (V & ~Eq), with carries across words.
+	 */
+	private static void lcsStep(long[] v, int offset, long[] eq) {
+		long carry = 0;
+		for (int w=0; w<eq.length; w++) {
+			long x = v[offset+w];
+			long u = x & eq[w];
+			long sum = x + u + carry;
+			carry = ((x & u) | ((x | u) & ~sum)) >>> 63;
+			v[offset+w] = sum | (x & ~u);
+		}
+	}
+
+	/**
+	 * Number of zero bits among the first n bits of the vector starting at the given offset.
+	 */
+	private static int zeroesBefore(long[] v, int offset, int n) {
+		int ones = 0;
+		int w = 0;
+		for (; w < (n >>> 6); w++) {
+			ones += Long.bitCount(v[offset+w]);
+		}
+		if ((n & 63) != 0) ones += Long.bitCount(v[offset+w] & ((1L << n) - 1));
+		return n - ones;
+	}
+
+	private static boolean bit(long[] v, int offset, int index) {
+		return (v[offset + (index >>> 6)] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Alignment of the longest common subsequence of a and b.
+	 * The score is the number of aligned pairs, which all have identical bits.
+	 */
+	public static <G extends BinaryGenome<G>> Alignment<G> alignLcs(Random rng, G a, G b) {
+		int n = a.size();
+		int m = b.size();
+		AlignedRuns.Builder pairs = AlignedRuns.descending();
+		if (n == 0 || m == 0) return new Alignment<>(0, pairs.build(), a, b);
+
+		long[][] eq = positionMasks(b);
+		int words = eq[0].length;
+		long[] aWords = a.toWords();
+		long[] bWords = b.toWords();
+
+		// Column ia is stored at offset ia*words
+		long[] columns = new long[(n+1) * words];
+		Arrays.fill(columns, 0, words, -1L);
+		for (int ia=0; ia<n; ia++) {
+			System.arraycopy(columns, ia*words, columns, (ia+1)*words, words);
+			lcsStep(columns, (ia+1)*words, eq[BinaryGenome.getBit(aWords, ia) ? 1 : 0]);
+		}
+		int score = zeroesBefore(columns, n*words, m);
+
+		// Trace back: lcs is the LCS of a[0..ia) and b[0..ib), lcsUp that of a[0..ia-1) and b[0..ib)
+		int ia = n;
+		int ib = m;
+		int lcs = score;
+		int lcsUp = zeroesBefore(columns, (ia-1)*words, ib);
+		while (ia > 0 && ib > 0) {
+			if (BinaryGenome.getBit(aWords, ia-1) == BinaryGenome.getBit(bWords, ib-1)) {
+				pairs.add(ia-1, ib-1);
+				ia--;
+				ib--;
+				lcs--;
+				if (ia > 0) lcsUp = zeroesBefore(columns, (ia-1)*words, ib);
+			} else {
+				boolean canGoUp = lcsUp == lcs;
+				boolean canGoLeft = bit(columns, ia*words, ib-1);
+				if (canGoUp && (!canGoLeft || rng.nextBoolean())) {
+					ia--;
+					if (ia > 0) lcsUp = zeroesBefore(columns, (ia-1)*words, ib);
+				} else {
+					ib--;
+					if (!bit(columns, (ia-1)*words, ib)) lcsUp--;
+				}
+			}
+		}
+
+		return new Alignment<>(score, pairs.build(), a, b);
+	}
+
+	/**
+	 * Edit (Levenshtein) distance between a and b: the smallest number of single bit substitutions, insertions and deletions that turns a into b.
+	 */
+	public static <G extends BinaryGenome<G>> int editDistance(G a, G b) {
+		int n = a.size();
+		int m = b.size();
+		if (m == 0) return n;
+		long[][] eq = positionMasks(b);
+		int words = eq[0].length;
+		long[] aWords = a.toWords();
+		long[] pv = new long[words];
+		long[] mv = new long[words];
+		Arrays.fill(pv, -1L);
+
+		int score = m;
+		for (int ia=0; ia<n; ia++) {
+			score += editStep(pv, mv, 0, eq[BinaryGenome.getBit(aWords, ia) ? 1 : 0], m);
+		}
+		return score;
+	}
+
+	/**
+	 * Compute the next edit distance column in place, starting at the given offset of pv and mv.
+	 * The first row of the matrix is 0, 1, 2, ..., so the horizontal difference entering the first block is +1.
+	 * @return The horizontal difference in the last row, i.e. the change in edit distance to all of b.
+	 */
+	private static int editStep(long[] pv, long[] mv, int offset, long[] eq, int m) {
+		int hin = 1;
+		int last = eq.length - 1;
+		long lastBit = 1L << (m - 1);
+		int result = 0;
+		for (int w=0; w<=last; w++) {
+			long p = pv[offset+w];
+			long q = mv[offset+w];
+			long e = eq[w];
+			long hinIsNeg = hin < 0 ? 1L : 0L;
+			long hinIsPos = hin > 0 ? 1L : 0L;
+
+			long xv = e | q;
+			e |= hinIsNeg;
+			long xh = (((e & p) + p) ^ p) | e;
+			long ph = q | ~(xh | p);
+			long mh = p & xh;
+
+			if (w == last) {
+				result = ((ph & lastBit) != 0 ? 1 : 0) - ((mh & lastBit) != 0 ? 1 : 0);
+			}
+			hin = (int) (ph >>> 63) - (int) (mh >>> 63);
+
+			ph <<= 1;
+			mh <<= 1;
+			mh |= hinIsNeg;
+			ph |= hinIsPos;
+			pv[offset+w] = mh | ~(xv | ph);
+			mv[offset+w] = ph & xv;
+		}
+		return result;
+	}
+
+	/**
+	 * Sum of the vertical differences of the first n rows of the column starting at the given offset.
+	 */
+	private static int verticalSum(long[] pv, long[] mv, int offset, int n) {
+		return (n - zeroesBefore(pv, offset, n)) - (n - zeroesBefore(mv, offset, n));
+	}
+
+	private static int verticalDifference(long[] pv, long[] mv, int offset, int index) {
+		return (bit(pv, offset, index) ? 1 : 0) - (bit(mv, offset, index) ? 1 : 0);
+	}
+
+	/**
+	 * Alignment with the smallest edit distance between a and b, i.e. global alignment where mismatches and gaps of any length cost 1 per bit.
+	 * The score is minus the edit distance. Aligned pairs include substitutions (mismatches).
+	 */
+	public static <G extends BinaryGenome<G>> Alignment<G> alignEditDistance(Random rng, G a, G b) {
+		int n = a.size();
+		int m = b.size();
+		AlignedRuns.Builder pairs = AlignedRuns.descending();
+		if (m == 0) return new Alignment<>(-n, pairs.build(), a, b);
+
+		long[][] eq = positionMasks(b);
+		int words = eq[0].length;
+		long[] aWords = a.toWords();
+		long[] bWords = b.toWords();
+
+		// Column ia is stored at offset ia*words; distance(ia, ib) = ia + sum of the first ib vertical differences of column ia
+		long[] pv = new long[(n+1) * words];
+		long[] mv = new long[(n+1) * words];
+		Arrays.fill(pv, 0, words, -1L);
+		int distance = m;
+		for (int ia=0; ia<n; ia++) {
+			System.arraycopy(pv, ia*words, pv, (ia+1)*words, words);
+			System.arraycopy(mv, ia*words, mv, (ia+1)*words, words);
+			distance += editStep(pv, mv, (ia+1)*words, eq[BinaryGenome.getBit(aWords, ia) ? 1 : 0], m);
+		}
+
+		// Trace back: d is the distance at (ia, ib), dLeft the distance at (ia-1, ib)
+		int ia = n;
+		int ib = m;
+		int d = distance;
+		int dLeft = n > 0 ? (n-1) + verticalSum(pv, mv, (n-1)*words, m) : 0;
+		while (ia > 0 || ib > 0) {
+			boolean canMatch = false;
+			int dDiag = 0;
+			if (ia > 0 && ib > 0) {
+				dDiag = dLeft - verticalDifference(pv, mv, (ia-1)*words, ib-1);
+				int cost = BinaryGenome.getBit(aWords, ia-1) == BinaryGenome.getBit(bWords, ib-1) ? 0 : 1;
+				canMatch = dDiag + cost == d;
+			}
+			boolean canSkipA = ia > 0 && dLeft + 1 == d;
+			boolean canSkipB = ib > 0 && d - verticalDifference(pv, mv, ia*words, ib-1) + 1 == d;
+
+			int options = (canMatch ? 1 : 0) + (canSkipA ? 1 : 0) + (canSkipB ? 1 : 0);
+			int choice = rng.nextInt(options);
+			if (canMatch && choice-- == 0) {
+				pairs.add(ia-1, ib-1);
+				ia--;
+				ib--;
+				d = dDiag;
+				dLeft = ia > 0 ? (ia-1) + verticalSum(pv, mv, (ia-1)*words, ib) : 0;
+			} else if (canSkipA && choice-- == 0) {
+				ia--;
+				d = dLeft;
+				dLeft = ia > 0 ? (ia-1) + verticalSum(pv, mv, (ia-1)*words, ib) : 0;
+			} else {
+				d -= verticalDifference(pv, mv, ia*words, ib-1);
+				if (ia > 0) dLeft -= verticalDifference(pv, mv, (ia-1)*words, ib-1);
+				ib--;
+			}
+		}
+
+		return new Alignment<>(-distance, pairs.build(), a, b);
+	}
+
+}
@@ -0,0 +1,294 @@
+package alignment.algorithms;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import alignment.AlignedRuns;
+import alignment.Alignment;
+import alignment.RangeAlignmentOp;
+import genome.LinearGenome;
+import genome.binary.BinaryGenome;
+
+/**
+ * Index of two binary genomes for finding their longest common substring, in the whole genomes or in any ranges of them.
+ * The index is a suffix array of the text a + separator + b, with the longest common prefix (LCP) of suffixes that are adjacent in the suffix array and a sparse table for the minimum LCP over a range of the suffix array.
+ * Building the index takes O(n log n) time and memory for a total genome size n, after which a query over ranges holding r positions takes O(r log r) time, instead of the O(a.size()*b.size()) of {@link Gapless}.
+ * This makes the index worthwhile when the same genomes are aligned repeatedly in different ranges, as in {@link OrderedSynapsing} and {@link UnorderedSynapsing}.
+ *
+ * Two suffixes share a prefix of length L if and only if all adjacent LCPs between them in the suffix array are at least L.
+ * A query therefore sorts the suffixes starting in the ranges by their position in the suffix array, and finds the largest L for which a suffix of a and a suffix of b, both with at least L positions left in their range, fall in the same block of suffixes sharing L symbols.
+ * When there are several longest common substrings, one is chosen uniformly at random among all pairs of occurrences.
+ * (This is a different tie-breaking rule than that of {@link Gapless}, so results for a given seed differ from it.)
+ *
+ * @param <G> - The genome type, which must be a {@link BinaryGenome}
+ */
+public final class CommonSubstringIndex<G extends LinearGenome<G>> {
+
+	private static final int SEPARATOR = 3;
+
+	public final G a;
+	public final G b;
+
+	/**
+	 * Text a + separator + b, with bits stored as 1 and 2.
+	 */
+	private final int[] text;
+
+	/**
+	 * Suffix array: start positions in the text, in lexicographic order of their suffixes.
+	 */
+	final int[] suffixes;
+
+	/**
+	 * Position of each suffix in the suffix array (inverse of {@link #suffixes}).
+	 */
+	final int[] rank;
+
+	/**
+	 * Sparse table of minimum LCP: level k, element i holds the minimum LCP of suffixes i..i+2^k-1 with their predecessors in the suffix array.
+	 */
+	private final int[][] minLcp;
+
+	private CommonSubstringIndex(G a, G b) {
+		this.a = a;
+		this.b = b;
+		this.text = text((BinaryGenome<?>) a, (BinaryGenome<?>) b);
+		this.suffixes = new int[this.text.length];
+		this.rank = new int[this.text.length];
+		suffixArray(this.text, this.suffixes, this.rank);
+		this.minLcp = sparseTable(lcp(this.text, this.suffixes, this.rank));
+	}
+
+	/**
+	 * Whether an index can be built for the given genomes.
+	 */
+	public static boolean supports(LinearGenome<?> a, LinearGenome<?> b) {
+		return a instanceof BinaryGenome && b instanceof BinaryGenome;
+	}
+
+	/**
+	 * Build the index of a and b.
+	 * @throws IllegalArgumentException if a or b is not a {@link BinaryGenome}.
+	 */
+	public static <G extends LinearGenome<G>> CommonSubstringIndex<G> of(G a, G b) {
+		if (!supports(a, b)) throw new IllegalArgumentException("Common substring index requires binary genomes.");
+		return new CommonSubstringIndex<>(a, b);
+	}
+
+	/**
+	 * Alignment of the longest common substring of a and b, see {@link alignment.Local#longestCommonSubstring()}.
+	 */
+	public Alignment<G> longest(Random rng) {
+		return this.longestInRange(rng, 0, a.size(), 0, b.size());
+	}
+
+	/**
+	 * Alignment of the longest common substring of a[aInclusiveStart..aExclusiveEnd) and b[bInclusiveStart..bExclusiveEnd).
+	 * Aligned pairs are in the frame of the full genomes. The score is the length of the substring, or 0 (with no pairs) if the ranges have no bit in common.
+	 */
+	public Alignment<G> longestInRange(Random rng, int aInclusiveStart, int aExclusiveEnd, int bInclusiveStart, int bExclusiveEnd) {
+		if (aInclusiveStart < 0 || aExclusiveEnd > a.size() || bInclusiveStart < 0 || bExclusiveEnd > b.size()) throw new IllegalArgumentException("Range is out of bounds.");
+		int aLength = Math.max(0, aExclusiveEnd - aInclusiveStart);
+		int bLength = Math.max(0, bExclusiveEnd - bInclusiveStart);
+
+		// Suffix array positions of all suffixes starting in the ranges, in order
+		int[] ranks = new int[aLength + bLength];
+		for (int i=0; i<aLength; i++) {
+			ranks[i] = this.rank[aInclusiveStart + i];
+		}
+		for (int j=0; j<bLength; j++) {
+			ranks[aLength + j] = this.rank[a.size() + 1 + bInclusiveStart + j];
+		}
+		Arrays.sort(ranks);
+
+		// LCP of each suffix with its predecessor among the selected suffixes
+		int[] adjacentLcp = new int[ranks.length];
+		for (int k=1; k<ranks.length; k++) {
+			adjacentLcp[k] = this.lcpBetween(ranks[k-1], ranks[k]);
+		}
+
+		// Binary search for the longest length that occurs in both ranges
+		int lo = 0;
+		int hi = Math.min(aLength, bLength);
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (this.countOccurrencePairs(ranks, adjacentLcp, mid, aExclusiveEnd, bExclusiveEnd, -1) > 0) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		int length = lo;
+
+		AlignedRuns pairs = AlignedRuns.empty();
+		if (length > 0) {
+			long total = this.countOccurrencePairs(ranks, adjacentLcp, length, aExclusiveEnd, bExclusiveEnd, -1);
+			long choice = (long) (rng.nextDouble() * total);
+			long packed = this.countOccurrencePairs(ranks, adjacentLcp, length, aExclusiveEnd, bExclusiveEnd, choice);
+			int aStart = (int) (packed >>> 32);
+			int bStart = (int) packed;
+			pairs = AlignedRuns.diagonal(aStart, bStart, length);
+		}
+		return new Alignment<>(length, pairs, a, b);
+	}
+
+	/**
+	 * This index as an alignment operator on ranges of a and b, see {@link #longestInRange(Random, int, int, int, int)}.
+	 */
+	public RangeAlignmentOp<G> inRanges(Random rng) {
+		return (aInclusiveStart, aExclusiveEnd, bInclusiveStart, bExclusiveEnd) -> this.longestInRange(rng, aInclusiveStart, aExclusiveEnd, bInclusiveStart, bExclusiveEnd);
+	}
+
+	/**
+	 * Count pairs of a suffix of a and a suffix of b among the given (sorted) suffix array positions that share a prefix of the given length within their ranges.
+	 * A suffix of a at i qualifies if i + length <= aExclusiveEnd, likewise for b.
+	 * If choice is not negative, instead return the choice'th such pair, packed as (start in a) << 32 | (start in b).
+	 */
+	private long countOccurrencePairs(int[] ranks, int[] adjacentLcp, int length, int aExclusiveEnd, int bExclusiveEnd, long choice) {
+		long total = 0;
+		int blockStart = 0;
+		while (blockStart < ranks.length) {
+			// Block of suffixes that all share the first length symbols
+			int blockEnd = blockStart + 1;
+			while (blockEnd < ranks.length && adjacentLcp[blockEnd] >= length) blockEnd++;
+
+			long aCount = 0;
+			long bCount = 0;
+			for (int k=blockStart; k<blockEnd; k++) {
+				int start = this.suffixes[ranks[k]];
+				if (start < a.size()) {
+					if (start + length <= aExclusiveEnd) aCount++;
+				} else {
+					if (start - a.size() - 1 + length <= bExclusiveEnd) bCount++;
+				}
+			}
+			long blockPairs = aCount * bCount;
+
+			if (choice >= 0 && choice < total + blockPairs) {
+				long index = choice - total;
+				return ((long) this.qualifyingStart(ranks, blockStart, blockEnd, length, aExclusiveEnd, true, index / bCount) << 32)
+					| this.qualifyingStart(ranks, blockStart, blockEnd, length, bExclusiveEnd, false, index % bCount);
+			}
+			total += blockPairs;
+			blockStart = blockEnd;
+		}
+		return total;
+	}
+
+	/**
+	 * Start (in the frame of its own genome) of the index'th qualifying suffix of a (or b) in the block.
+	 */
+	private int qualifyingStart(int[] ranks, int blockStart, int blockEnd, int length, int exclusiveEnd, boolean inA, long index) {
+		for (int k=blockStart; k<blockEnd; k++) {
+			int start = this.suffixes[ranks[k]];
+			if (inA && start < a.size() && start + length <= exclusiveEnd && index-- == 0) return start;
+			if (!inA && start > a.size() && start - a.size() - 1 + length <= exclusiveEnd && index-- == 0) return start - a.size() - 1;
+		}
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * Length of the longest common prefix of the suffixes at the given positions of the suffix array, where lo < hi.
+	 */
+	int lcpBetween(int lo, int hi) {
+		int level = 31 - Integer.numberOfLeadingZeros(hi - lo);
+		return Math.min(this.minLcp[level][lo + 1], this.minLcp[level][hi - (1 << level) + 1]);
+	}
+
+	private static int[] text(BinaryGenome<?> a, BinaryGenome<?> b) {
+		long[] aWords = a.toWords();
+		long[] bWords = b.toWords();
+		int[] text = new int[a.size() + 1 + b.size()];
+		for (int i=0; i<a.size(); i++) {
+			text[i] = BinaryGenome.getBit(aWords, i) ? 2 : 1;
+		}
+		text[a.size()] = SEPARATOR;
+		for (int j=0; j<b.size(); j++) {
+			text[a.size() + 1 + j] = BinaryGenome.getBit(bWords, j) ? 2 : 1;
+		}
+		return text;
+	}
+
+	/**
+	 * Suffix array by prefix doubling: suffixes are sorted by their first 2k symbols, using the ranks of their first k symbols, with two counting sort passes.
+	 * A suffix that ends within the first 2k symbols sorts before all suffixes with the same first symbols.
+	 */
+	static void suffixArray(int[] text, int[] suffixes, int[] rank) {
+		int n = text.length;
+		if (n == 0) return;
+		int[] tmp = new int[n];
+		int[] count = new int[Math.max(SEPARATOR, n) + 1];
+
+		for (int i=0; i<n; i++) count[text[i]]++;
+		for (int c=1; c<count.length; c++) count[c] += count[c-1];
+		for (int i=n-1; i>=0; i--) suffixes[--count[text[i]]] = i;
+		rank[suffixes[0]] = 0;
+		for (int k=1; k<n; k++) {
+			rank[suffixes[k]] = rank[suffixes[k-1]] + (text[suffixes[k]] == text[suffixes[k-1]] ? 0 : 1);
+		}
+
+		for (int k=1; rank[suffixes[n-1]] < n-1; k <<= 1) {
+			// Order by second key: suffixes without a second half first, then the others in order of their second half
+			int p = 0;
+			for (int i=Math.max(0, n-k); i<n; i++) tmp[p++] = i;
+			for (int s=0; s<n; s++) {
+				if (suffixes[s] >= k) tmp[p++] = suffixes[s] - k;
+			}
+
+			// Stable sort by first key
+			int classes = rank[suffixes[n-1]] + 1;
+			Arrays.fill(count, 0, classes, 0);
+			for (int i=0; i<n; i++) count[rank[i]]++;
+			for (int c=1; c<classes; c++) count[c] += count[c-1];
+			for (int s=n-1; s>=0; s--) suffixes[--count[rank[tmp[s]]]] = tmp[s];
+
+			// New ranks
+			tmp[suffixes[0]] = 0;
+			for (int s=1; s<n; s++) {
+				int prev = suffixes[s-1];
+				int cur = suffixes[s];
+				boolean same = rank[prev] == rank[cur]
+					&& (prev + k < n ? rank[prev + k] : -1) == (cur + k < n ? rank[cur + k] : -1);
+				tmp[cur] = tmp[prev] + (same ? 0 : 1);
+			}
+			System.arraycopy(tmp, 0, rank, 0, n);
+		}
+	}
+
+	/**
+	 * LCP of each suffix with its predecessor in the suffix array (Kasai's algorithm). Element 0 is 0.
+	 */
+	static int[] lcp(int[] text, int[] suffixes, int[] rank) {
+		int n = text.length;
+		int[] lcp = new int[n];
+		int h = 0;
+		for (int i=0; i<n; i++) {
+			if (rank[i] > 0) {
+				int j = suffixes[rank[i] - 1];
+				while (i + h < n && j + h < n && text[i + h] == text[j + h]) h++;
+				lcp[rank[i]] = h;
+				if (h > 0) h--;
+			} else {
+				h = 0;
+			}
+		}
+		return lcp;
+	}
+
+	private static int[][] sparseTable(int[] values) {
+		int levels = 32 - Integer.numberOfLeadingZeros(Math.max(1, values.length));
+		int[][] table = new int[levels][];
+		table[0] = values;
+		for (int level=1; level<levels; level++) {
+			int half = 1 << (level - 1);
+			int[] previous = table[level-1];
+			int[] current = new int[Math.max(0, values.length - (1 << level) + 1)];
+			for (int i=0; i<current.length; i++) {
+				current[i] = Math.min(previous[i], previous[i + half]);
+			}
+			table[level] = current;
+		}
+		return table;
+	}
+
+}
@@ -0,0 +1,311 @@
+package alignment.algorithms;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import alignment.AlignedRuns;
+import alignment.Alignment;
+import genome.LinearGenome;
+import genome.binary.BinaryGenome;
+import util.Assert;
+
+/**
+ * Global alignment with linear gap score for binary genomes, using the "Four Russians" method (Arlazarov, Dinic, Kronrod and Faradzev; Masek and Paterson).
+ * The score matrix is split into blocks of t by t cells. Instead of absolute scores, only the differences between neighbouring cells along the edges of the blocks are kept.
+ * With a linear gap score, these differences lie between the gap score and matchScore - gapScore, so the edges of a block can only take a small number of values.
+ * The bottom and right edge of every possible block, given its top and left edge and its t bits of a and of b, are computed once for each scoring scheme and kept in a table (see {@link #table(int, int, int)}).
+ * A pass over the score matrix then takes one table lookup per block, i.e. time proportional to a.size()*b.size()/t^2 instead of a.size()*b.size().
+ *
+ * The block size t is as large as possible with a table of at most {@link #MAX_TABLE_ENTRIES} entries, so it is larger for scoring schemes whose differences take fewer values:
+ * 3 for the edit distance (scores 0, -1, -1) and 2 for scores such as 1, -5, -3. Schemes that do not allow a block size of at least 2 are not supported, see {@link #supports(LinearGenome, LinearGenome, int, int, int, int)}.
+ * Affine gap scores are not supported either, since the differences between cells then also depend on whether a gap is open.
+ *
+ * The alignment itself is found as by {@link Hirschberg}: passes from both ends give the best split point of the middle row, and small problems are solved with {@link Affine.NeedlemanWunsch}.
+ * The scores are the same as those of {@link Affine.NeedlemanWunsch}.
+ */
+public final class FourRussians {
+
+	/**
+	 * Maximum number of entries of the table of a scoring scheme, each taking 4 bytes.
+	 * The table is looked up at random, so it should fit in the cache of the processor: larger tables allow larger blocks but make each lookup much slower.
+	 */
+	static final int MAX_TABLE_ENTRIES = 1 << 18;
+
+	/**
+	 * Problems with at most this many cells in their score matrix are solved with a full score matrix.
+	 */
+	static final int BASE_CELLS = 1 << 12;
+
+	private static final ConcurrentHashMap<List<Integer>,Table> TABLES = new ConcurrentHashMap<>();
+
+	private FourRussians() {
+		Assert.utilityClass();
+	}
+
+	/**
+	 * Whether this algorithm can align the given genomes with the given scores.
+	 * Both genomes must be binary, the gap score must be linear (gapOpenScore == gapExtendScore) and negative, and the scores must allow blocks of at least 2 by 2 cells (see {@link #blockSize(int, int)}).
+	 * Other genomes and scores can be aligned with {@link Affine.NeedlemanWunsch}.
+	 */
+	public static <G extends LinearGenome<G>> boolean supports(G a, G b, int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore) {
+		return a instanceof BinaryGenome && b instanceof BinaryGenome && gapOpenScore == gapExtendScore && gapExtendScore < 0 && mismatchScore <= matchScore && blockSize(matchScore, gapExtendScore) >= 2;
+	}
+
+	/**
+	 * Score of the global alignment of a and b, the same as that of {@link Affine.NeedlemanWunsch#align(int, int, int, int, Random, LinearGenome, LinearGenome)}.
+	 * @throws IllegalArgumentException - If the genomes and scores are not supported, see {@link #supports(LinearGenome, LinearGenome, int, int, int, int)}.
+	 */
+	public static <G extends LinearGenome<G>> int score(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, G a, G b) {
+		if (!supports(a, b, matchScore, mismatchScore, gapOpenScore, gapExtendScore)) throw new IllegalArgumentException("Four Russians alignment needs binary genomes and a small, negative, linear gap score.");
+		return lastRow(table(matchScore, mismatchScore, gapExtendScore), Striped.bits(a, a.size(), false), Striped.bits(b, b.size(), false))[b.size()];
+	}
+
+	/**
+	 * Best global alignment of a and b, with the same score as {@link Affine.NeedlemanWunsch#align(int, int, int, int, Random, LinearGenome, LinearGenome)}.
+	 * When there are several optimal alignments, the two may choose a different one.
+	 * @throws IllegalArgumentException - If the genomes and scores are not supported, see {@link #supports(LinearGenome, LinearGenome, int, int, int, int)}.
+	 */
+	public static <G extends LinearGenome<G>> Alignment<G> align(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
+		if (!supports(a, b, matchScore, mismatchScore, gapOpenScore, gapExtendScore)) throw new IllegalArgumentException("Four Russians alignment needs binary genomes and a small, negative, linear gap score.");
+		Table table = table(matchScore, mismatchScore, gapExtendScore);
+		AlignedRuns.Builder pairs = AlignedRuns.ascending();
+		int score = solve(table, rng, a, b, Striped.bits(a, a.size(), false), Striped.bits(b, b.size(), false), 0, a.size(), 0, b.size(), pairs);
+		return new Alignment<>(score, pairs.build(), a, b);
+	}
+
+	/**
+	 * Align a[aLo..aHi) to b[bLo..bHi), adding the matched pairs to the builder.
+	 * @return The score of the alignment of this section.
+	 */
+	private static <G extends LinearGenome<G>> int solve(Table table, Random rng, G a, G b, boolean[] abits, boolean[] bbits, int aLo, int aHi, int bLo, int bHi, AlignedRuns.Builder pairs) {
+		int rows = aHi - aLo;
+		int cols = bHi - bLo;
+		if (rows == 0 || cols == 0) {
+			// Only gaps, and views of empty sections cannot be made
+			return (rows + cols) * table.gap;
+		}
+		if (rows <= 1 || (long) (rows+1) * (cols+1) <= BASE_CELLS) {
+			Alignment<G> section = Affine.NeedlemanWunsch.align(table.match, table.mismatch, table.gap, table.gap, rng, a.view(aLo, aHi), b.view(bLo, bHi));
+			pairs.addAll(section.getRuns().shifted(aLo, bLo));
+			return section.score;
+		}
+
+		// An optimal alignment of the bottom half is an optimal alignment of the reversed bottom half, starting from its end
+		int mid = (aLo + aHi) / 2;
+		int[] forward = lastRow(table, slice(abits, aLo, mid, false), slice(bbits, bLo, bHi, false));
+		int[] backward = lastRow(table, slice(abits, mid, aHi, true), slice(bbits, bLo, bHi, true));
+
+		int bestj = 0;
+		int bestscore = Integer.MIN_VALUE;
+		double exaequo = 0;
+		for (int j=0; j<=cols; j++) {
+			int score = forward[j] + backward[cols-j];
+			if (score > bestscore) {
+				bestj = j;
+				bestscore = score;
+				exaequo = 1;
+			} else if (score == bestscore && rng.nextDouble() < 1/(++exaequo)) {
+				bestj = j;
+			}
+		}
+
+		solve(table, rng, a, b, abits, bbits, aLo, mid, bLo, bLo+bestj, pairs);
+		solve(table, rng, a, b, abits, bbits, mid, aHi, bLo+bestj, bHi, pairs);
+		return bestscore;
+	}
+
+	/**
+	 * Last row of the score matrix of a and b: element j is the best score of aligning all of a with b[0..j).
+	 * Rows and columns that do not fill a whole block at the bottom and right of the matrix are computed cell by cell.
+	 */
+	static int[] lastRow(Table table, boolean[] a, boolean[] b) {
+		int t = table.t;
+		int blockRows = a.length / t;
+		int blockCols = b.length / t;
+		int restRows = a.length - blockRows*t;
+		int restCols = b.length - blockCols*t;
+		int[] bBits = new int[blockCols];
+		for (int c=0; c<blockCols; c++) bBits[c] = pack(b, c*t, t);
+
+		// The first row and column of the matrix are all gaps, which is code 0
+		int[] top = new int[blockCols];
+		int[] restTop = filled(restCols, table.gap);
+		int[] left = new int[t];
+		int[] right = new int[t];
+		int[] bottom = new int[restCols];
+
+		for (int r=0; r<blockRows; r++) {
+			int rowBits = pack(a, r*t, t) << t;
+			int v = 0;
+			for (int c=0; c<blockCols; c++) {
+				int next = table.next[((top[c]*table.codes + v) << 2*t) | rowBits | bBits[c]];
+				top[c] = next >>> 16;
+				v = next & 0xFFFF;
+			}
+			if (restCols > 0) {
+				table.decode(v, left, 0);
+				block(table.match, table.mismatch, table.gap, restTop, left, a, r*t, b, blockCols*t, t, restCols, bottom, right);
+				System.arraycopy(bottom, 0, restTop, 0, restCols);
+			}
+		}
+
+		int[] diffs = new int[b.length];
+		for (int c=0; c<blockCols; c++) table.decode(top[c], diffs, c*t);
+		System.arraycopy(restTop, 0, diffs, blockCols*t, restCols);
+		if (restRows > 0) {
+			int[] result = new int[b.length];
+			block(table.match, table.mismatch, table.gap, diffs, filled(restRows, table.gap), a, blockRows*t, b, 0, restRows, b.length, result, new int[restRows]);
+			diffs = result;
+		}
+
+		int[] row = new int[b.length+1];
+		row[0] = a.length * table.gap;
+		for (int j=1; j<=b.length; j++) row[j] = row[j-1] + diffs[j-1];
+		return row;
+	}
+
+	/**
+	 * Compute a block of the score matrix cell by cell, from the differences along its top and left edge.
+	 * @param top - Differences between neighbouring cells of the row above the block, from the cell above the left column of the block onwards.
+	 * @param left - Differences between neighbouring cells of the column left of the block, from the cell left of the top row of the block onwards.
+	 * @param bottom - Filled with the differences along the last row of the block.
+	 * @param right - Filled with the differences along the last column of the block.
+	 */
+	static void block(int match, int mismatch, int gap, int[] top, int[] left, boolean[] a, int aFrom, boolean[] b, int bFrom, int rows, int cols, int[] bottom, int[] right) {
+		int[] prev = new int[cols+1];
+		int[] cur = new int[cols+1];
+		for (int j=1; j<=cols; j++) prev[j] = prev[j-1] + top[j-1];
+
+		for (int i=0; i<rows; i++) {
+			boolean bit = a[aFrom+i];
+			cur[0] = prev[0] + left[i];
+			for (int j=1; j<=cols; j++) {
+				int diagonal = prev[j-1] + (bit == b[bFrom+j-1] ? match : mismatch);
+				cur[j] = Math.max(diagonal, Math.max(prev[j], cur[j-1]) + gap);
+			}
+			right[i] = cur[cols] - prev[cols];
+			int[] swap = prev;
+			prev = cur;
+			cur = swap;
+		}
+
+		for (int j=0; j<cols; j++) bottom[j] = prev[j+1] - prev[j];
+	}
+
+	/**
+	 * Number of rows and columns of the blocks for the given scores: the largest t for which the table has at most {@link #MAX_TABLE_ENTRIES} entries, or 0 if there is none.
+	 * The table has an entry for each value of the top edge, the left edge, and the t bits of a and of b, i.e. states^(2t) * 4^t entries, where states = matchScore - 2*gapScore + 1 is the number of values of a difference.
+	 */
+	static int blockSize(int matchScore, int gapScore) {
+		long states = (long) matchScore - 2L*gapScore + 1;
+		if (states < 1 || states > MAX_TABLE_ENTRIES) return 0;
+		int t = 0;
+		long entries = 1;
+		while (true) {
+			entries *= states * states * 4;
+			if (entries > MAX_TABLE_ENTRIES) return t;
+			t++;
+		}
+	}
+
+	/**
+	 * The table of the given scores, computed on first use and kept for later alignments with the same scores.
+	 */
+	static Table table(int matchScore, int mismatchScore, int gapScore) {
+		return TABLES.computeIfAbsent(List.of(matchScore, mismatchScore, gapScore), (key) -> new Table(matchScore, mismatchScore, gapScore));
+	}
+
+	/**
+	 * Block transition table of one scoring scheme.
+	 * An edge of a block, i.e. t differences d[k] between gapScore and matchScore - gapScore, is encoded as the sum of (d[k] - gapScore) * states^k, so that an edge of gaps is code 0.
+	 * Entry ((top * codes + left) << 2t) | (bits of a << t) | (bits of b) holds (bottom << 16) | right, where bit k of a and b is the k-th row and column of the block.
+	 */
+	static final class Table {
+		final int match;
+		final int mismatch;
+		final int gap;
+		final int t;
+		final int states;
+		final int codes;
+		final int[] next;
+
+		Table(int match, int mismatch, int gap) {
+			this.match = match;
+			this.mismatch = mismatch;
+			this.gap = gap;
+			this.t = blockSize(match, gap);
+			this.states = match - 2*gap + 1;
+			int codes = 1;
+			for (int k=0; k<t; k++) codes *= states;
+			this.codes = codes;
+			this.next = new int[(codes * codes) << 2*t];
+
+			int[] top = new int[t];
+			int[] left = new int[t];
+			int[] bottom = new int[t];
+			int[] right = new int[t];
+			boolean[] a = new boolean[t];
+			boolean[] b = new boolean[t];
+			for (int index=0; index<next.length; index++) {
+				int bitsB = index & ((1 << t) - 1);
+				int bitsA = (index >>> t) & ((1 << t) - 1);
+				int edges = index >>> 2*t;
+				this.decode(edges / codes, top, 0);
+				this.decode(edges % codes, left, 0);
+				for (int k=0; k<t; k++) {
+					a[k] = (bitsA >>> k & 1) != 0;
+					b[k] = (bitsB >>> k & 1) != 0;
+				}
+				block(match, mismatch, gap, top, left, a, 0, b, 0, t, t, bottom, right);
+				next[index] = (this.encode(bottom) << 16) | this.encode(right);
+			}
+		}
+
+		int encode(int[] diffs) {
+			int code = 0;
+			for (int k=t-1; k>=0; k--) code = code*states + diffs[k] - gap;
+			return code;
+		}
+
+		/**
+		 * Write the t differences of the given code to diffs, from the given offset.
+		 */
+		void decode(int code, int[] diffs, int offset) {
+			for (int k=0; k<t; k++) {
+				diffs[offset+k] = code % states + gap;
+				code /= states;
+			}
+		}
+	}
+
+	/**
+	 * The bits of x[from..from+n) as the lowest n bits of an int, where bit k is x[from+k].
+	 */
+	private static int pack(boolean[] x, int from, int n) {
+		int result = 0;
+		for (int k=0; k<n; k++) {
+			if (x[from+k]) result |= 1 << k;
+		}
+		return result;
+	}
+
+	/**
+	 * The elements x[from..to), optionally in reverse order.
+	 */
+	private static boolean[] slice(boolean[] x, int from, int to, boolean reversed) {
+		boolean[] result = new boolean[to-from];
+		for (int i=from; i<to; i++) {
+			result[reversed ? to-1-i : i-from] = x[i];
+		}
+		return result;
+	}
+
+	private static int[] filled(int n, int value) {
+		int[] result = new int[n];
+		Arrays.fill(result, value);
+		return result;
+	}
+
+}
@@ -1,16 +1,16 @@
 package alignment.algorithms;
 
 import java.util.Random;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
+import alignment.AlignedRuns;
 import alignment.Alignment;
 import alignment.AlignmentRule;
 import genome.LinearGenome;
-import util.IntPair;
+import genome.binary.BinaryGenome;
 
 /**
  * Exact implementation for gapless alignment scores.
+ * For {@link BinaryGenome}s with a positive match and negative mismatch score, each diagonal is compared 64 bits at a time, and runs of matches and mismatches are scored as a whole (see {@link #alignShortestToLargestPacked(Random, int, int, long[], int, long[], int)}).
  */
 public class Gapless {
 	
@@ -19,7 +19,7 @@ public class Gapless {
 	}
 	
 	public static <G extends LinearGenome<G>> Alignment<G> align(Random rng, int scoreMatch, int scoreMismatch, G a, G b) {
-		SortedSet<IntPair> pairs = new TreeSet<>();
+		AlignedRuns pairs;
 		int score;
 		if (a.size() <= b.size()) {
 			int[] ali = alignShortestToLargest(rng, scoreMatch, scoreMismatch, a, b);
@@ -27,36 +27,109 @@ public class Gapless {
 			int bStart = ali[1];
 			int aStart = ali[2];
 			int aEnd = ali[3];
-			for (int i=aStart; i<aEnd; i++) {
-				pairs.add(IntPair.of(i, bStart + i));
-			}
+			pairs = AlignedRuns.diagonal(aStart, bStart + aStart, aEnd - aStart);
 		} else {
 			int[] ali = alignShortestToLargest(rng, scoreMatch, scoreMismatch, b, a);
 			score = ali[0];
 			int aStart = ali[1];
 			int bStart = ali[2];
 			int bEnd = ali[3];
-			for (int i=bStart; i<bEnd; i++) {
-				pairs.add(IntPair.of(aStart + i, i));
-			}
+			pairs = AlignedRuns.diagonal(aStart + bStart, bStart, bEnd - bStart);
 		}
 		
 		return new Alignment<>(score, pairs, a, b);
 	}
 	
+	/**
+	 * Score of {@link #align(Random, int, int, LinearGenome, LinearGenome)}, without building the alignment.
+	 * Diagonals that are too short to beat the best score so far are skipped. For {@link BinaryGenome}s with a positive match and negative mismatch score, each diagonal is compared a word at a time as in {@link #alignShortestToLargestPacked(Random, int, int, long[], int, long[], int)}.
+	 */
+	public static <G extends LinearGenome<G>> int score(int scoreMatch, int scoreMismatch, G a, G b) {
+		G court = a.size() <= b.size() ? a : b;
+		G longue = a.size() <= b.size() ? b : a;
+		if (court instanceof BinaryGenome && longue instanceof BinaryGenome && scoreMatch > 0 && scoreMismatch < 0) {
+			return scorePacked(scoreMatch, scoreMismatch, ((BinaryGenome<?>) court).toWords(), court.size(), ((BinaryGenome<?>) longue).toWords(), longue.size());
+		}
+		
+		int bestscore = 0;
+		SameAt sameAt = SameAt.of(court, longue);
+		for (int start=-court.size()+1; start<longue.size(); start++) {
+			int first = Math.max(0, -start);
+			int end = Math.min(court.size(), longue.size()-start);
+			if ((long) (end-first) * scoreMatch <= bestscore) continue;
+			
+			int score = 0;
+			for (int i=first; i<end; i++) {
+				score += sameAt.test(i, start+i) ? scoreMatch : scoreMismatch;
+				if (score < 0) score = 0;
+				else if (score > bestscore) bestscore = score;
+			}
+		}
+		return bestscore;
+	}
+	
+	/**
+	 * See {@link #score(int, int, LinearGenome, LinearGenome)}.
+	 * The score only needs to be followed per run of matches or mismatches: it is highest at the end of a run of matches, and drops to 0 at most once per run of mismatches.
+	 */
+	private static int scorePacked(int scoreMatch, int scoreMismatch, long[] court, int courtSize, long[] longue, int longueSize) {
+		int bestscore = 0;
+		for (int start=-courtSize+1; start<longueSize; start++) {
+			int first = Math.max(0, -start);
+			int end = Math.min(courtSize, longueSize-start);
+			if ((long) (end-first) * scoreMatch <= bestscore) continue;
+			
+			int score = 0;
+			for (int i=first; i<end; i+=64) {
+				int chunk = Math.min(64, end-i);
+				long same = ~(bitsAt(court, i) ^ bitsAt(longue, start+i));
+				if (chunk < 64) same &= (1L << chunk) - 1;
+				
+				if (score + Long.bitCount(same)*scoreMatch <= bestscore) {
+					// The score cannot beat the best score in this word: only follow the score, without branching on each bit
+					for (int k=0; k<chunk; k++) {
+						score += ((same >>> k) & 1L) != 0 ? scoreMatch : scoreMismatch;
+						score = Math.max(0, score);
+					}
+					continue;
+				}
+				
+				int done = 0;
+				while (done < chunk) {
+					long rest = same >>> done;
+					boolean match = (rest & 1L) != 0;
+					int run = Math.min(chunk-done, Long.numberOfTrailingZeros(match ? ~rest : rest));
+					if (match) {
+						score += run*scoreMatch;
+						bestscore = Math.max(bestscore, score);
+					} else {
+						score = Math.max(0, score + run*scoreMismatch);
+					}
+					done += run;
+				}
+			}
+		}
+		return bestscore;
+	}
+	
 	private static <G extends LinearGenome<G>> int[] alignShortestToLargest(Random rng, int scoreMatch, int scoreMismatch, G court, G longue) {
+		if (court instanceof BinaryGenome && longue instanceof BinaryGenome && scoreMatch > 0 && scoreMismatch < 0) {
+			return alignShortestToLargestPacked(rng, scoreMatch, scoreMismatch, ((BinaryGenome<?>) court).toWords(), court.size(), ((BinaryGenome<?>) longue).toWords(), longue.size());
+		}
+		
 		double exaequo = 0;
 		int bestscore = 0;
 		int beststartcourt = 0;
 		int beststartlongue = 0;
 		int bestendcourt = 0; // exclusive
+		SameAt sameAt = SameAt.of(court, longue);
 		
-		for (int start=-court.size()+1; start<longue.size()-bestscore*scoreMatch; start++) { // Can skip checking last starting positions if we already have a longer alignment
+		for (int start=-court.size()+1; start<longue.size() && (scoreMatch <= 0 || (long) (longue.size()-start)*scoreMatch > bestscore); start++) { // Can skip checking last starting positions if they are too short to beat the best score
 			int score = 0;
 			int scorestart = Math.max(0, -start);
 			
 			for (int i=scorestart; i<court.size() && start+i<longue.size(); i++) {
-				score += court.sameAt(i, longue, start+i)
+				score += sameAt.test(i, start+i)
 					? scoreMatch
 					: scoreMismatch;
 				
@@ -83,5 +156,92 @@ public class Gapless {
 		
 		return new int[] {bestscore, beststartlongue, beststartcourt, bestendcourt};
 	}
+	
+	/**
+	 * Same as {@link #alignShortestToLargest(Random, int, int, LinearGenome, LinearGenome)} for packed binary genomes, with the same result and the same use of rng.
+	 * Each diagonal is compared a word at a time (XOR of the two genomes, one shifted by the diagonal), and the score is then updated per run of identical bits rather than per bit.
+	 * Within a run of matches the score rises steadily, so it can tie with the best score at most once and beats it from one known position on; within a run of mismatches it falls, and can only be reset to 0.
+	 */
+	private static int[] alignShortestToLargestPacked(Random rng, int scoreMatch, int scoreMismatch, long[] court, int courtSize, long[] longue, int longueSize) {
+		double exaequo = 0;
+		int bestscore = 0;
+		int beststartcourt = 0;
+		int beststartlongue = 0;
+		int bestendcourt = 0; // exclusive
+		
+		for (int start=-courtSize+1; start<longueSize && (long) (longueSize-start)*scoreMatch > bestscore; start++) {
+			int score = 0;
+			int scorestart = Math.max(0, -start);
+			int end = Math.min(courtSize, longueSize-start);
+			
+			for (int i=scorestart; i<end; i+=64) {
+				int chunk = Math.min(64, end-i);
+				long same = ~(bitsAt(court, i) ^ bitsAt(longue, start+i));
+				if (chunk < 64) same &= (1L << chunk) - 1;
+				
+				if (score + Long.bitCount(same)*scoreMatch < bestscore) {
+					// The score cannot reach the best score in this word: only follow the score, without branching on each bit
+					for (int k=0; k<chunk; k++) {
+						score += ((same >>> k) & 1L) != 0 ? scoreMatch : scoreMismatch;
+						boolean reset = score < 0;
+						score = reset ? 0 : score;
+						scorestart = reset ? i+k+1 : scorestart;
+					}
+					continue;
+				}
+				
+				int done = 0;
+				while (done < chunk) {
+					long rest = same >>> done;
+					boolean match = (rest & 1L) != 0;
+					int run = Math.min(chunk-done, Long.numberOfTrailingZeros(match ? ~rest : rest));
+					int runstart = i+done;
+					
+					if (match) {
+						int runscore = score + run*scoreMatch;
+						if (runscore >= bestscore) {
+							int behind = bestscore - score; // Never negative
+							if (behind > 0 && behind % scoreMatch == 0) { // Ties with best score once
+								exaequo++;
+								if (rng.nextDouble() < 1/exaequo) {
+									beststartlongue = start;
+									beststartcourt = scorestart;
+									bestendcourt = runstart + behind / scoreMatch;
+								}
+							}
+							if (runscore > bestscore) { // Beats best score from then on until the end of the run
+								exaequo = 0;
+								bestscore = runscore;
+								beststartlongue = start;
+								beststartcourt = scorestart;
+								bestendcourt = runstart + run;
+							}
+						}
+						score = runscore;
+					} else {
+						score += run*scoreMismatch;
+						if (score < 0) { // Dropped below 0 within the run
+							score = 0;
+							scorestart = runstart + run;
+						}
+					}
+					done += run;
+				}
+			}
+		}
+		
+		return new int[] {bestscore, beststartlongue, beststartcourt, bestendcourt};
+	}
+	
+	/**
+	 * The 64 bits of a packed genome starting at the given index, with bits past the end of the array as 0.
+	 */
+	private static long bitsAt(long[] words, int index) {
+		int word = index >>> 6;
+		int offset = index & 63;
+		long result = words[word] >>> offset;
+		if (offset != 0 && word+1 < words.length) result |= words[word+1] << (64-offset);
+		return result;
+	}
 
 }
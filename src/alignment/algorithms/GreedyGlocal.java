@@ -1,5 +1,6 @@
 package alignment.algorithms;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -24,53 +25,245 @@ public final class GreedyGlocal {
 		Assert.utilityClass();
 	}
 	
-	public static <G extends LinearGenome<G>> int[][] localAlignmentMatrix(int matchScore, int mismatchScore, Random rng, G a, G b) {
-		// Initialize
-		int[][] score = new int[a.size()+1][b.size()+1];
-		
-		for (int iA=1; iA<=a.size(); iA++) for (int iB=1; iB<=b.size(); iB++) {
-			int newScore = score[iA-1][iB-1];
-			newScore += a.sameAt(iA-1, b, iB-1) ? matchScore : mismatchScore;
-			score[iA][iB] = newScore > 0 ? newScore : 0;
+	/**
+	 * Score matrix of gapless local alignment, stored as one flat row-major buffer borrowed from the {@link Workspace} pool.
+	 * Along with the scores, the maximum score of each diagonal (and the number of cells reaching it) is kept, with a max-heap of diagonals by their maximum, so that the best cell can be found without scanning the whole matrix.
+	 * Scores only ever decrease when the matrix is updated, so the maximum of a diagonal only needs to be recomputed when one of its maximal cells decreases.
+	 */
+	static final class ScoreMatrix {
+		final int rows;
+		final int cols;
+		private int[] cells;
+		
+		/**
+		 * Maximum and number of maximal cells of each diagonal, indexed by {@link #diagonal(int, int)}, over the cells not in the initial row or column.
+		 */
+		private final int[] diagonalMax;
+		private final int[] diagonalCount;
+		
+		/**
+		 * Diagonals by decreasing maximum, packed as (maximum << 32 | diagonal). Entries whose maximum is out of date are skipped.
+		 */
+		private final LongHeap heap;
+		
+		/**
+		 * Heap entries of the diagonals sharing the highest maximum, while {@link #findmax(Random)} is choosing among them.
+		 */
+		private long[] best = new long[16];
+		
+		private final boolean[] dirty;
+		
+		ScoreMatrix(int rows, int cols) {
+			this.rows = rows;
+			this.cols = cols;
+			try {
+				this.cells = Workspace.ints(Math.multiplyExact(rows, cols));
+			} catch (ArithmeticException e) {
+				throw new IllegalArgumentException(String.format("Score matrix of %d by %d cells for genomes of size %d and %d is too large to hold in an array.", rows, cols, rows-1, cols-1), e);
+			}
+			this.diagonalMax = new int[rows + cols - 1];
+			this.diagonalCount = new int[rows + cols - 1];
+			this.dirty = new boolean[rows + cols - 1];
+			this.heap = new LongHeap(rows + cols - 1);
 		}
 		
-		return score;
+		int get(int iA, int iB) {
+			return cells[iA * cols + iB];
+		}
+		
+		int diagonalMax(int diagonal) {
+			return diagonalMax[diagonal];
+		}
+		
+		int diagonalCount(int diagonal) {
+			return diagonalCount[diagonal];
+		}
+		
+		/**
+		 * Index of the diagonal through (iA, iB), between 0 (the last column of the first row) and rows+cols-2 (the last row of the first column).
+		 */
+		int diagonal(int iA, int iB) {
+			return iA - iB + cols - 1;
+		}
+		
+		/**
+		 * Lower a score, marking its diagonal for recomputation if the cell was maximal.
+		 */
+		void lower(int iA, int iB, int value) {
+			int index = iA * cols + iB;
+			if (value == cells[index]) return;
+			int diagonal = this.diagonal(iA, iB);
+			if (cells[index] == diagonalMax[diagonal]) dirty[diagonal] = true;
+			cells[index] = value;
+		}
+		
+		/**
+		 * Recompute the maximum of a diagonal, and put it on the heap if it has any cells (unless an entry with the same maximum is already there).
+		 */
+		void recompute(int diagonal) {
+			int max = 0;
+			int count = 0;
+			int diag = diagonal - (cols - 1); // iA - iB
+			for (int iA = Math.max(1, diag+1), iB = iA - diag; iA < rows && iB < cols; iA++, iB++) {
+				int value = cells[iA * cols + iB];
+				if (value > max) {
+					max = value;
+					count = 1;
+				} else if (value == max) {
+					count++;
+				}
+			}
+			boolean onHeap = diagonalCount[diagonal] > 0 && diagonalMax[diagonal] == max;
+			diagonalMax[diagonal] = max;
+			diagonalCount[diagonal] = count;
+			dirty[diagonal] = false;
+			if (count > 0 && !onHeap) heap.add(((long) max << 32) | diagonal);
+		}
+		
+		void recomputeDirty() {
+			for (int diagonal=0; diagonal<dirty.length; diagonal++) {
+				if (dirty[diagonal]) this.recompute(diagonal);
+			}
+		}
+		
+		/**
+		 * Take a random cell with the highest score in the matrix, ignoring the initial row and column.
+		 * Every maximal cell is equally likely.
+		 */
+		IntPair findmax(Random rng) {
+			// Collect all diagonals sharing the highest maximum
+			int bestCount = 0;
+			int max = -1;
+			int total = 0;
+			while (!heap.isEmpty()) {
+				long entry = heap.peek();
+				int entryMax = (int) (entry >>> 32);
+				int diagonal = (int) entry;
+				if (entryMax != diagonalMax[diagonal] || dirty[diagonal]) {
+					heap.poll(); // Out of date
+				} else if (max == -1 || entryMax == max) {
+					heap.poll();
+					if (bestCount == best.length) best = Arrays.copyOf(best, 2 * best.length);
+					best[bestCount++] = entry;
+					max = entryMax;
+					total += diagonalCount[diagonal];
+				} else {
+					break;
+				}
+			}
+			for (int i=0; i<bestCount; i++) heap.add(best[i]);
+			if (bestCount == 0) return IntPair.of(0, 0);
+			
+			// Choose uniformly among their maximal cells
+			int choice = rng.nextInt(total);
+			for (int i=0; i<bestCount; i++) {
+				int diagonal = (int) best[i];
+				if (choice >= diagonalCount[diagonal]) {
+					choice -= diagonalCount[diagonal];
+					continue;
+				}
+				int diag = diagonal - (cols - 1);
+				for (int iA = Math.max(1, diag+1), iB = iA - diag; ; iA++, iB++) {
+					if (cells[iA * cols + iB] == max && choice-- == 0) return IntPair.of(iA, iB);
+				}
+			}
+			throw new IllegalStateException();
+		}
+		
+		void release() {
+			Workspace.release(cells);
+			cells = null;
+		}
 	}
 	
-	public static IntPair findmax(Random rng, int[][] mat) {
-		int maxiA = 0;
-		int maxiB = 0;
-		double exaequo = 0;
-		for (int iA=0; iA<mat.length; iA++) {
-			for (int iB=0; iB<mat[0].length; iB++) {
-				if (mat[iA][iB] > mat[maxiA][maxiB]) {
-					maxiA = iA;
-					maxiB = iB;
-					exaequo = 1;
-				} else if (mat[iA][iB] == mat[maxiA][maxiB]) {
-					if (rng.nextDouble() < 1/(++exaequo)) {
-						maxiA = iA;
-						maxiB = iB;
-					}
-				}
+	/**
+	 * Binary max-heap of primitive longs, so that heap entries are not boxed.
+	 */
+	static final class LongHeap {
+		private long[] items;
+		private int size = 0;
+		
+		LongHeap(int capacity) {
+			this.items = new long[Math.max(1, capacity)];
+		}
+		
+		boolean isEmpty() {
+			return size == 0;
+		}
+		
+		long peek() {
+			if (size == 0) throw new IllegalStateException("Heap is empty.");
+			return items[0];
+		}
+		
+		void add(long value) {
+			if (size == items.length) items = Arrays.copyOf(items, 2 * items.length);
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (items[parent] >= value) break;
+				items[i] = items[parent];
+				i = parent;
+			}
+			items[i] = value;
+		}
+		
+		long poll() {
+			long result = this.peek();
+			long last = items[--size];
+			int i = 0;
+			while (2*i + 1 < size) {
+				int child = 2*i + 1;
+				if (child + 1 < size && items[child + 1] > items[child]) child++;
+				if (items[child] <= last) break;
+				items[i] = items[child];
+				i = child;
 			}
+			items[i] = last;
+			return result;
 		}
-		return IntPair.of(maxiA, maxiB);
 	}
 	
-	public static IntPair traceback(int[][] score, IntPair max) {
+	/**
+	 * Score matrix of gapless local alignment.
+	 * The matrix should be given back with {@link ScoreMatrix#release()}.
+	 */
+	static <G extends LinearGenome<G>> ScoreMatrix localAlignmentMatrix(int matchScore, int mismatchScore, G a, G b) {
+		ScoreMatrix score = new ScoreMatrix(a.size()+1, b.size()+1);
+		int[] cells = score.cells;
+		int cols = score.cols;
+		Arrays.fill(cells, 0, cols, 0);
+		SameAt sameAt = SameAt.of(a, b);
+		
+		for (int iA=1; iA<=a.size(); iA++) {
+			int row = iA * cols;
+			cells[row] = 0;
+			for (int iB=1; iB<=b.size(); iB++) {
+				int newScore = cells[row - cols + iB - 1];
+				newScore += sameAt.test(iA-1, iB-1) ? matchScore : mismatchScore;
+				cells[row + iB] = newScore > 0 ? newScore : 0;
+			}
+		}
+		
+		for (int diagonal=0; diagonal<score.rows+score.cols-1; diagonal++) {
+			score.recompute(diagonal);
+		}
+		return score;
+	}
+	
+	static IntPair traceback(ScoreMatrix score, IntPair max) {
 		int iA = max.x, iB = max.y;
-		while (score[iA][iB] > 0) { iA--; iB--; }
+		while (score.get(iA, iB) > 0) { iA--; iB--; }
 		return IntPair.of(iA+1, iB+1);
 	}
 	
-	public static <G extends LinearGenome<G>> void updateMatrix(int matchScore, int mismatchScore, int[][] score, int diag, IntPair segmentStart, IntPair segmentEnd, G a, G b) {
+	static <G extends LinearGenome<G>> void updateMatrix(ScoreMatrix score, int diag, IntPair segmentStart, IntPair segmentEnd, G a, G b) {
 		// Find first indices on this diagonal ignoring initial zero row (diag == iA - iB)
 		int iA = diag >= 0 ? diag+1 : 1;
 		int iB = diag >= 0 ? 1 : -diag+1;
 		
 		// Skip first part before there has been any overlap (or skip execution altogether if this diagonal has no overlap with segment)
-		if (iA > segmentEnd.x || iB > segmentEnd.y) return;
+		if (iA > segmentEnd.x && iB > segmentEnd.y) return;
 		int untilFirstOverlap = Math.min(segmentStart.x-iA, segmentStart.y-iB);
 		if (untilFirstOverlap > 0) {
 			iA += untilFirstOverlap;
@@ -84,17 +277,26 @@ public final class GreedyGlocal {
 		int overlapOnBStartOnA = Integer.MAX_VALUE;
 		int overlapAccum = 0;
 		
-		for (; iA <= a.size() && iB <= b.size(); iA++, iB++) {
-			// Reassign local score based on new previous value
-
-			// Extra penalty for overlap
+		while (iA <= a.size() && iB <= b.size()) {
 			boolean overlappingOnA = iA >= segmentStart.x && iA <= segmentEnd.x;
 			boolean overlappingOnB = iB >= segmentStart.y && iB <= segmentEnd.y;
 			
+			// Outside the overlaps and without accumulated penalty, cells do not change: jump to the next overlap, or stop if there is none
+			if (overlapAccum == 0 && overlapOnAStartOnB == Integer.MAX_VALUE && overlapOnBStartOnA == Integer.MAX_VALUE && !overlappingOnA && !overlappingOnB) {
+				int skip = Integer.MAX_VALUE;
+				if (iA < segmentStart.x) skip = segmentStart.x - iA;
+				if (iB < segmentStart.y) skip = Math.min(skip, segmentStart.y - iB);
+				if (skip == Integer.MAX_VALUE) return;
+				iA += skip;
+				iB += skip;
+				continue;
+			}
+			
+			// Extra penalty for overlap
 			if (overlappingOnA) {
 				int overlapIndexOnB = segmentStart.y + (iA - segmentStart.x);
 				if (iA < overlapOnBStartOnA || (overlappingOnB && overlapIndexOnB > iB)) {
-					int overlapCost = score[iA][overlapIndexOnB] - score[iA-1][overlapIndexOnB-1];
+					int overlapCost = score.get(iA, overlapIndexOnB) - score.get(iA-1, overlapIndexOnB-1);
 					if (overlapCost > 0) overlapAccum += overlapCost;
 				}
 				if (overlapOnAStartOnB == Integer.MAX_VALUE) {
@@ -105,7 +307,7 @@ public final class GreedyGlocal {
 			if (overlappingOnB) {
 				int overlapIndexOnA = segmentStart.x + (iB - segmentStart.y);
 				if (iB < overlapOnAStartOnB || (overlappingOnA && overlapIndexOnA > iA)) {
-					int overlapCost = score[overlapIndexOnA][iB] - score[overlapIndexOnA-1][iB-1];
+					int overlapCost = score.get(overlapIndexOnA, iB) - score.get(overlapIndexOnA-1, iB-1);
 					if (overlapCost > 0) overlapAccum += overlapCost;
 				}
 				if (overlapOnBStartOnA == Integer.MAX_VALUE) {
@@ -114,16 +316,31 @@ public final class GreedyGlocal {
 			}
 			
 			// Update and continue, or reset if score is smaller than 0
-			int newCost = score[iA][iB] - overlapAccum;
+			int newCost = score.get(iA, iB) - overlapAccum;
 			if (newCost <= 0) {
 				newCost = 0;
-				overlapAccum = score[iA][iB];
+				overlapAccum = score.get(iA, iB);
 				overlapOnAStartOnB = Integer.MAX_VALUE;
 				overlapOnBStartOnA = Integer.MAX_VALUE;
 			}
-			score[iA][iB] = newCost;
+			score.lower(iA, iB, newCost);
+			iA++;
+			iB++;
 		}
-	};
+	}
+	
+	/**
+	 * Lower the scores of all cells that overlap with a segment, and update the diagonal maxima.
+	 * The segment's own diagonal is updated last, since the others read it.
+	 */
+	static <G extends LinearGenome<G>> void removeSegment(ScoreMatrix score, IntPair segmentStart, IntPair segmentEnd, G a, G b) {
+		int thisdiag = segmentStart.x - segmentStart.y;
+		for (int diag = -b.size()+1; diag < a.size(); diag++) {
+			if (diag != thisdiag) updateMatrix(score, diag, segmentStart, segmentEnd, a, b);
+		}
+		updateMatrix(score, thisdiag, segmentStart, segmentEnd, a, b);
+		score.recomputeDirty();
+	}
 	
 	public static SortedSet<IntPair> boundsToPairs(IntPair segmentStart, IntPair segmentEnd) {
 		SortedSet<IntPair> result = new TreeSet<>();
@@ -145,13 +362,13 @@ public final class GreedyGlocal {
 	}
 	
 	public static <G extends LinearGenome<G>> VarOAlignment<G> align(int matchScore, int mismatchScore, int minScore, Random rng, G a, G b) {
-		int[][] score = localAlignmentMatrix(matchScore, mismatchScore, rng, a, b);
+		ScoreMatrix score = localAlignmentMatrix(matchScore, mismatchScore, a, b);
 		
 		List<SortedSet<IntPair>> segments = new LinkedList<>();
 
 		// Find optimal local alignment
-		IntPair segmentEnd = findmax(rng, score); // INCLUSIVE
-		int segmentScore = score[segmentEnd.x][segmentEnd.y];
+		IntPair segmentEnd = score.findmax(rng); // INCLUSIVE
+		int segmentScore = score.get(segmentEnd.x, segmentEnd.y);
 		
 		while (segmentScore >= minScore) {
 			IntPair segmentStart = traceback(score, segmentEnd);
@@ -161,17 +378,14 @@ public final class GreedyGlocal {
 			segments.add(boundsToPairs(segmentStart, segmentEnd));
 			
 			// Adjust matrix to punish overlap
-			int thisdiag = segmentStart.x - segmentStart.y;
-			for (int diag = -b.size()+1; diag < a.size(); diag++) {
-				if (diag != thisdiag) updateMatrix(matchScore, mismatchScore, score, diag, segmentStart, segmentEnd, a, b);
-			}
-			updateMatrix(matchScore, mismatchScore, score, thisdiag, segmentStart, segmentEnd, a, b);
+			removeSegment(score, segmentStart, segmentEnd, a, b);
 			
 			// Continue with next optimal local alignment
-			segmentEnd = findmax(rng, score);
-			segmentScore = score[segmentEnd.x][segmentEnd.y];
+			segmentEnd = score.findmax(rng);
+			segmentScore = score.get(segmentEnd.x, segmentEnd.y);
 		}
 		
+		score.release();
 		return new VarOAlignment<>(segments, a, b); // simplify?
 	}
 
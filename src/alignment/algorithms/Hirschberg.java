@@ -0,0 +1,504 @@
+package alignment.algorithms;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import alignment.AlignedRuns;
+import alignment.Alignment;
+import genome.LinearGenome;
+import util.DiscreteDistribution;
+
+/**
+ * Global alignment with affine gap scores in linear memory (Hirschberg's divide and conquer, extended to affine gaps as by Myers and Miller).
+ * Gives an alignment with the same score as {@link Affine.NeedlemanWunsch}, using memory proportional to a.size()+b.size() instead of a.size()*b.size(), at the cost of about twice the computation time.
+ *
+ * The alignment is split at the middle row of the score matrix: a forward pass over the top half and a backward pass over the bottom half give, for each column and each match/gap state, the best score of alignments passing through that point in that state.
+ * The best such point splits the alignment into two independent problems, where the state at the split point is passed on so that a gap crossing the split is scored as one gap.
+ * Small problems are solved with a full score matrix and traceback.
+ *
+ * {@link #alignInParallel(int, int, int, int, Random, LinearGenome, LinearGenome)} spreads one alignment over the cores of the machine: the forward and backward passes of large problems are split into tiles that are computed along anti-diagonals with {@link Wavefront},
+ * and the two problems after each split are solved as separate tasks.
+ *
+ * @param <G> - The genome type
+ */
+public class Hirschberg<G extends LinearGenome<G>> {
+
+	static final int MATCH = Affine.MATCH;
+	static final int INS_A = Affine.INS_A;
+	static final int INS_B = Affine.INS_B;
+
+	/**
+	 * End state constraint meaning that the alignment can end in any state.
+	 */
+	static final int ANY = -1;
+
+	/**
+	 * Score of impossible states.
+	 * Far enough from Integer.MIN_VALUE that adding scores to it cannot overflow.
+	 */
+	static final int NEG = Integer.MIN_VALUE / 4;
+
+	/**
+	 * Problems with at most this many cells in their score matrix are solved with a full score matrix.
+	 */
+	static final int BASE_CELLS = 1 << 12;
+
+	/**
+	 * In {@link #alignInParallel(int, int, int, int, Random, LinearGenome, LinearGenome)}, problems with at most this many cells are solved sequentially within one task.
+	 */
+	static final int SEQUENTIAL_CELLS = 1 << 16;
+
+	/**
+	 * Number of rows and columns of the tiles of a parallel forward or backward pass.
+	 */
+	static final int TILE = 256;
+
+	public final int matchScore;
+	public final int mismatchScore;
+	public final int gapOpenScore;
+	public final int gapExtendScore;
+	public final G a;
+	public final G b;
+	public final Random rng;
+	final SameAt sameAt;
+
+	private final AlignedRuns.Builder pairs = AlignedRuns.ascending();
+
+	private Hirschberg(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
+		this.matchScore = matchScore;
+		this.mismatchScore = mismatchScore;
+		this.gapOpenScore = gapOpenScore;
+		this.gapExtendScore = gapExtendScore;
+		this.a = a;
+		this.b = b;
+		this.rng = rng;
+		this.sameAt = SameAt.of(a, b);
+	}
+
+	/**
+	 * Same parameters as the given algorithm, with its own random number generator and pairs, for a task of {@link #alignInParallel(int, int, int, int, Random, LinearGenome, LinearGenome)}.
+	 */
+	private Hirschberg(Hirschberg<G> parent, Random rng) {
+		this.matchScore = parent.matchScore;
+		this.mismatchScore = parent.mismatchScore;
+		this.gapOpenScore = parent.gapOpenScore;
+		this.gapExtendScore = parent.gapExtendScore;
+		this.a = parent.a;
+		this.b = parent.b;
+		this.rng = rng;
+		this.sameAt = parent.sameAt;
+	}
+
+	/**
+	 * Perform global alignment with affine gap score in linear memory.
+	 * Parameters and result are as for {@link Affine.NeedlemanWunsch#align(int, int, int, int, Random, LinearGenome, LinearGenome)}; when there are several optimal alignments, the two may choose a different one.
+	 */
+	public static <G extends LinearGenome<G>> Alignment<G> align(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
+		Hirschberg<G> algorithm = new Hirschberg<>(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		int score = algorithm.solve(0, a.size(), 0, b.size(), MATCH, ANY);
+		return new Alignment<>(score, algorithm.pairs.build(), a, b);
+	}
+
+	/**
+	 * Same as {@link #align(int, int, int, int, Random, LinearGenome, LinearGenome)}, using all threads of the common {@link ForkJoinPool}.
+	 * Each task splits its problem with its own random number generator, seeded from that of its parent task before forking, so the result does not depend on the scheduling of the tasks and is reproducible for a given rng (but differs from that of the sequential version).
+	 */
+	public static <G extends LinearGenome<G>> Alignment<G> alignInParallel(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
+		Hirschberg<G> algorithm = new Hirschberg<>(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a, b);
+		SolveTask<G> task = new SolveTask<>(algorithm, rng.nextLong(), 0, a.size(), 0, b.size(), MATCH, ANY);
+		AlignedRuns pairs = ForkJoinPool.commonPool().invoke(task);
+		return new Alignment<>(task.score, pairs, a, b);
+	}
+
+	private static class SolveTask<G extends LinearGenome<G>> extends RecursiveTask<AlignedRuns> {
+		private static final long serialVersionUID = 1L;
+
+		private final Hirschberg<G> parent;
+		private final long seed;
+		private final int aLo, aHi, bLo, bHi, inState, outState;
+
+		/**
+		 * Score of the alignment of this section, once the task is done.
+		 */
+		int score;
+
+		SolveTask(Hirschberg<G> parent, long seed, int aLo, int aHi, int bLo, int bHi, int inState, int outState) {
+			this.parent = parent;
+			this.seed = seed;
+			this.aLo = aLo;
+			this.aHi = aHi;
+			this.bLo = bLo;
+			this.bHi = bHi;
+			this.inState = inState;
+			this.outState = outState;
+		}
+
+		@Override
+		protected AlignedRuns compute() {
+			Hirschberg<G> algorithm = new Hirschberg<>(parent, new Random(seed));
+			int rows = aHi - aLo;
+			int cols = bHi - bLo;
+			if (rows <= 1 || (long) (rows+1) * (cols+1) <= SEQUENTIAL_CELLS) {
+				this.score = algorithm.solve(aLo, aHi, bLo, bHi, inState, outState);
+				return algorithm.pairs.build();
+			}
+
+			int mid = (aLo + aHi) / 2;
+			int[] forward = algorithm.forwardTiled(aLo, mid, bLo, bHi, inState);
+			int[] backward = algorithm.backwardTiled(mid, aHi, bLo, bHi, outState);
+			int[] split = algorithm.split(forward, backward, cols);
+			int bestj = split[0];
+			int bests = split[1];
+			this.score = split[2];
+
+			SolveTask<G> left = new SolveTask<>(parent, algorithm.rng.nextLong(), aLo, mid, bLo, bLo+bestj, inState, bests);
+			SolveTask<G> right = new SolveTask<>(parent, algorithm.rng.nextLong(), mid, aHi, bLo+bestj, bHi, bests, outState);
+			left.fork();
+			AlignedRuns rightPairs = right.compute();
+			AlignedRuns leftPairs = left.join();
+			return AlignedRuns.ascending().addAll(leftPairs).addAll(rightPairs).build();
+		}
+	}
+
+	/**
+	 * Score of appending a gap step in the given state after a step in the previous state.
+	 */
+	private int gapScore(int state, int previous) {
+		return state == previous ? gapExtendScore : gapOpenScore;
+	}
+
+	private int matchCost(int ia, int ib) {
+		return sameAt.test(ia, ib) ? matchScore : mismatchScore;
+	}
+
+	/**
+	 * Align a[aLo..aHi) to b[bLo..bHi), adding the matched pairs to this.pairs.
+	 * @param inState - State of the step before this section. Gaps continuing this state are scored as extensions.
+	 * @param outState - State the last step of this section must have, or {@link #ANY}. If the section is empty, this must be inState.
+	 * @return The score of the alignment of this section.
+	 */
+	private int solve(int aLo, int aHi, int bLo, int bHi, int inState, int outState) {
+		int rows = aHi - aLo;
+		int cols = bHi - bLo;
+		if (rows <= 1 || (long) (rows+1) * (cols+1) <= BASE_CELLS) {
+			return this.solveFull(aLo, aHi, bLo, bHi, inState, outState);
+		}
+
+		int mid = (aLo + aHi) / 2;
+		int[] forward = this.forward(aLo, mid, bLo, bHi, inState);
+		int[] backward = this.backward(mid, aHi, bLo, bHi, outState);
+		int[] split = this.split(forward, backward, cols);
+		int bestj = split[0];
+		int bests = split[1];
+
+		this.solve(aLo, mid, bLo, bLo+bestj, inState, bests);
+		this.solve(mid, aHi, bLo+bestj, bHi, bests, outState);
+		return split[2];
+	}
+
+	/**
+	 * Best split point on the middle row, given the results of {@link #forward} and {@link #backward}, choosing randomly between equally good points.
+	 * @return The column, the state and the score of the split point.
+	 */
+	private int[] split(int[] forward, int[] backward, int cols) {
+		int bestj = 0;
+		int bests = MATCH;
+		int bestscore = Integer.MIN_VALUE;
+		double exaequo = 0;
+		for (int j=0; j<=cols; j++) {
+			for (int s=0; s<3; s++) {
+				int score = forward[j*3+s] + backward[j*3+s];
+				if (score > bestscore) {
+					bestj = j;
+					bests = s;
+					bestscore = score;
+					exaequo = 1;
+				} else if (score == bestscore && rng.nextDouble() < 1/(++exaequo)) {
+					bestj = j;
+					bests = s;
+				}
+			}
+		}
+		return new int[] {bestj, bests, bestscore};
+	}
+
+	/**
+	 * Forward pass over the score matrix of a[aLo..aHi) and b[bLo..bHi).
+	 * @return The last row: element j*3+s is the best score of aligning a[aLo..aHi) with b[bLo..bLo+j) ending in state s.
+	 */
+	private int[] forward(int aLo, int aHi, int bLo, int bHi, int inState) {
+		int cols = bHi - bLo;
+		int[] prev = this.forwardFirstRow(cols, inState);
+		int[] cur = new int[(cols+1)*3];
+
+		for (int ia=aLo; ia<aHi; ia++) {
+			this.forwardFirstColumn(prev, cur);
+			this.forwardRow(ia, prev, cur, bLo, cols);
+			int[] swap = prev;
+			prev = cur;
+			cur = swap;
+		}
+
+		return prev;
+	}
+
+	/**
+	 * Same as {@link #forward}, computed in tiles with {@link Wavefront}.
+	 * The last row of each tile is handed on to the tile below it in the result row, the last column to the tile to its right in an array over the rows,
+	 * and its last cell to the tile below and to the right of it in an array over the tiles (since by then the tile to its right has overwritten it in the result row).
+	 */
+	private int[] forwardTiled(int aLo, int aHi, int bLo, int bHi, int inState) {
+		int rows = aHi - aLo;
+		int cols = bHi - bLo;
+		int tileRows = (rows + TILE - 1) / TILE;
+		int tileCols = (cols + TILE - 1) / TILE;
+		int[] row = this.forwardFirstRow(cols, inState);
+		int[] column = new int[(rows+1)*3];
+		int[] corners = new int[(tileRows+1)*(tileCols+1)*3];
+		for (int c=0; c<tileCols; c++) {
+			System.arraycopy(row, c*TILE*3, corners, c*3, 3);
+		}
+
+		Wavefront.run(tileRows, tileCols, (r, c) -> {
+			int i0 = r*TILE;
+			int i1 = Math.min(rows, i0+TILE);
+			int j0 = c*TILE;
+			int w = Math.min(cols, j0+TILE) - j0;
+			int[] prev = new int[(w+1)*3];
+			int[] cur = new int[(w+1)*3];
+			System.arraycopy(c == 0 ? row : corners, c == 0 ? 0 : (r*(tileCols+1)+c)*3, prev, 0, 3);
+			System.arraycopy(row, (j0+1)*3, prev, 3, w*3);
+
+			for (int i=i0+1; i<=i1; i++) {
+				if (c == 0) {
+					this.forwardFirstColumn(prev, cur);
+				} else {
+					System.arraycopy(column, i*3, cur, 0, 3);
+				}
+				this.forwardRow(aLo+i-1, prev, cur, bLo+j0, w);
+				System.arraycopy(cur, w*3, column, i*3, 3);
+				int[] swap = prev;
+				prev = cur;
+				cur = swap;
+			}
+
+			System.arraycopy(prev, c == 0 ? 0 : 3, row, c == 0 ? 0 : (j0+1)*3, c == 0 ? (w+1)*3 : w*3);
+			System.arraycopy(prev, w*3, corners, ((r+1)*(tileCols+1)+c+1)*3, 3);
+		});
+
+		return row;
+	}
+
+	/**
+	 * First row of {@link #forward}, i.e. before any element of a.
+	 */
+	private int[] forwardFirstRow(int cols, int inState) {
+		int[] row = new int[(cols+1)*3];
+		Arrays.fill(row, 0, 3, NEG);
+		row[inState] = 0;
+		for (int j=1; j<=cols; j++) {
+			row[j*3+MATCH] = NEG;
+			row[j*3+INS_A] = NEG;
+			row[j*3+INS_B] = this.bestAfter(row, (j-1)*3, INS_B);
+		}
+		return row;
+	}
+
+	/**
+	 * First cell of a row of {@link #forward}, i.e. before any element of b, given the previous row.
+	 */
+	private void forwardFirstColumn(int[] prev, int[] cur) {
+		cur[MATCH] = NEG;
+		cur[INS_A] = this.bestAfter(prev, 0, INS_A);
+		cur[INS_B] = NEG;
+	}
+
+	/**
+	 * Fill cells 1 to width of a row of {@link #forward} for element ia of a, given the previous row and the first cell of this row.
+	 * Cell j is aligned to b[bOffset..bOffset+j).
+	 */
+	private void forwardRow(int ia, int[] prev, int[] cur, int bOffset, int width) {
+		for (int j=1; j<=width; j++) {
+			int d = (j-1)*3;
+			cur[j*3+MATCH] = Affine.max3(prev[d+MATCH], prev[d+INS_A], prev[d+INS_B]) + this.matchCost(ia, bOffset+j-1);
+			cur[j*3+INS_A] = this.bestAfter(prev, j*3, INS_A);
+			cur[j*3+INS_B] = this.bestAfter(cur, d, INS_B);
+		}
+	}
+
+	/**
+	 * Best score of a gap step in the given state, following the cell at the given offset of a forward row.
+	 */
+	private int bestAfter(int[] row, int offset, int state) {
+		return Affine.max3(
+			row[offset+MATCH] + this.gapScore(state, MATCH),
+			row[offset+INS_A] + this.gapScore(state, INS_A),
+			row[offset+INS_B] + this.gapScore(state, INS_B)
+			);
+	}
+
+	/**
+	 * Backward pass over the score matrix of a[aLo..aHi) and b[bLo..bHi).
+	 * @return The first row: element j*3+p is the best score of aligning a[aLo..aHi) with b[bLo+j..bHi) after a step in state p.
+	 */
+	private int[] backward(int aLo, int aHi, int bLo, int bHi, int outState) {
+		int cols = bHi - bLo;
+		int[] next = this.backwardLastRow(cols, outState);
+		int[] cur = new int[(cols+1)*3];
+
+		for (int ia=aHi-1; ia>=aLo; ia--) {
+			this.backwardLastColumn(next, cur, cols);
+			this.backwardRow(ia, next, cur, bLo, cols);
+			int[] swap = next;
+			next = cur;
+			cur = swap;
+		}
+
+		return next;
+	}
+
+	/**
+	 * Same as {@link #backward}, computed in tiles with {@link Wavefront}, as {@link #forwardTiled} but starting from the last row and column.
+	 */
+	private int[] backwardTiled(int aLo, int aHi, int bLo, int bHi, int outState) {
+		int rows = aHi - aLo;
+		int cols = bHi - bLo;
+		int tileRows = (rows + TILE - 1) / TILE;
+		int tileCols = (cols + TILE - 1) / TILE;
+		int[] row = this.backwardLastRow(cols, outState);
+		int[] column = new int[(rows+1)*3];
+		int[] corners = new int[(tileRows+1)*(tileCols+1)*3];
+		for (int c=0; c<tileCols; c++) {
+			System.arraycopy(row, (cols - c*TILE)*3, corners, c*3, 3);
+		}
+
+		// Tile (r, c) is the r-th tile from the bottom and the c-th from the right
+		Wavefront.run(tileRows, tileCols, (r, c) -> {
+			int i1 = rows - r*TILE;
+			int i0 = Math.max(0, i1-TILE);
+			int j1 = cols - c*TILE;
+			int j0 = Math.max(0, j1-TILE);
+			int w = j1 - j0;
+			int[] next = new int[(w+1)*3];
+			int[] cur = new int[(w+1)*3];
+			System.arraycopy(row, j0*3, next, 0, w*3);
+			System.arraycopy(c == 0 ? row : corners, c == 0 ? cols*3 : (r*(tileCols+1)+c)*3, next, w*3, 3);
+
+			for (int i=i1-1; i>=i0; i--) {
+				if (c == 0) {
+					this.backwardLastColumn(next, cur, w);
+				} else {
+					System.arraycopy(column, i*3, cur, w*3, 3);
+				}
+				this.backwardRow(aLo+i, next, cur, bLo+j0, w);
+				System.arraycopy(cur, 0, column, i*3, 3);
+				int[] swap = next;
+				next = cur;
+				cur = swap;
+			}
+
+			System.arraycopy(next, 0, row, j0*3, c == 0 ? (w+1)*3 : w*3);
+			System.arraycopy(next, 0, corners, ((r+1)*(tileCols+1)+c+1)*3, 3);
+		});
+
+		return row;
+	}
+
+	/**
+	 * Last row of {@link #backward}, i.e. after all elements of a.
+	 */
+	private int[] backwardLastRow(int cols, int outState) {
+		int[] row = new int[(cols+1)*3];
+		for (int p=0; p<3; p++) {
+			row[cols*3+p] = (outState == ANY || outState == p) ? 0 : NEG;
+		}
+		for (int j=cols-1; j>=0; j--) {
+			for (int p=0; p<3; p++) {
+				row[j*3+p] = this.gapScore(INS_B, p) + row[(j+1)*3+INS_B];
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * Last cell (at index width) of a row of {@link #backward}, i.e. after all elements of b, given the next row.
+	 */
+	private void backwardLastColumn(int[] next, int[] cur, int width) {
+		for (int p=0; p<3; p++) {
+			cur[width*3+p] = this.gapScore(INS_A, p) + next[width*3+INS_A];
+		}
+	}
+
+	/**
+	 * Fill cells width-1 down to 0 of a row of {@link #backward} for element ia of a, given the next row and the last cell of this row.
+	 * Cell j is aligned to b[bOffset+j..).
+	 */
+	private void backwardRow(int ia, int[] next, int[] cur, int bOffset, int width) {
+		for (int j=width-1; j>=0; j--) {
+			int matched = this.matchCost(ia, bOffset+j) + next[(j+1)*3+MATCH];
+			for (int p=0; p<3; p++) {
+				cur[j*3+p] = Affine.max3(
+					matched,
+					this.gapScore(INS_A, p) + next[j*3+INS_A],
+					this.gapScore(INS_B, p) + cur[(j+1)*3+INS_B]
+					);
+			}
+		}
+	}
+
+	/**
+	 * Solve a small problem with a full score matrix and traceback, as in {@link Affine.NeedlemanWunsch}.
+	 */
+	private int solveFull(int aLo, int aHi, int bLo, int bHi, int inState, int outState) {
+		int rows = aHi - aLo;
+		int cols = bHi - bLo;
+		int[][] matrix = new int[rows+1][];
+
+		matrix[0] = this.forwardFirstRow(cols, inState);
+		for (int i=1; i<=rows; i++) {
+			matrix[i] = new int[(cols+1)*3];
+			this.forwardFirstColumn(matrix[i-1], matrix[i]);
+			this.forwardRow(aLo+i-1, matrix[i-1], matrix[i], bLo, cols);
+		}
+
+		// Traceback
+		int i = rows;
+		int j = cols;
+		int[] scores = new int[3];
+		int state;
+		if (outState == ANY) {
+			System.arraycopy(matrix[rows], cols*3, scores, 0, 3);
+			state = DiscreteDistribution.getBestIndexOf(rng, scores);
+		} else {
+			state = outState;
+		}
+		int result = matrix[rows][cols*3+state];
+		AlignedRuns.Builder matches = AlignedRuns.descending();
+
+		while (i > 0 || j > 0) {
+			int[] row;
+			int offset;
+			if (state == MATCH) {
+				matches.add(aLo+i-1, bLo+j-1);
+				i--;
+				j--;
+				row = matrix[i];
+				offset = j*3;
+				for (int p=0; p<3; p++) scores[p] = row[offset+p];
+			} else {
+				if (state == INS_A) i--; else j--;
+				row = matrix[i];
+				offset = j*3;
+				for (int p=0; p<3; p++) scores[p] = row[offset+p] + this.gapScore(state, p);
+			}
+			state = DiscreteDistribution.getBestIndexOf(rng, scores);
+		}
+		// Sections are solved from left to right, so this section comes after all pairs found so far
+		pairs.addAll(matches.build());
+
+		return result;
+	}
+
+}
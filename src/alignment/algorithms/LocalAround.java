@@ -13,7 +13,6 @@ import java.util.stream.Collectors;
 import alignment.Alignment;
 import alignment.algorithms.Affine.SmithWaterman;
 import genome.LinearGenome;
-import util.DiscreteDistribution;
 import util.IntPair;
 
 /**
@@ -30,12 +29,12 @@ public class LocalAround {
 		// Perfom two local alignments, with the right part in reverse
 		// The final row of the score matrices is the best value for a local alignment beginning/ending at (target index, i) for each i on the other genome (and match/insertion status)
     	SmithWaterman<G> leftAlign = new SmithWaterman<G>(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, left, other);
-    	if (left.size() >= right.size()) leftAlign.grabMatrix(); else leftAlign.newMatrix();
+    	leftAlign.grabMatrix();
     	leftAlign.initializeScoreMatrix();
     	leftAlign.fillScoreMatrix();
     	
     	SmithWaterman<G> rightAlign = new SmithWaterman<G>(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, right.reversedView(), other.reversedView());
-    	if (left.size() >= right.size()) rightAlign.newMatrix(); else rightAlign.grabMatrix();
+    	rightAlign.grabMatrix();
     	rightAlign.initializeScoreMatrix();
     	rightAlign.fillScoreMatrix();
 
@@ -52,18 +51,11 @@ public class LocalAround {
 	        	// Trace back one step in left in order to avoid counting contribution of targetIndex twice
 	        	int leftileft = (im == MATCH || im == INS_A) ? left.size()-1 : left.size();
 	        	int leftiother = (im == MATCH || im == INS_B) ? iother-1 : iother;
-	        	int leftim;
-	        	if (im != MATCH) {
-	        		leftAlign.scoreMatrix[leftileft][leftiother][im] += gapExtendScore - gapOpenScore;
-	        		leftim = DiscreteDistribution.getBestIndexOf(rng, leftAlign.scoreMatrix[leftileft][leftiother]);
-	        		leftAlign.scoreMatrix[leftileft][leftiother][im] -= gapExtendScore - gapOpenScore;
-	        	} else {
-	        		leftim = DiscreteDistribution.getBestIndexOf(rng, leftAlign.scoreMatrix[leftileft][leftiother]);
-	        	}
+	        	int leftim = leftAlign.previousState(leftileft, leftiother, im);
 	        	
 	        	// Calculate score if targetIndex is aligned with index i on other
-	        	int score = leftAlign.scoreMatrix[leftileft][leftiother][leftim]
-	        			  + rightAlign.scoreMatrix[right.size()][other.size()-iother+1][im];
+	        	int score = leftAlign.score(leftileft, leftiother, leftim)
+	        			  + rightAlign.score(right.size(), other.size()-iother+1, im);
 	        	
 	        	// Update best case if appropriate
 	        	if (score > bestscore) {
@@ -85,11 +77,13 @@ public class LocalAround {
         }
         
         // Traceback start and end of optimal alignment (undo reversal in right alignment output)
-        SortedSet<IntPair> pairs = leftAlign.traceback(bestleftileft, bestleftiother, bestleftim, 0);
+        SortedSet<IntPair> pairs = new TreeSet<>(leftAlign.traceback(bestleftileft, bestleftiother, bestleftim, 0));
         rightAlign.traceback(right.size(), other.size()-besti+1, bestim, 0)
         	.stream()
         	.map(pair -> IntPair.of(left.size()+right.size()-pair.x-2, other.size()-pair.y-1))
         	.forEach(pairs::add);
+        leftAlign.releaseMatrix();
+        rightAlign.releaseMatrix();
         if (!targetIndexIsOnGenomeA) pairs = pairs.stream()
     		.map(IntPair::flip)
     		.collect(Collectors.toCollection(TreeSet::new));
@@ -16,6 +16,7 @@ import util.IntPair;
 /**
  * OneGap alignment.
  * If the genomes are different lengths, a single gap will be inserted in a random location to make up for the length difference.
+ * The location of the gap does not depend on the content of the genomes, so no score matrix is computed; for alignments that do, with a bit-parallel score, see {@link BitParallel}.
  * 
  * @author adriaan
  *
@@ -1,15 +1,20 @@
 package alignment.algorithms;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.SortedSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import alignment.Alignment;
 import alignment.AlignmentOp;
 import alignment.AlignmentRule;
 import alignment.Local;
+import alignment.RangeAlignmentOp;
 import crossover.binary.SynapsingCross;
 import genome.LinearGenome;
 import util.Assert;
@@ -66,10 +71,18 @@ public final class OrderedSynapsing {
 		}
 
 		public static <G extends LinearGenome<G>> List<Alignment<G>> alignSynapsesInRange(AlignmentOp<G> localAlign, int minSynapseScore, G a, int aInclusiveStart, int aExclusiveEnd, G b, int bInclusiveStart, int bExclusiveEnd) {
+			return Generalized.alignSynapsesInRange(localAlign.inRanges(a, b), minSynapseScore, aInclusiveStart, aExclusiveEnd, bInclusiveStart, bExclusiveEnd);
+		}
+
+		/**
+		 * See {@link #alignSynapsesInRange(AlignmentOp, int, LinearGenome, int, int, LinearGenome, int, int)}.
+		 * All recursive steps use the same range alignment, so that an operator that indexes the genomes (such as {@link Local#longestCommonSubstring()}) only does so once.
+		 */
+		public static <G extends LinearGenome<G>> List<Alignment<G>> alignSynapsesInRange(RangeAlignmentOp<G> localAlign, int minSynapseScore, int aInclusiveStart, int aExclusiveEnd, int bInclusiveStart, int bExclusiveEnd) {
 			List<Alignment<G>> result = new LinkedList<>();
 			if (aExclusiveEnd - aInclusiveStart >= 1 && bExclusiveEnd - bInclusiveStart >= 1) { // For non-exotic scoring schemes, could also compare to minSynapseScore 
 				// Create new synapse
-				Alignment<G> synapse = Local.alignInRange(localAlign, a, aInclusiveStart, aExclusiveEnd, b, bInclusiveStart, bExclusiveEnd);
+				Alignment<G> synapse = localAlign.apply(aInclusiveStart, aExclusiveEnd, bInclusiveStart, bExclusiveEnd);
 				if (synapse.score >= minSynapseScore && synapse.getPairs().size() > 0) {
 					result.add(synapse);
 					
@@ -79,7 +92,7 @@ public final class OrderedSynapsing {
 					int leftaend = synapse.getPairs().first().x;
 					int leftbend = synapse.getPairs().first().y;
 					if (leftaend - leftastart >= 1 && leftbend - leftbstart >= 1) {
-						List<Alignment<G>> leftRecurse = alignSynapsesInRange(localAlign, minSynapseScore, a, leftastart, leftaend, b, leftbstart, leftbend); 
+						List<Alignment<G>> leftRecurse = alignSynapsesInRange(localAlign, minSynapseScore, leftastart, leftaend, leftbstart, leftbend); 
 						result.addAll(0, leftRecurse);
 					}
 					
@@ -89,7 +102,7 @@ public final class OrderedSynapsing {
 					int rightaend = aExclusiveEnd;
 					int rightbend = bExclusiveEnd;
 					if (rightaend - rightastart >= 1 && rightbend - rightbstart >= 1) {
-						List<Alignment<G>> rightRecurse = alignSynapsesInRange(localAlign, minSynapseScore, a, rightastart, rightaend, b, rightbstart, rightbend);
+						List<Alignment<G>> rightRecurse = alignSynapsesInRange(localAlign, minSynapseScore, rightastart, rightaend, rightbstart, rightbend);
 						result.addAll(rightRecurse);
 					}
 				}
@@ -97,6 +110,75 @@ public final class OrderedSynapsing {
 			return result;
 		}
 		
+		/**
+		 * Same as {@link #alignment(AlignmentRule, int)}, but recursing into the left and right of each synapse concurrently, see {@link #alignSynapsesInParallel(AlignmentRule, int, int, Random, LinearGenome, LinearGenome)}.
+		 */
+		public static <G extends LinearGenome<G>> AlignmentRule<G> parallelAlignment(AlignmentRule<G> localAlign, int minSynapseScore, int sequentialCutoff) {
+			return (rng) -> (a, b) -> Alignment.collate(Generalized.alignSynapsesInParallel(localAlign, minSynapseScore, sequentialCutoff, rng, a, b), a, b);
+		}
+		
+		public static <G extends LinearGenome<G>> Stream<SortedSet<IntPair>> getSynapsesInParallel(AlignmentRule<G> localAlign, int minSynapseScore, int sequentialCutoff, Random rng, G a, G b) {
+			return Generalized.alignSynapsesInParallel(localAlign, minSynapseScore, sequentialCutoff, rng, a, b).stream()
+					.map(Alignment::getPairs);
+		}
+		
+		/**
+		 * Same as {@link #alignSynapses(AlignmentOp, int, LinearGenome, LinearGenome)}, with the recursion to the left and to the right of each synapse run as separate tasks in the common {@link ForkJoinPool}.
+		 * Ranges where the two genomes together are shorter than sequentialCutoff are handled sequentially within one task.
+		 * Each task aligns with its own random number generator, seeded from that of its parent task before forking, so the result does not depend on the scheduling of the tasks and is reproducible for a given rng (but differs from that of the sequential version).
+		 * Synapses are returned in order, as in the sequential version.
+		 */
+		public static <G extends LinearGenome<G>> List<Alignment<G>> alignSynapsesInParallel(AlignmentRule<G> localAlign, int minSynapseScore, int sequentialCutoff, Random rng, G a, G b) {
+			SynapseTask<G> task = new SynapseTask<>(localAlign.inRanges(a, b), minSynapseScore, sequentialCutoff, rng.nextLong(), 0, a.size(), 0, b.size());
+			return ForkJoinPool.commonPool().invoke(task);
+		}
+		
+		private static class SynapseTask<G extends LinearGenome<G>> extends RecursiveTask<List<Alignment<G>>> {
+			private static final long serialVersionUID = 1L;
+			
+			private final Function<Random, RangeAlignmentOp<G>> localAlign;
+			private final int minSynapseScore;
+			private final int sequentialCutoff;
+			private final long seed;
+			private final int aInclusiveStart, aExclusiveEnd, bInclusiveStart, bExclusiveEnd;
+			
+			SynapseTask(Function<Random, RangeAlignmentOp<G>> localAlign, int minSynapseScore, int sequentialCutoff, long seed, int aInclusiveStart, int aExclusiveEnd, int bInclusiveStart, int bExclusiveEnd) {
+				this.localAlign = localAlign;
+				this.minSynapseScore = minSynapseScore;
+				this.sequentialCutoff = sequentialCutoff;
+				this.seed = seed;
+				this.aInclusiveStart = aInclusiveStart;
+				this.aExclusiveEnd = aExclusiveEnd;
+				this.bInclusiveStart = bInclusiveStart;
+				this.bExclusiveEnd = bExclusiveEnd;
+			}
+			
+			@Override
+			protected List<Alignment<G>> compute() {
+				Random rng = new Random(seed);
+				RangeAlignmentOp<G> rangeAlign = localAlign.apply(rng);
+				if ((aExclusiveEnd - aInclusiveStart) + (bExclusiveEnd - bInclusiveStart) < sequentialCutoff) {
+					return alignSynapsesInRange(rangeAlign, minSynapseScore, aInclusiveStart, aExclusiveEnd, bInclusiveStart, bExclusiveEnd);
+				}
+				
+				List<Alignment<G>> result = new ArrayList<>();
+				if (aExclusiveEnd - aInclusiveStart >= 1 && bExclusiveEnd - bInclusiveStart >= 1) {
+					Alignment<G> synapse = rangeAlign.apply(aInclusiveStart, aExclusiveEnd, bInclusiveStart, bExclusiveEnd);
+					if (synapse.score >= minSynapseScore && synapse.getPairs().size() > 0) {
+						SynapseTask<G> left = new SynapseTask<>(localAlign, minSynapseScore, sequentialCutoff, rng.nextLong(),
+								aInclusiveStart, synapse.getPairs().first().x, bInclusiveStart, synapse.getPairs().first().y);
+						SynapseTask<G> right = new SynapseTask<>(localAlign, minSynapseScore, sequentialCutoff, rng.nextLong(),
+								synapse.getPairs().last().x+1, aExclusiveEnd, synapse.getPairs().last().y+1, bExclusiveEnd);
+						left.fork();
+						List<Alignment<G>> rightResult = right.compute();
+						result.addAll(left.join());
+						result.add(synapse);
+						result.addAll(rightResult);
+					}
+				}
+				return result;
+			}
+		}
 		
 	}
 
@@ -0,0 +1,26 @@
+package alignment.algorithms;
+
+import genome.LinearGenome;
+import genome.binary.BinaryGenome;
+
+/**
+ * Comparison of positions on two fixed genomes, as used in the inner loops of alignment algorithms.
+ * Equivalent to a.sameAt(ia, b, ib), except that {@link BinaryGenome}s are read in bulk into packed words once, so that each comparison does not go through the (possibly nested and reversed) Views of the genomes.
+ * The comparison refers to the genomes as they were when it was created; it does not update when they are modified.
+ */
+@FunctionalInterface
+interface SameAt {
+
+	boolean test(int ia, int ib);
+
+	static <G extends LinearGenome<G>> SameAt of(G a, G b) {
+		if (a instanceof BinaryGenome && b instanceof BinaryGenome) {
+			long[] aWords = ((BinaryGenome<?>) a).toWords();
+			long[] bWords = ((BinaryGenome<?>) b).toWords();
+			return (ia, ib) -> (((aWords[ia >>> 6] >>> ia) ^ (bWords[ib >>> 6] >>> ib)) & 1L) == 0;
+		} else {
+			return (ia, ib) -> a.sameAt(ia, b, ib);
+		}
+	}
+
+}
@@ -0,0 +1,296 @@
+package alignment.algorithms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+import alignment.AlignedRuns;
+import alignment.VarOAlignment;
+import genome.LinearGenome;
+import genome.binary.BinaryGenome;
+import util.Assert;
+import util.IntPair;
+
+/**
+ * Glocal alignment of binary genomes by seed and extend, as in BLAST.
+ * Every k-mer (substring of seedSize bits) of genome a is put in a hash index, packed into one long.
+ * The k-mers of b are looked up in the index, and each shared k-mer (a "seed") is extended without gaps along its diagonal in both directions, until the score drops more than xDrop below the best score so far.
+ * Seeds that fall inside a previous extension on the same diagonal are skipped, so a long homologous region is extended only once.
+ * The extensions scoring at least minScore are then taken as segments of the alignment in order of decreasing score, where an extension is clipped to the parts of the genomes that no better segment uses.
+ *
+ * This takes time about linear in the size of the genomes when they are mostly homologous, instead of the O(a.size()*b.size()) of {@link UnorderedSynapsing} and {@link GreedyGlocal}, but may miss homologous regions that have no seed in common.
+ * Regions that are separated by an indel become separate segments on neighbouring diagonals, which {@link VarOAlignment#simplify()} joins again when they are consecutive on both genomes.
+ */
+public final class SeedExtend {
+
+	/**
+	 * K-mers that occur more often than this in genome a are not used as seeds, since they are mostly repeats that would give many unrelated extensions.
+	 */
+	static final int MAX_OCCURRENCES = 64;
+
+	private SeedExtend() {
+		Assert.utilityClass();
+	}
+
+	/**
+	 * Whether the given genomes can be aligned with this algorithm.
+	 */
+	public static boolean supports(LinearGenome<?> a, LinearGenome<?> b) {
+		return a instanceof BinaryGenome && b instanceof BinaryGenome;
+	}
+
+	/**
+	 * Glocal alignment of a and b, see {@link SeedExtend}.
+	 * @param seedSize - Number of bits of the k-mers that are indexed, between 1 and 64.
+	 * @param xDrop - How far the score of an extension may drop below its best score before the extension stops.
+	 * @param minScore - Minimal score of a segment of the alignment.
+	 * @throws IllegalArgumentException - If a or b is not a {@link BinaryGenome}, or seedSize is out of range.
+	 */
+	public static <G extends LinearGenome<G>> VarOAlignment<G> align(int matchScore, int mismatchScore, int seedSize, int xDrop, int minScore, Random rng, G a, G b) {
+		if (!supports(a, b)) throw new IllegalArgumentException("Seed and extend alignment requires binary genomes.");
+		if (seedSize < 1 || seedSize > 64) throw new IllegalArgumentException("Seed size must be between 1 and 64.");
+
+		long[] aWords = ((BinaryGenome<?>) a).toWords();
+		long[] bWords = ((BinaryGenome<?>) b).toWords();
+		SameAt sameAt = SameAt.of(a, b);
+		KmerIndex index = new KmerIndex(aWords, a.size(), seedSize);
+
+		// Extend seeds
+		PriorityQueue<Segment> candidates = new PriorityQueue<>();
+		Map<Integer,Integer> extendedUntil = new HashMap<>(); // End on b of the last extension on each diagonal (a - b)
+		long mask = seedSize == 64 ? -1L : (1L << seedSize) - 1;
+		long key = 0;
+		for (int jEnd=0; jEnd<b.size(); jEnd++) {
+			key = ((key << 1) | (BinaryGenome.getBit(bWords, jEnd) ? 1 : 0)) & mask;
+			int j = jEnd - seedSize + 1;
+			if (j < 0) continue;
+
+			int first = index.first(key);
+			if (first < 0 || index.count(key) > MAX_OCCURRENCES) continue;
+			for (int i=first; i>=0; i=index.next(i)) {
+				int diagonal = i - j;
+				int limit = extendedUntil.getOrDefault(diagonal, 0);
+				if (j < limit) continue;
+
+				Segment segment = extend(matchScore, mismatchScore, xDrop, sameAt, i, j, seedSize, limit, a.size(), b.size(), rng);
+				extendedUntil.put(diagonal, segment.bStart + segment.length);
+				if (segment.score >= minScore) candidates.add(segment);
+			}
+		}
+
+		// Take the best segments, clipping them to the parts of the genomes that are still free
+		TreeMap<Integer,Integer> usedA = new TreeMap<>();
+		TreeMap<Integer,Integer> usedB = new TreeMap<>();
+		List<SortedSet<IntPair>> segments = new ArrayList<>();
+		while (!candidates.isEmpty()) {
+			Segment segment = candidates.poll();
+			int freeStart = freeRun(usedA, usedB, segment, 0);
+			int freeEnd = freeStart + runLength(usedA, usedB, segment, freeStart);
+			if (freeStart == 0 && freeEnd == segment.length) {
+				segments.add(AlignedRuns.diagonal(segment.aStart, segment.bStart, segment.length));
+				usedA.put(segment.aStart, segment.aStart + segment.length);
+				usedB.put(segment.bStart, segment.bStart + segment.length);
+				continue;
+			}
+			// Put back the best parts of each free run, which will be taken in their turn
+			for (int start=freeStart; start<segment.length; ) {
+				int end = start + runLength(usedA, usedB, segment, start);
+				addParts(candidates, matchScore, mismatchScore, minScore, sameAt, segment.aStart + start, segment.bStart + start, end - start, rng);
+				start = freeRun(usedA, usedB, segment, end);
+			}
+		}
+
+		return new VarOAlignment<>(segments, a, b);
+	}
+
+	/**
+	 * Pairs (aStart+k, bStart+k) for 0 <= k < length, with their score.
+	 * Segments are ordered by decreasing score, and randomly among equal scores.
+	 */
+	static final class Segment implements Comparable<Segment> {
+		final int aStart;
+		final int bStart;
+		final int length;
+		final int score;
+		private final int tieBreak;
+
+		Segment(int aStart, int bStart, int length, int score, Random rng) {
+			this.aStart = aStart;
+			this.bStart = bStart;
+			this.length = length;
+			this.score = score;
+			this.tieBreak = rng.nextInt();
+		}
+
+		@Override
+		public int compareTo(Segment other) {
+			return this.score != other.score ? Integer.compare(other.score, this.score) : Integer.compare(this.tieBreak, other.tieBreak);
+		}
+	}
+
+	/**
+	 * Extend the seed of the given size at (i, j) along its diagonal, with X-drop: in each direction, stop when the score drops more than xDrop below the best score in that direction, and keep the part up to the best score.
+	 * @param bLimit - First position on b that the extension to the left may reach.
+	 */
+	static Segment extend(int matchScore, int mismatchScore, int xDrop, SameAt sameAt, int i, int j, int seedSize, int bLimit, int aSize, int bSize, Random rng) {
+		int score = seedSize * matchScore;
+
+		int right = 0;
+		int best = 0;
+		for (int k=0, s=0; i+seedSize+k < aSize && j+seedSize+k < bSize; k++) {
+			s += sameAt.test(i+seedSize+k, j+seedSize+k) ? matchScore : mismatchScore;
+			if (s > best) {
+				best = s;
+				right = k+1;
+			} else if (s < best - xDrop) {
+				break;
+			}
+		}
+		score += best;
+
+		int left = 0;
+		best = 0;
+		for (int k=1, s=0; i-k >= 0 && j-k >= bLimit; k++) {
+			s += sameAt.test(i-k, j-k) ? matchScore : mismatchScore;
+			if (s > best) {
+				best = s;
+				left = k;
+			} else if (s < best - xDrop) {
+				break;
+			}
+		}
+		score += best;
+
+		return new Segment(i - left, j - left, left + seedSize + right, score, rng);
+	}
+
+	/**
+	 * Add the parts of the given diagonal run that score at least minScore to the candidates.
+	 * The run is cut where its score from the start of the current part drops to zero, and each part ends where that score is highest.
+	 */
+	static void addParts(PriorityQueue<Segment> candidates, int matchScore, int mismatchScore, int minScore, SameAt sameAt, int aStart, int bStart, int length, Random rng) {
+		int start = 0;
+		int s = 0;
+		int best = 0;
+		int bestEnd = 0;
+		for (int k=0; k<length; k++) {
+			s += sameAt.test(aStart+k, bStart+k) ? matchScore : mismatchScore;
+			if (s > best) {
+				best = s;
+				bestEnd = k+1;
+			}
+			if (s <= 0 || k == length-1) {
+				if (best > 0 && best >= minScore) candidates.add(new Segment(aStart + start, bStart + start, bestEnd - start, best, rng));
+				start = k+1;
+				s = 0;
+				best = 0;
+			}
+		}
+	}
+
+	/**
+	 * First offset k >= from in the segment at which neither (aStart+k) nor (bStart+k) is used, or the segment length if there is none.
+	 */
+	private static int freeRun(TreeMap<Integer,Integer> usedA, TreeMap<Integer,Integer> usedB, Segment segment, int from) {
+		int k = from;
+		while (k < segment.length) {
+			int skip = Math.max(usedUntil(usedA, segment.aStart + k) - segment.aStart, usedUntil(usedB, segment.bStart + k) - segment.bStart);
+			if (skip <= k) return k;
+			k = skip;
+		}
+		return segment.length;
+	}
+
+	/**
+	 * Number of offsets from the given free offset of the segment until either genome reaches a used position or the segment ends.
+	 */
+	private static int runLength(TreeMap<Integer,Integer> usedA, TreeMap<Integer,Integer> usedB, Segment segment, int from) {
+		int end = segment.length;
+		Integer nextA = usedA.higherKey(segment.aStart + from);
+		Integer nextB = usedB.higherKey(segment.bStart + from);
+		if (nextA != null) end = Math.min(end, nextA - segment.aStart);
+		if (nextB != null) end = Math.min(end, nextB - segment.bStart);
+		return end - from;
+	}
+
+	/**
+	 * End of the used interval containing the given position, or the position itself if it is free.
+	 */
+	private static int usedUntil(TreeMap<Integer,Integer> used, int position) {
+		Map.Entry<Integer,Integer> interval = used.floorEntry(position);
+		return interval != null && interval.getValue() > position ? interval.getValue() : position;
+	}
+
+	/**
+	 * Hash index from each k-mer of a genome, packed into a long, to the positions at which it occurs.
+	 * The table uses open addressing on the k-mers, and the positions of one k-mer are chained in increasing order.
+	 */
+	static final class KmerIndex {
+		private final long[] keys;
+		private final int[] heads; // First position of the k-mer in this slot, plus one (zero for an empty slot)
+		private final int[] counts;
+		private final int[] next; // Next position with the same k-mer, plus one
+		private final int shift;
+
+		KmerIndex(long[] words, int size, int seedSize) {
+			int positions = Math.max(0, size - seedSize + 1);
+			int capacity = Integer.highestOneBit(Math.max(1, positions) * 2 - 1) << 1;
+			this.keys = new long[capacity];
+			this.heads = new int[capacity];
+			this.counts = new int[capacity];
+			this.next = new int[positions];
+			this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+
+			long[] kmers = new long[positions];
+			long mask = seedSize == 64 ? -1L : (1L << seedSize) - 1;
+			long key = 0;
+			for (int end=0; end<size; end++) {
+				key = ((key << 1) | (BinaryGenome.getBit(words, end) ? 1 : 0)) & mask;
+				if (end - seedSize + 1 >= 0) kmers[end - seedSize + 1] = key;
+			}
+			// Insert from the back, so that each chain is in increasing order
+			for (int i=positions-1; i>=0; i--) {
+				int slot = this.slot(kmers[i]);
+				keys[slot] = kmers[i];
+				next[i] = heads[slot];
+				heads[slot] = i+1;
+				counts[slot]++;
+			}
+		}
+
+		private int slot(long key) {
+			int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+			while (heads[slot] != 0 && keys[slot] != key) {
+				slot = (slot + 1) & (keys.length - 1);
+			}
+			return slot;
+		}
+
+		/**
+		 * First position of the k-mer, or -1 if it does not occur.
+		 */
+		int first(long key) {
+			return heads[this.slot(key)] - 1;
+		}
+
+		/**
+		 * Number of occurrences of the k-mer.
+		 */
+		int count(long key) {
+			return counts[this.slot(key)];
+		}
+
+		/**
+		 * Next position of the same k-mer, or -1 if there is none.
+		 */
+		int next(int position) {
+			return next[position] - 1;
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+package alignment.algorithms;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import alignment.AlignedRuns;
+import alignment.Alignment;
+import genome.LinearGenome;
+import genome.binary.BinaryGenome;
+import util.Assert;
+
+/**
+ * Smith-Waterman local alignment with affine gap score for binary genomes, using Farrar's striped layout of the score matrix.
+ * Genome b is split into {@link #LANES} stripes of equal length, and position ib is held in lane ib / segments of vector ib % segments, where segments is the stripe length.
+ * The cells of one vector are then never neighbours in b, so every lane of a vector can be updated with the same operations without dependencies between them, which lets the compiler vectorize the inner loop.
+ * The score of each bit of a against all of b (the "query profile") is computed once for a 0 and once for a 1.
+ *
+ * Gaps along b that cross from one stripe to the next are not seen in the first pass over a row. They are added afterwards in the "lazy F" loop, which in practice stops after one or two vectors.
+ * This requires that opening a gap scores no better than extending it (gapOpenScore <= gapExtendScore), and that extending a gap has a cost (gapExtendScore < 0), see {@link #supports(LinearGenome, LinearGenome, int, int)}.
+ *
+ * The scores are the same as those of {@link Affine.SmithWaterman}. The striped pass only finds the end of the best alignment;
+ * a second pass over the reversed genomes up to that end finds its start, and the alignment itself is then recomputed with {@link Affine.SmithWaterman} on the region between them.
+ */
+public final class Striped {
+
+	/**
+	 * Number of cells updated together, i.e. the number of stripes.
+	 */
+	static final int LANES = 8;
+
+	/**
+	 * Score of cells that do not exist, low enough to never win a maximum but far enough from Integer.MIN_VALUE to not overflow when adding scores.
+	 */
+	static final int NEG = -(1 << 28);
+
+	private Striped() {
+		Assert.utilityClass();
+	}
+
+	/**
+	 * Whether this algorithm can align the given genomes with the given gap scores.
+	 * Other genomes and scores can be aligned with {@link Affine.SmithWaterman}.
+	 */
+	public static <G extends LinearGenome<G>> boolean supports(G a, G b, int gapOpenScore, int gapExtendScore) {
+		return a instanceof BinaryGenome && b instanceof BinaryGenome && gapOpenScore <= gapExtendScore && gapExtendScore < 0;
+	}
+
+	/**
+	 * Score of the best local alignment of a and b, the same as that of {@link Affine.SmithWaterman#align(int, int, int, int, Random, LinearGenome, LinearGenome)}.
+	 * @throws IllegalArgumentException - If the genomes and scores are not supported, see {@link #supports(LinearGenome, LinearGenome, int, int)}.
+	 */
+	public static <G extends LinearGenome<G>> int score(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, G a, G b) {
+		if (!supports(a, b, gapOpenScore, gapExtendScore)) throw new IllegalArgumentException("Striped alignment needs binary genomes, a negative gap extend score and a gap open score no better than it.");
+		return best(matchScore, mismatchScore, gapOpenScore, gapExtendScore, bits(a, a.size(), false), bits(b, b.size(), false))[0];
+	}
+
+	/**
+	 * Best local alignment of a and b, with the same score as {@link Affine.SmithWaterman#align(int, int, int, int, Random, LinearGenome, LinearGenome)}.
+	 * When there are several optimal alignments, the two may choose a different one.
+	 * @throws IllegalArgumentException - If the genomes and scores are not supported, see {@link #supports(LinearGenome, LinearGenome, int, int)}.
+	 */
+	public static <G extends LinearGenome<G>> Alignment<G> align(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, Random rng, G a, G b) {
+		if (!supports(a, b, gapOpenScore, gapExtendScore)) throw new IllegalArgumentException("Striped alignment needs binary genomes, a negative gap extend score and a gap open score no better than it.");
+
+		int[] end = best(matchScore, mismatchScore, gapOpenScore, gapExtendScore, bits(a, a.size(), false), bits(b, b.size(), false));
+		if (end[0] == 0) return new Alignment<>(0, AlignedRuns.empty(), a, b);
+		int aEnd = end[1];
+		int bEnd = end[2];
+
+		// An optimal alignment ending at (aEnd, bEnd) is an optimal alignment starting at (0, 0) of the reversed genomes, and vice versa
+		int[] start = best(matchScore, mismatchScore, gapOpenScore, gapExtendScore, bits(a, aEnd, true), bits(b, bEnd, true));
+		int aStart = aEnd - start[1];
+		int bStart = bEnd - start[2];
+
+		Alignment<G> region = Affine.SmithWaterman.align(matchScore, mismatchScore, gapOpenScore, gapExtendScore, rng, a.view(aStart, aEnd), b.view(bStart, bEnd));
+		return new Alignment<>(region.score, region.getRuns().shifted(aStart, bStart), a, b);
+	}
+
+	/**
+	 * The first n bits of the genome, optionally in reverse order.
+	 */
+	static boolean[] bits(LinearGenome<?> g, int n, boolean reversed) {
+		long[] words = ((BinaryGenome<?>) g).toWords();
+		boolean[] result = new boolean[n];
+		for (int i=0; i<n; i++) {
+			result[reversed ? n-1-i : i] = BinaryGenome.getBit(words, i);
+		}
+		return result;
+	}
+
+	/**
+	 * Fill the striped score matrix row by row (one row per bit of a).
+	 * @return The best score, and the (exclusive) end on a and b of the first cell with that score.
+	 */
+	static int[] best(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, boolean[] a, boolean[] b) {
+		int segments = Math.max(1, (b.length + LANES - 1) / LANES);
+		int size = segments * LANES;
+
+		// Query profile: score of a 0 (element 0) or a 1 (element 1) of a against each position of b, in striped order
+		int[][] profile = new int[2][size];
+		for (int j=0; j<segments; j++) {
+			for (int k=0; k<LANES; k++) {
+				int ib = k*segments + j;
+				profile[0][j*LANES+k] = ib >= b.length ? NEG : !b[ib] ? matchScore : mismatchScore;
+				profile[1][j*LANES+k] = ib >= b.length ? NEG : b[ib] ? matchScore : mismatchScore;
+			}
+		}
+
+		int[] hPrev = new int[size];
+		int[] hCur = new int[size];
+		int[] e = new int[size]; // Best score ending in a gap in b, for the next row
+		int[] h = new int[LANES];
+		int[] f = new int[LANES]; // Best score ending in a gap in a, for the next cell of each lane
+		int bestscore = 0;
+		int bestia = 0;
+		int bestib = 0;
+
+		for (int ia=0; ia<a.length; ia++) {
+			int[] p = profile[a[ia] ? 1 : 0];
+
+			// Diagonal neighbours of the first vector are the last cells of the previous lane
+			h[0] = 0;
+			for (int k=1; k<LANES; k++) h[k] = hPrev[(segments-1)*LANES + k-1];
+			Arrays.fill(f, NEG);
+
+			int rowbest = 0;
+			for (int j=0; j<segments; j++) {
+				int base = j*LANES;
+				for (int k=0; k<LANES; k++) {
+					int score = Math.max(0, Math.max(h[k] + p[base+k], Math.max(e[base+k], f[k])));
+					hCur[base+k] = score;
+					rowbest = Math.max(rowbest, score);
+					int open = score + gapOpenScore;
+					e[base+k] = Math.max(e[base+k] + gapExtendScore, open);
+					f[k] = Math.max(f[k] + gapExtendScore, open);
+					h[k] = hPrev[base+k];
+				}
+			}
+
+			// Lazy F: carry gaps in a over from the end of each lane to the start of the next, until they no longer change any cell
+			shiftLanes(f);
+			int j = 0;
+			while (true) {
+				int base = j*LANES;
+				boolean active = false;
+				for (int k=0; k<LANES; k++) {
+					if (f[k] > hCur[base+k] + gapOpenScore - gapExtendScore) {
+						active = true;
+						if (f[k] > hCur[base+k]) {
+							hCur[base+k] = f[k];
+							rowbest = Math.max(rowbest, f[k]);
+							e[base+k] = Math.max(e[base+k], f[k] + gapOpenScore);
+						}
+					}
+					f[k] += gapExtendScore;
+				}
+				if (!active) break;
+				if (++j == segments) {
+					j = 0;
+					shiftLanes(f);
+				}
+			}
+
+			if (rowbest > bestscore) {
+				bestscore = rowbest;
+				bestia = ia+1;
+				bestib = Integer.MAX_VALUE;
+				for (int i=0; i<size; i++) {
+					int ib = (i % LANES)*segments + i / LANES;
+					if (hCur[i] == rowbest && ib < bestib) bestib = ib;
+				}
+				bestib++;
+			}
+
+			int[] swap = hPrev;
+			hPrev = hCur;
+			hCur = swap;
+		}
+
+		return new int[] {bestscore, bestia, bestib};
+	}
+
+	/**
+	 * Move the value of each lane to the next lane, and start the first lane with {@link #NEG}.
+	 */
+	private static void shiftLanes(int[] lanes) {
+		System.arraycopy(lanes, 0, lanes, 1, LANES-1);
+		lanes[0] = NEG;
+	}
+
+}
@@ -1,23 +1,28 @@
 package alignment.algorithms;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Random;
 import java.util.SortedSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import alignment.Alignment;
 import alignment.AlignmentOp;
 import alignment.AlignmentRule;
 import alignment.Global;
 import alignment.Local;
+import alignment.RangeAlignmentOp;
 import alignment.VarOAlignment;
 import alignment.VarOAlignmentRule;
 import genome.LinearGenome;
 import util.Assert;
 import util.IntPair;
-import util.Table;
 
 /**
  * See {@link OrderedSynapsing}. This is a further generalisation that does not preserve the ordering of the segments.
@@ -39,7 +44,7 @@ public final class UnorderedSynapsing {
 	 * The segments of the output alignment are not simplified (VarOAlignment#simplify());
 	 */
 	public static <G extends LinearGenome<G>> VarOAlignmentRule<G> alignment(AlignmentRule<G> localAlign, int minSegmentScore) {
-		return (rng) -> (a, b) -> align(rng, localAlign.apply(rng), minSegmentScore, a, b);
+		return (rng) -> (a, b) -> align(rng, localAlign, minSegmentScore, a, b);
 	}
 	
 	public static <G extends LinearGenome<G>> VarOAlignment<G> align(Random rng, AlignmentOp<G> localAlign, int minSegmentScore, G a, G b) {
@@ -47,72 +52,176 @@ public final class UnorderedSynapsing {
 		return new VarOAlignment<>(segments, a, b);
 	}
 	
+	/**
+	 * Same as {@link #align(Random, AlignmentOp, int, LinearGenome, LinearGenome)}, aligning new pairs of segments in parallel, see {@link #alignSegmentsInParallel(Random, AlignmentRule, int, LinearGenome, LinearGenome)}.
+	 */
+	public static <G extends LinearGenome<G>> VarOAlignment<G> align(Random rng, AlignmentRule<G> localAlign, int minSegmentScore, G a, G b) {
+		List<SortedSet<IntPair>> segments = alignSegmentsInParallel(rng, localAlign, minSegmentScore, a, b).stream().map(Alignment::getPairs).collect(Collectors.toList());
+		return new VarOAlignment<>(segments, a, b);
+	}
+	
 	public static <G extends LinearGenome<G>> List<Alignment<G>> alignSegments(Random rng, AlignmentOp<G> localAlign, int minSegmentScore, G a, G b) {
-		List<Alignment<G>> result = new LinkedList<>();
+		RangeAlignmentOp<G> rangeAlign = localAlign.inRanges(a, b);
+		return new SegmentSearch<G>(rng, (ignored) -> rangeAlign, false, minSegmentScore, a, b).run();
+	}
+	
+	/**
+	 * Same as {@link #alignSegments(Random, AlignmentOp, int, LinearGenome, LinearGenome)}, but the pairs of segments created by each split are aligned in parallel.
+	 * Each pair is aligned with its own random number generator, seeded from rng in a fixed order, so the result is reproducible for a given rng.
+	 */
+	public static <G extends LinearGenome<G>> List<Alignment<G>> alignSegmentsInParallel(Random rng, AlignmentRule<G> localAlign, int minSegmentScore, G a, G b) {
+		return new SegmentSearch<G>(rng, localAlign.inRanges(a, b), true, minSegmentScore, a, b).run();
+	}
+	
+	/**
+	 * State of {@link #alignSegments(Random, AlignmentOp, int, LinearGenome, LinearGenome)}.
+	 * Each pair of an active span of a and an active span of b is aligned once, when the second of the two spans is created.
+	 * Alignments scoring at least minSegmentScore are kept as candidates in a priority queue (best score first, ties in random order).
+	 * When a candidate is taken, its two spans are split; the candidates of the old spans are then only marked as dead, and skipped when they come out of the queue.
+	 * Spans left without any live candidate are dropped, since their sub-spans cannot align better with any future span (which are all sub-spans of current spans).
+	 */
+	private static class SegmentSearch<G extends LinearGenome<G>> {
+		private final Random rng;
+		private final Function<Random, RangeAlignmentOp<G>> rangeAlign;
+		private final RangeAlignmentOp<G> sequentialAlign;
+		private final boolean parallel;
+		private final int minSegmentScore;
 		
-		Table<IntPair,IntPair,Alignment<G>> subAlignments = new Table<>(
-				(aSpan, bSpan) -> Local.alignInRange(
-						localAlign, 
-						a, aSpan.x, aSpan.y, 
-						b, bSpan.x, bSpan.y
-						)
-				);
+		private final Map<IntPair,List<Candidate<G>>> aSpans = new LinkedHashMap<>();
+		private final Map<IntPair,List<Candidate<G>>> bSpans = new LinkedHashMap<>();
+		private final PriorityQueue<Candidate<G>> queue = new PriorityQueue<>();
 		
-		IntPair aEnclosingSpan = IntPair.of(0, a.size());
-		IntPair bEnclosingSpan = IntPair.of(0, b.size());
-		Optional<Alignment<G>> bestAlignment = Optional
-				.of(subAlignments.getOrAdd(aEnclosingSpan, bEnclosingSpan))
-				.filter((ali) -> ali.score >= minSegmentScore);
-		;
+		SegmentSearch(Random rng, Function<Random, RangeAlignmentOp<G>> rangeAlign, boolean parallel, int minSegmentScore, G a, G b) {
+			this.rng = rng;
+			this.rangeAlign = rangeAlign;
+			this.sequentialAlign = parallel ? null : rangeAlign.apply(rng);
+			this.parallel = parallel;
+			this.minSegmentScore = minSegmentScore;
+			this.addSpans(List.of(IntPair.of(0, a.size())), List.of(IntPair.of(0, b.size())));
+		}
 		
-		while (bestAlignment.isPresent()) {
-			
-			// Add current best alignment to output
-			result.add(bestAlignment.get());
-			
-			// Remove enclosing span of current best alignment from candidates, but add remaining bits to the left and right
-			subAlignments.removeX(aEnclosingSpan);
-			subAlignments.removeY(bEnclosingSpan);
-			
-			IntPair aNewSpan = IntPair.of(bestAlignment.get().getPairs().first().x, bestAlignment.get().getPairs().last().x+1);
-			if (aEnclosingSpan.x < aNewSpan.x) subAlignments.addX(IntPair.of(aEnclosingSpan.x, aNewSpan.x));
-			if (aEnclosingSpan.y > aNewSpan.y) subAlignments.addX(IntPair.of(aNewSpan.y, aEnclosingSpan.y));
-			
-			IntPair bNewSpan = IntPair.of(bestAlignment.get().getPairs().first().y, bestAlignment.get().getPairs().last().y+1);
-			if (bEnclosingSpan.x < bNewSpan.x) subAlignments.addY(IntPair.of(bEnclosingSpan.x, bNewSpan.x));
-			if (bEnclosingSpan.y > bNewSpan.y) subAlignments.addY(IntPair.of(bNewSpan.y, bEnclosingSpan.y));
+		List<Alignment<G>> run() {
+			List<Alignment<G>> result = new LinkedList<>();
+			while (!queue.isEmpty()) {
+				Candidate<G> best = queue.poll();
+				if (!best.alive) continue;
+				result.add(best.alignment);
+				
+				// Split the spans of the chosen alignment into the remaining bits to the left and right
+				IntPair aSpan = best.aSpan;
+				IntPair bSpan = best.bSpan;
+				List<Candidate<G>> killed = new ArrayList<>();
+				killed.addAll(this.removeSpan(aSpans, aSpan));
+				killed.addAll(this.removeSpan(bSpans, bSpan));
+				
+				List<IntPair> newASpans = new ArrayList<>(2);
+				IntPair aNewSpan = IntPair.of(best.alignment.getPairs().first().x, best.alignment.getPairs().last().x+1);
+				if (aSpan.x < aNewSpan.x) newASpans.add(IntPair.of(aSpan.x, aNewSpan.x));
+				if (aSpan.y > aNewSpan.y) newASpans.add(IntPair.of(aNewSpan.y, aSpan.y));
+				
+				List<IntPair> newBSpans = new ArrayList<>(2);
+				IntPair bNewSpan = IntPair.of(best.alignment.getPairs().first().y, best.alignment.getPairs().last().y+1);
+				if (bSpan.x < bNewSpan.x) newBSpans.add(IntPair.of(bSpan.x, bNewSpan.x));
+				if (bSpan.y > bNewSpan.y) newBSpans.add(IntPair.of(bNewSpan.y, bSpan.y));
+				
+				this.addSpans(newASpans, newBSpans);
+				
+				// Drop spans that lost their last live candidate, now that they have also been aligned to the new spans
+				for (Candidate<G> candidate : killed) {
+					this.dropIfDead(aSpans, candidate.aSpan);
+					this.dropIfDead(bSpans, candidate.bSpan);
+				}
+			}
+			return result;
+		}
+		
+		/**
+		 * Remove a span and mark its candidates as dead.
+		 * @return The candidates that were marked dead.
+		 */
+		private List<Candidate<G>> removeSpan(Map<IntPair,List<Candidate<G>>> spans, IntPair span) {
+			List<Candidate<G>> killed = new ArrayList<>();
+			for (Candidate<G> candidate : spans.remove(span)) {
+				if (candidate.alive) {
+					candidate.alive = false;
+					killed.add(candidate);
+				}
+			}
+			return killed;
+		}
+		
+		private void dropIfDead(Map<IntPair,List<Candidate<G>>> spans, IntPair span) {
+			List<Candidate<G>> candidates = spans.get(span);
+			if (candidates == null) return;
+			candidates.removeIf((candidate) -> !candidate.alive);
+			if (candidates.isEmpty()) spans.remove(span);
+		}
+		
+		/**
+		 * Add new spans, aligning each of them to all active spans of the other genome.
+		 * New spans without any alignment scoring at least minSegmentScore are dropped right away.
+		 */
+		private void addSpans(List<IntPair> newASpans, List<IntPair> newBSpans) {
+			List<IntPair[]> pairs = new ArrayList<>();
+			for (IntPair aSpan : newASpans) aSpans.put(aSpan, new ArrayList<>());
+			for (IntPair bSpan : newBSpans) bSpans.put(bSpan, new ArrayList<>());
+			for (IntPair aSpan : newASpans) for (IntPair bSpan : bSpans.keySet()) pairs.add(new IntPair[] {aSpan, bSpan});
+			for (IntPair aSpan : aSpans.keySet()) {
+				if (newASpans.contains(aSpan)) continue;
+				for (IntPair bSpan : newBSpans) pairs.add(new IntPair[] {aSpan, bSpan});
+			}
 			
-			// Remove candidate spans with no alignments above threshold (they will not have better alignments in the future when spans are more divided)
-			subAlignments.removeXIf((x, ymap) -> ymap.values().stream()
-					.mapToInt(Alignment::getScore).max().orElse(minSegmentScore-1) < minSegmentScore);
-			subAlignments.removeYIf((y, xmap) -> xmap.values().stream()
-					.mapToInt(Alignment::getScore).max().orElse(minSegmentScore-1) < minSegmentScore);
+			List<Alignment<G>> alignments;
+			if (parallel) {
+				long[] seeds = rng.longs(pairs.size()).toArray();
+				alignments = IntStream.range(0, pairs.size()).parallel()
+						.mapToObj((i) -> align(rangeAlign.apply(new Random(seeds[i])), pairs.get(i)))
+						.collect(Collectors.toList());
+			} else {
+				alignments = pairs.stream().map((pair) -> align(sequentialAlign, pair)).collect(Collectors.toList());
+			}
 			
-			// Find new best alignment
-			bestAlignment = Optional.empty();
-			double exaequo = 1;
-			for (IntPair aSpan : subAlignments.getXs()) for (IntPair bSpan : subAlignments.getYs()) {
-				Alignment<G> candidateSegment = subAlignments.get(aSpan, bSpan);
-				
-				if (candidateSegment.score >= minSegmentScore) {
-					if (bestAlignment.isEmpty() || candidateSegment.score > bestAlignment.get().score) {
-						bestAlignment = Optional.of(candidateSegment);
-						aEnclosingSpan = aSpan;
-						bEnclosingSpan = bSpan;
-						exaequo = 0;
-					} else if (candidateSegment.score == bestAlignment.get().score) {
-						exaequo++;
-						if (rng.nextDouble() < 1/exaequo) {
-							bestAlignment = Optional.of(candidateSegment);
-							aEnclosingSpan = aSpan;
-							bEnclosingSpan = bSpan;
-						}
-					}
+			for (int i=0; i<pairs.size(); i++) {
+				Alignment<G> alignment = alignments.get(i);
+				if (alignment.score >= minSegmentScore && !alignment.getPairs().isEmpty()) {
+					Candidate<G> candidate = new Candidate<>(pairs.get(i)[0], pairs.get(i)[1], alignment, rng.nextLong());
+					aSpans.get(candidate.aSpan).add(candidate);
+					bSpans.get(candidate.bSpan).add(candidate);
+					queue.add(candidate);
 				}
 			}
+			
+			for (IntPair aSpan : newASpans) if (aSpans.get(aSpan).isEmpty()) aSpans.remove(aSpan);
+			for (IntPair bSpan : newBSpans) if (bSpans.get(bSpan).isEmpty()) bSpans.remove(bSpan);
 		}
 		
-		return result;
+		private static <G extends LinearGenome<G>> Alignment<G> align(RangeAlignmentOp<G> rangeAlign, IntPair[] pair) {
+			return rangeAlign.apply(pair[0].x, pair[0].y, pair[1].x, pair[1].y);
+		}
+	}
+	
+	/**
+	 * Local alignment of a pair of spans. Ordered by decreasing score, with ties ordered by a random key.
+	 */
+	private static class Candidate<G extends LinearGenome<G>> implements Comparable<Candidate<G>> {
+		final IntPair aSpan;
+		final IntPair bSpan;
+		final Alignment<G> alignment;
+		final long key;
+		boolean alive = true;
+		
+		Candidate(IntPair aSpan, IntPair bSpan, Alignment<G> alignment, long key) {
+			this.aSpan = aSpan;
+			this.bSpan = bSpan;
+			this.alignment = alignment;
+			this.key = key;
+		}
+		
+		@Override
+		public int compareTo(Candidate<G> other) {
+			int byScore = Integer.compare(other.alignment.score, this.alignment.score);
+			return byScore != 0 ? byScore : Long.compare(other.key, this.key);
+		}
 	}
 
 	// Implementation re-aligns every pair with every match
@@ -0,0 +1,80 @@
+package alignment.algorithms;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import util.Assert;
+
+/**
+ * Runs the tiles of a dynamic programming matrix in parallel, in order of their anti-diagonals.
+ * The matrix is split into a grid of tiles, where tile (row, col) can only be computed after tile (row-1, col) above it and tile (row, col-1) to its left, as in the score matrices of {@link Affine} and {@link Hirschberg}.
+ * All tiles on one anti-diagonal (row + col) are then independent of each other.
+ *
+ * A tile is started as soon as both of its neighbours are done, rather than waiting for the whole previous anti-diagonal, so that tiles of different sizes or speeds do not hold each other up.
+ * The tiles hand over their boundaries through storage of their own (see e.g. {@link Hirschberg}), so the result does not depend on the order in which the tiles run.
+ */
+final class Wavefront {
+
+	@FunctionalInterface
+	interface Tile {
+		void compute(int row, int col);
+	}
+
+	private Wavefront() {
+		Assert.utilityClass();
+	}
+
+	/**
+	 * Compute all tiles of a grid of the given size in the common {@link ForkJoinPool}, and wait until they are done.
+	 * When called from a task in the pool, the calling thread helps with the tiles while it waits.
+	 */
+	static void run(int rows, int cols, Tile tile) {
+		if (rows <= 0 || cols <= 0) return;
+		AtomicIntegerArray waiting = new AtomicIntegerArray(rows * cols);
+		for (int row=0; row<rows; row++) {
+			for (int col=0; col<cols; col++) {
+				waiting.set(row*cols + col, (row > 0 ? 1 : 0) + (col > 0 ? 1 : 0));
+			}
+		}
+		ForkJoinPool.commonPool().invoke(new TileTask(null, tile, waiting, rows, cols, 0, 0));
+	}
+
+	/**
+	 * Computes one tile, and then forks the tiles to its right and below it if they are no longer waiting for any other tile.
+	 * Each task completes when its tile and all tiles it forked are done, so the first task completes when the whole grid is done.
+	 */
+	private static class TileTask extends CountedCompleter<Void> {
+		private static final long serialVersionUID = 1L;
+
+		private final Tile tile;
+		private final AtomicIntegerArray waiting;
+		private final int rows, cols, row, col;
+
+		TileTask(TileTask parent, Tile tile, AtomicIntegerArray waiting, int rows, int cols, int row, int col) {
+			super(parent);
+			this.tile = tile;
+			this.waiting = waiting;
+			this.rows = rows;
+			this.cols = cols;
+			this.row = row;
+			this.col = col;
+		}
+
+		@Override
+		public void compute() {
+			tile.compute(row, col);
+			// The last of the two neighbours to finish starts the tile, which then sees the boundaries written by both
+			if (col+1 < cols && waiting.decrementAndGet(row*cols + col+1) == 0) {
+				this.addToPendingCount(1);
+				new TileTask(this, tile, waiting, rows, cols, row, col+1).fork();
+			}
+			if (row+1 < rows && waiting.decrementAndGet((row+1)*cols + col) == 0) {
+				this.addToPendingCount(1);
+				new TileTask(this, tile, waiting, rows, cols, row+1, col).fork();
+			}
+			this.tryComplete();
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+package alignment.algorithms;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import util.Assert;
+
+/**
+ * Pool of score matrices for alignment algorithms.
+ * Allocating a large matrix takes about as long as filling it, so algorithms borrow matrices from this pool and give them back when they are done.
+ * Matrices are flat buffers that the algorithm indexes itself.
+ *
+ * Buffers are allocated in size buckets, so a borrowed buffer may be larger than requested; algorithms should only use the part they asked for, and must not assume any initial values.
+ * The pool can be used from several threads at once, and a matrix is only lent to one borrower at a time.
+ * Idle matrices are kept up to a memory cap; when returning a matrix would exceed the cap, the matrices that were returned longest ago are dropped.
+ */
+public final class Workspace {
+
+	private Workspace() {
+		Assert.utilityClass();
+	}
+
+	/**
+	 * Default maximum memory held by idle matrices, in bytes.
+	 */
+	public static final long DEFAULT_MEMORY_CAP = 256L << 20;
+
+	/**
+	 * Smallest bucket size.
+	 */
+	static final int MIN_BUCKET = 64;
+
+	private static long memoryCap = DEFAULT_MEMORY_CAP;
+	private static long idleBytes = 0;
+
+	/**
+	 * Idle matrices, in the order in which they were returned (oldest first).
+	 */
+	private static final LinkedList<Entry> idle = new LinkedList<>();
+
+	private static class Entry {
+		final Object matrix;
+		final int length;
+		final long bytes;
+
+		Entry(Object matrix, int length, long bytes) {
+			this.matrix = matrix;
+			this.length = length;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Round the length of a buffer up to its bucket size.
+	 * Buckets are a quarter of a power of two apart, so no more than a quarter of each buffer is wasted.
+	 */
+	static int bucket(int n) {
+		if (n <= MIN_BUCKET) return MIN_BUCKET;
+		int step = Integer.highestOneBit(n - 1) >> 2;
+		return ((n + step - 1) / step) * step;
+	}
+
+	/**
+	 * Borrow a flat buffer of at least the given length, as used by {@link AffineMatrix}.
+	 * Values in the buffer are unspecified.
+	 */
+	public static int[] ints(int length) {
+		int[] result = (int[]) take(int[].class, bucket(length));
+		return result != null ? result : new int[bucket(length)];
+	}
+
+	/**
+	 * Borrow a flat buffer of 16-bit values of at least the given length, as used by {@link AffineMatrix}.
+	 * Values in the buffer are unspecified.
+	 */
+	public static short[] shorts(int length) {
+		short[] result = (short[]) take(short[].class, bucket(length));
+		return result != null ? result : new short[bucket(length)];
+	}
+
+	/**
+	 * Give back a buffer obtained from {@link #ints(int)}.
+	 * The buffer must not be used after this.
+	 */
+	public static void release(int[] buffer) {
+		put(new Entry(buffer, buffer.length, 16L + 4L*buffer.length));
+	}
+
+	/**
+	 * Give back a buffer obtained from {@link #shorts(int)}.
+	 * The buffer must not be used after this.
+	 */
+	public static void release(short[] buffer) {
+		put(new Entry(buffer, buffer.length, 16L + 2L*buffer.length));
+	}
+
+	/**
+	 * Change the maximum memory held by idle matrices.
+	 * Matrices exceeding the new cap are dropped immediately. A cap of 0 disables pooling.
+	 */
+	public static synchronized void setMemoryCap(long bytes) {
+		if (bytes < 0) throw new IllegalArgumentException("Memory cap must be zero or greater.");
+		memoryCap = bytes;
+		evict(0);
+	}
+
+	/**
+	 * Total estimated memory currently held by idle matrices, in bytes.
+	 */
+	public static synchronized long idleBytes() {
+		return idleBytes;
+	}
+
+	private static synchronized Object take(Class<?> type, int length) {
+		// Most recently returned matrices first
+		Iterator<Entry> it = idle.descendingIterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (type.isInstance(entry.matrix) && entry.length == length) {
+				it.remove();
+				idleBytes -= entry.bytes;
+				return entry.matrix;
+			}
+		}
+		return null;
+	}
+
+	private static synchronized void put(Entry entry) {
+		if (entry.bytes > memoryCap) return;
+		evict(entry.bytes);
+		idle.addLast(entry);
+		idleBytes += entry.bytes;
+	}
+
+	/**
+	 * Drop the oldest idle matrices until the given number of bytes can be added without exceeding the cap.
+	 */
+	private static void evict(long needed) {
+		while (!idle.isEmpty() && idleBytes + needed > memoryCap) {
+			idleBytes -= idle.removeFirst().bytes;
+		}
+	}
+
+}
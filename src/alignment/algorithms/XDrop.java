@@ -0,0 +1,187 @@
+package alignment.algorithms;
+
+import static alignment.algorithms.Affine.INS_A;
+import static alignment.algorithms.Affine.INS_B;
+import static alignment.algorithms.Affine.MATCH;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import alignment.AlignedRuns;
+import alignment.Alignment;
+import genome.LinearGenome;
+import util.Assert;
+import util.DiscreteDistribution;
+
+/**
+ * Smith-Waterman local alignment with affine gap score and X-drop pruning (Zhang et al., 2000).
+ * The score matrix is filled by anti-diagonals (cells with the same ia + ib). A cell whose best score is more than xDrop below the best score found on the earlier anti-diagonals is dropped, and cells are only computed next to cells that were not dropped.
+ * As long as the best score is at most xDrop, no cell can be dropped and this is the same as {@link Affine.SmithWaterman}; after that, only a band around the best alignment so far is followed, and the computation stops when the band dies out.
+ *
+ * For two genomes that are mostly homologous, the band stays narrow and most of the score matrix is never computed.
+ * The result may be worse than that of {@link Affine.SmithWaterman} when the alignment passes through a region scoring more than xDrop below its best, or when a better local alignment lies away from the band.
+ */
+public final class XDrop {
+
+	/**
+	 * Score of dropped cells and of cells outside the band.
+	 * Far enough from Integer.MIN_VALUE that adding scores to it cannot overflow.
+	 */
+	static final int NEG = Integer.MIN_VALUE / 4;
+
+	private XDrop() {
+		Assert.utilityClass();
+	}
+
+	/**
+	 * Cells of one anti-diagonal from ia = lo to lo + match.length - 1, for each state.
+	 */
+	private static final class AntiDiagonal {
+		static final AntiDiagonal EMPTY = new AntiDiagonal(0, 0);
+
+		final int lo;
+		final int[] match;
+		final int[] insA;
+		final int[] insB;
+
+		AntiDiagonal(int lo, int size) {
+			this.lo = lo;
+			this.match = new int[size];
+			this.insA = new int[size];
+			this.insB = new int[size];
+		}
+
+		boolean isEmpty() {
+			return match.length == 0;
+		}
+
+		int hi() {
+			return lo + match.length - 1;
+		}
+
+		int get(int ia, int im) {
+			if (ia < lo || ia > this.hi()) return NEG;
+			return im == MATCH ? match[ia-lo] : im == INS_A ? insA[ia-lo] : insB[ia-lo];
+		}
+	}
+
+	/**
+	 * Best local alignment found with X-drop pruning, see {@link XDrop}.
+	 * @param xDrop - How far the score of a cell may be below the best score so far before it is dropped.
+	 */
+	public static <G extends LinearGenome<G>> Alignment<G> align(int matchScore, int mismatchScore, int gapOpenScore, int gapExtendScore, int xDrop, Random rng, G a, G b) {
+		SameAt sameAt = SameAt.of(a, b);
+		int sizeA = a.size();
+		int sizeB = b.size();
+		List<AntiDiagonal> diagonals = new ArrayList<>(sizeA + sizeB + 1);
+
+		int best = 0;
+		int bestia = 0;
+		int bestib = 0;
+		int bestim = MATCH;
+		double exaequo = 0;
+
+		for (int d=0; d<=sizeA+sizeB; d++) {
+			AntiDiagonal prev = d >= 1 ? diagonals.get(d-1) : AntiDiagonal.EMPTY;
+			AntiDiagonal prev2 = d >= 2 ? diagonals.get(d-2) : AntiDiagonal.EMPTY;
+			int threshold = best - xDrop;
+
+			// Range of cells that can be reached from cells that were not dropped (all cells, as long as new local alignments can start)
+			int lo = Math.max(0, d-sizeB);
+			int hi = Math.min(sizeA, d);
+			if (threshold > 0) {
+				if (prev.isEmpty() && prev2.isEmpty()) break;
+				int from = Math.min(prev.isEmpty() ? Integer.MAX_VALUE : prev.lo, prev2.isEmpty() ? Integer.MAX_VALUE : prev2.lo+1);
+				int to = Math.max(prev.isEmpty() ? Integer.MIN_VALUE : prev.hi()+1, prev2.isEmpty() ? Integer.MIN_VALUE : prev2.hi()+1);
+				lo = Math.max(lo, from);
+				hi = Math.min(hi, to);
+			}
+			if (lo > hi) {
+				diagonals.add(AntiDiagonal.EMPTY);
+				continue;
+			}
+
+			AntiDiagonal cur = new AntiDiagonal(lo, hi-lo+1);
+			int liveLo = Integer.MAX_VALUE;
+			int liveHi = Integer.MIN_VALUE;
+			for (int ia=lo; ia<=hi; ia++) {
+				int ib = d - ia;
+				int k = ia - lo;
+				if (ia > 0 && ib > 0) {
+					int matchCost = sameAt.test(ia-1, ib-1) ? matchScore : mismatchScore;
+					cur.match[k] = Math.max(0, Affine.max3(prev2.get(ia-1, MATCH), prev2.get(ia-1, INS_A), prev2.get(ia-1, INS_B)) + matchCost);
+					cur.insA[k] = Affine.max4(0,
+						prev.get(ia-1, INS_A) + gapExtendScore,
+						prev.get(ia-1, INS_B) + gapOpenScore,
+						prev.get(ia-1, MATCH) + gapOpenScore);
+					cur.insB[k] = Affine.max4(0,
+						prev.get(ia, INS_A) + gapOpenScore,
+						prev.get(ia, INS_B) + gapExtendScore,
+						prev.get(ia, MATCH) + gapOpenScore);
+				}
+				if (Affine.max3(cur.match[k], cur.insA[k], cur.insB[k]) < threshold) {
+					cur.match[k] = NEG;
+					cur.insA[k] = NEG;
+					cur.insB[k] = NEG;
+					continue;
+				}
+				liveLo = Math.min(liveLo, ia);
+				liveHi = ia;
+
+				for (int im=0; im<3; im++) {
+					int score = cur.get(ia, im);
+					if (score > best) {
+						best = score;
+						bestia = ia;
+						bestib = ib;
+						bestim = im;
+						exaequo = 1;
+					} else if (score == best && rng.nextDouble() < 1/(++exaequo)) {
+						bestia = ia;
+						bestib = ib;
+						bestim = im;
+					}
+				}
+			}
+			diagonals.add(liveLo > liveHi ? AntiDiagonal.EMPTY : trim(cur, liveLo, liveHi));
+		}
+
+		AlignedRuns pairs = traceback(diagonals, gapOpenScore, gapExtendScore, rng, bestia, bestib, bestim);
+		return new Alignment<>(best, pairs, a, b);
+	}
+
+	/**
+	 * The cells of the anti-diagonal from lo to hi.
+	 */
+	private static AntiDiagonal trim(AntiDiagonal diagonal, int lo, int hi) {
+		if (lo == diagonal.lo && hi == diagonal.hi()) return diagonal;
+		AntiDiagonal result = new AntiDiagonal(lo, hi-lo+1);
+		System.arraycopy(diagonal.match, lo-diagonal.lo, result.match, 0, hi-lo+1);
+		System.arraycopy(diagonal.insA, lo-diagonal.lo, result.insA, 0, hi-lo+1);
+		System.arraycopy(diagonal.insB, lo-diagonal.lo, result.insB, 0, hi-lo+1);
+		return result;
+	}
+
+	/**
+	 * Trace back from the given cell until the score reaches zero, as {@link Affine#traceback(int, int, int, int)}.
+	 */
+	private static AlignedRuns traceback(List<AntiDiagonal> diagonals, int gapOpenScore, int gapExtendScore, Random rng, int ia, int ib, int im) {
+		AlignedRuns.Builder matches = AlignedRuns.descending();
+		while (diagonals.get(ia+ib).get(ia, im) > 0) {
+			if (im == MATCH) matches.add(ia-1, ib-1);
+			if (im == MATCH || im == INS_A) ia--;
+			if (im == MATCH || im == INS_B) ib--;
+
+			AntiDiagonal diagonal = diagonals.get(ia+ib);
+			int match = diagonal.get(ia, MATCH);
+			int insA = diagonal.get(ia, INS_A);
+			int insB = diagonal.get(ia, INS_B);
+			if (im == INS_A) insA += gapExtendScore - gapOpenScore;
+			if (im == INS_B) insB += gapExtendScore - gapOpenScore;
+			im = DiscreteDistribution.getBestIndexOf(rng, match, insA, insB);
+		}
+		return matches.build();
+	}
+
+}
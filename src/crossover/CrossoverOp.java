@@ -10,11 +10,13 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.function.BiConsumer;
 
+import alignment.AlignedRuns;
 import genome.Genome;
 import genome.LinearGenome;
 import genome.VarLengthGenome;
 import genome.binary.BitGenome;
 import util.Assert;
+import util.CategoricalDistribution;
 import util.IntPair;
 
 /**
@@ -151,6 +153,9 @@ public interface CrossoverOp<G> extends BiConsumer<G, G> {
 	 *   (*) has the first pair of any gaps in the alignment added
 	 */
 	static <G extends LinearGenome<G>> SortedSet<IntPair> alignmentToCrossoverPoints(SortedSet<IntPair> indices, G a, G b) {
+		if (indices instanceof AlignedRuns && ((AlignedRuns) indices).isMonotone()) {
+			return alignmentToCrossoverPoints((AlignedRuns) indices, a, b);
+		}
 		SortedSet<IntPair> result = new TreeSet<>();
 		for (IntPair p : indices) {
 			if (a.innerSplice(p.x)   && b.innerSplice(p.y))   result.add(p);
@@ -159,6 +164,36 @@ public interface CrossoverOp<G> extends BiConsumer<G, G> {
 		return result;
 	}
 
+	/**
+	 * See {@link #alignmentToCrossoverPoints(SortedSet, LinearGenome, LinearGenome)}.
+	 * Each run of the alignment becomes the same run extended by one pair, clipped to the inner splice points of both genomes.
+	 * For a monotone alignment, these extended runs are still in increasing order.
+	 */
+	private static <G extends LinearGenome<G>> AlignedRuns alignmentToCrossoverPoints(AlignedRuns runs, G a, G b) {
+		AlignedRuns.Builder result = AlignedRuns.ascending();
+		for (int run=0; run<runs.runCount(); run++) {
+			int ra = runs.runA(run);
+			int rb = runs.runB(run);
+			int first = Math.max(0, Math.max(1 - ra, 1 - rb));
+			int last = Math.min(runs.runLength(run), Math.min(a.size() - 1 - ra, b.size() - 1 - rb));
+			result.addRun(ra + first, rb + first, last - first + 1);
+		}
+		return result.build();
+	}
+
+	/**
+	 * Uniform distribution over a set of crossover points.
+	 * Draws the same points as {@link CategoricalDistribution#uniformUnindexed(Collection)}, but in logarithmic instead of linear time if the points are {@link AlignedRuns}.
+	 */
+	static CategoricalDistribution<IntPair> uniformCrossoverPoint(SortedSet<IntPair> points) {
+		if (points instanceof AlignedRuns) {
+			AlignedRuns runs = (AlignedRuns) points;
+			return (rng) -> runs.isEmpty() ? null : runs.get(rng.nextInt(runs.size()));
+		} else {
+			return CategoricalDistribution.uniformUnindexed(points);
+		}
+	}
+
 	static <G extends VarLengthGenome<G>> int cross1segment(G appendToThis, int here, IntPair start, boolean onA, Iterator<IntPair> points, G aref, G bref) {
 		while (points.hasNext()) {
 			IntPair xpoint = points.next();
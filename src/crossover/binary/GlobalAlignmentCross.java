@@ -12,7 +12,6 @@ import crossover.CrossoverOp;
 import crossover.CrossoverRule;
 import genome.VarLengthGenome;
 import util.Assert;
-import util.CategoricalDistribution;
 import util.DiscreteDistribution;
 import util.IntPair;
 
@@ -93,7 +92,7 @@ public final class GlobalAlignmentCross {
 		n = Math.min(candidates.size(), n);
 		// Take a random subset of the filtered pairs
 		SortedSet<IntPair> indices =
-				CategoricalDistribution.uniformUnindexed(candidates).stream(rng)
+				CrossoverOp.uniformCrossoverPoint(candidates).stream(rng)
 				.distinct().limit(n)
 				.collect(Collectors.toCollection(TreeSet::new));
 		
@@ -19,7 +19,6 @@ import genome.VarLengthGenome;
 import genome.binary.BitGenome;
 import genome.integer.Permutation;
 import util.Assert;
-import util.CategoricalDistribution;
 import util.DiscreteDistribution;
 import util.IntPair;
 
@@ -296,7 +295,7 @@ public final class GlocalAlignmentCross {
 	static List<SortedSet<IntPair>> crossoverPoints(List<SortedSet<IntPair>> glocalAlignment, int[] nPerPart, Random rng) {
 		List<SortedSet<IntPair>> result = new LinkedList<>();
 		for (int i=0; i<glocalAlignment.size(); i++) {
-			SortedSet<IntPair> segmentCrosses = CategoricalDistribution.uniformUnindexed(glocalAlignment.get(i)).stream(rng)
+			SortedSet<IntPair> segmentCrosses = CrossoverOp.uniformCrossoverPoint(glocalAlignment.get(i)).stream(rng)
 				.distinct().limit(nPerPart[i])
 				.collect(Collectors.toCollection(TreeSet::new));
 			result.add(segmentCrosses);
@@ -72,6 +72,23 @@ public final class SynapsingCross {
 			};
 		}
 		
+		/**
+		 * Same as {@link #of(AlignmentRule, int, CrossoverRule.N)}, but finding synapses in parallel, see {@link alignment.algorithms.OrderedSynapsing.Generalized#alignSynapsesInParallel(AlignmentRule, int, int, Random, genome.LinearGenome, genome.LinearGenome)}.
+		 * @param sequentialCutoff - Combined length of the two parent ranges below which synapses are found sequentially.
+		 */
+		public static <G extends VarLengthGenome<G>> CrossoverRule<G> parallel(AlignmentRule<G> local, int minSynapseSize, CrossoverRule.N n, int sequentialCutoff) {
+			switch (n.type) {
+			case UNIFORM:
+				return (rng) -> (a, b) -> {
+					List<SortedSet<IntPair>> synapses = alignment.algorithms.OrderedSynapsing.Generalized.getSynapsesInParallel(local, minSynapseSize, sequentialCutoff, rng, a, b).collect(Collectors.toList());
+					perform(synapses, DiscreteDistribution.getBinomial(rng, synapses.size(), 0.5), rng, a, b);
+				};
+			case VALUE:
+				return (rng) -> (a, b) -> perform(alignment.algorithms.OrderedSynapsing.Generalized.getSynapsesInParallel(local, minSynapseSize, sequentialCutoff, rng, a, b)::iterator, n.value(), rng, a, b);
+			default: throw new IllegalArgumentException();
+			}
+		}
+		
 		/** 
 		 * Perform a synapsing alignment using the given set of alignments as synapses.
 		 * See {@link #generalizedDistinctN(AlignmentRule, int, int)} */
@@ -110,6 +127,14 @@ public final class SynapsingCross {
 	public static <G extends VarLengthGenome<G>> CrossoverRule<G> of(int minSynapseSize, CrossoverRule.N n) {
 		return SynapsingCross.Generalized.of(Local.<G>longestCommonSubstring(), minSynapseSize, n);
 	}	
+	
+	/** 
+	 * Same as {@link #of(int, CrossoverRule.N)}, finding synapses in parallel.
+	 * @see Generalized#parallel(AlignmentRule, int, CrossoverRule.N, int) */
+	public static <G extends VarLengthGenome<G>> CrossoverRule<G> parallel(int minSynapseSize, CrossoverRule.N n, int sequentialCutoff) {
+		return SynapsingCross.Generalized.parallel(Local.<G>longestCommonSubstring(), minSynapseSize, n, sequentialCutoff);
+	}
+
 	/**
 	 * SVLC crossover operator. The crossover first identifies the longest common subsequence of the parents as a "synapse", and then recursively applies this on the left and right hand sides of the synapse until no new synapse can be found that is longer than some given sequence.
 	 * After identifying the synapses, they are used as possible locations for crossover. Because the two are identical, the exact location of the crossover point within the synapse is irrelevant.
@@ -4,7 +4,9 @@ import java.util.Optional;
 import java.util.Random;
 import java.util.function.Function;
 
+import alignment.DerivedAlignment;
 import crossover.CrossoverRule;
+import genome.IdAllocator;
 import genome.binary.BitGenome;
 import genome.binary.BitGenomeWithHistory;
 import mutation.MutationRule;
@@ -61,6 +63,7 @@ public class CrossoverOutcome {
 
 	public final Optional<MutationStats> mutationStats;
 
+	@SuppressWarnings("try") // The id scope is only opened for its effect on the genomes created in its body
 	public static CrossoverOutcome fromParents(Random rng,
 			CrossoverRule<? super BitGenomeWithHistory> crossoverRule,
 			BitGenomeWithHistory ancestor,
@@ -71,13 +74,21 @@ public class CrossoverOutcome {
 		BitGenomeWithHistory offspringA = parentA.copy();
 		BitGenomeWithHistory offspringB = parentB.copy();
 
-		BitGenomeWithHistory parentResetA = BitGenomeWithHistory.of(BitGenome.of(parentA));
-		BitGenomeWithHistory parentResetB = BitGenomeWithHistory.of(BitGenome.of(parentB));
-		BitGenomeWithHistory offspringResetA = parentResetA.copy();
-		BitGenomeWithHistory offspringResetB = parentResetB.copy();
-
 		crossoverRule.apply(new Random(seed)).accept(offspringA, offspringB);
-		crossoverRule.apply(new Random(seed)).accept(offspringResetA, offspringResetB);
+
+		// The reset genomes are only compared to each other, so their ids can come from a scope of this outcome's own, which makes them reproducible when outcomes are generated in parallel.
+		BitGenomeWithHistory parentResetA;
+		BitGenomeWithHistory parentResetB;
+		BitGenomeWithHistory offspringResetA;
+		BitGenomeWithHistory offspringResetB;
+		try (IdAllocator.Scope ids = IdAllocator.deterministic(seed)) {
+			parentResetA = BitGenomeWithHistory.of(BitGenome.of(parentA));
+			parentResetB = BitGenomeWithHistory.of(BitGenome.of(parentB));
+			offspringResetA = parentResetA.copy();
+			offspringResetB = parentResetB.copy();
+
+			crossoverRule.apply(new Random(seed)).accept(offspringResetA, offspringResetB);
+		}
 
 		return new CrossoverOutcome(ancestor, parentA, parentB, offspringA, offspringB, parentResetA, parentResetB, offspringResetA, offspringResetB, mutationStats);
 	}
@@ -125,10 +136,28 @@ public class CrossoverOutcome {
 			CrossoverRule<? super BitGenomeWithHistory> crossoverRule,
 			BitGenomeWithHistory ancestor,
 			MutationRule<? super BitGenomeWithHistory> mutationRule) {
+		return CrossoverOutcome.fromMutationOne(rng, crossoverRule, ancestor, mutationRule, Optional.empty());
+	}
+
+	/**
+	 * Generate CrossoverOutcome where one parent is a copy of the ancestor and the other is mutated.
+	 * If a lineage is given, the edits of the mutation are added to it, so that a crossover whose alignment rule is decorated by the lineage (see {@link DerivedAlignment#of(alignment.VarOAlignmentRule)}) derives the alignment of the parents from the edits instead of computing it.
+	 */
+	public static CrossoverOutcome fromMutationOne(Random rng,
+			CrossoverRule<? super BitGenomeWithHistory> crossoverRule,
+			BitGenomeWithHistory ancestor,
+			MutationRule<? super BitGenomeWithHistory> mutationRule,
+			Optional<DerivedAlignment<BitGenomeWithHistory>> lineage) {
 		BitGenomeWithHistory parentA = ancestor.copy();
 
 		BitGenomeWithHistory parentB = ancestor.copy();
-		Optional<MutationStats> stats = mutationRule.apply(rng).mutateAndGetStats(parentB);
+		Optional<MutationStats> stats;
+		if (lineage.isPresent()) {
+			stats = mutationRule.apply(rng).mutateAndGetStatsWithEditScript(parentB);
+			stats.flatMap((s) -> s.completeEditScript(parentB.size())).ifPresent((script) -> lineage.get().addChild(parentA, parentB, script));
+		} else {
+			stats = mutationRule.apply(rng).mutateAndGetStats(parentB);
+		}
 
 		return CrossoverOutcome.fromParents(rng, crossoverRule, ancestor, parentA, parentB, stats);
 	}
@@ -137,8 +166,19 @@ public class CrossoverOutcome {
 			CrossoverRule<? super BitGenomeWithHistory> crossoverRule,
 			Function<Random, ? extends BitGenome> ancestorFactory,
 			MutationRule<? super BitGenomeWithHistory> mutationRule) {
+		return CrossoverOutcome.fromMutationOne(rng, crossoverRule, ancestorFactory, mutationRule, Optional.empty());
+	}
+
+	/**
+	 * @see #fromMutationOne(Random, CrossoverRule, BitGenomeWithHistory, MutationRule, Optional)
+	 */
+	public static CrossoverOutcome fromMutationOne(Random rng,
+			CrossoverRule<? super BitGenomeWithHistory> crossoverRule,
+			Function<Random, ? extends BitGenome> ancestorFactory,
+			MutationRule<? super BitGenomeWithHistory> mutationRule,
+			Optional<DerivedAlignment<BitGenomeWithHistory>> lineage) {
 		BitGenomeWithHistory ancestor = BitGenomeWithHistory.of(ancestorFactory.apply(rng));
-		return CrossoverOutcome.fromMutationOne(rng, crossoverRule, ancestor, mutationRule);
+		return CrossoverOutcome.fromMutationOne(rng, crossoverRule, ancestor, mutationRule, lineage);
 	}
 
 	public CrossoverOutcome flip() {
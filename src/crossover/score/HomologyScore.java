@@ -37,10 +37,10 @@ public final class HomologyScore {
 		int homologouslyCrossedPairs = 0;
 		for (long family : crossover.ancestor.uniqueIds().toArray()) {
 
-			long numOfHomologsOnP1 = crossover.parentA.homologs(family).count();
-			long numOfHomologsOnP2 = crossover.parentB.homologs(family).count();
-			long numOfHomologsOnC1 = crossover.offspringA.homologs(family).count();
-			long numOfHomologsOnC2 = crossover.offspringB.homologs(family).count();
+			int numOfHomologsOnP1 = crossover.parentA.homologCount(family);
+			int numOfHomologsOnP2 = crossover.parentB.homologCount(family);
+			int numOfHomologsOnC1 = crossover.offspringA.homologCount(family);
+			int numOfHomologsOnC2 = crossover.offspringB.homologCount(family);
 
 			possiblePairs +=
 					Math.min(numOfHomologsOnP1, numOfHomologsOnP2);
@@ -65,11 +65,11 @@ public class LinkageScore {
 		return (crossover) -> {
 			boolean[] inheritanceA = new boolean[crossover.parentA.size()];
 			for (int i=0; i<crossover.parentA.size(); i++)
-				if (crossover.offspringResetA.homologsOf(crossover.parentResetA, i).findAny().isPresent())
+				if (crossover.offspringResetA.homologCount(crossover.parentResetA.getId(i)) > 0)
 					inheritanceA[i] = true;
 			boolean[] inheritanceB = new boolean[crossover.parentB.size()];
 			for (int i=0; i<crossover.parentB.size(); i++)
-				if (crossover.offspringResetA.homologsOf(crossover.parentResetB, i).findAny().isPresent())
+				if (crossover.offspringResetA.homologCount(crossover.parentResetB.getId(i)) > 0)
 					inheritanceB[i] = true;
 			
 			boolean[] uniqueA = new boolean[crossover.parentA.size()];
@@ -22,7 +22,7 @@ public abstract class StringMatch {
 	 * Fitness function implementing StringMatch.
 	 * The fitness of a genome is simply the alignment score obtained by comparing it to a target sequence.
 	 * @param target - The target sequence
-	 * @param align - The alignment operator used to compare the given genome and target
+	 * @param distance - The score used to compare the given genome and target, e.g. {@link alignment.Global#scoreWithAffineGapScore(int, int, int, int)} which computes an alignment score without building the alignment
 	 */
 	public static <G, T> FitnessFunction<G> of(T target, ToDoubleBiFunction<G,T> distance) {
 		return (g) -> calculate(target, distance, g);
@@ -57,6 +57,26 @@ public interface GenomeWithHistory<G extends GenomeWithHistory<G>> extends Linea
 	 */
 	IntStream homologs(long id);
 
+	/**
+	 * Write the indices on this genome which are homologous to the given id into a buffer, in increasing order.
+	 * This allows repeated queries without creating a stream or array for each.
+	 * @param dest - Buffer to write the indices to, starting at 0.
+	 * @return The number of homologous indices. If this is larger than dest.length, only the first dest.length of them are written.
+	 */
+	default int homologs(long id, int[] dest) {
+		int[] all = this.homologs(id).toArray();
+		System.arraycopy(all, 0, dest, 0, Math.min(all.length, dest.length));
+		return all.length;
+	}
+
+	/**
+	 * Get the number of indices on this genome which are homologous to the given id
+	 * @return this.homologs(id).count()
+	 */
+	default int homologCount(long id) {
+		return (int) this.homologs(id).count();
+	}
+
 	/**
 	 * Get the unique identifier of the bit at the given index
 	 */
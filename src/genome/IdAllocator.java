@@ -0,0 +1,108 @@
+package genome;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.Assert;
+
+/**
+ * Source of fresh unique identifiers for {@link GenomeWithHistory}.
+ * Identifiers are handed out from ranges that belong to a single thread, so that genomes can be created from several threads at once without locking, and without contention except when a thread needs a new range.
+ *
+ * By default, which identifiers a genome gets depends on the order in which threads happen to ask for them.
+ * Code that needs reproducible identifiers, independent of other threads, can open a {@link #deterministic(long)} scope.
+ */
+public final class IdAllocator {
+
+	private IdAllocator() {
+		Assert.utilityClass();
+	}
+
+	/**
+	 * Number of identifiers a thread takes from the shared counter at once.
+	 */
+	static final int BLOCK_SIZE = 1 << 14;
+
+	/**
+	 * Number of identifiers available in a deterministic scope.
+	 */
+	static final long SCOPE_SIZE = 1L << 32;
+
+	/**
+	 * Index of the next block that has not been handed out to any thread.
+	 * Block b holds the identifiers b*BLOCK_SIZE (inclusive) to (b+1)*BLOCK_SIZE (exclusive), so that identifiers outside deterministic scopes are never negative.
+	 */
+	private static final AtomicLong nextBlock = new AtomicLong(0);
+
+	/**
+	 * Range of identifiers reserved by, and only used by, one thread.
+	 */
+	private static class Range {
+		long next;
+		long end;
+		final boolean deterministic;
+
+		Range(long next, long end, boolean deterministic) {
+			this.next = next;
+			this.end = end;
+			this.deterministic = deterministic;
+		}
+	}
+
+	private static final ThreadLocal<Range> range = ThreadLocal.withInitial(() -> new Range(0, 0, false));
+
+	/**
+	 * Reserve a number of fresh unique identifiers.
+	 * @return The first of n consecutive identifiers that have not been handed out before.
+	 * @throws IllegalStateException if a deterministic scope runs out of identifiers.
+	 */
+	public static long reserve(int n) {
+		Assert.length0(n);
+		Range r = range.get();
+		if (r.end - r.next < n) {
+			if (r.deterministic) throw new IllegalStateException("Deterministic identifier scope is exhausted");
+			long blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			long first = nextBlock.getAndAdd(Math.max(1, blocks)) * BLOCK_SIZE;
+			r.next = first;
+			r.end = first + Math.max(1, blocks) * BLOCK_SIZE;
+		}
+		long result = r.next;
+		r.next += n;
+		return result;
+	}
+
+	/**
+	 * Make the identifiers handed out to the calling thread depend only on the given seed and the order of requests, until the returned scope is closed.
+	 * Use in a try-with-resources statement. Scopes can be nested; closing a scope restores the previous one.
+	 *
+	 * The identifiers of a scope are negative, so they never coincide with identifiers handed out outside of deterministic scopes.
+	 * Each seed maps to a range of {@link #SCOPE_SIZE} identifiers chosen by a hash of the seed, out of 2^31 possible ranges. Two scopes with different seeds therefore share identifiers only if their seeds hash to the same range.
+	 * Scopes with the same seed hand out the same identifiers in the same order, regardless of what other threads do.
+	 */
+	public static Scope deterministic(long seed) {
+		long h = seed * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 31;
+		long first = Long.MIN_VALUE | ((h & 0x7FFFFFFFL) * SCOPE_SIZE);
+		Range previous = range.get();
+		range.set(new Range(first, first + SCOPE_SIZE, true));
+		return new Scope(previous);
+	}
+
+	/**
+	 * Handle to a deterministic scope, see {@link IdAllocator#deterministic(long)}.
+	 */
+	public static final class Scope implements AutoCloseable {
+
+		private final Range previous;
+
+		private Scope(Range previous) {
+			this.previous = previous;
+		}
+
+		@Override
+		public void close() {
+			range.set(this.previous);
+		}
+
+	}
+
+}
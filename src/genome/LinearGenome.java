@@ -2,6 +2,8 @@ package genome;
 
 import java.util.stream.IntStream;
 
+import genome.binary.BinaryGenome;
+
 /**
  * General interface for {@link Genome} types that are organized as a linear data string.
  * Supports comparison, search, and some modification methods that do not depend on the contained type.
@@ -208,21 +210,27 @@ public interface LinearGenome<G extends LinearGenome<G>> extends Genome<G> {
 		final int[] kmp;
 		public final G pattern;
 
+		/**
+		 * Bits of the pattern read in bulk when it is a {@link BinaryGenome}, or null otherwise.
+		 */
+		final long[] patternWords;
+
 		/**
 		 * Compile a LinearGenome to obtain a KMP array. This can be used in the Knuth-Morris-Pratt algorithm to efficiently find this genome sequence inside another genome.
 		 */
 		KMP(G pattern) {
 			this.pattern = pattern.view();
+			this.patternWords = wordsOf(pattern);
 			kmp = new int[pattern.size()+1];
 	    	kmp[0] = -1;
 	    	int candidate = 0;
 	    	for (int j=1; j<pattern.size(); j++) {
-	    		if (pattern.sameAt(j, pattern, candidate)) {
+	    		if (this.same(pattern, patternWords, j, candidate)) {
 	    			kmp[j] = kmp[candidate];
 	    		} else {
 	    			kmp[j] = candidate;
 	    			candidate = kmp[candidate];
-	    			while (candidate >= 0 && !pattern.sameAt(j, pattern, candidate)) {
+	    			while (candidate >= 0 && !this.same(pattern, patternWords, j, candidate)) {
 	    				candidate = kmp[candidate];
 	    			}
 	    		}
@@ -231,14 +239,29 @@ public interface LinearGenome<G extends LinearGenome<G>> extends Genome<G> {
 	    	kmp[pattern.size()] = candidate;
 		}
 
+		private static long[] wordsOf(LinearGenome<?> g) {
+			return g instanceof BinaryGenome ? ((BinaryGenome<?>) g).toWords() : null;
+		}
+
+		/**
+		 * Compare index i on a genome with index j on the pattern.
+		 * Uses the packed bits of both when available, to avoid per-bit calls through Views.
+		 */
+		private boolean same(G g, long[] gWords, int i, int j) {
+			return gWords != null && this.patternWords != null
+					? BinaryGenome.getBit(gWords, i) == BinaryGenome.getBit(this.patternWords, j)
+					: g.sameAt(i, this.pattern, j);
+		}
+
 		/**
 		 * Find all overlapping occurrences of this (compiled) pattern in the supplied genome.
 		 */
 		public IntStream findAllOverlappingIn(G g) {
 			IntStream.Builder result = IntStream.builder();
+			long[] gWords = wordsOf(g);
 			int i=0, j=0;
 			while (i < g.size()) {
-				if (g.sameAt(i, pattern, j)) {
+				if (this.same(g, gWords, i, j)) {
 					i++;
 					j++;
 					if (j == pattern.size()) {
@@ -262,9 +285,10 @@ public interface LinearGenome<G extends LinearGenome<G>> extends Genome<G> {
 		 */
 		public IntStream findAllNonOverlappingIn(G g) {
 			IntStream.Builder result = IntStream.builder();
+			long[] gWords = wordsOf(g);
 			int i=0, j=0;
 			while (i < g.size()) {
-				if (g.sameAt(i, pattern, j)) {
+				if (this.same(g, gWords, i, j)) {
 					i++;
 					j++;
 					if (j == pattern.size()) {
@@ -287,9 +311,10 @@ public interface LinearGenome<G extends LinearGenome<G>> extends Genome<G> {
 		 * Find the first occurrence of this (compiled) pattern in the supplied genome, or -1 if it is absent.
 		 */
 		public int findFirstIn(G g) {
+			long[] gWords = wordsOf(g);
 			int i=0, j=0;
 			while (i < g.size()) {
-				if (g.sameAt(i, pattern, j)) {
+				if (this.same(g, gWords, i, j)) {
 					i++;
 					j++;
 					if (j == pattern.size()) {
@@ -4,6 +4,7 @@ import java.util.Random;
 
 import genome.Genome;
 import genome.VarLengthGenome;
+import util.Assert;
 
 /**
  * {@link Genome} containing a variable-length string of binary values.
@@ -15,6 +16,52 @@ public interface BinaryGenome<G extends BinaryGenome<G>> extends VarLengthGenome
 	 */
 	boolean get(int index);
 
+	/**
+	 * Get up to 64 consecutive bits of this genome packed into a long.
+	 * Bit k of the result (i.e. (result >>> k) & 1) is this.get(index+k); bits of the result at or above n are zero.
+	 * Implementations should override this to avoid reading the bits one by one.
+	 * @param index - Index of the first bit to read
+	 * @param n - Number of bits to read, between 1 and 64 inclusive
+	 */
+	@SuppressWarnings("unchecked")
+	default long getBits(int index, int n) {
+		Assert.splice((G) this, index, index+n);
+		if (n > 64) throw new IllegalArgumentException("Cannot read more than 64 bits into a long");
+		long result = 0;
+		for (int k=0; k<n; k++) {
+			if (this.get(index+k)) result |= 1L << k;
+		}
+		return result;
+	}
+
+	/**
+	 * Copy a section of this genome into a caller-supplied array of packed words.
+	 * Bit i of the section is stored as in {@link #getBits(int, int)}, i.e. at bit (i % 64) of dest[i / 64]. The unused bits of the last word are set to zero.
+	 * @param dest - Array of at least (exclusiveEnd-inclusiveStart+63)/64 words
+	 */
+	default void getBits(int inclusiveStart, int exclusiveEnd, long[] dest) {
+		for (int i=inclusiveStart; i<exclusiveEnd; i+=64) {
+			dest[(i-inclusiveStart) >>> 6] = this.getBits(i, Math.min(64, exclusiveEnd-i));
+		}
+	}
+
+	/**
+	 * Copy the bits of this genome into a new array of packed words.
+	 * @see #getBits(int, int, long[])
+	 */
+	default long[] toWords() {
+		long[] result = new long[(this.size()+63) >>> 6];
+		this.getBits(0, this.size(), result);
+		return result;
+	}
+
+	/**
+	 * Read a single bit from an array of packed words, as returned by {@link #toWords()}.
+	 */
+	static boolean getBit(long[] words, int index) {
+		return (words[index >>> 6] & (1L << index)) != 0;
+	}
+
 	/**
 	 * Set a bit of this genome.
 	 * @param index
@@ -46,6 +93,20 @@ public interface BinaryGenome<G extends BinaryGenome<G>> extends VarLengthGenome
     	return this.get(thisIndex) == that.get(thatIndex);
     }
 
+    /**
+     * Check if another Genome has the same bit sequence as this.
+     * Compares 64 bits at a time using {@link #getBits(int, int)}.
+     */
+    @Override
+    default boolean sameSequence(G that) {
+    	if (this.size() != that.size()) return false;
+    	for (int i=0; i<this.size(); i+=64) {
+    		int n = Math.min(64, this.size()-i);
+    		if (this.getBits(i, n) != that.getBits(i, n)) return false;
+    	}
+    	return true;
+    }
+
     void insertRandom(Random rng, int index, int length);
 
 	/**
@@ -53,13 +114,9 @@ public interface BinaryGenome<G extends BinaryGenome<G>> extends VarLengthGenome
      * Bits with index higher than 31 are ignored (sign bit is never set).
      */
     default int decodeIntBase() {
-    	int result = 0;
     	int len = Math.min(31, this.size());
-    	for (int i=0; i<len; i++) {
-    		result <<= 1;
-    		if (this.get(i)) result = result + 1;
-    	}
-    	return result;
+    	// First bit is the most significant, so reverse the packed bits
+    	return (int) (Long.reverse(this.getBits(0, len)) >>> (64-len));
     }
 
     /**
@@ -67,16 +124,13 @@ public interface BinaryGenome<G extends BinaryGenome<G>> extends VarLengthGenome
      * Bits with index higher than 31 are ignored (sign bit is never set).
      */
     default int decodeIntGray() {
-    	int result = 0;
-    	int len = Math.min(31, this.size());
-
-    	boolean lastset = this.get(0);
-    	if (lastset) result = 1;
-    	for (int i=1; i<len; i++) {
-    		result <<= 1;
-    		lastset = this.get(i) ^ lastset;
-    		if (lastset) result = result + 1;
-    	}
+    	// Each binary digit is the xor of the Gray digits at the same and more significant positions
+    	int result = this.decodeIntBase();
+    	result ^= result >>> 1;
+    	result ^= result >>> 2;
+    	result ^= result >>> 4;
+    	result ^= result >>> 8;
+    	result ^= result >>> 16;
     	return result;
     }
 
@@ -19,11 +19,12 @@ public abstract class BitGenome implements BinaryGenome<BitGenome> {
 
 	public static <G extends BinaryGenome<G>> BitGenome of(G g) {
         Assert.notNull(g);
-        BitGenome result = ConcreteBitGenome.preserve(2*g.size(), g.size());
+        long[] words = g.toWords();
+        boolean[] bits = new boolean[2*g.size()];
         for (int i=0; i<g.size(); i++) {
-            result.set(i, g.get(i));
+            bits[i] = BinaryGenome.getBit(words, i);
         }
-        return result;
+        return new ConcreteBitGenome(g.size(), bits);
     }
 
     public static BitGenome of(boolean... bits) {
@@ -75,6 +76,76 @@ public abstract class BitGenome implements BinaryGenome<BitGenome> {
         return ConcreteBitGenome.preserve(2*size, size);
     }
 
+    /**
+     * Create a {@link PackedBitGenome} with the same bits as the given genome.
+     * Packed genomes store 64 bits per word and remain packed when copied.
+     * @see #of(BinaryGenome)
+     */
+    public static <G extends BinaryGenome<G>> BitGenome packedOf(G g) {
+        Assert.notNull(g);
+        return new PackedBitGenome(g.size(), g.toWords());
+    }
+
+    /** Packed version of {@link #zeroes(int)}. */
+    public static BitGenome packedZeroes(int size) {
+        Assert.length1(size);
+        return PackedBitGenome.preserve(size, size);
+    }
+
+    /**
+     * Packed version of {@link #getRandom(Random, DiscreteDistribution)}.
+     * Draws the same bits as the unpacked version given the same random number generator.
+     */
+    public static BitGenome getRandomPacked(Random rng, DiscreteDistribution sizedist) {
+    	int size = sizedist.applyAsInt(rng);
+        BitGenome g = PackedBitGenome.preserve(size, size);
+        for (int i = 0; i < size; i++) {
+            if (rng.nextBoolean()) g.flip(i);
+        }
+        return g;
+    }
+
+	public static CategoricalDistribution<BitGenome> randomPacked(DiscreteDistribution sizedist) {
+        return (rng) -> BitGenome.getRandomPacked(rng, sizedist);
+    }
+
+    public static CategoricalDistribution<BitGenome> randomPacked(int size) {
+        return BitGenome.randomPacked((ignored) -> size);
+    }
+
+    /**
+     * Create a {@link PersistentBitGenome} with the same bits as the given genome.
+     * Persistent genomes share structure between copies, so that copying takes constant time and later modifications only copy the affected blocks.
+     * @see #of(BinaryGenome)
+     */
+    public static <G extends BinaryGenome<G>> BitGenome persistentOf(G g) {
+        Assert.notNull(g);
+        return PersistentBitGenome.of(g.toWords(), g.size());
+    }
+
+    /** Persistent version of {@link #zeroes(int)}. */
+    public static BitGenome persistentZeroes(int size) {
+        Assert.length1(size);
+        return new PersistentBitGenome(PersistentBitGenome.zeroNode(size));
+    }
+
+    /**
+     * Persistent version of {@link #getRandom(Random, DiscreteDistribution)}.
+     * Draws the same bits as the unpacked version given the same random number generator.
+     */
+    public static BitGenome getRandomPersistent(Random rng, DiscreteDistribution sizedist) {
+        BitGenome packed = BitGenome.getRandomPacked(rng, sizedist);
+        return PersistentBitGenome.of(((PackedBitGenome) packed).words, packed.size());
+    }
+
+	public static CategoricalDistribution<BitGenome> randomPersistent(DiscreteDistribution sizedist) {
+        return (rng) -> BitGenome.getRandomPersistent(rng, sizedist);
+    }
+
+    public static CategoricalDistribution<BitGenome> randomPersistent(int size) {
+        return BitGenome.randomPersistent((ignored) -> size);
+    }
+
     public static BitGenome ones(int size) {
     	Assert.length1(size);
     	BitGenome result = ConcreteBitGenome.preserve(2*size, size);
@@ -203,6 +274,24 @@ public abstract class BitGenome implements BinaryGenome<BitGenome> {
 	    		: BitGenome.this.get(start+index);
 	    }
 
+	    @Override
+	    public long getBits(int index, int n) {
+	        Assert.splice(this, index, index+n);
+	        return reversed
+	        	? Long.reverse(BitGenome.this.getBits(start+len-index-n, n)) >>> (64-n)
+	        	: BitGenome.this.getBits(start+index, n);
+	    }
+
+	    @Override
+	    public void getBits(int inclusiveStart, int exclusiveEnd, long[] dest) {
+	    	if (reversed) {
+	    		super.getBits(inclusiveStart, exclusiveEnd, dest);
+	    	} else {
+	    		Assert.splice(this, inclusiveStart, exclusiveEnd);
+	    		BitGenome.this.getBits(start+inclusiveStart, start+exclusiveEnd, dest);
+	    	}
+	    }
+
 	    @Override
 	    public void set(int index, boolean val) {
 	    	Assert.unmodifiable();
@@ -1,10 +1,8 @@
 package genome.binary;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 
@@ -25,11 +23,7 @@ public abstract class BitGenomeWithHistory implements BinaryGenome<BitGenomeWith
     public static <G extends BinaryGenome<G>> BitGenomeWithHistory of(G g) {
         Assert.notNull(g);
 
-        List<BoolWithHistory> thisbits = new ArrayList<>();
-        for (int i=0; i<g.size(); i++) {
-        	thisbits.add(new BoolWithHistory(g.get(i)));
-        }
-        return new ConcreteBitGenomeWithHistory(thisbits);
+        return ConcreteBitGenomeWithHistory.fresh(g.size(), g.toWords());
     }
 
     /**
@@ -40,8 +34,11 @@ public abstract class BitGenomeWithHistory implements BinaryGenome<BitGenomeWith
         Assert.notNull(bits);
         Assert.length1(bits.size());
 
-        List<BoolWithHistory> thisbits = bits.stream().map(BoolWithHistory::new).collect(Collectors.toList());
-        return new ConcreteBitGenomeWithHistory(thisbits);
+        long[] words = new long[PackedBitGenome.wordsFor(bits.size())];
+        for (int i=0; i<bits.size(); i++) {
+            if (bits.get(i)) words[i >>> 6] |= 1L << i;
+        }
+        return ConcreteBitGenomeWithHistory.fresh(bits.size(), words);
     }
 
     /** See {@link #of(List)} */
@@ -49,11 +46,11 @@ public abstract class BitGenomeWithHistory implements BinaryGenome<BitGenomeWith
         Assert.notNull(bits);
         Assert.length1(bits.length);
 
-        List<BoolWithHistory> thisbits = new ArrayList<>();
+        long[] words = new long[PackedBitGenome.wordsFor(bits.length)];
         for (int i=0; i<bits.length; i++) {
-            thisbits.add(new BoolWithHistory(bits[i]));
+            if (bits[i]) words[i >>> 6] |= 1L << i;
         }
-        return new ConcreteBitGenomeWithHistory(thisbits);
+        return ConcreteBitGenomeWithHistory.fresh(bits.length, words);
     }
 
     /**
@@ -74,7 +71,7 @@ public abstract class BitGenomeWithHistory implements BinaryGenome<BitGenomeWith
     }
 
     public static BitGenomeWithHistory getRandom(Random rng, DiscreteDistribution ndist) {
-    	return BitGenomeWithHistory.of(BitGenome.random(ndist).apply(rng));
+    	return BitGenomeWithHistory.of(BitGenome.getRandomPacked(rng, ndist));
     }
 
     public static CategoricalDistribution<? extends BitGenomeWithHistory> random(DiscreteDistribution ndist) {
@@ -110,11 +107,13 @@ public abstract class BitGenomeWithHistory implements BinaryGenome<BitGenomeWith
     @Override
     public BitGenomeWithHistory copy(int inclusiveStart, int exclusiveEnd) {
         int len = exclusiveEnd-inclusiveStart;
-        ArrayList<BoolWithHistory> newbits = new ArrayList<>(len);
+        long[] newwords = new long[PackedBitGenome.wordsFor(len)];
+        long[] newids = new long[len];
+        if (len > 0) this.getBits(inclusiveStart, exclusiveEnd, newwords);
         for (int i=0; i<len; i++) {
-            newbits.add(new BoolWithHistory(this.get(inclusiveStart+i), this.getId(inclusiveStart+i)));
+            newids[i] = this.getId(inclusiveStart+i);
         }
-        return new ConcreteBitGenomeWithHistory(newbits);
+        return new ConcreteBitGenomeWithHistory(len, newwords, newids);
     }
 
     @Override
@@ -122,38 +121,6 @@ public abstract class BitGenomeWithHistory implements BinaryGenome<BitGenomeWith
         return this.copy(0, this.size());
     }
 
-
-    /**
-    * Class of boolean values with a unique identifier.
-    * New instances are initialized with a new unique identifier, but the identifier can be copied.
-    */
-    public static class BoolWithHistory {
-
-        boolean b;
-        public final long id;
-
-        private static long newid = 0;
-
-        protected BoolWithHistory(boolean b, long id) {
-            this.b = b;
-            this.id = id;
-        }
-
-        protected BoolWithHistory(boolean b) {
-            this(b, newid++);
-        }
-
-        protected BoolWithHistory copy() {
-            return new BoolWithHistory(this.b, this.id);
-        }
-
-        @Override
-        public String toString() {
-            return this.b ? "1" : "0";
-        }
-
-    }
-
     @Override
 	public BitGenomeWithHistory view(int inclusiveStart, int exclusiveEnd) {
 	    return this.new View(inclusiveStart, exclusiveEnd, false);
@@ -213,6 +180,24 @@ public abstract class BitGenomeWithHistory implements BinaryGenome<BitGenomeWith
 	    		: BitGenomeWithHistory.this.get(start+index);
 	    }
 
+	    @Override
+	    public long getBits(int index, int n) {
+	        Assert.splice(this, index, index+n);
+	        return reversed
+	        	? Long.reverse(BitGenomeWithHistory.this.getBits(start+len-index-n, n)) >>> (64-n)
+	        	: BitGenomeWithHistory.this.getBits(start+index, n);
+	    }
+
+	    @Override
+	    public void getBits(int inclusiveStart, int exclusiveEnd, long[] dest) {
+	    	if (reversed) {
+	    		super.getBits(inclusiveStart, exclusiveEnd, dest);
+	    	} else {
+	    		Assert.splice(this, inclusiveStart, exclusiveEnd);
+	    		BitGenomeWithHistory.this.getBits(start+inclusiveStart, start+exclusiveEnd, dest);
+	    	}
+	    }
+
 	    @Override
 	    public LongStream ids() {
 	    	return BitGenomeWithHistory.this.ids();
@@ -53,6 +53,17 @@ class ConcreteBitGenome extends BitGenome {
         return this.bits[index];
     }
 
+    @Override
+    public long getBits(int index, int n) {
+        Assert.splice(this, index, index+n);
+        if (n > 64) throw new IllegalArgumentException("Cannot read more than 64 bits into a long");
+        long result = 0;
+        for (int k=0; k<n; k++) {
+            if (this.bits[index+k]) result |= 1L << k;
+        }
+        return result;
+    }
+
     @Override
     public void set(int index, boolean val) {
         Assert.index(this, index);
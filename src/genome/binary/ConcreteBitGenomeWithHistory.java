@@ -1,69 +1,237 @@
 package genome.binary;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 
+import genome.IdAllocator;
 import util.Assert;
 
 /**
  * Concrete implementation of {@link BitGenomeWithHistory}.
  * The fields and methods in this class are not implemented in BitGenomeWithHistory because they do not apply to Views.
+ *
+ * Bits are stored packed into 64-bit words (as in {@link PackedBitGenome}), and identifiers in a parallel long[] array, so that no object is allocated per bit.
+ * Both arrays share one layout with a gap: genome index i is stored at position i if it is before the gap, and at position i + gap length otherwise.
+ * Insertions and deletions move the gap to where they happen and then only touch the gap, so that a sequence of nearby edits (as done by crossover and mutation) does not move the rest of the genome each time.
+ *
+ * Homologs are looked up in a {@link HomologIndex} of positions in the internal arrays. It is built on the first lookup, and from then on kept up to date by every modification: only bits that are inserted, deleted or moved by the gap need to be updated.
  */
 class ConcreteBitGenomeWithHistory extends BitGenomeWithHistory {
 
-    private final List<BoolWithHistory> bits;
+    /**
+     * The size / length of this genome.
+     * May never be zero or negative.
+     */
+    private int size;
 
-    public ConcreteBitGenomeWithHistory(List<BoolWithHistory> bits) {
-        this.bits = bits;
+    /**
+     * Genome index of the first position in the gap.
+     */
+    private int gapStart;
+
+    /**
+     * Identifiers of the bits of this genome, with the gap.
+     * The length of this array is the capacity of this genome; the gap has length ids.length - size.
+     */
+    private long[] ids;
+
+    /**
+     * Packed bits of this genome, with the gap, holding at least ids.length bits.
+     * Values of bits in the gap are unspecified.
+     */
+    private long[] words;
+
+    /**
+     * Create a new genome from packed bits and identifiers, without a gap.
+     * The arrays are used directly, not copied.
+     */
+    ConcreteBitGenomeWithHistory(int size, long[] words, long[] ids) {
+        this.size = size;
+        this.gapStart = size;
+        this.ids = ids;
+        this.words = words;
     }
 
+    /**
+     * Create a new genome from packed bits, with fresh unique identifiers.
+     */
+    static ConcreteBitGenomeWithHistory fresh(int size, long[] words) {
+        long[] ids = new long[size];
+        long first = IdAllocator.reserve(size);
+        for (int i=0; i<size; i++) {
+            ids[i] = first + i;
+        }
+        return new ConcreteBitGenomeWithHistory(size, words, ids);
+    }
+
+    private int gapLength() {
+        return this.ids.length - this.size;
+    }
+
+    /**
+     * Position in the internal arrays of the given genome index.
+     */
+    private int physical(int index) {
+        return index < this.gapStart ? index : index + this.gapLength();
+    }
+
+    /**
+     * Move the gap so that it starts at the given genome index.
+     * Takes time proportional to the distance moved.
+     */
+    private void moveGap(int index) {
+        int gap = this.gapLength();
+        if (gap == 0) {
+            // Nothing to move
+        } else if (index < this.gapStart) {
+            int len = this.gapStart - index;
+            if (this.index != null) {
+                for (int p=this.gapStart-1; p>=index; p--) this.index.move(this.ids[p], p, p + gap);
+            }
+            System.arraycopy(this.ids, index, this.ids, index + gap, len);
+            PackedBitGenome.copyBits(this.words, index, this.words, index + gap, len);
+        } else if (index > this.gapStart) {
+            int len = index - this.gapStart;
+            if (this.index != null) {
+                for (int p=this.gapStart; p<index; p++) this.index.move(this.ids[p + gap], p + gap, p);
+            }
+            System.arraycopy(this.ids, this.gapStart + gap, this.ids, this.gapStart, len);
+            PackedBitGenome.copyBits(this.words, this.gapStart + gap, this.words, this.gapStart, len);
+        }
+        this.gapStart = index;
+    }
+
+    /**
+     * Make sure the gap can hold at least the given number of bits, keeping it at the same genome index.
+     * Grows the arrays by half again their required size.
+     */
+    private void ensureGap(int len) {
+        int gap = this.gapLength();
+        if (gap >= len) return;
+
+        int needed = this.size + len;
+        int capacity = needed + needed/2;
+        int newgap = capacity - this.size;
+        int tail = this.size - this.gapStart;
+
+        long[] newids = new long[capacity];
+        System.arraycopy(this.ids, 0, newids, 0, this.gapStart);
+        System.arraycopy(this.ids, this.gapStart + gap, newids, this.gapStart + newgap, tail);
+
+        long[] newwords = new long[PackedBitGenome.wordsFor(capacity)];
+        PackedBitGenome.copyBits(this.words, 0, newwords, 0, this.gapStart);
+        PackedBitGenome.copyBits(this.words, this.gapStart + gap, newwords, this.gapStart + newgap, tail);
+
+        this.ids = newids;
+        this.words = newwords;
+        if (this.index != null) this.buildIndex();
+    }
 
     @Override
     public int size() {
-        return this.bits.size();
+        return this.size;
     }
 
     @Override
     public boolean get(int index) {
         Assert.index(this, index);
-        return this.bits.get(index).b;
+        int p = this.physical(index);
+        return (this.words[p >>> 6] & (1L << p)) != 0;
+    }
+
+    @Override
+    public long getBits(int index, int n) {
+        Assert.splice(this, index, index+n);
+        if (n > 64) throw new IllegalArgumentException("Cannot read more than 64 bits into a long");
+        if (index + n <= this.gapStart || index >= this.gapStart) {
+            return PackedBitGenome.readBits(this.words, this.physical(index), n);
+        } else {
+            int before = this.gapStart - index;
+            long lo = PackedBitGenome.readBits(this.words, index, before);
+            long hi = PackedBitGenome.readBits(this.words, this.gapStart + this.gapLength(), n - before);
+            return lo | (hi << before);
+        }
+    }
+
+    @Override
+    public void getBits(int inclusiveStart, int exclusiveEnd, long[] dest) {
+        Assert.splice(this, inclusiveStart, exclusiveEnd);
+        int len = exclusiveEnd - inclusiveStart;
+        int before = Math.max(0, Math.min(exclusiveEnd, this.gapStart) - inclusiveStart);
+        PackedBitGenome.copyBits(this.words, inclusiveStart, dest, 0, before);
+        PackedBitGenome.copyBits(this.words, this.physical(inclusiveStart + before), dest, before, len - before);
+        if ((len & 63) != 0) dest[len >>> 6] &= (1L << len) - 1;
+    }
+
+    /**
+     * Copy the identifiers of a section of this genome into an array.
+     */
+    private void getIds(int inclusiveStart, int exclusiveEnd, long[] dest, int destPos) {
+        int before = Math.max(0, Math.min(exclusiveEnd, this.gapStart) - inclusiveStart);
+        System.arraycopy(this.ids, inclusiveStart, dest, destPos, before);
+        System.arraycopy(this.ids, this.physical(inclusiveStart + before), dest, destPos + before, exclusiveEnd - inclusiveStart - before);
     }
 
     @Override
     public void set(int index, boolean val) {
         Assert.index(this, index);
-        this.bits.get(index).b = val;
-        this.transids = null;
+        int p = this.physical(index);
+        if (val) {
+            this.words[p >>> 6] |= 1L << p;
+        } else {
+            this.words[p >>> 6] &= ~(1L << p);
+        }
+    }
+
+    @Override
+    public void flip(int index) {
+        Assert.index(this, index);
+        int p = this.physical(index);
+        this.words[p >>> 6] ^= 1L << p;
     }
 
+    /**
+     * Shifted-in zeroes get fresh identifiers, assigned in the order in which they are shifted in.
+     */
     @Override
     public void shiftLeft(int n) {
         if (n > 0) {
-            for (int i=0; i<n; i++) {
-                this.bits.remove(0);
-                this.bits.add(new BoolWithHistory(false));
+            this.moveGap(this.size);
+            long first = IdAllocator.reserve(n);
+            int kept = Math.max(0, this.size - n);
+            System.arraycopy(this.ids, this.size - kept, this.ids, 0, kept);
+            PackedBitGenome.copyBits(this.words, this.size - kept, this.words, 0, kept);
+            PackedBitGenome.clearBits(this.words, kept, this.size);
+            for (int i=kept; i<this.size; i++) {
+                this.ids[i] = first + n - this.size + i;
             }
         } else if (n < 0) {
             this.shiftRight(-n);
         }
-        this.transids = null;
+        if (this.index != null) this.buildIndex();
     }
 
+    /**
+     * Shifted-in zeroes get fresh identifiers, assigned in the order in which they are shifted in.
+     */
     @Override
     public void shiftRight(int n) {
         if (n > 0) {
-            for (int i=0; i<n; i++) {
-                this.bits.remove(this.size()-1);
-                this.bits.add(0, new BoolWithHistory(false));
+            this.moveGap(this.size);
+            long first = IdAllocator.reserve(n);
+            int kept = Math.max(0, this.size - n);
+            int added = this.size - kept;
+            System.arraycopy(this.ids, 0, this.ids, added, kept);
+            PackedBitGenome.copyBits(this.words, 0, this.words, added, kept);
+            PackedBitGenome.clearBits(this.words, 0, added);
+            for (int i=0; i<added; i++) {
+                this.ids[i] = first + n - 1 - i;
             }
         } else if (n < 0) {
             this.shiftLeft(-n);
         }
-        this.transids = null;
+        if (this.index != null) this.buildIndex();
     }
 
     @Override
@@ -72,10 +240,19 @@ class ConcreteBitGenomeWithHistory extends BitGenomeWithHistory {
         int len = exclusiveEnd - inclusiveStart;
         if (len >= this.size()) throw new IllegalArgumentException("Attempted to delete whole genome");
 
-        for (int i=0; i<len; i++) {
-            this.bits.remove(inclusiveStart);
+        this.removeSection(inclusiveStart, exclusiveEnd);
+    }
+
+    /**
+     * Remove a section of this genome by absorbing it into the gap.
+     */
+    private void removeSection(int inclusiveStart, int exclusiveEnd) {
+        this.moveGap(inclusiveStart);
+        if (this.index != null) {
+            int gap = this.gapLength();
+            for (int p=inclusiveStart; p<exclusiveEnd; p++) this.index.remove(this.ids[p + gap], p + gap);
         }
-        this.transids = null;
+        this.size -= exclusiveEnd - inclusiveStart;
     }
 
     @Override
@@ -84,18 +261,42 @@ class ConcreteBitGenomeWithHistory extends BitGenomeWithHistory {
         Assert.notNull(g);
         Assert.splice(g, inclusiveStart, exclusiveEnd);
 
-        int len = exclusiveEnd - inclusiveStart;
-
         // Handle case when read and write Genomes refer to the same data
         if (this.refersTo() == g.refersTo()) {
             this.insert(index, g.copy(inclusiveStart, exclusiveEnd));
             return;
         }
 
-        for (int i=0; i<len; i++) {
-           this.bits.add(index+i, new BoolWithHistory(g.get(inclusiveStart+i), g.getId(inclusiveStart+i)));
+        this.insertSection(index, g, inclusiveStart, exclusiveEnd);
+    }
+
+    /**
+     * Write a section of another genome (that does not refer to this one) into the gap, at the given index.
+     */
+    private void insertSection(int index, BitGenomeWithHistory g, int inclusiveStart, int exclusiveEnd) {
+        int len = exclusiveEnd - inclusiveStart;
+        this.ensureGap(len);
+        this.moveGap(index);
+
+        if (g instanceof ConcreteBitGenomeWithHistory) {
+            ((ConcreteBitGenomeWithHistory) g).getIds(inclusiveStart, exclusiveEnd, this.ids, index);
+        } else {
+            for (int i=0; i<len; i++) {
+                this.ids[index+i] = g.getId(inclusiveStart+i);
+            }
+        }
+        if (len > 0) {
+            long[] gwords = new long[PackedBitGenome.wordsFor(len)];
+            g.getBits(inclusiveStart, exclusiveEnd, gwords);
+            PackedBitGenome.copyBits(gwords, 0, this.words, index, len);
+        }
+
+        if (this.index != null) {
+            for (int p=index; p<index+len; p++) this.index.add(this.ids[p], p);
         }
-        this.transids = null;
+
+        this.gapStart += len;
+        this.size += len;
     }
 
     @Override
@@ -108,53 +309,84 @@ class ConcreteBitGenomeWithHistory extends BitGenomeWithHistory {
             return;
         }
 
-
-        for (int i=0; i<overwritelen; i++) {
-            this.bits.set(index+i, new BoolWithHistory(g.get(inclusiveStart+i), g.getId(inclusiveStart+i)));
-        }
-        for (int i=overwritelen; i<len; i++) {
-            this.bits.add(new BoolWithHistory(g.get(inclusiveStart+i), g.getId(inclusiveStart+i)));
-        }
-
-        this.transids = null;
+        // Overwritten bits go into the gap, and are immediately replaced by the new ones.
+        this.removeSection(index, index + overwritelen);
+        this.insertSection(index, g, inclusiveStart, exclusiveEnd);
     }
 
     @Override
     public long getId(int index) {
         Assert.index(this, index);
-        return this.bits.get(index).id;
+        return this.ids[this.physical(index)];
     }
 
-    private Map<Long,List<Integer>> transids = null;
+    @Override
+    public BitGenomeWithHistory copy(int inclusiveStart, int exclusiveEnd) {
+        int len = exclusiveEnd - inclusiveStart;
+        long[] newwords = new long[PackedBitGenome.wordsFor(len)];
+        long[] newids = new long[len];
+        if (len > 0) this.getBits(inclusiveStart, exclusiveEnd, newwords);
+        this.getIds(inclusiveStart, exclusiveEnd, newids, 0);
+        return new ConcreteBitGenomeWithHistory(len, newwords, newids);
+    }
 
-    private void refreshTransIds() {
-        this.transids = new HashMap<>();
-        for (int i=0; i<this.size(); i++) {
-            Long iid = this.getId(i);
-            if (this.transids.containsKey(iid)) {
-                this.transids.get(iid).add(i);
-            } else {
-                this.transids.put(iid, new ArrayList<>(List.of(i)));
-            }
+    /**
+     * Index of the positions of each id in the internal arrays, or null if it has not been needed yet.
+     */
+    private HomologIndex index = null;
+
+    private void buildIndex() {
+        this.index = new HomologIndex(this.size);
+        int gap = this.gapLength();
+        for (int i=0; i<this.size; i++) {
+            int p = i < this.gapStart ? i : i + gap;
+            this.index.add(this.ids[p], p);
         }
     }
 
     @Override
     public IntStream homologs(long id) {
-        if (transids == null) {
-            this.refreshTransIds();
+        int[] result = new int[this.homologCount(id)];
+        this.homologs(id, result);
+        return IntStream.of(result);
+    }
+
+    @Override
+    public int homologs(long id, int[] dest) {
+        if (this.index == null) this.buildIndex();
+        int n = this.index.get(id, dest);
+        if (n > dest.length) {
+            // Need all positions to know which come first
+            int[] all = new int[n];
+            this.index.get(id, all);
+            this.toGenomeIndices(all, n);
+            System.arraycopy(all, 0, dest, 0, dest.length);
+        } else {
+            this.toGenomeIndices(dest, n);
+        }
+        return n;
+    }
+
+    /**
+     * Convert positions in the internal arrays to genome indices, in increasing order.
+     */
+    private void toGenomeIndices(int[] positions, int n) {
+        int gap = this.gapLength();
+        for (int k=0; k<n; k++) {
+            if (positions[k] >= this.gapStart) positions[k] -= gap;
         }
-        return this.transids.containsKey(id)
-                ? this.transids.get(id).stream().mapToInt(Integer::intValue)
-                : IntStream.empty();
+        if (n > 1) Arrays.sort(positions, 0, n);
+    }
+
+    @Override
+    public int homologCount(long id) {
+        if (this.index == null) this.buildIndex();
+        return this.index.count(id);
     }
 
     @Override
     public LongStream ids() {
-    	if (transids == null) {
-            this.refreshTransIds();
-        }
-        return this.transids.keySet().stream().mapToLong(i->i);
+        return this.uniqueIds();
     }
 
     @Override
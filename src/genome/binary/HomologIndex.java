@@ -0,0 +1,137 @@
+package genome.binary;
+
+import java.util.Arrays;
+
+/**
+ * Index from bit identifiers to the positions that hold them, for {@link ConcreteBitGenomeWithHistory}.
+ * This is a multimap from long to int stored in an open addressing hash table with linear probing: each (id, position) pair takes its own slot, so ids with several homologs simply take several slots.
+ * Keys and positions are stored in primitive arrays, so that no objects are created when the index is built, updated or queried.
+ * Positions are not interpreted by the index; the genome can store whatever position it can efficiently keep up to date.
+ */
+class HomologIndex {
+
+    /**
+     * Position value of empty slots.
+     */
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] positions;
+    private int mask;
+    private int count;
+
+    /**
+     * Create an empty index with room for the given number of entries.
+     */
+    HomologIndex(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(this.positions, EMPTY);
+        this.mask = capacity - 1;
+        this.count = 0;
+    }
+
+    private int slot(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & this.mask;
+    }
+
+    /**
+     * Add an entry to the index.
+     * @param position - Non-negative position
+     */
+    void add(long id, int position) {
+        if (2 * (this.count + 1) > this.keys.length) this.grow();
+        int i = this.slot(id);
+        while (this.positions[i] != EMPTY) {
+            i = (i + 1) & this.mask;
+        }
+        this.keys[i] = id;
+        this.positions[i] = position;
+        this.count++;
+    }
+
+    /**
+     * Remove an entry from the index.
+     * @throws IllegalStateException if the index has no such entry
+     */
+    void remove(long id, int position) {
+        int i = this.find(id, position);
+
+        // Backward shift deletion: move later entries of the probe sequence into the hole, so that lookups do not need tombstones.
+        int j = i;
+        while (true) {
+            j = (j + 1) & this.mask;
+            if (this.positions[j] == EMPTY) break;
+            int k = this.slot(this.keys[j]);
+            boolean canMove = i <= j
+                    ? (k <= i || k > j)
+                    : (k <= i && k > j);
+            if (canMove) {
+                this.keys[i] = this.keys[j];
+                this.positions[i] = this.positions[j];
+                i = j;
+            }
+        }
+        this.positions[i] = EMPTY;
+        this.count--;
+    }
+
+    /**
+     * Change the position of an entry.
+     * @throws IllegalStateException if the index has no such entry
+     */
+    void move(long id, int from, int to) {
+        this.positions[this.find(id, from)] = to;
+    }
+
+    /**
+     * Number of entries for an id.
+     */
+    int count(long id) {
+        int result = 0;
+        for (int i = this.slot(id); this.positions[i] != EMPTY; i = (i + 1) & this.mask) {
+            if (this.keys[i] == id) result++;
+        }
+        return result;
+    }
+
+    /**
+     * Write the positions of an id to a buffer, in no particular order.
+     * @return The number of positions of the id. If this is more than dest.length, only the first dest.length positions found are written.
+     */
+    int get(long id, int[] dest) {
+        int result = 0;
+        for (int i = this.slot(id); this.positions[i] != EMPTY; i = (i + 1) & this.mask) {
+            if (this.keys[i] == id) {
+                if (result < dest.length) dest[result] = this.positions[i];
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private int find(long id, int position) {
+        for (int i = this.slot(id); this.positions[i] != EMPTY; i = (i + 1) & this.mask) {
+            if (this.keys[i] == id && this.positions[i] == position) return i;
+        }
+        throw new IllegalStateException("Homolog index has no entry for id " + id + " at " + position);
+    }
+
+    private void grow() {
+        long[] oldkeys = this.keys;
+        int[] oldpositions = this.positions;
+
+        this.keys = new long[oldkeys.length * 2];
+        this.positions = new int[oldkeys.length * 2];
+        Arrays.fill(this.positions, EMPTY);
+        this.mask = this.keys.length - 1;
+        this.count = 0;
+
+        for (int i=0; i<oldkeys.length; i++) {
+            if (oldpositions[i] != EMPTY) this.add(oldkeys[i], oldpositions[i]);
+        }
+    }
+
+}
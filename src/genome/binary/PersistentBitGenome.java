@@ -0,0 +1,378 @@
+package genome.binary;
+
+import java.util.Random;
+
+import util.Assert;
+
+/**
+ * Concrete implementation of {@link BitGenome} as a persistent rope: a balanced binary tree of immutable, packed blocks of bits.
+ * Nodes are never modified after construction, so a copy of this genome can share the whole tree with the original and {@link #copy()} takes constant time.
+ * Modifications replace only the path from the root to the affected blocks: {@link #set(int, boolean)} costs O(log n) plus the copy of one block, and {@link #insert}, {@link #delete} and {@link #paste} split and rejoin the tree in O(log n) plus the inserted or touched blocks.
+ * This is intended for populations of long genomes with low mutation rates, where most of an offspring is identical to its parent.
+ */
+class PersistentBitGenome extends BitGenome {
+
+	/**
+	 * Maximal number of bits in one leaf block.
+	 * Smaller blocks make point modifications cheaper, larger blocks make the tree shallower.
+	 */
+	static final int LEAF_BITS = 2048;
+
+	/**
+	 * Root of the tree. Never null, because genomes may not be empty.
+	 */
+	Node root;
+
+	PersistentBitGenome(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * Create a new PersistentBitGenome from packed bits.
+	 * The words are copied into new blocks and can be reused by the caller.
+	 */
+	static PersistentBitGenome of(long[] words, int size) {
+		Assert.length1(size);
+		return new PersistentBitGenome(build(words, 0, size));
+	}
+
+	/**
+	 * Create a tree of zeroes.
+	 */
+	static Node zeroNode(int size) {
+		return build(new long[PackedBitGenome.wordsFor(size)], 0, size);
+	}
+
+	/**
+	 * Immutable node of the rope.
+	 */
+	static abstract class Node {
+		final int size;
+		final int height;
+
+		Node(int size, int height) {
+			this.size = size;
+			this.height = height;
+		}
+	}
+
+	/**
+	 * Block of at most {@link #LEAF_BITS} bits, packed as in {@link PackedBitGenome}.
+	 */
+	static final class Leaf extends Node {
+		final long[] words;
+
+		Leaf(int size, long[] words) {
+			super(size, 0);
+			this.words = words;
+		}
+	}
+
+	static final class Branch extends Node {
+		final Node left;
+		final Node right;
+
+		Branch(Node left, Node right) {
+			super(left.size + right.size, 1 + Math.max(left.height, right.height));
+			this.left = left;
+			this.right = right;
+		}
+	}
+
+	/**
+	 * Build a balanced tree from a range of packed bits.
+	 */
+	static Node build(long[] words, int inclusiveStart, int exclusiveEnd) {
+		int len = exclusiveEnd - inclusiveStart;
+		if (len <= LEAF_BITS) {
+			long[] leafwords = new long[PackedBitGenome.wordsFor(len)];
+			PackedBitGenome.copyBits(words, inclusiveStart, leafwords, 0, len);
+			return new Leaf(len, leafwords);
+		} else {
+			// Split on a block boundary so that all but the last leaf are full
+			int nleaves = (len + LEAF_BITS - 1) / LEAF_BITS;
+			int mid = inclusiveStart + (nleaves / 2) * LEAF_BITS;
+			return new Branch(build(words, inclusiveStart, mid), build(words, mid, exclusiveEnd));
+		}
+	}
+
+	/**
+	 * Join two trees, either of which may be null, rebalancing as in an AVL tree.
+	 * Adjacent small leaves are merged so that repeated small edits do not fragment the tree.
+	 */
+	static Node concat(Node a, Node b) {
+		if (a == null) return b;
+		if (b == null) return a;
+		if (a instanceof Leaf && b instanceof Leaf && a.size + b.size <= LEAF_BITS) {
+			long[] words = new long[PackedBitGenome.wordsFor(a.size + b.size)];
+			PackedBitGenome.copyBits(((Leaf) a).words, 0, words, 0, a.size);
+			PackedBitGenome.copyBits(((Leaf) b).words, 0, words, a.size, b.size);
+			return new Leaf(a.size + b.size, words);
+		}
+		if (a.height > b.height + 1) {
+			Branch ab = (Branch) a;
+			return balance(ab.left, concat(ab.right, b));
+		}
+		if (b.height > a.height + 1) {
+			Branch bb = (Branch) b;
+			return balance(concat(a, bb.left), bb.right);
+		}
+		return new Branch(a, b);
+	}
+
+	/**
+	 * Create a branch from two subtrees whose heights differ by at most two, rotating if necessary.
+	 */
+	static Node balance(Node left, Node right) {
+		if (left.height > right.height + 1) {
+			Branch l = (Branch) left;
+			if (l.left.height >= l.right.height) {
+				return new Branch(l.left, new Branch(l.right, right));
+			} else {
+				Branch lr = (Branch) l.right;
+				return new Branch(new Branch(l.left, lr.left), new Branch(lr.right, right));
+			}
+		}
+		if (right.height > left.height + 1) {
+			Branch r = (Branch) right;
+			if (r.right.height >= r.left.height) {
+				return new Branch(new Branch(left, r.left), r.right);
+			} else {
+				Branch rl = (Branch) r.left;
+				return new Branch(new Branch(left, rl.left), new Branch(rl.right, r.right));
+			}
+		}
+		return new Branch(left, right);
+	}
+
+	/**
+	 * Get the subtree representing a range of bits of a tree, sharing all nodes that lie completely inside the range.
+	 * Returns null for an empty range.
+	 */
+	static Node slice(Node n, int inclusiveStart, int exclusiveEnd) {
+		if (inclusiveStart >= exclusiveEnd) return null;
+		if (inclusiveStart == 0 && exclusiveEnd == n.size) return n;
+		if (n instanceof Leaf) {
+			int len = exclusiveEnd - inclusiveStart;
+			long[] words = new long[PackedBitGenome.wordsFor(len)];
+			PackedBitGenome.copyBits(((Leaf) n).words, inclusiveStart, words, 0, len);
+			return new Leaf(len, words);
+		}
+		Branch b = (Branch) n;
+		int mid = b.left.size;
+		if (exclusiveEnd <= mid) return slice(b.left, inclusiveStart, exclusiveEnd);
+		if (inclusiveStart >= mid) return slice(b.right, inclusiveStart - mid, exclusiveEnd - mid);
+		return concat(slice(b.left, inclusiveStart, mid), slice(b.right, 0, exclusiveEnd - mid));
+	}
+
+	/**
+	 * Read up to 64 bits from a tree, as {@link BinaryGenome#getBits(int, int)}.
+	 */
+	static long readBits(Node n, int index, int len) {
+		while (n instanceof Branch) {
+			Branch b = (Branch) n;
+			int mid = b.left.size;
+			if (index + len <= mid) {
+				n = b.left;
+			} else if (index >= mid) {
+				n = b.right;
+				index -= mid;
+			} else {
+				int lowlen = mid - index;
+				return readBits(b.left, index, lowlen) | (readBits(b.right, 0, len - lowlen) << lowlen);
+			}
+		}
+		return PackedBitGenome.readBits(((Leaf) n).words, index, len);
+	}
+
+	/**
+	 * Copy a range of bits of a tree into a packed word array, starting at the given bit of the array.
+	 */
+	static void copyTo(Node n, int inclusiveStart, int exclusiveEnd, long[] dest, int destPos) {
+		if (n instanceof Leaf) {
+			PackedBitGenome.copyBits(((Leaf) n).words, inclusiveStart, dest, destPos, exclusiveEnd - inclusiveStart);
+		} else {
+			Branch b = (Branch) n;
+			int mid = b.left.size;
+			if (inclusiveStart < mid) {
+				copyTo(b.left, inclusiveStart, Math.min(mid, exclusiveEnd), dest, destPos);
+			}
+			if (exclusiveEnd > mid) {
+				int from = Math.max(mid, inclusiveStart);
+				copyTo(b.right, from - mid, exclusiveEnd - mid, dest, destPos + from - inclusiveStart);
+			}
+		}
+	}
+
+	/**
+	 * Replace the leaf containing the given index by a copy with one bit changed.
+	 * @param flip - If true, flip the bit and ignore val
+	 */
+	static Node withBit(Node n, int index, boolean val, boolean flip) {
+		if (n instanceof Leaf) {
+			long[] words = ((Leaf) n).words.clone();
+			long mask = 1L << index;
+			if (flip) {
+				words[index >>> 6] ^= mask;
+			} else if (val) {
+				words[index >>> 6] |= mask;
+			} else {
+				words[index >>> 6] &= ~mask;
+			}
+			return new Leaf(n.size, words);
+		} else {
+			Branch b = (Branch) n;
+			return index < b.left.size
+					? new Branch(withBit(b.left, index, val, flip), b.right)
+					: new Branch(b.left, withBit(b.right, index - b.left.size, val, flip));
+		}
+	}
+
+	/**
+	 * Get a tree holding a section of another genome.
+	 * Shares the nodes of other persistent genomes, and otherwise reads the section in bulk.
+	 */
+	static Node nodeOf(BitGenome g, int inclusiveStart, int exclusiveEnd) {
+		if (g instanceof PersistentBitGenome) {
+			return slice(((PersistentBitGenome) g).root, inclusiveStart, exclusiveEnd);
+		} else {
+			long[] words = new long[PackedBitGenome.wordsFor(exclusiveEnd - inclusiveStart)];
+			g.getBits(inclusiveStart, exclusiveEnd, words);
+			return build(words, 0, exclusiveEnd - inclusiveStart);
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.root.size;
+	}
+
+	@Override
+	public boolean get(int index) {
+		Assert.index(this, index);
+		Node n = this.root;
+		while (n instanceof Branch) {
+			Branch b = (Branch) n;
+			if (index < b.left.size) {
+				n = b.left;
+			} else {
+				index -= b.left.size;
+				n = b.right;
+			}
+		}
+		return BinaryGenome.getBit(((Leaf) n).words, index);
+	}
+
+	@Override
+	public long getBits(int index, int n) {
+		Assert.splice(this, index, index+n);
+		if (n > 64) throw new IllegalArgumentException("Cannot read more than 64 bits into a long");
+		return readBits(this.root, index, n);
+	}
+
+	@Override
+	public void getBits(int inclusiveStart, int exclusiveEnd, long[] dest) {
+		Assert.splice(this, inclusiveStart, exclusiveEnd);
+		int len = exclusiveEnd - inclusiveStart;
+		copyTo(this.root, inclusiveStart, exclusiveEnd, dest, 0);
+		if ((len & 63) != 0) dest[len >>> 6] &= (1L << len) - 1;
+	}
+
+	@Override
+	public void set(int index, boolean val) {
+		Assert.index(this, index);
+		this.root = withBit(this.root, index, val, false);
+	}
+
+	@Override
+	public void flip(int index) {
+		Assert.index(this, index);
+		this.root = withBit(this.root, index, false, true);
+	}
+
+	@Override
+	public void shiftRight(int n) {
+		if (n < 0) {
+			this.shiftLeft(-n);
+		} else if (n >= this.size()) {
+			this.root = zeroNode(this.size());
+		} else if (n > 0) {
+			this.root = concat(zeroNode(n), slice(this.root, 0, this.size()-n));
+		}
+	}
+
+	@Override
+	public void shiftLeft(int n) {
+		if (n < 0) {
+			this.shiftRight(-n);
+		} else if (n >= this.size()) {
+			this.root = zeroNode(this.size());
+		} else if (n > 0) {
+			this.root = concat(slice(this.root, n, this.size()), zeroNode(n));
+		}
+	}
+
+	@Override
+	public void delete(int inclusiveStart, int exclusiveEnd) {
+		Assert.splice(this, inclusiveStart, exclusiveEnd);
+		int len = exclusiveEnd - inclusiveStart;
+		if (len >= this.size()) throw new IllegalArgumentException("Cannot delete whole genome");
+
+		this.root = concat(slice(this.root, 0, inclusiveStart), slice(this.root, exclusiveEnd, this.size()));
+	}
+
+	@Override
+	public void insert(int index, BitGenome g, int inclusiveStart, int exclusiveEnd) {
+		Assert.splice(this, index);
+		Assert.notNull(g);
+		Assert.splice(g, inclusiveStart, exclusiveEnd);
+
+		// Inserted section is taken before modifying, so reading from this genome (or a View of it) is safe
+		Node middle = nodeOf(g, inclusiveStart, exclusiveEnd);
+		this.root = concat(concat(slice(this.root, 0, index), middle), slice(this.root, index, this.size()));
+	}
+
+	@Override
+	public void paste(int index, BitGenome g, int inclusiveStart, int exclusiveEnd) {
+		Assert.splice(this, index);
+		Assert.notNull(g);
+		Assert.splice(g, inclusiveStart, exclusiveEnd);
+
+		int len = exclusiveEnd - inclusiveStart;
+		Node middle = nodeOf(g, inclusiveStart, exclusiveEnd);
+		this.root = concat(concat(slice(this.root, 0, index), middle), slice(this.root, Math.min(index+len, this.size()), this.size()));
+	}
+
+	/**
+	 * Copy this genome in constant time by sharing its (immutable) tree.
+	 */
+	@Override
+	public BitGenome copy() {
+		return new PersistentBitGenome(this.root);
+	}
+
+	/**
+	 * Copy a section of this genome, sharing all blocks that lie completely inside the section.
+	 */
+	@Override
+	public BitGenome copy(int inclusiveStart, int exclusiveEnd) {
+		Assert.splice(this, inclusiveStart, exclusiveEnd);
+		return new PersistentBitGenome(slice(this.root, inclusiveStart, exclusiveEnd));
+	}
+
+	/**
+	 * Insert random bits.
+	 * Draws the bits in the same order as {@link ConcreteBitGenome#insertRandom(Random, int, int)}, so a given seed gives the same genome regardless of storage.
+	 */
+	@Override
+	public void insertRandom(Random rng, int index, int length) {
+		BitGenome toInsert = BitGenome.getRandomPacked(rng, (ignore) -> length);
+		this.insert(index, toInsert);
+	}
+
+	@Override
+	public String toString() {
+		return BinaryGenome.toString(this);
+	}
+
+}
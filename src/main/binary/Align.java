@@ -23,6 +23,8 @@ public class Align extends BinaryWithHistoryCommandLineInterface {
 		super(args);
 	}
 	
+	public final Option<Integer> bandWidth = option("bandWidth", 16, Integer::valueOf);
+	
 	public final Option<VarOAlignmentRule<BitGenomeWithHistory>> type = option("type",
 			(optionValue) -> {
 				switch (optionValue) {
@@ -40,6 +42,51 @@ public class Align extends BinaryWithHistoryCommandLineInterface {
 					int scoreGapExtend = this.scoreGapExtend.read();
 					return Local.alignmentWithAffineGapScore(scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend);
 					}
+				case "global_parallel": {
+					int scoreMatch = this.scoreMatch.read();
+					int scoreMismatch = this.scoreMismatch.read();
+					int scoreGapOpen = this.scoreGapOpen.read();
+					int scoreGapExtend = this.scoreGapExtend.read();
+					return Global.parallelAlignmentWithAffineGapScore(scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend);
+					}
+				case "global_fourrussians": {
+					int scoreMatch = this.scoreMatch.read();
+					int scoreMismatch = this.scoreMismatch.read();
+					int scoreGapOpen = this.scoreGapOpen.read();
+					int scoreGapExtend = this.scoreGapExtend.read();
+					return Global.fourRussiansAlignmentWithAffineGapScore(scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend);
+					}
+				case "global_banded": {
+					int scoreMatch = this.scoreMatch.read();
+					int scoreMismatch = this.scoreMismatch.read();
+					int scoreGapOpen = this.scoreGapOpen.read();
+					int scoreGapExtend = this.scoreGapExtend.read();
+					int bandWidth = this.bandWidth.read();
+					return Global.bandedAlignmentWithAffineGapScore(scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend, bandWidth);
+					}
+				case "local_banded": {
+					int scoreMatch = this.scoreMatch.read();
+					int scoreMismatch = this.scoreMismatch.read();
+					int scoreGapOpen = this.scoreGapOpen.read();
+					int scoreGapExtend = this.scoreGapExtend.read();
+					int bandWidth = this.bandWidth.read();
+					return Local.bandedAlignmentWithAffineGapScore(scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend, bandWidth);
+					}
+				case "local_striped": {
+					int scoreMatch = this.scoreMatch.read();
+					int scoreMismatch = this.scoreMismatch.read();
+					int scoreGapOpen = this.scoreGapOpen.read();
+					int scoreGapExtend = this.scoreGapExtend.read();
+					return Local.stripedAlignmentWithAffineGapScore(scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend);
+					}
+				case "local_xdrop": {
+					int scoreMatch = this.scoreMatch.read();
+					int scoreMismatch = this.scoreMismatch.read();
+					int scoreGapOpen = this.scoreGapOpen.read();
+					int scoreGapExtend = this.scoreGapExtend.read();
+					int xDrop = this.xDrop.read();
+					return Local.alignmentWithXDrop(scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend, xDrop);
+					}
 				case "synapsing": {
 					int synapseSize = this.synapseSize.read();
 					return Global.repeatedLocal(Local.<BitGenomeWithHistory>longestCommonSubstring(), synapseSize);
@@ -70,6 +117,14 @@ public class Align extends BinaryWithHistoryCommandLineInterface {
 					int synapseSize = this.synapseSize.read();
 					return Glocal.unorderedRepeatedLocal(Local.<BitGenomeWithHistory>longestCommonSubstring(), synapseSize);
 				}
+				case "glocal_seed": {
+					int scoreMatch = this.scoreMatch.read();
+					int scoreMismatch = this.scoreMismatch.read();
+					int seedSize = this.seedSize.read();
+					int xDrop = this.xDrop.read();
+					int synapseSize = this.synapseSize.read();
+					return Glocal.seedAndExtend(scoreMatch, scoreMismatch, seedSize, xDrop, synapseSize);
+				}
 				case "glocal": {
 					int scoreMatch = this.scoreMatch.read();
 					int scoreMismatch = this.scoreMismatch.read();
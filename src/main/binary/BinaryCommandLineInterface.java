@@ -7,13 +7,17 @@ import java.util.Optional;
 import java.util.Random;
 import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
+import alignment.AlignmentCache;
 import alignment.AlignmentRule;
+import alignment.DerivedAlignment;
 import alignment.Global;
 import alignment.Glocal;
 import alignment.Local;
 import alignment.VarOAlignmentRule;
+import alignment.algorithms.BitParallel;
 import alignment.algorithms.GreedyGlocal;
 import crossover.CloningCross;
 import crossover.CrossoverRule;
@@ -59,6 +63,13 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 
 	public final Option<CrossoverRule.N> crossoverN = option("crossoverN", CrossoverRule.N.UNIFORM, CrossoverRule.N::valueOf);
 	public final Option<Integer> synapseSize    = option("synapseSize",    10, Integer::valueOf);
+	public final Option<Integer> synapseParallelCutoff = option("synapseParallelCutoff", 0, Integer::valueOf);
+	public final Option<Integer> seedSize       = option("seedSize",       20, Integer::valueOf);
+	public final Option<Integer> xDrop          = option("xDrop",          20, Integer::valueOf);
+	public final Option<Integer> alignmentCacheSize = option("alignmentCache", 0, Integer::valueOf);
+	public final Option<AlignmentCache<G>> alignmentCache = autoOption(() -> new AlignmentCache<>(alignmentCacheSize.read() * (1L << 20)));
+	public final Option<Integer> derivedAlignmentSize = option("derivedAlignment", 0, Integer::valueOf);
+	public final Option<DerivedAlignment<G>> derivedAlignment = autoOption(() -> new DerivedAlignment<>(derivedAlignmentSize.read()));
 	public final Option<Integer> scoreMatch     = option("scoreMatch",      1, (s) -> Integer.valueOf(s));
 	public final Option<Integer> scoreMismatch  = option("scoreMismatch",  -5, (s) -> -Math.abs(Integer.valueOf(s)));
 	public final Option<Integer> scoreGapOpen   = option("scoreGapOpen",  -20, (s) -> -Math.abs(Integer.valueOf(s)));
@@ -79,7 +90,7 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 							);
 				case "onegap":
 					return GlobalAlignmentCross.<G>of(
-							Global.oneGap(),
+							cached(Global.oneGap(), "onegap"),
 							crossoverN.read()
 							);
 				case "synapsing":
@@ -88,6 +99,11 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 //							GlobalAlignment.repeatedLocal(LocalAlignment.longestCommonSubstring(), this.synapseSize.read()),
 //							crossoverN.read()
 //							);
+					if (synapseParallelCutoff.read() > 0) return SynapsingCross.parallel(
+							synapseSize.read(),
+							crossoverN.read(),
+							synapseParallelCutoff.read()
+							);
 					return SynapsingCross.of(
 							synapseSize.read(),
 							crossoverN.read()
@@ -99,6 +115,12 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 					int scoreGapExtend = this.scoreGapExtend.read();
 					int synapseSize = this.synapseSize.read();
 					AlignmentRule<G> localAlign = Local.alignmentWithAffineGapScore(scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend);
+					if (synapseParallelCutoff.read() > 0) return SynapsingCross.Generalized.parallel(
+							localAlign,
+							synapseSize,
+							crossoverN.read(),
+							synapseParallelCutoff.read()
+							);
 					return SynapsingCross.Generalized.of(
 							localAlign,
 							synapseSize,
@@ -129,7 +151,7 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 					int scoreMismatch = this.scoreMismatch.read();
 					int synapseSize = this.synapseSize.read();
 					return GlocalAlignmentCross.Unsegmented.<G>of(
-							GreedyGlocal.alignment(scoreMatch, scoreMismatch, synapseSize),
+							cached(GreedyGlocal.alignment(scoreMatch, scoreMismatch, synapseSize), "greedyglocal", scoreMatch, scoreMismatch, synapseSize),
 							crossoverN.read());
 				}
 //				case "randomlocal": {
@@ -166,7 +188,25 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 //				}
 				case "global": {
 					return GlobalAlignmentCross.<G>of(
-							Global.alignmentWithAffineGapScore(scoreMatch.read(), scoreMismatch.read(), scoreGapOpen.read(), scoreGapExtend.read()),
+							cached(Global.alignmentWithAffineGapScore(scoreMatch.read(), scoreMismatch.read(), scoreGapOpen.read(), scoreGapExtend.read()), "global", scoreMatch.read(), scoreMismatch.read(), scoreGapOpen.read(), scoreGapExtend.read()),
+							crossoverN.read()
+							);
+				}
+				case "global_fourrussians": {
+					return GlobalAlignmentCross.<G>of(
+							cached(Global.fourRussiansAlignmentWithAffineGapScore(scoreMatch.read(), scoreMismatch.read(), scoreGapOpen.read(), scoreGapExtend.read()), "global_fourrussians", scoreMatch.read(), scoreMismatch.read(), scoreGapOpen.read(), scoreGapExtend.read()),
+							crossoverN.read()
+							);
+				}
+				case "global_lcs": {
+					return GlobalAlignmentCross.<G>of(
+							cached(Global.longestCommonSubsequence(), "global_lcs"),
+							crossoverN.read()
+							);
+				}
+				case "global_edit": {
+					return GlobalAlignmentCross.<G>of(
+							cached(Global.editDistance(), "global_edit"),
 							crossoverN.read()
 							);
 				}
@@ -175,7 +215,18 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 					AlignmentRule<G> localAlign = Local.longestCommonSubstring();
 					VarOAlignmentRule<G> glocalAlign = Glocal.unorderedRepeatedLocal(localAlign, synapseSize);
 					return GlocalAlignmentCross.Unsegmented.<G>of(
-							glocalAlign,
+							cached(glocalAlign, "glocal_lcss", synapseSize),
+							crossoverN.read()
+							);
+				}
+				case "glocal_seed": {
+					int scoreMatch = this.scoreMatch.read();
+					int scoreMismatch = this.scoreMismatch.read();
+					int seedSize = this.seedSize.read();
+					int xDrop = this.xDrop.read();
+					int synapseSize = this.synapseSize.read();
+					return GlocalAlignmentCross.Unsegmented.<G>of(
+							cached(Glocal.seedAndExtend(scoreMatch, scoreMismatch, seedSize, xDrop, synapseSize), "glocal_seed", scoreMatch, scoreMismatch, seedSize, xDrop, synapseSize),
 							crossoverN.read()
 							);
 				}
@@ -188,7 +239,7 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 					AlignmentRule<G> localAlign = Local.alignmentWithAffineGapScore(scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend);
 					VarOAlignmentRule<G> glocalAlign = Glocal.unorderedRepeatedLocal(localAlign, synapseSize);
 					return GlocalAlignmentCross.Unsegmented.<G>of(
-							glocalAlign,
+							cached(glocalAlign, "glocal", scoreMatch, scoreMismatch, scoreGapOpen, scoreGapExtend, synapseSize),
 							crossoverN.read()
 							);
 				}
@@ -197,6 +248,30 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 				}
 			});
 
+	/**
+	 * The given alignment rule, using the {@link #alignmentCache} if its size (in MB) is positive.
+	 * @param parameters - Name and parameters of the alignment, see {@link AlignmentCache#of(AlignmentRule, Object...)}.
+	 */
+	AlignmentRule<G> cached(AlignmentRule<G> rule, Object... parameters) {
+		return this.alignmentCacheSize.read() > 0 ? this.alignmentCache.read().of(rule, parameters) : rule;
+	}
+
+	/**
+	 * @see #cached(AlignmentRule, Object...)
+	 * If the number of {@link #derivedAlignment}s to remember is positive, alignments that can be derived from the edit scripts added to it are not computed at all.
+	 */
+	VarOAlignmentRule<G> cached(VarOAlignmentRule<G> rule, Object... parameters) {
+		VarOAlignmentRule<G> result = this.alignmentCacheSize.read() > 0 ? this.alignmentCache.read().of(rule, parameters) : rule;
+		return this.derivedAlignmentSize.read() > 0 ? this.derivedAlignment.read().of(result) : result;
+	}
+
+	/**
+	 * The {@link #derivedAlignment} that alignment rules of the crossover are decorated with, if the number of alignments it remembers is positive.
+	 */
+	Optional<DerivedAlignment<G>> lineage() {
+		return this.derivedAlignmentSize.read() > 0 ? Optional.of(this.derivedAlignment.read()) : Optional.empty();
+	}
+
 	public final Option<Double> indelRate = option("indelRate", 0.002, Double::valueOf);
 	public final Option<Double> snpRate   = option("snpRate",   0.002, Double::valueOf);
 	public final Option<Double> transRate = option("transRate", 0.,    Double::valueOf);
@@ -488,6 +563,18 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 //		};
 
 	public final Option<Integer> genomeLength     = option("length", 1000, Integer::valueOf);
+	public final Option<IntFunction<CategoricalDistribution<BitGenome>>> storage = optionWithStringDefault("storage", "array", (optionValue) -> {
+		switch (optionValue) {
+		case "array":
+			return BitGenome::random;
+		case "packed":
+			return BitGenome::randomPacked;
+		case "persistent":
+			return BitGenome::randomPersistent;
+		default:
+			throw new IllegalArgumentException();
+		}
+	});
 	public final Option<BitGenome> consensusSequence = option("consensus", BitGenome.readUnsafe("110011"), BitGenome::readUnsafe);
 	public final Option<Integer> targetLength = option("targetLength", 16, Integer::valueOf);
 	public final Option<Integer> targetAmount = option("targetAmount", 1024, Integer::valueOf);
@@ -571,9 +658,12 @@ public abstract class BinaryCommandLineInterface<G extends BinaryGenome<G>> exte
 						return Substrings.ordered(targets);
 					}
 					case "string": {
-						Random rng = this.rng.read();
 						BitGenome target = this.targetString.read();
-						return StringMatch.of(target, Global.<BitGenome>alignmentWithAffineGapScore(0, -5, -6, -3).apply(rng)::score);
+						return StringMatch.of(target, Global.<BitGenome>scoreWithAffineGapScore(0, -5, -6, -3));
+						}
+					case "string_edit": {
+						BitGenome target = this.targetString.read();
+						return StringMatch.of(target, (BitGenome g, BitGenome t) -> -BitParallel.editDistance(g, t));
 						}
 //					case "train": {
 //						BitGenome consensus = this.consensusSequence.read();
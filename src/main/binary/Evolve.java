@@ -65,7 +65,7 @@ public class Evolve extends BinaryCommandLineInterface<BitGenome> {
 		settings.crossoverOperator    = this.crossover.read();
 		settings.crossoverProbability = this.crossoverProbability.read();
 		settings.initialPopulationSize = this.populationSize.read();
-		settings.initialPopulationSupplier = BitGenome.random(this.genomeLength.read())::apply;
+		settings.initialPopulationSupplier = this.storage.read().apply(this.genomeLength.read())::apply;
 		return settings;
 	});
 
@@ -89,6 +89,7 @@ public class Evolve extends BinaryCommandLineInterface<BitGenome> {
 				this.ga.next(skip);
 				this.report();
 			}
+			if (this.alignmentCacheSize.read() > 0) this.log(this.alignmentCache.read().toString());
 		}
 	}
 
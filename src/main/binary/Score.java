@@ -1,9 +1,11 @@
 package main.binary;
 
+import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.Random;
 import java.util.function.Function;
 
+import alignment.DerivedAlignment;
 import crossover.CrossoverRule;
 import crossover.score.CrossoverOutcome;
 import crossover.score.CrossoverScore;
@@ -50,6 +52,7 @@ public class Score extends BinaryCommandLineInterface<BitGenomeWithHistory> {
 		int cycles                  = this.cycles.read();
 		long seed                   = this.seed.read();
 		String stat                 = this.stat.read();
+		Optional<DerivedAlignment<BitGenomeWithHistory>> lineage = this.lineage();
 
 		Function<Random,? extends BitGenome> ancestorFactory = BitGenome.random(genomeLength);
 
@@ -60,7 +63,7 @@ public class Score extends BinaryCommandLineInterface<BitGenomeWithHistory> {
 			case "mean":
 			case "average": {
 				OptionalDouble result = Functional.randoms(seed)
-					.map(rng -> CrossoverOutcome.fromMutationOne(rng, crossoverRule, ancestorFactory, mutationRule))
+					.map(rng -> CrossoverOutcome.fromMutationOne(rng, crossoverRule, ancestorFactory, mutationRule, lineage))
 					.map(scoretype)
 					.limit(2*cycles)
 					.flatMapToDouble(opt -> opt.stream())
@@ -74,7 +77,7 @@ public class Score extends BinaryCommandLineInterface<BitGenomeWithHistory> {
 				int tries = 0;
 				int outputs = 0;
 				while (tries < 2*cycles && outputs < cycles) {
-					CrossoverOutcome crossover = CrossoverOutcome.fromMutationOne(rng, crossoverRule, ancestorFactory, mutationRule);
+					CrossoverOutcome crossover = CrossoverOutcome.fromMutationOne(rng, crossoverRule, ancestorFactory, mutationRule, lineage);
 					OptionalDouble score = scoretype.apply(crossover);
 					if (score.isPresent()) {
 						println(crossover.mutationStats.get().toStringOneLine() + "\t" + score.getAsDouble());
@@ -87,6 +90,7 @@ public class Score extends BinaryCommandLineInterface<BitGenomeWithHistory> {
 			default:
 				err("Illegal value for stat");
 			}
+			lineage.ifPresent((l) -> this.log(l.toString()));
 		}
 	}
 }
@@ -0,0 +1,289 @@
+package mutation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mutation.MutationStats.MutationType;
+
+/**
+ * The exact edits that mutation operators made to a genome, in the order they were made, see {@link MutationOp#mutateAndGetEditScript(Object)}.
+ * Each edit is given in the coordinates of the genome as it was just before that edit.
+ *
+ * Along with the edits, the script keeps track of which positions of the mutated genome (the "child") descend from which positions of the genome before the mutation (the "parent").
+ * This homology is held as "blocks" of consecutive positions that descend from consecutive positions of the parent, and each edit updates the blocks in time linear in their number.
+ * Substituted positions still descend from the parent. Inserted positions do not, and neither do the positions of an inversion, since alignments only pair positions in the same orientation.
+ */
+public final class EditScript {
+
+	/**
+	 * One edit of the genome.
+	 */
+	public static final class Edit {
+		public enum Kind { SUBSTITUTION, DELETION, INSERTION, TRANSLOCATION, INVERSION }
+
+		public final Kind kind;
+		public final MutationType type;
+		public final int locus;
+		public final int length;
+		/** Where a translocated segment is inserted after it was removed, or -1 for other kinds of edits. */
+		public final int target;
+
+		Edit(Kind kind, MutationType type, int locus, int length, int target) {
+			this.kind = kind;
+			this.type = type;
+			this.locus = locus;
+			this.length = length;
+			this.target = target;
+		}
+
+		@Override
+		public String toString() {
+			return this.type + "(" + this.kind + " " + this.locus + "+" + this.length + (this.target >= 0 ? "->" + this.target : "") + ")";
+		}
+	}
+
+	private final int originalSize;
+	private int size;
+	private final List<Edit> edits = new ArrayList<>();
+	private final Map<MutationType,Integer> sizes = new HashMap<>();
+
+	// Blocks in order of their position in the child: the child positions [children[i], children[i]+lengths[i]) descend from [parents[i], parents[i]+lengths[i]).
+	private int[] parents = new int[4];
+	private int[] children = new int[4];
+	private int[] lengths = new int[4];
+	private int count = 0;
+
+	/**
+	 * Script of a genome of the given size that has not been edited yet.
+	 */
+	public EditScript(int size) {
+		if (size < 0) throw new IllegalArgumentException("Genome size cannot be negative.");
+		this.originalSize = size;
+		this.size = size;
+		if (size > 0) this.insertAt(0, 0, 0, size);
+	}
+
+	/**
+	 * Size of the genome before the edits.
+	 */
+	public int originalSize() {
+		return this.originalSize;
+	}
+
+	/**
+	 * Size of the genome after the edits.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * The edits, in the order they were made.
+	 */
+	public List<Edit> edits() {
+		return Collections.unmodifiableList(this.edits);
+	}
+
+	/**
+	 * Total size of the recorded edits of the given mutation type, counted as in {@link MutationStats#size(MutationType)}.
+	 */
+	public int size(MutationType type) {
+		return this.sizes.getOrDefault(type, 0);
+	}
+
+	/**
+	 * Record the change of the value at the given position.
+	 */
+	public void substitute(MutationType type, int locus) {
+		this.check(locus, 1);
+		this.record(new Edit(Edit.Kind.SUBSTITUTION, type, locus, 1, -1));
+	}
+
+	/**
+	 * Record the removal of the positions [locus, locus+length).
+	 */
+	public void delete(MutationType type, int locus, int length) {
+		this.check(locus, length);
+		this.split(locus);
+		this.split(locus + length);
+		int kept = 0;
+		for (int i=0; i<count; i++) {
+			if (children[i] >= locus && children[i] < locus + length) continue;
+			this.set(kept++, parents[i], children[i] >= locus + length ? children[i] - length : children[i], lengths[i]);
+		}
+		this.count = kept;
+		this.size -= length;
+		this.merge();
+		this.record(new Edit(Edit.Kind.DELETION, type, locus, length, -1));
+	}
+
+	/**
+	 * Record the insertion of length new positions before the given locus.
+	 */
+	public void insert(MutationType type, int locus, int length) {
+		this.check(locus, 0);
+		if (length < 0) throw new IllegalArgumentException("Edit length cannot be negative.");
+		this.split(locus);
+		for (int i=0; i<count; i++) {
+			if (children[i] >= locus) children[i] += length;
+		}
+		this.size += length;
+		this.record(new Edit(Edit.Kind.INSERTION, type, locus, length, -1));
+	}
+
+	/**
+	 * Record the move of the positions [from, from+length) to position target, where target is a position of the genome after those positions were removed (as in {@link mutation.string.Translocation}).
+	 */
+	public void translocate(MutationType type, int from, int target, int length) {
+		this.check(from, length);
+		if (target < 0 || target > size - length) throw new IllegalArgumentException("Edit out of bounds.");
+		this.split(from);
+		this.split(from + length);
+		this.split(target < from ? target : target + length); // Where the segment is inserted, in the positions before it was removed
+		for (int i=0; i<count; i++) {
+			int child = children[i];
+			if (child >= from && child < from + length) {
+				children[i] = target + child - from;
+			} else {
+				if (child >= from + length) child -= length;
+				children[i] = child >= target ? child + length : child;
+			}
+		}
+		this.sort();
+		this.merge();
+		this.record(new Edit(Edit.Kind.TRANSLOCATION, type, from, length, target));
+	}
+
+	/**
+	 * Record the reversal of the positions [locus, locus+length).
+	 * These positions no longer descend from the parent, since they cannot be aligned with it in the same orientation.
+	 */
+	public void invert(MutationType type, int locus, int length) {
+		this.check(locus, length);
+		if (length > 1) {
+			this.split(locus);
+			this.split(locus + length);
+			int kept = 0;
+			for (int i=0; i<count; i++) {
+				if (children[i] >= locus && children[i] < locus + length) continue;
+				this.set(kept++, parents[i], children[i], lengths[i]);
+			}
+			this.count = kept;
+		}
+		this.record(new Edit(Edit.Kind.INVERSION, type, locus, length, -1));
+	}
+
+	/**
+	 * Number of blocks of positions that descend from consecutive positions of the parent.
+	 * The blocks are in order of their position in the child, and a block is never adjacent to the next block in both genomes.
+	 */
+	public int blockCount() {
+		return this.count;
+	}
+
+	/**
+	 * First position in the parent of the given block.
+	 */
+	public int blockParent(int block) {
+		return this.parents[block];
+	}
+
+	/**
+	 * First position in the child of the given block.
+	 */
+	public int blockChild(int block) {
+		return this.children[block];
+	}
+
+	public int blockLength(int block) {
+		return this.lengths[block];
+	}
+
+	@Override
+	public String toString() {
+		return this.edits.toString();
+	}
+
+	private void record(Edit edit) {
+		this.edits.add(edit);
+		this.sizes.merge(edit.type, edit.length, Integer::sum);
+	}
+
+	private void check(int locus, int length) {
+		if (length < 0) throw new IllegalArgumentException("Edit length cannot be negative.");
+		if (locus < 0 || locus + length > size) throw new IllegalArgumentException("Edit out of bounds.");
+	}
+
+	/**
+	 * Split the block that contains the given child position, if any, so that a block starts there.
+	 */
+	private void split(int child) {
+		for (int i=0; i<count; i++) {
+			if (children[i] < child && child < children[i] + lengths[i]) {
+				int first = child - children[i];
+				this.insertAt(i+1, parents[i] + first, child, lengths[i] - first);
+				lengths[i] = first;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Join each block with the next if they are adjacent in both genomes.
+	 */
+	private void merge() {
+		int kept = 0;
+		for (int i=0; i<count; i++) {
+			if (kept > 0 && parents[kept-1] + lengths[kept-1] == parents[i] && children[kept-1] + lengths[kept-1] == children[i]) {
+				lengths[kept-1] += lengths[i];
+			} else {
+				this.set(kept++, parents[i], children[i], lengths[i]);
+			}
+		}
+		this.count = kept;
+	}
+
+	/**
+	 * Put the blocks back in order of their position in the child.
+	 */
+	private void sort() {
+		Integer[] order = new Integer[count];
+		for (int i=0; i<count; i++) order[i] = i;
+		Arrays.sort(order, (i, j) -> Integer.compare(children[i], children[j]));
+		int[] p = new int[parents.length];
+		int[] c = new int[children.length];
+		int[] l = new int[lengths.length];
+		for (int i=0; i<count; i++) {
+			p[i] = parents[order[i]];
+			c[i] = children[order[i]];
+			l[i] = lengths[order[i]];
+		}
+		this.parents = p;
+		this.children = c;
+		this.lengths = l;
+	}
+
+	private void insertAt(int index, int parent, int child, int length) {
+		if (count == parents.length) {
+			parents = Arrays.copyOf(parents, 2*count);
+			children = Arrays.copyOf(children, 2*count);
+			lengths = Arrays.copyOf(lengths, 2*count);
+		}
+		System.arraycopy(parents, index, parents, index+1, count-index);
+		System.arraycopy(children, index, children, index+1, count-index);
+		System.arraycopy(lengths, index, lengths, index+1, count-index);
+		this.set(index, parent, child, length);
+		count++;
+	}
+
+	private void set(int index, int parent, int child, int length) {
+		parents[index] = parent;
+		children[index] = child;
+		lengths[index] = length;
+	}
+
+}
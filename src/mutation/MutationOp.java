@@ -3,6 +3,8 @@ package mutation;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 
+import genome.LinearGenome;
+
 /**
  * Functional interface for mutation operators.
  * A mutation operator is essentially a Consumer that modifies a Genome. The source of randomness is inaccessible at this layer (must be constructed through MutationRule).
@@ -44,6 +46,29 @@ public interface MutationOp<G> extends BiConsumer<G, Optional<MutationStats>> {
     	return stats;
     }
 
+    /**
+     * Perform this mutation, and also return the exact edits it made.
+     * The result is empty if a part of this mutation does not record its edits in {@link MutationStats#editScript()}.
+     * @throws IllegalArgumentException - If g is not a {@link LinearGenome}.
+     */
+    default Optional<EditScript> mutateAndGetEditScript(G g) {
+    	if (!(g instanceof LinearGenome)) throw new IllegalArgumentException("Edit scripts can only be recorded for linear genomes.");
+    	MutationStats stats = MutationStats.withEditScript(((LinearGenome<?>) g).size());
+    	this.accept(g, Optional.of(stats));
+    	return stats.completeEditScript(((LinearGenome<?>) g).size());
+    }
+
+    /**
+     * Same as {@link #mutateAndGetStats(Object)}, where the stats also record the exact edits made, see {@link MutationStats#completeEditScript(int)}.
+     * @throws IllegalArgumentException - If g is not a {@link LinearGenome}.
+     */
+    default Optional<MutationStats> mutateAndGetStatsWithEditScript(G g) {
+    	if (!(g instanceof LinearGenome)) throw new IllegalArgumentException("Edit scripts can only be recorded for linear genomes.");
+    	Optional<MutationStats> stats = this.newStats().map((s) -> MutationStats.withEditScript(((LinearGenome<?>) g).size()));
+    	this.accept(g, stats);
+    	return stats;
+    }
+
     default void mutate(G g) {
     	mutateAndGetStats(g);
     }
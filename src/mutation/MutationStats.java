@@ -2,6 +2,7 @@ package mutation;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -25,6 +26,44 @@ public class MutationStats {
 	
 	private Map<MutationType,Integer> sizes = new HashMap<>();
 	private Map<MutationType,Integer> times = new HashMap<>();
+	private final Optional<EditScript> editScript;
+	
+	public MutationStats() {
+		this.editScript = Optional.empty();
+	}
+	
+	private MutationStats(EditScript editScript) {
+		this.editScript = Optional.of(editScript);
+	}
+	
+	/**
+	 * Stats that also record the exact edits made to a genome of the given size, see {@link #editScript()}.
+	 */
+	public static MutationStats withEditScript(int size) {
+		return new MutationStats(new EditScript(size));
+	}
+	
+	/**
+	 * The script that mutation operators that know their exact edits record them in, if these stats were made {@link #withEditScript(int)}.
+	 * Operators record an edit in addition to adding its size to these stats.
+	 */
+	public Optional<EditScript> editScript() {
+		return this.editScript;
+	}
+	
+	/**
+	 * Whether every mutation added to these stats was also recorded in the edit script, i.e. whether the script holds all edits.
+	 */
+	public boolean isEditScriptComplete() {
+		return this.editScript.isPresent() && this.sizes.keySet().stream().allMatch((m) -> this.size(m) == this.editScript.get().size(m));
+	}
+	
+	/**
+	 * The edit script, if it holds all edits (see {@link #isEditScriptComplete()}) and leads to a genome of the given size, i.e. the size of the mutated genome.
+	 */
+	public Optional<EditScript> completeEditScript(int size) {
+		return this.isEditScriptComplete() && this.editScript.get().size() == size ? this.editScript : Optional.empty();
+	}
 	
 	public void add(MutationType mutationType, int size) {
 		this.sizes.compute(mutationType, (k, v) -> (v==null?0:v) + size);
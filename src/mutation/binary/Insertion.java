@@ -34,6 +34,7 @@ public final class Insertion {
     public static <G extends VarLengthGenome<G>> void perform(Optional<MutationStats> stats, G g, int locus, G seq) {
 		g.insert(locus, seq);
 		stats.ifPresent(s->s.add(Insertion.TYPE,seq.size()));
+		stats.flatMap(MutationStats::editScript).ifPresent(e->e.insert(Insertion.TYPE, locus, seq.size()));
 	}
 
 	
@@ -76,6 +77,7 @@ public final class Insertion {
 	public static <G extends BinaryGenome<G>> void perform(Random rng, Optional<MutationStats> stats, G g, int locus, int len) {
 		g.insertRandom(rng, locus, len);
 		stats.ifPresent(s->s.add(Insertion.TYPE,len));
+		stats.flatMap(MutationStats::editScript).ifPresent(e->e.insert(Insertion.TYPE, locus, len));
 	}
 
 }
@@ -26,7 +26,10 @@ public final class PointMutation {
     	return (rng) -> (g, stats) -> {
     		int n = Math.min(g.size(), ndist.apply(g).applyAsInt(rng));
             
-            rng.ints(0, g.size()).distinct().limit(n).forEach(g::flip);
+            rng.ints(0, g.size()).distinct().limit(n).forEach((i) -> {
+            	g.flip(i);
+            	stats.flatMap(MutationStats::editScript).ifPresent(e->e.substitute(PointMutation.TYPE, i));
+            });
             
             stats.ifPresent(s->s.add(PointMutation.TYPE,n));
     	};
@@ -45,7 +48,10 @@ public final class PointMutation {
     public static <G extends BinaryGenome<G>> MutationRule<G> repeatN(Function<G,DiscreteDistribution> ndist) {
         return (rng) -> (g, stats) -> {
         	int n = ndist.apply(g).applyAsInt(rng);
-            rng.ints(0, g.size()).limit(n).forEach(g::flip);
+            rng.ints(0, g.size()).limit(n).forEach((i) -> {
+            	g.flip(i);
+            	stats.flatMap(MutationStats::editScript).ifPresent(e->e.substitute(PointMutation.TYPE, i));
+            });
             
             stats.ifPresent(s->s.add(PointMutation.TYPE,n));
         };
@@ -58,6 +64,7 @@ public final class PointMutation {
 	public static void perform(MutationStats stats, BitGenome g, int i) {
 		g.flip(i);
 		stats.add(PointMutation.TYPE,1);
+		stats.editScript().ifPresent(e->e.substitute(PointMutation.TYPE, i));
 	}
     
 }
@@ -46,6 +46,7 @@ public final class Deletion {
 	public static <G extends VarLengthGenome<G>> void perform(Optional<MutationStats> stats, G g, int locus, int length) {
 		g.delete(locus, locus+length);
 		stats.ifPresent(s->s.add(Deletion.TYPE,length));
+		stats.flatMap(MutationStats::editScript).ifPresent(e->e.delete(Deletion.TYPE, locus, length));
 	}
 
 }
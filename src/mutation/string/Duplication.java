@@ -5,6 +5,7 @@ import java.util.function.Function;
 
 import genome.VarLengthGenome;
 import mutation.MutationRule;
+import mutation.MutationStats;
 import mutation.MutationStats.MutationType;
 import mutation.binary.Insertion;
 import util.Assert;
@@ -40,7 +41,9 @@ public final class Duplication {
 
 			Insertion.perform(Optional.empty(), g, start, seq); // ignore stats, replace with duplication
 			int finalLen = len;
+			int finalStart = start;
 			stats.ifPresent(s->s.add(Duplication.TYPE,finalLen));
+			stats.flatMap(MutationStats::editScript).ifPresent(e->e.insert(Duplication.TYPE, finalStart, finalLen));
 		};
 	}
 
@@ -39,6 +39,7 @@ public final class Inversion {
 			g.swap(start+i, start+len-i-1);
 		}
 		stats.ifPresent(s->s.add(Inversion.TYPE, len));
+		stats.flatMap(MutationStats::editScript).ifPresent(e->e.invert(Inversion.TYPE, start, len));
 	}
 
 }
@@ -47,6 +47,7 @@ public final class Translocation {
         g.insert(tolocus, seq);
 
     	stats.ifPresent(s->s.add(Translocation.TYPE,len));
+    	stats.flatMap(MutationStats::editScript).ifPresent(e->e.translocate(Translocation.TYPE, fromlocus, tolocus, len));
     }
 
 }
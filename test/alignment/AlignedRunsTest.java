@@ -0,0 +1,88 @@
+package alignment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.algorithms.Affine;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+import util.IntPair;
+
+class AlignedRunsTest extends BitGenomeInit {
+
+	@Test
+	public void testOf_mergesDiagonals() {
+		SortedSet<IntPair> pairs = new TreeSet<>(List.of(IntPair.of(0, 0), IntPair.of(1, 1), IntPair.of(2, 2), IntPair.of(4, 3), IntPair.of(5, 4)));
+		AlignedRuns runs = AlignedRuns.of(pairs);
+
+		assertEquals(2, runs.runCount());
+		assertEquals(3, runs.runLength(0));
+		assertEquals(4, runs.runA(1));
+		assertEquals(3, runs.runB(1));
+		assertEquals(pairs, runs);
+		assertSame(runs, AlignedRuns.of(runs));
+	}
+
+	@Test
+	public void testShifted() {
+		AlignedRuns runs = AlignedRuns.diagonal(2, 5, 4).shifted(-2, 1);
+
+		assertEquals(IntPair.of(0, 6), runs.first());
+		assertEquals(IntPair.of(3, 9), runs.last());
+		assertTrue(runs.contains(IntPair.of(1, 7)));
+		assertFalse(runs.contains(IntPair.of(3, 5)));
+	}
+
+	@Test
+	public void testBuilder_outOfOrder() {
+		assertThrows(IllegalArgumentException.class, () -> AlignedRuns.ascending().add(3, 3).add(2, 5));
+		assertThrows(IllegalArgumentException.class, () -> AlignedRuns.descending().add(3, 3).add(4, 1));
+	}
+
+	@RepeatedTest(20)
+	public void testSameAsTreeSet() {
+		SortedSet<IntPair> expected = new TreeSet<>();
+		for (int i=0; i<50; i++) expected.add(IntPair.of(rng.nextInt(20), rng.nextInt(20)));
+		AlignedRuns runs = AlignedRuns.of(expected);
+		List<IntPair> list = new ArrayList<>(expected);
+
+		assertEquals(list, new ArrayList<>(runs));
+		for (int i=0; i<list.size(); i++) {
+			assertEquals(list.get(i), runs.get(i));
+		}
+		for (int x=-1; x<=20; x++) {
+			for (int y=-1; y<=20; y++) {
+				assertEquals(expected.contains(IntPair.of(x, y)), runs.contains(IntPair.of(x, y)));
+			}
+		}
+		IntPair from = IntPair.of(5, rng.nextInt(20));
+		IntPair to = IntPair.of(15, rng.nextInt(20));
+		assertEquals(new ArrayList<>(expected.subSet(from, to)), new ArrayList<>(runs.subSet(from, to)));
+		assertEquals(new ArrayList<>(expected.headSet(to)), new ArrayList<>(runs.headSet(to)));
+		assertEquals(new ArrayList<>(expected.tailSet(from)), new ArrayList<>(runs.tailSet(from)));
+	}
+
+	@RepeatedTest(10)
+	public void testDescending_sameAsAscending() {
+		Alignment<BitGenome> alignment = Affine.NeedlemanWunsch.align(1, -1, -2, -1, rng, randomA, randomB);
+		AlignedRuns runs = alignment.getRuns();
+
+		AlignedRuns.Builder descending = AlignedRuns.descending();
+		for (IntPair pair : new TreeSet<>(runs).descendingSet()) descending.add(pair.x, pair.y);
+
+		assertEquals(new ArrayList<>(runs), new ArrayList<>(descending.build()));
+		assertTrue(runs.isMonotone());
+	}
+
+}
@@ -0,0 +1,95 @@
+package alignment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+
+class AlignmentCacheTest extends BitGenomeInit {
+
+	private static final AlignmentRule<BitGenome> GLOBAL = Global.alignmentWithAffineGapScore(1, -1, -2, -1);
+
+	@RepeatedTest(10)
+	public void testHit_sameAlignmentOfNewGenomes() {
+		AlignmentCache<BitGenome> cache = new AlignmentCache<>(1 << 20);
+		AlignmentOp<BitGenome> align = cache.of(GLOBAL, "global").apply(rng);
+
+		Alignment<BitGenome> first = align.apply(randomA, randomB);
+		BitGenome copyA = randomA.copy();
+		BitGenome copyB = randomB.copy();
+		Alignment<BitGenome> second = align.apply(copyA, copyB);
+
+		assertEquals(1, cache.hits());
+		assertEquals(1, cache.misses());
+		assertEquals(first.score, second.score);
+		assertEquals(first.getPairs(), second.getPairs());
+		assertSame(copyA, second.getA());
+		assertSame(copyB, second.getB());
+	}
+
+	@Test
+	public void testMiss_differentContentOrParameters() {
+		AlignmentCache<BitGenome> cache = new AlignmentCache<>(1 << 20);
+		cache.of(GLOBAL, "global").apply(rng).apply(randomA, randomB);
+
+		BitGenome mutated = randomB.copy();
+		mutated.flip(0);
+		cache.of(GLOBAL, "global").apply(rng).apply(randomA, mutated);
+		cache.of(GLOBAL, "global").apply(rng).apply(randomB, randomA);
+		cache.of(GLOBAL, "other").apply(rng).apply(randomA, randomB);
+		assertEquals(0, cache.hits());
+		assertEquals(4, cache.misses());
+
+		cache.of(GLOBAL, "global").apply(rng).apply(randomA, randomB);
+		assertEquals(1, cache.hits());
+	}
+
+	@Test
+	public void testVarO_hit() {
+		AlignmentCache<BitGenome> cache = new AlignmentCache<>(1 << 20);
+		VarOAlignmentRule<BitGenome> rule = cache.of(Glocal.seedAndExtend(1, -1, 16, 10, 10), "glocal_seed");
+
+		VarOAlignment<BitGenome> first = rule.apply(rng).apply(random1000A, random1000Aref);
+		VarOAlignment<BitGenome> second = rule.apply(rng).apply(random1000A.copy(), random1000Aref.copy());
+
+		assertEquals(1, cache.hits());
+		assertEquals(first.getSegments(), second.getSegments());
+	}
+
+	@Test
+	public void testEviction_leastRecentlyUsed() {
+		AlignmentOp<BitGenome> probe = GLOBAL.apply(rng);
+		long entryBytes = AlignmentCache.ENTRY_BYTES + AlignmentCache.SEGMENT_BYTES + AlignmentCache.RUN_BYTES * probe.apply(zeroes5, zeroes5).getRuns().runCount();
+		AlignmentCache<BitGenome> cache = new AlignmentCache<>(2 * entryBytes);
+		AlignmentOp<BitGenome> align = cache.of(GLOBAL, "global").apply(rng);
+
+		align.apply(zeroes5, zeroes5);
+		align.apply(ones5, ones5);
+		align.apply(zeroes5, zeroes5); // Now ones5 is the least recently used
+		align.apply(zeroes5.copy(), zeroes5.copy());
+		assertEquals(2, cache.size());
+		assertTrue(cache.bytes() <= 2 * entryBytes);
+
+		BitGenome zeroes4 = zeroes5.copy(0, 4);
+		align.apply(zeroes4, zeroes4);
+		assertEquals(1, cache.evictions());
+		assertEquals(2, cache.hits());
+
+		align.apply(zeroes5, zeroes5);
+		assertEquals(3, cache.hits());
+		align.apply(ones5, ones5);
+		assertEquals(3, cache.hits());
+	}
+
+	@Test
+	public void testInvalidSize() {
+		assertThrows(IllegalArgumentException.class, () -> new AlignmentCache<BitGenome>(-1));
+	}
+
+}
@@ -0,0 +1,101 @@
+package alignment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import crossover.CrossoverRule;
+import crossover.binary.GlocalAlignmentCross;
+import crossover.score.CrossoverOutcome;
+import genome.binary.BitGenomeWithHistory;
+import genome.binary.BitGenomeWithHistoryInit;
+import mutation.EditScript;
+import mutation.MutationRule;
+import mutation.binary.InDel;
+import mutation.binary.PointMutation;
+import mutation.string.Translocation;
+
+class DerivedAlignmentTest extends BitGenomeWithHistoryInit {
+
+	private static final MutationRule<BitGenomeWithHistory> MUTATION = MutationRule.compose(List.of(
+			PointMutation.<BitGenomeWithHistory>repeatN(10),
+			InDel.<BitGenomeWithHistory>withSize((g) -> (r) -> 1 + r.nextInt(20)).repeatN(5),
+			Translocation.<BitGenomeWithHistory>withSize((g) -> (r) -> 1 + r.nextInt(100))));
+
+	private static final VarOAlignmentRule<BitGenomeWithHistory> PERFECT = (rng) -> PerfectAlignment::alignFromHistory;
+
+	private BitGenomeWithHistory mutant() {
+		BitGenomeWithHistory result = random1000A.copy();
+		MUTATION.apply(rng).mutate(result);
+		return result;
+	}
+
+	@RepeatedTest(20)
+	public void testDerive_sameAsHistory() {
+		BitGenomeWithHistory other = this.mutant();
+		BitGenomeWithHistory child = random1000A.copy();
+		EditScript script = MUTATION.apply(rng).mutateAndGetEditScript(child).get();
+
+		VarOAlignment<BitGenomeWithHistory> derived = DerivedAlignment.derive(PerfectAlignment.alignFromHistory(random1000A, other), script, child);
+
+		assertEquals(new TreeSet<>(PerfectAlignment.alignFromHistory(child, other).getPairs()), new TreeSet<>(derived.getPairs()));
+	}
+
+	@RepeatedTest(20)
+	public void testHomology_sameSegmentsAsHistory() {
+		// After a translocation the segments must not interleave, as for the crossovers that use them
+		BitGenomeWithHistory child = random1000A.copy();
+		EditScript script = MUTATION.apply(rng).mutateAndGetEditScript(child).get();
+
+		assertEquals(PerfectAlignment.alignFromHistory(random1000A, child).getSegments(), DerivedAlignment.homology(script, random1000A, child).getSegments());
+	}
+
+	@RepeatedTest(10)
+	public void testDecorator_derivesChildren() {
+		DerivedAlignment<BitGenomeWithHistory> lineage = new DerivedAlignment<>(100);
+		VarOAlignmentOp<BitGenomeWithHistory> align = lineage.of(PERFECT).apply(rng);
+		BitGenomeWithHistory other = this.mutant();
+		align.apply(random1000A, other);
+
+		BitGenomeWithHistory childA = random1000A.copy();
+		lineage.addChild(random1000A, childA, MUTATION.apply(rng).mutateAndGetEditScript(childA).get());
+		BitGenomeWithHistory childB = other.copy();
+		lineage.addChild(other, childB, MUTATION.apply(rng).mutateAndGetEditScript(childB).get());
+
+		assertEquals(new TreeSet<>(PerfectAlignment.alignFromHistory(childA, childB).getPairs()), new TreeSet<>(align.apply(childA, childB).getPairs()));
+		assertEquals(new TreeSet<>(PerfectAlignment.alignFromHistory(random1000A, childB).getPairs()), new TreeSet<>(align.apply(random1000A, childB).getPairs()));
+		assertEquals(new TreeSet<>(PerfectAlignment.alignFromHistory(childA, random1000A).getPairs()), new TreeSet<>(align.apply(childA, random1000A).getPairs()));
+		align.apply(childA.copy(), childB.copy());
+
+		assertEquals(1, lineage.computed());
+		assertEquals(3, lineage.derived());
+		assertEquals(1, lineage.reused());
+	}
+
+	@RepeatedTest(10)
+	public void testCrossoverOutcome_alignsParentsFromScript() {
+		DerivedAlignment<BitGenomeWithHistory> lineage = new DerivedAlignment<>(100);
+		VarOAlignmentRule<BitGenomeWithHistory> computed = (rng) -> (a, b) -> { throw new AssertionError("Parents should not be aligned from scratch"); };
+		CrossoverRule<BitGenomeWithHistory> crossover = GlocalAlignmentCross.Unsegmented.of(lineage.of(computed), CrossoverRule.N.UNIFORM);
+
+		CrossoverOutcome outcome = CrossoverOutcome.fromMutationOne(rng, crossover, random1000A, MUTATION, Optional.of(lineage));
+
+		assertTrue(outcome.mutationStats.get().isEditScriptComplete());
+		assertEquals(0, lineage.computed());
+		assertEquals(1, lineage.derived());
+	}
+
+	@Test
+	public void testAddChild_mismatchedScript() {
+		assertThrows(IllegalArgumentException.class, () -> new DerivedAlignment<BitGenomeWithHistory>(10).addChild(random1000A, random1000A, new EditScript(999)));
+		assertTrue(DerivedAlignment.homology(new EditScript(0), random1000A, random1000A).getSegments().isEmpty());
+	}
+
+}
@@ -1,6 +1,9 @@
 package alignment.algorithms;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.RepeatedTest;
@@ -144,4 +147,50 @@ class AffineTest extends BitGenomeInit {
     	assertEquals(1, a.getPairs().size());
     }
 
+    @Test
+    public void testScoreBound_narrowCells() {
+    	assertTrue(AffineMatrix.fitsShort(Short.MAX_VALUE - 1));
+    	assertFalse(AffineMatrix.fitsShort(Short.MAX_VALUE));
+    }
+
+    @Test
+    public void testMatrix_tooLarge() {
+    	assertThrows(IllegalArgumentException.class, () -> AffineMatrix.grab(100001, 100001, 0, 100000, 100000));
+    	assertThrows(IllegalArgumentException.class, () -> AffineMatrix.grab(40001, 40001, 0, 40000, 40000)); // Fits one plane, but not all three
+    }
+    
+    @RepeatedTest(20)
+    public void testNeedlemanWunsch_wideCells_sameScore() {
+    	// Scores too large for 16-bit cells give the same alignment scores, scaled
+    	Alignment<BitGenome> narrow = Affine.NeedlemanWunsch.align(1, -1, -2, -1, rng, random1000A, random1000B);
+    	Alignment<BitGenome> wide = Affine.NeedlemanWunsch.align(1000, -1000, -2000, -1000, rng, random1000A, random1000B);
+    	
+    	assertEquals(1000 * narrow.score, wide.score);
+    }
+    
+    @RepeatedTest(20)
+    public void testSmithWaterman_wideCells_sameScore() {
+    	Alignment<BitGenome> narrow = Affine.SmithWaterman.align(1, -1, -2, -1, rng, random1000A, random1000B);
+    	Alignment<BitGenome> wide = Affine.SmithWaterman.align(1000, -1000, -2000, -1000, rng, random1000A, random1000B);
+    	
+    	assertEquals(1000 * narrow.score, wide.score);
+    }
+    
+    @RepeatedTest(20)
+    public void testNeedlemanWunsch_scoreOnly_sameScore() {
+    	for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+    	random1000A.delete(300, 310);
+    	
+    	assertEquals(Affine.NeedlemanWunsch.align(0, -5, -6, -3, rng, random1000A, random1000Aref).score, Affine.NeedlemanWunsch.score(0, -5, -6, -3, random1000A, random1000Aref));
+    	assertEquals(Affine.NeedlemanWunsch.align(1, -1, -2, -1, rng, randomA, randomB).score, Affine.NeedlemanWunsch.score(1, -1, -2, -1, randomA, randomB));
+    	assertEquals(Affine.NeedlemanWunsch.align(1, -1, -2, -1, rng, randomB, randomA).score, Affine.NeedlemanWunsch.score(1, -1, -2, -1, randomB, randomA));
+    }
+    
+    @RepeatedTest(20)
+    public void testSmithWaterman_scoreOnly_sameScore() {
+    	assertEquals(Affine.SmithWaterman.align(1, -1, -2, -1, rng, random1000A, random1000B).score, Affine.SmithWaterman.score(1, -1, -2, -1, random1000A, random1000B));
+    	assertEquals(Affine.SmithWaterman.align(1, -1, -2, -1, rng, randomA, randomB).score, Affine.SmithWaterman.score(1, -1, -2, -1, randomA, randomB));
+    	assertEquals(Affine.SmithWaterman.align(1, -1, -2, -1, rng, randomB, randomA).score, Affine.SmithWaterman.score(1, -1, -2, -1, randomB, randomA));
+    }
+
 }
@@ -0,0 +1,75 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.Alignment;
+import alignment.AlignmentOp;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+
+class BandedTest extends BitGenomeInit {
+
+    public AlignmentOp<BitGenome> defaultbanded;
+    public AlignmentOp<BitGenome> defaultnw;
+
+    @BeforeEach
+    public void setUpDefaultAlign() {
+    	defaultbanded = (a, b) -> Banded.globalAlign(1, -1, -2, -1, 4, rng, a, b);
+    	defaultnw = (a, b) -> Affine.NeedlemanWunsch.align(1, -1, -2, -1, rng, a , b);
+    }
+
+    @Test
+    public void testBanded_identical_zeroes() {
+        Alignment<BitGenome> a = defaultbanded.apply(zeroes5, zeroes5);
+
+        assertEquals(zeroes5.size(), a.score);
+        assertEquals(zeroes5.size(), a.getPairs().size());
+    }
+
+    @RepeatedTest(10)
+    public void testBanded_onedel_random() {
+        int i=500;
+        random1000A.delete(i, i+1);
+        Alignment<BitGenome> a = defaultbanded.apply(random1000A, random1000Aref);
+
+        assertEquals(random1000Aref.size()-3, a.score); // Missing 1 match and -2 for gap
+        assertEquals(random1000A.size(), a.getPairs().size());
+    }
+
+    @RepeatedTest(10)
+    public void testBanded_sameScoreAsNeedlemanWunsch_related() {
+        random1000A.delete(100, 110);
+        random1000A.insert(700, randomA.view(0, 5));
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+
+        assertEquals(defaultnw.apply(random1000A, random1000Aref).score, defaultbanded.apply(random1000A, random1000Aref).score);
+    }
+
+    @RepeatedTest(10)
+    public void testBanded_widensToFullMatrix() {
+        // A band as wide as the matrix gives exactly the unbanded alignment
+        long seed = rng.nextLong();
+        Alignment<BitGenome> nw = Affine.NeedlemanWunsch.align(1, -1, -2, -1, new Random(seed), randomA, randomB);
+        Alignment<BitGenome> banded = Banded.globalAlign(1, -1, -2, -1, randomA.size() + randomB.size(), new Random(seed), randomA, randomB);
+        assertEquals(nw.score, banded.score);
+        assertEquals(nw.getPairs(), banded.getPairs());
+
+        Alignment<BitGenome> sw = Affine.SmithWaterman.align(1, -1, -2, -1, new Random(seed), randomA, randomB);
+        Alignment<BitGenome> bandedLocal = Banded.localAlign(1, -1, -2, -1, randomA.size() + randomB.size(), new Random(seed), randomA, randomB);
+        assertEquals(sw.score, bandedLocal.score);
+        assertEquals(sw.getPairs(), bandedLocal.getPairs());
+    }
+
+    @Test
+    public void testBanded_negativeWidth() {
+        assertThrows(IllegalArgumentException.class, () -> Banded.globalAlign(1, -1, -2, -1, -1, rng, randomA, randomB));
+    }
+
+}
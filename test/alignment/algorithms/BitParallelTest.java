@@ -0,0 +1,77 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.Alignment;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+import util.IntPair;
+
+class BitParallelTest extends BitGenomeInit {
+
+    @Test
+    public void testEditDistance_fixed() {
+        assertEquals(0, BitParallel.editDistance(g11011, g11011ref));
+        assertEquals(5, BitParallel.editDistance(zeroes5, ones5));
+        assertEquals(5, BitParallel.editDistance(zeroes5, BitGenome.of()));
+        assertEquals(1, BitParallel.editDistance(g11011, BitGenome.readUnsafe("1111")));
+    }
+
+    @Test
+    public void testLcsLength_fixed() {
+        assertEquals(0, BitParallel.lcsLength(zeroes5, ones5));
+        assertEquals(4, BitParallel.lcsLength(g11011, ones5));
+        assertEquals(0, BitParallel.lcsLength(zeroes5, BitGenome.of()));
+    }
+
+    @RepeatedTest(20)
+    public void testEditDistance_sameAsNeedlemanWunsch() {
+        // Edit distance is global alignment with match 0 and all other steps -1
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        random1000A.delete(300, 310);
+
+        assertEquals(-Affine.NeedlemanWunsch.align(0, -1, -1, -1, rng, random1000A, random1000Aref).score, BitParallel.editDistance(random1000A, random1000Aref));
+        assertEquals(-Affine.NeedlemanWunsch.align(0, -1, -1, -1, rng, randomA, randomB).score, BitParallel.editDistance(randomA, randomB));
+    }
+
+    @RepeatedTest(20)
+    public void testLcsLength_sameAsNeedlemanWunsch() {
+        assertEquals(Affine.NeedlemanWunsch.align(1, 0, 0, 0, rng, random1000A, random1000B).score, BitParallel.lcsLength(random1000A, random1000B));
+    }
+
+    @RepeatedTest(20)
+    public void testAlignEditDistance_rescore() {
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        random1000A.delete(300, 310);
+        Alignment<BitGenome> alignment = BitParallel.alignEditDistance(rng, random1000A, random1000Aref);
+
+        int cost = 0;
+        int lastA = -1;
+        int lastB = -1;
+        for (IntPair pair : alignment.getPairs()) {
+            cost += (pair.x - lastA - 1) + (pair.y - lastB - 1);
+            if (random1000A.get(pair.x) != random1000Aref.get(pair.y)) cost++;
+            lastA = pair.x;
+            lastB = pair.y;
+        }
+        cost += (random1000A.size() - lastA - 1) + (random1000Aref.size() - lastB - 1);
+
+        assertEquals(BitParallel.editDistance(random1000A, random1000Aref), -alignment.score);
+        assertEquals(-alignment.score, cost);
+    }
+
+    @RepeatedTest(20)
+    public void testAlignLcs_pairsMatch() {
+        Alignment<BitGenome> alignment = BitParallel.alignLcs(rng, random1000A, random1000B);
+
+        assertEquals(alignment.score, alignment.getPairs().size());
+        for (IntPair pair : alignment.getPairs()) {
+            assertTrue(random1000A.get(pair.x) == random1000B.get(pair.y));
+        }
+    }
+
+}
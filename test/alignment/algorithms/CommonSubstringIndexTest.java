@@ -0,0 +1,68 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.Alignment;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+import util.IntPair;
+
+class CommonSubstringIndexTest extends BitGenomeInit {
+
+    private static int bruteForceLength(BitGenome a, int aStart, int aEnd, BitGenome b, int bStart, int bEnd) {
+        int best = 0;
+        for (int i=aStart; i<aEnd; i++) for (int j=bStart; j<bEnd; j++) {
+            int length = 0;
+            while (i+length < aEnd && j+length < bEnd && a.get(i+length) == b.get(j+length)) length++;
+            best = Math.max(best, length);
+        }
+        return best;
+    }
+
+    @Test
+    public void testLongest_fixed() {
+        assertEquals(5, CommonSubstringIndex.of(g11011, g11011ref).longest(rng).score);
+        assertEquals(0, CommonSubstringIndex.of(zeroes5, ones5).longest(rng).score);
+        assertEquals(0, CommonSubstringIndex.of(zeroes5, BitGenome.of()).longest(rng).getPairs().size());
+        assertEquals(2, CommonSubstringIndex.of(g11011, ones5).longest(rng).score);
+    }
+
+    @RepeatedTest(20)
+    public void testLongest_sameAsGapless() {
+        assertEquals(
+            Gapless.align(rng, 1, -random1000A.size()-random1000B.size(), random1000A, random1000B).score,
+            CommonSubstringIndex.of(random1000A, random1000B).longest(rng).score);
+    }
+
+    @RepeatedTest(20)
+    public void testLongestInRange_bruteForce() {
+        CommonSubstringIndex<BitGenome> index = CommonSubstringIndex.of(randomA, randomB);
+        for (int i=0; i<20; i++) {
+            int aStart = rng.nextInt(randomA.size());
+            int aEnd = aStart + rng.nextInt(randomA.size() - aStart + 1);
+            int bStart = rng.nextInt(randomB.size());
+            int bEnd = bStart + rng.nextInt(randomB.size() - bStart + 1);
+            Alignment<BitGenome> alignment = index.longestInRange(rng, aStart, aEnd, bStart, bEnd);
+
+            assertEquals(bruteForceLength(randomA, aStart, aEnd, randomB, bStart, bEnd), alignment.score);
+            assertEquals(alignment.score, alignment.getPairs().size());
+            for (IntPair pair : alignment.getPairs()) {
+                assertTrue(aStart <= pair.x && pair.x < aEnd && bStart <= pair.y && pair.y < bEnd);
+                assertEquals(randomA.get(pair.x), randomB.get(pair.y));
+                assertEquals(pair.x - alignment.getPairs().first().x, pair.y - alignment.getPairs().first().y);
+            }
+        }
+    }
+
+    @Test
+    public void testLongestInRange_outOfBounds() {
+        CommonSubstringIndex<BitGenome> index = CommonSubstringIndex.of(zeroes5, ones5);
+        assertThrows(IllegalArgumentException.class, () -> index.longestInRange(rng, 0, 6, 0, 5));
+    }
+
+}
@@ -0,0 +1,99 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.Alignment;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+import util.IntPair;
+
+class FourRussiansTest extends BitGenomeInit {
+
+    @Test
+    public void testSupports() {
+        assertTrue(FourRussians.supports(randomA, randomB, 0, -1, -1, -1));
+        assertTrue(FourRussians.supports(randomA, randomB, 1, -5, -3, -3));
+        assertFalse(FourRussians.supports(randomA, randomB, 1, -5, -20, -3));
+        assertFalse(FourRussians.supports(randomA, randomB, 1, -1, 0, 0));
+        assertFalse(FourRussians.supports(randomA, randomB, 1, -1, -50, -50));
+        assertThrows(IllegalArgumentException.class, () -> FourRussians.score(1, -1, -2, -1, randomA, randomB));
+    }
+
+    @Test
+    public void testBlockSize() {
+        assertEquals(3, FourRussians.blockSize(0, -1));
+        assertEquals(2, FourRussians.blockSize(1, -3));
+    }
+
+    @Test
+    public void testTable_computedOnce() {
+        assertSame(FourRussians.table(0, -1, -1), FourRussians.table(0, -1, -1));
+    }
+
+    @Test
+    public void testScore_fixed() {
+        assertEquals(0, FourRussians.score(0, -1, -1, -1, zeroes5, zeroes5));
+        assertEquals(-5, FourRussians.score(0, -1, -1, -1, zeroes5, ones5));
+        assertEquals(-5, FourRussians.score(0, -1, -1, -1, zeroes5, BitGenome.of()));
+        assertEquals(-1, FourRussians.score(0, -1, -1, -1, g11011, BitGenome.readUnsafe("1111")));
+    }
+
+    @RepeatedTest(10)
+    public void testScore_sameAsNeedlemanWunsch() {
+        BitGenome odd = random1000B.copy(0, 997);
+        assertEquals(Affine.NeedlemanWunsch.score(0, -1, -1, -1, randomA, randomB), FourRussians.score(0, -1, -1, -1, randomA, randomB));
+        assertEquals(Affine.NeedlemanWunsch.score(0, -1, -1, -1, random1000A, odd), FourRussians.score(0, -1, -1, -1, random1000A, odd));
+        assertEquals(Affine.NeedlemanWunsch.score(1, -1, -2, -2, odd, random1000A), FourRussians.score(1, -1, -2, -2, odd, random1000A));
+        assertEquals(Affine.NeedlemanWunsch.score(1, -5, -3, -3, random1000A, random1000B), FourRussians.score(1, -5, -3, -3, random1000A, random1000B));
+    }
+
+    @RepeatedTest(10)
+    public void testAlign_rescore() {
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        random1000A.delete(300, 310);
+        random1000A.insert(700, randomA);
+        Alignment<BitGenome> alignment = FourRussians.align(1, -1, -2, -2, rng, random1000A, random1000Aref);
+
+        int score = 0;
+        int lastx = -1;
+        int lasty = -1;
+        for (IntPair pair : alignment.getPairs()) {
+            score += -2 * (pair.x - lastx - 1) - 2 * (pair.y - lasty - 1);
+            score += random1000A.get(pair.x) == random1000Aref.get(pair.y) ? 1 : -1;
+            lastx = pair.x;
+            lasty = pair.y;
+        }
+        score += -2 * (random1000A.size() - lastx - 1) - 2 * (random1000Aref.size() - lasty - 1);
+
+        assertEquals(Affine.NeedlemanWunsch.score(1, -1, -2, -2, random1000A, random1000Aref), alignment.score);
+        assertEquals(alignment.score, score);
+    }
+
+    @RepeatedTest(20)
+    public void testAlign_shortAgainstLong() {
+        // The best split of the middle row is then often at the edge of b, leaving an empty section
+        BitGenome shortB = random1000B.copy(0, 1 + rng.nextInt(30));
+        BitGenome longA = randomlong.copy(0, 100 + rng.nextInt(3000));
+
+        assertEquals(Affine.NeedlemanWunsch.score(0, -1, -1, -1, longA, shortB), FourRussians.align(0, -1, -1, -1, rng, longA, shortB).score);
+        assertEquals(Affine.NeedlemanWunsch.score(0, -1, -1, -1, shortB, longA), FourRussians.align(0, -1, -1, -1, rng, shortB, longA).score);
+        assertEquals(-3 * longA.size(), FourRussians.align(1, -5, -3, -3, rng, longA, BitGenome.of()).score);
+        assertEquals(0, FourRussians.align(1, -5, -3, -3, rng, longA, BitGenome.of()).getPairs().size());
+    }
+
+    @RepeatedTest(10)
+    public void testAlign_identical() {
+        Alignment<BitGenome> alignment = FourRussians.align(0, -1, -1, -1, rng, random1000A, random1000Aref);
+
+        assertEquals(0, alignment.score);
+        assertEquals(random1000A.size(), alignment.getPairs().size());
+    }
+
+}
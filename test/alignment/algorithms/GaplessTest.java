@@ -128,5 +128,25 @@ class GaplessTest extends BitGenomeInit {
     	assertEquals(withAffine.getScore(), withGapless.getScore());
     	// Can't guarantee equality of alignment because randomness if multiple equivalent choices
     }
+    
+    @RepeatedTest(20)
+    public void testLocal_compareToAffine_multipleWords() {
+    	// Genomes spanning many words, with long runs of matches, to exercise the packed comparison
+    	for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+    	int infinity = random1000A.size() + random1000Aref.size();
+    	Alignment<BitGenome> withGapless = local.apply(random1000A, random1000Aref.view(3, random1000Aref.size()));
+    	Alignment<BitGenome> withAffine = Affine.SmithWaterman.align(1, -2, -infinity, 0, rng, random1000A, random1000Aref.view(3, random1000Aref.size()));
+    	
+    	assertEquals(withAffine.getScore(), withGapless.getScore());
+    }
+    
+    @RepeatedTest(20)
+    public void testScore_sameAsAlign() {
+    	for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+    	
+    	assertEquals(local.apply(random1000A, random1000Aref).score, Gapless.score(1, -2, random1000A, random1000Aref));
+    	assertEquals(local.apply(randomA, randomB).score, Gapless.score(1, -2, randomA, randomB));
+    	assertEquals(Gapless.align(rng, 3, -2, randomB, randomA).score, Gapless.score(3, -2, randomB, randomA));
+    }
 
 }
@@ -0,0 +1,201 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.algorithms.GreedyGlocal.ScoreMatrix;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+import util.IntPair;
+
+class GreedyGlocalTest extends BitGenomeInit {
+
+    /**
+     * Genome made of shuffled and mutated blocks of another, so that local alignments overlap each other.
+     */
+    private BitGenome shuffled(BitGenome a) {
+        BitGenome b = a.copy(150, 300);
+        b.append(a.copy(0, 80));
+        b.append(BitGenome.random(40).apply(rng));
+        b.append(a.copy(60, 150));
+        for (int i=0; i<10; i++) b.flip(rng.nextInt(b.size()));
+        return b;
+    }
+
+    private static int[][] copy(ScoreMatrix score) {
+        int[][] result = new int[score.rows][score.cols];
+        for (int iA=0; iA<score.rows; iA++) {
+            for (int iB=0; iB<score.cols; iB++) {
+                result[iA][iB] = score.get(iA, iB);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Highest score in the matrix, ignoring the initial row and column.
+     */
+    private static int scanMax(ScoreMatrix score) {
+        int max = 0;
+        for (int iA=1; iA<score.rows; iA++) {
+            for (int iB=1; iB<score.cols; iB++) {
+                max = Math.max(max, score.get(iA, iB));
+            }
+        }
+        return max;
+    }
+
+    private static void assertDiagonalsUpToDate(ScoreMatrix score) {
+        for (int iA0=0, iB0=score.cols-1; iB0>=0 && iA0<score.rows; ) {
+            int max = 0;
+            int count = 0;
+            for (int iA=Math.max(1, iA0), iB=iA-iA0+iB0; iA<score.rows && iB<score.cols; iA++, iB++) {
+                if (iB == 0) continue;
+                int value = score.get(iA, iB);
+                if (value > max) {
+                    max = value;
+                    count = 1;
+                } else if (value == max) {
+                    count++;
+                }
+            }
+            int diagonal = score.diagonal(iA0, iB0);
+            assertEquals(max, score.diagonalMax(diagonal));
+            assertEquals(count, score.diagonalCount(diagonal));
+            if (iB0 > 0) iB0--; else iA0++;
+        }
+    }
+
+    /**
+     * Penalty for overlap on one whole diagonal, without skipping the parts outside of the segment's rows and columns.
+     */
+    private static void updateDiagonal(int[][] score, int diag, IntPair segmentStart, IntPair segmentEnd, int sizeA, int sizeB) {
+        int overlapOnAStartOnB = Integer.MAX_VALUE;
+        int overlapOnBStartOnA = Integer.MAX_VALUE;
+        int overlapAccum = 0;
+
+        for (int iA = diag >= 0 ? diag+1 : 1, iB = iA - diag; iA <= sizeA && iB <= sizeB; iA++, iB++) {
+            boolean overlappingOnA = iA >= segmentStart.x && iA <= segmentEnd.x;
+            boolean overlappingOnB = iB >= segmentStart.y && iB <= segmentEnd.y;
+
+            if (overlappingOnA) {
+                int overlapIndexOnB = segmentStart.y + (iA - segmentStart.x);
+                if (iA < overlapOnBStartOnA || (overlappingOnB && overlapIndexOnB > iB)) {
+                    int overlapCost = score[iA][overlapIndexOnB] - score[iA-1][overlapIndexOnB-1];
+                    if (overlapCost > 0) overlapAccum += overlapCost;
+                }
+                if (overlapOnAStartOnB == Integer.MAX_VALUE) overlapOnAStartOnB = overlapIndexOnB;
+            }
+
+            if (overlappingOnB) {
+                int overlapIndexOnA = segmentStart.x + (iB - segmentStart.y);
+                if (iB < overlapOnAStartOnB || (overlappingOnA && overlapIndexOnA > iA)) {
+                    int overlapCost = score[overlapIndexOnA][iB] - score[overlapIndexOnA-1][iB-1];
+                    if (overlapCost > 0) overlapAccum += overlapCost;
+                }
+                if (overlapOnBStartOnA == Integer.MAX_VALUE) overlapOnBStartOnA = overlapIndexOnA;
+            }
+
+            int newCost = score[iA][iB] - overlapAccum;
+            if (newCost <= 0) {
+                newCost = 0;
+                overlapAccum = score[iA][iB];
+                overlapOnAStartOnB = Integer.MAX_VALUE;
+                overlapOnBStartOnA = Integer.MAX_VALUE;
+            }
+            score[iA][iB] = newCost;
+        }
+    }
+
+    /**
+     * Take the best segment out of the matrix, and check the result against updating every diagonal in full.
+     * Returns the score of the segment that was removed.
+     */
+    private int removeBestAndCompare(ScoreMatrix score, BitGenome a, BitGenome b) {
+        IntPair segmentEnd = score.findmax(rng);
+        int segmentScore = score.get(segmentEnd.x, segmentEnd.y);
+        assertEquals(scanMax(score), segmentScore);
+        IntPair segmentStart = GreedyGlocal.traceback(score, segmentEnd);
+
+        int[][] expected = copy(score);
+        int thisdiag = segmentStart.x - segmentStart.y;
+        for (int diag = -b.size()+1; diag < a.size(); diag++) {
+            if (diag != thisdiag) updateDiagonal(expected, diag, segmentStart, segmentEnd, a.size(), b.size());
+        }
+        updateDiagonal(expected, thisdiag, segmentStart, segmentEnd, a.size(), b.size());
+
+        GreedyGlocal.removeSegment(score, segmentStart, segmentEnd, a, b);
+
+        assertTrue(Arrays.deepEquals(expected, copy(score)));
+        assertDiagonalsUpToDate(score);
+        return segmentScore;
+    }
+
+    @Test
+    public void testLongHeap() {
+        GreedyGlocal.LongHeap heap = new GreedyGlocal.LongHeap(1);
+        long[] values = rng.longs(500, 0, 100).toArray();
+        for (long value : values) heap.add(value);
+
+        Arrays.sort(values);
+        for (int i=values.length-1; i>=0; i--) assertEquals(values[i], heap.poll());
+        assertTrue(heap.isEmpty());
+        assertThrows(IllegalStateException.class, () -> heap.peek());
+    }
+
+    @Test
+    public void testMatrix_tooLarge() {
+        assertThrows(IllegalArgumentException.class, () -> new ScoreMatrix(100001, 100001));
+    }
+
+    @RepeatedTest(10)
+    public void testFindmax_sameAsScan() {
+        ScoreMatrix score = GreedyGlocal.localAlignmentMatrix(1, -1, random1000A, random1000B);
+        assertDiagonalsUpToDate(score);
+
+        int max = scanMax(score);
+        for (int i=0; i<20; i++) {
+            IntPair found = score.findmax(rng);
+            assertEquals(max, score.get(found.x, found.y));
+            assertTrue(found.x > 0 && found.y > 0);
+        }
+        score.release();
+    }
+
+    @Test
+    public void testFindmax_emptyMatrix() {
+        ScoreMatrix score = GreedyGlocal.localAlignmentMatrix(1, -1, zeroes5, ones5);
+        IntPair found = score.findmax(rng);
+        assertEquals(0, score.get(found.x, found.y));
+        score.release();
+    }
+
+    @RepeatedTest(10)
+    public void testUpdateMatrix_sameAsFullRecompute_oneSegment() {
+        BitGenome a = random1000A.copy(0, 300);
+        BitGenome b = shuffled(a);
+        ScoreMatrix score = GreedyGlocal.localAlignmentMatrix(1, -2, a, b);
+
+        removeBestAndCompare(score, a, b);
+        score.release();
+    }
+
+    @RepeatedTest(10)
+    public void testUpdateMatrix_sameAsFullRecompute_severalSegments() {
+        BitGenome a = random1000A.copy(0, 300);
+        BitGenome b = shuffled(a);
+        ScoreMatrix score = GreedyGlocal.localAlignmentMatrix(1, -2, a, b);
+
+        for (int i=0; i<8; i++) {
+            if (removeBestAndCompare(score, a, b) == 0) break;
+        }
+        score.release();
+    }
+
+}
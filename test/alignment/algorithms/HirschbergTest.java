@@ -0,0 +1,83 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.Alignment;
+import alignment.AlignmentOp;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+
+class HirschbergTest extends BitGenomeInit {
+
+    public AlignmentOp<BitGenome> defaulthb;
+    public AlignmentOp<BitGenome> defaultnw;
+
+    @BeforeEach
+    public void setUpDefaultAlign() {
+    	defaulthb = (a, b) -> Hirschberg.align(1, -1, -2, -1, rng, a, b);
+    	defaultnw = (a, b) -> Affine.NeedlemanWunsch.align(1, -1, -2, -1, rng, a , b);
+    }
+
+    @Test
+    public void testHirschberg_identical_zeroes() {
+        Alignment<BitGenome> a = defaulthb.apply(zeroes5, zeroes5);
+
+        assertEquals(zeroes5.size(), a.score);
+        assertEquals(zeroes5.size(), a.getPairs().size());
+    }
+
+    @RepeatedTest(10)
+    public void testHirschberg_identical_random() {
+        Alignment<BitGenome> a = defaulthb.apply(random1000Aref, random1000Aref);
+
+        assertEquals(random1000Aref.size(), a.score);
+        assertEquals(random1000Aref.size(), a.getPairs().size());
+    }
+
+    @RepeatedTest(10)
+    public void testHirschberg_onedel_random() {
+        int i=500;
+        random1000A.delete(i, i+1);
+        Alignment<BitGenome> a = defaulthb.apply(random1000A, random1000Aref);
+
+        assertEquals(random1000Aref.size()-3, a.score); // Missing 1 match and -2 for gap
+        assertEquals(random1000A.size(), a.getPairs().size());
+    }
+
+    @RepeatedTest(10)
+    public void testHirschberg_sameScoreAsNeedlemanWunsch() {
+        random1000A.delete(100, 150);
+        random1000A.insert(700, randomA);
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+
+        assertEquals(defaultnw.apply(random1000A, random1000Aref).score, defaulthb.apply(random1000A, random1000Aref).score);
+        assertEquals(defaultnw.apply(random1000A, random1000B).score, defaulthb.apply(random1000A, random1000B).score);
+    }
+
+    @RepeatedTest(10)
+    public void testHirschberg_parallelSameScoreAsNeedlemanWunsch() {
+        random1000A.delete(100, 150);
+        random1000A.insert(700, randomA);
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+
+        assertEquals(defaultnw.apply(random1000A, random1000Aref).score, Hirschberg.alignInParallel(1, -1, -2, -1, rng, random1000A, random1000Aref).score);
+        assertEquals(defaultnw.apply(random1000A, random1000B).score, Hirschberg.alignInParallel(1, -1, -2, -1, rng, random1000A, random1000B).score);
+    }
+
+    @RepeatedTest(10)
+    public void testHirschberg_parallelReproducible() {
+        long seed = rng.nextLong();
+        Alignment<BitGenome> first = Hirschberg.alignInParallel(1, -1, -2, -1, new Random(seed), random1000A, random1000B);
+        Alignment<BitGenome> second = Hirschberg.alignInParallel(1, -1, -2, -1, new Random(seed), random1000A, random1000B);
+
+        assertEquals(new ArrayList<>(first.getPairs()), new ArrayList<>(second.getPairs()));
+    }
+
+}
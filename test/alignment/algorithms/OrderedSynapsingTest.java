@@ -0,0 +1,46 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.RepeatedTest;
+
+import alignment.Alignment;
+import alignment.Local;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+
+class OrderedSynapsingTest extends BitGenomeInit {
+
+    @RepeatedTest(10)
+    public void testParallel_reproducible() {
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        long seed = rng.nextLong();
+        List<Alignment<BitGenome>> first = OrderedSynapsing.Generalized.alignSynapsesInParallel(Local.longestCommonSubstring(), 5, 100, new Random(seed), random1000A, random1000Aref);
+        List<Alignment<BitGenome>> second = OrderedSynapsing.Generalized.alignSynapsesInParallel(Local.longestCommonSubstring(), 5, 100, new Random(seed), random1000A, random1000Aref);
+
+        assertEquals(first.size(), second.size());
+        for (int i=0; i<first.size(); i++) {
+            assertEquals(first.get(i).getPairs(), second.get(i).getPairs());
+        }
+    }
+
+    @RepeatedTest(10)
+    public void testParallel_orderedSynapses() {
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        List<Alignment<BitGenome>> synapses = OrderedSynapsing.Generalized.alignSynapsesInParallel(Local.longestCommonSubstring(), 5, 100, rng, random1000A, random1000Aref);
+
+        assertTrue(synapses.size() > 0);
+        for (int i=0; i<synapses.size(); i++) {
+            assertTrue(synapses.get(i).score >= 5);
+            if (i > 0) {
+                assertTrue(synapses.get(i-1).getPairs().last().x < synapses.get(i).getPairs().first().x);
+                assertTrue(synapses.get(i-1).getPairs().last().y < synapses.get(i).getPairs().first().y);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SortedSet;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.VarOAlignment;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+import genome.integer.IntGenome;
+import util.IntPair;
+
+class SeedExtendTest extends BitGenomeInit {
+
+    @Test
+    public void testAlign_notBinary() {
+        assertThrows(IllegalArgumentException.class, () -> SeedExtend.align(1, -5, 20, 20, 10, rng, IntGenome.of(1, 2, 3), IntGenome.of(1, 2, 3)));
+        assertThrows(IllegalArgumentException.class, () -> SeedExtend.align(1, -5, 65, 20, 10, rng, randomA, randomB));
+    }
+
+    @RepeatedTest(10)
+    public void testAlign_identical() {
+        VarOAlignment<BitGenome> alignment = SeedExtend.align(1, -5, 20, 20, 10, rng, random1000A, random1000Aref);
+
+        assertEquals(1, alignment.getSegments().size());
+        assertEquals(random1000A.size(), alignment.getPairs().size());
+    }
+
+    @RepeatedTest(10)
+    public void testAlign_translocation() {
+        // Swap the two halves of the genome
+        BitGenome b = random1000A.view(500, 1000).copy();
+        b.insert(b.size(), random1000A.view(0, 500));
+        VarOAlignment<BitGenome> alignment = SeedExtend.align(1, -5, 20, 20, 10, rng, random1000A, b).simplify();
+
+        assertEquals(2, alignment.getSegments().size());
+        assertTrue(alignment.getPairs().contains(IntPair.of(0, 500)));
+        assertTrue(alignment.getPairs().contains(IntPair.of(500, 0)));
+    }
+
+    @RepeatedTest(20)
+    public void testAlign_segmentsDisjoint() {
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        random1000A.delete(300, 310);
+        random1000A.insert(600, random1000B.view(0, 100));
+        VarOAlignment<BitGenome> alignment = SeedExtend.align(1, -3, 12, 15, 10, rng, random1000A, random1000Aref);
+
+        boolean[] usedA = new boolean[random1000A.size()];
+        boolean[] usedB = new boolean[random1000Aref.size()];
+        for (SortedSet<IntPair> segment : alignment.getSegments()) {
+            int score = 0;
+            for (IntPair pair : segment) {
+                assertFalse(usedA[pair.x]);
+                assertFalse(usedB[pair.y]);
+                usedA[pair.x] = true;
+                usedB[pair.y] = true;
+                score += random1000A.get(pair.x) == random1000Aref.get(pair.y) ? 1 : -3;
+            }
+            assertTrue(score >= 10);
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.Alignment;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+import util.IntPair;
+
+class StripedTest extends BitGenomeInit {
+
+    @Test
+    public void testSupports() {
+        assertFalse(Striped.supports(randomA, randomB, -1, -2));
+        assertFalse(Striped.supports(randomA, randomB, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> Striped.score(1, -1, -1, -2, randomA, randomB));
+    }
+
+    @Test
+    public void testScore_fixed() {
+        assertEquals(5, Striped.score(1, -1, -2, -1, zeroes5, zeroes5));
+        assertEquals(0, Striped.score(1, -1, -2, -1, zeroes5, ones5));
+        assertEquals(0, Striped.score(1, -1, -2, -1, zeroes5, BitGenome.of()));
+    }
+
+    @RepeatedTest(20)
+    public void testScore_sameAsSmithWaterman() {
+        assertEquals(Affine.SmithWaterman.align(1, -1, -2, -1, rng, randomA, randomB).score, Striped.score(1, -1, -2, -1, randomA, randomB));
+        assertEquals(Affine.SmithWaterman.align(2, -3, -5, -2, rng, random1000A, random1000B).score, Striped.score(2, -3, -5, -2, random1000A, random1000B));
+    }
+
+    @RepeatedTest(20)
+    public void testAlign_rescore() {
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        random1000A.delete(300, 310);
+        Alignment<BitGenome> alignment = Striped.align(1, -1, -2, -1, rng, random1000A, random1000Aref);
+
+        int score = 0;
+        IntPair last = null;
+        for (IntPair pair : alignment.getPairs()) {
+            if (last != null) {
+                int gapA = pair.x - last.x - 1;
+                int gapB = pair.y - last.y - 1;
+                if (gapA > 0) score += -2 - (gapA - 1);
+                if (gapB > 0) score += -2 - (gapB - 1);
+            }
+            score += random1000A.get(pair.x) == random1000Aref.get(pair.y) ? 1 : -1;
+            last = pair;
+        }
+
+        assertEquals(Affine.SmithWaterman.score(1, -1, -2, -1, random1000A, random1000Aref), alignment.score);
+        assertEquals(alignment.score, score);
+    }
+
+}
@@ -0,0 +1,54 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.RepeatedTest;
+
+import alignment.Alignment;
+import alignment.AlignmentRule;
+import alignment.Local;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+import util.IntPair;
+
+class UnorderedSynapsingTest extends BitGenomeInit {
+
+    public AlignmentRule<BitGenome> localAlign = Local.alignmentWithAffineGapScore(1, -5, -20, -3);
+
+    @RepeatedTest(10)
+    public void testSegments_disjointAndDecreasing() {
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        List<Alignment<BitGenome>> segments = UnorderedSynapsing.alignSegments(rng, localAlign.apply(rng), 10, random1000A, random1000Aref);
+
+        Set<Integer> usedA = new HashSet<>();
+        Set<Integer> usedB = new HashSet<>();
+        for (int i=0; i<segments.size(); i++) {
+            assertTrue(segments.get(i).score >= 10);
+            if (i > 0) assertTrue(segments.get(i-1).score >= segments.get(i).score);
+            IntPair first = segments.get(i).getPairs().first();
+            IntPair last = segments.get(i).getPairs().last();
+            for (int x=first.x; x<=last.x; x++) assertTrue(usedA.add(x));
+            for (int y=first.y; y<=last.y; y++) assertTrue(usedB.add(y));
+        }
+    }
+
+    @RepeatedTest(10)
+    public void testSegmentsInParallel_reproducible() {
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        long seed = rng.nextLong();
+        List<Alignment<BitGenome>> first = UnorderedSynapsing.alignSegmentsInParallel(new Random(seed), localAlign, 10, random1000A, random1000Aref);
+        List<Alignment<BitGenome>> second = UnorderedSynapsing.alignSegmentsInParallel(new Random(seed), localAlign, 10, random1000A, random1000Aref);
+
+        assertEquals(first.size(), second.size());
+        for (int i=0; i<first.size(); i++) {
+            assertEquals(first.get(i).getPairs(), second.get(i).getPairs());
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import genome.binary.BitGenomeInit;
+
+class WorkspaceTest extends BitGenomeInit {
+
+	@AfterEach
+	public void resetMemoryCap() {
+		Workspace.setMemoryCap(Workspace.DEFAULT_MEMORY_CAP);
+	}
+
+	@Test
+	public void testBucket() {
+		assertEquals(Workspace.MIN_BUCKET, Workspace.bucket(1));
+		assertEquals(2048, Workspace.bucket(2001));
+		assertEquals(5120, Workspace.bucket(5000));
+		for (int n=1; n<10000; n+=7) {
+			assertTrue(Workspace.bucket(n) >= n);
+			assertTrue(Workspace.bucket(n) <= Math.max(Workspace.MIN_BUCKET, n + n/4 + 1));
+		}
+	}
+
+	@Test
+	public void testReuse() {
+		int[] m = Workspace.ints(12000);
+		assertTrue(m.length >= 12000);
+		Workspace.release(m);
+		assertSame(m, Workspace.ints(11900));
+
+		int[] other = Workspace.ints(11900);
+		assertNotSame(m, other);
+		Workspace.release(m);
+		Workspace.release(other);
+	}
+
+	@Test
+	public void testReuse_byType() {
+		short[] m = Workspace.shorts(5000);
+		Workspace.release(m);
+		assertTrue(Workspace.ints(5000).length >= 5000);
+		assertSame(m, Workspace.shorts(5000));
+		Workspace.release(m);
+	}
+
+	@Test
+	public void testMemoryCap() {
+		int[] m = Workspace.ints(1000 * 1000);
+		Workspace.setMemoryCap(0);
+		Workspace.release(m);
+		assertEquals(0, Workspace.idleBytes());
+		assertNotSame(m, Workspace.ints(1000 * 1000));
+	}
+
+	@Test
+	public void testConcurrentAlignments() {
+		List<Integer> sequential = IntStream.range(0, 16)
+				.mapToObj(i -> Affine.SmithWaterman.align(1, -1, -2, -1, new Random(i), random1000A, random1000B).score)
+				.collect(Collectors.toList());
+		List<Integer> parallel = IntStream.range(0, 16).parallel()
+				.mapToObj(i -> Affine.SmithWaterman.align(1, -1, -2, -1, new Random(i), random1000A.copy(), random1000B.copy()).score)
+				.collect(Collectors.toList());
+		assertEquals(sequential, parallel);
+	}
+
+}
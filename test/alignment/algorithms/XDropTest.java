@@ -0,0 +1,58 @@
+package alignment.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.Alignment;
+import genome.binary.BitGenome;
+import genome.binary.BitGenomeInit;
+import util.IntPair;
+
+class XDropTest extends BitGenomeInit {
+
+    /**
+     * Score of the alignment of random1000A and random1000Aref computed from its pairs, with scores 1, -1, -2, -1.
+     */
+    private int rescore(Alignment<BitGenome> alignment) {
+        int score = 0;
+        IntPair last = null;
+        for (IntPair pair : alignment.getPairs()) {
+            if (last != null) {
+                int gapA = pair.x - last.x - 1;
+                int gapB = pair.y - last.y - 1;
+                if (gapA > 0) score += -2 - (gapA - 1);
+                if (gapB > 0) score += -2 - (gapB - 1);
+            }
+            score += random1000A.get(pair.x) == random1000Aref.get(pair.y) ? 1 : -1;
+            last = pair;
+        }
+        return score;
+    }
+
+    @Test
+    public void testAlign_fixed() {
+        assertEquals(5, XDrop.align(1, -1, -2, -1, 10, rng, zeroes5, zeroes5).score);
+        assertEquals(0, XDrop.align(1, -1, -2, -1, 10, rng, zeroes5, ones5).score);
+        assertEquals(0, XDrop.align(1, -1, -2, -1, 10, rng, zeroes5, BitGenome.of()).getPairs().size());
+    }
+
+    @RepeatedTest(20)
+    public void testAlign_noDropSameAsSmithWaterman() {
+        assertEquals(Affine.SmithWaterman.score(1, -1, -2, -1, randomA, randomB), XDrop.align(1, -1, -2, -1, 1 << 20, rng, randomA, randomB).score);
+    }
+
+    @RepeatedTest(20)
+    public void testAlign_closelyRelated() {
+        for (int i=0; i<20; i++) random1000A.flip(rng.nextInt(random1000A.size()));
+        random1000A.delete(300, 305);
+        Alignment<BitGenome> alignment = XDrop.align(1, -1, -2, -1, 20, rng, random1000A, random1000Aref);
+
+        assertEquals(alignment.score, rescore(alignment));
+        assertTrue(alignment.score <= Affine.SmithWaterman.score(1, -1, -2, -1, random1000A, random1000Aref));
+        assertTrue(alignment.getPairs().size() > 900);
+    }
+
+}
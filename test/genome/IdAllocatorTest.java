@@ -0,0 +1,70 @@
+package genome;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class IdAllocatorTest {
+
+    @Test
+    public void testReserve_consecutive() {
+        long first = IdAllocator.reserve(10);
+        long next = IdAllocator.reserve(1);
+        assertTrue(first >= 0);
+        assertEquals(first + 10, next);
+    }
+
+    @Test
+    public void testReserve_largerThanBlock() {
+        long first = IdAllocator.reserve(3 * IdAllocator.BLOCK_SIZE);
+        long next = IdAllocator.reserve(1);
+        assertTrue(next >= first + 3 * IdAllocator.BLOCK_SIZE || next < first);
+    }
+
+    @Test
+    public void testReserve_uniqueAcrossThreads() {
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 200000).parallel().forEach(i -> {
+            long id = IdAllocator.reserve(3);
+            for (int k=0; k<3; k++) {
+                assertTrue(seen.add(id + k));
+            }
+        });
+        assertEquals(600000, seen.size());
+    }
+
+    @Test
+    public void testDeterministic_reproducible() {
+        long a, b;
+        try (IdAllocator.Scope scope = IdAllocator.deterministic(42)) {
+            IdAllocator.reserve(5);
+            a = IdAllocator.reserve(1);
+        }
+        try (IdAllocator.Scope scope = IdAllocator.deterministic(42)) {
+            IdAllocator.reserve(5);
+            b = IdAllocator.reserve(1);
+        }
+        assertEquals(a, b);
+        assertTrue(a < 0);
+    }
+
+    @Test
+    public void testDeterministic_nested() {
+        long before = IdAllocator.reserve(1);
+        try (IdAllocator.Scope outer = IdAllocator.deterministic(1)) {
+            long o1 = IdAllocator.reserve(1);
+            try (IdAllocator.Scope inner = IdAllocator.deterministic(2)) {
+                assertNotEquals(o1 + 1, IdAllocator.reserve(1));
+            }
+            assertEquals(o1 + 1, IdAllocator.reserve(1));
+        }
+        assertEquals(before + 1, IdAllocator.reserve(1));
+    }
+
+}
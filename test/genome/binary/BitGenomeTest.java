@@ -816,4 +816,43 @@ class BitGenomeTest extends BitGenomeInit {
     }
 
 
+    @ParameterizedTest
+    @ValueSource(ints = {1, 5, 63, 64})
+    public void testGetBits(int n) {
+    	int i = 7;
+    	long bits = randomlong.getBits(i, n);
+    	for (int k=0; k<n; k++) {
+    		assertEquals(randomlong.get(i+k), (bits >>> k & 1) == 1);
+    	}
+    	if (n < 64) assertEquals(0, bits >>> n);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 5, 63, 64})
+    public void testGetBits_reversedView(int n) {
+    	BitGenome rev = randomlong.view(3, 1000).reversedView();
+    	int i = 11;
+    	long bits = rev.getBits(i, n);
+    	for (int k=0; k<n; k++) {
+    		assertEquals(rev.get(i+k), (bits >>> k & 1) == 1);
+    	}
+    }
+
+    @Test
+    public void testGetBits_outOfBounds() {
+    	assertThrows(IndexOutOfBoundsException.class, () -> randomA.getBits(randomA.size()-3, 4));
+    	assertThrows(IndexOutOfBoundsException.class, () -> randomA.view(5, 10).getBits(3, 3));
+    }
+
+    @Test
+    public void testToWords() {
+    	for (BitGenome g : List.of(randomlong, randomlong.view(5, 4000), randomlong.view(5, 4000).reversedView())) {
+    		long[] words = g.toWords();
+    		assertEquals((g.size()+63)/64, words.length);
+    		for (int i=0; i<g.size(); i++) {
+    			assertEquals(g.get(i), BinaryGenome.getBit(words, i));
+    		}
+    	}
+    }
+
 }
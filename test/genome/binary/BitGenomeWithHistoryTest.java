@@ -5,11 +5,13 @@
  */
 package genome.binary;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.OptionalInt;
 import java.util.stream.Collectors;
@@ -880,4 +882,73 @@ class BitGenomeWithHistoryTest extends BitGenomeWithHistoryInit {
     	}
     }
 
+    @Test
+    public void testShift_keepsIds() {
+        long id0 = randomA.getId(0);
+        long id5 = randomA.getId(5);
+
+        randomA.shiftRight(5);
+        assertEquals(id0, randomA.getId(5));
+        assertFalse(randomA.get(0));
+        assertEquals(OptionalInt.of(5), randomA.homologs(id0).findFirst());
+
+        randomA.shiftLeft(10);
+        assertEquals(id5, randomA.getId(0));
+        assertEquals(0, randomA.homologs(id0).count());
+    }
+
+    @RepeatedTest(10)
+    public void testEdits_sameAsReference() {
+        List<Boolean> bits = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i=0; i<random1000A.size(); i++) {
+            bits.add(random1000A.get(i));
+            ids.add(random1000A.getId(i));
+        }
+
+        for (int k=0; k<100; k++) {
+            int i = rng.nextInt(random1000A.size()-100);
+            int len = 1 + rng.nextInt(99);
+            if (rng.nextBoolean() && random1000A.size() > 500) {
+                random1000A.delete(i, i+len);
+                for (int j=0; j<len; j++) {
+                    bits.remove(i);
+                    ids.remove(i);
+                }
+            } else {
+                random1000A.insert(i, random1000B, 0, len);
+                for (int j=0; j<len; j++) {
+                    bits.add(i+j, random1000B.get(j));
+                    ids.add(i+j, random1000B.getId(j));
+                }
+            }
+        }
+
+        assertEquals(bits.size(), random1000A.size());
+        for (int i=0; i<bits.size(); i++) {
+            assertEquals(bits.get(i), random1000A.get(i));
+            assertEquals(ids.get(i), random1000A.getId(i));
+        }
+    }
+
+    @Test
+    public void testHomologs_afterEdits() {
+        // Query first, so that later edits have to keep the homologs up to date
+        assertEquals(1, random1000A.homologCount(random1000A.getId(500)));
+
+        random1000A.insert(100, random1000Aref, 400, 600);
+        random1000A.delete(700, 750);
+        random1000A.insert(10, random1000B);
+        random1000A.paste(20, random1000Aref, 0, 50);
+
+        int[] buffer = new int[2];
+        for (int i=0; i<random1000A.size(); i++) {
+            long id = random1000A.getId(i);
+            int[] expected = IntStream.range(0, random1000A.size()).filter(j -> random1000A.getId(j) == id).toArray();
+            assertEquals(expected.length, random1000A.homologs(id, buffer));
+            assertEquals(expected[0], buffer[0]);
+            assertArrayEquals(expected, random1000A.homologs(id).toArray());
+        }
+    }
+
 }
@@ -0,0 +1,94 @@
+package genome.binary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Runs all {@link BitGenomeTest} cases on {@link PackedBitGenome}, and compares word-level operations near word boundaries with {@link ConcreteBitGenome}.
+ */
+class PackedBitGenomeTest extends BitGenomeTest {
+
+	@Override
+	@BeforeEach
+	public void setUpGenomes() {
+		super.setUpGenomes();
+
+		zeroes5 = BitGenome.packedOf(zeroes5);
+		ones5 = BitGenome.packedOf(ones5);
+		g11011 = BitGenome.packedOf(g11011);
+		zero1 = BitGenome.packedOf(zero1);
+		random5A = BitGenome.packedOf(random5A);
+		random5B = BitGenome.packedOf(random5B);
+		randomA = BitGenome.packedOf(randomA);
+		randomB = BitGenome.packedOf(randomB);
+		random1000A = BitGenome.packedOf(random1000A);
+		random1000B = BitGenome.packedOf(random1000B);
+		randomlong = BitGenome.packedOf(randomlong);
+
+		this.cases = List.of(zeroes5, ones5, g11011, zero1, randomA, randomB, randomlong);
+	}
+
+	@Test
+	public void testPacked() {
+		assertTrue(randomA instanceof PackedBitGenome);
+		assertTrue(randomA.copy() instanceof PackedBitGenome);
+		assertTrue(randomA.copy(3, 17) instanceof PackedBitGenome);
+	}
+
+	@Test
+	public void testRandom_sameAsUnpacked() {
+		long seed = rng.nextLong();
+		BitGenome packed = BitGenome.randomPacked(1000).apply(new java.util.Random(seed));
+		BitGenome unpacked = BitGenome.random(1000).apply(new java.util.Random(seed));
+		assertThat(BitGenome::sameSequence, unpacked, packed);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 63, 64, 65, 127, 128, 129, 1000})
+	public void testShift_wordBoundaries(int n) {
+		BitGenome unpacked = BitGenome.of(randomlong);
+
+		randomlong.shiftRight(n);
+		unpacked.shiftRight(n);
+		assertThat(BitGenome::sameSequence, unpacked, randomlong);
+
+		randomlong.shiftLeft(2*n);
+		unpacked.shiftLeft(2*n);
+		assertThat(BitGenome::sameSequence, unpacked, randomlong);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 63, 64, 65, 127, 128, 129})
+	public void testInsertDelete_wordBoundaries(int i) {
+		BitGenome unpacked = BitGenome.of(random1000A);
+
+		random1000A.insert(i, random1000B, 3, 3+i+70);
+		unpacked.insert(i, random1000B, 3, 3+i+70);
+		assertEquals(unpacked.size(), random1000A.size());
+		assertThat(BitGenome::sameSequence, unpacked, random1000A);
+
+		random1000A.delete(i+1, i+1+i+64);
+		unpacked.delete(i+1, i+1+i+64);
+		assertThat(BitGenome::sameSequence, unpacked, random1000A);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 63, 64, 65, 990})
+	public void testPaste_unpackedSource(int i) {
+		BitGenome unpacked = BitGenome.of(random1000A);
+		BitGenome source = BitGenome.of(random1000B);
+
+		random1000A.paste(i, source, 17, 17+129);
+		unpacked.paste(i, source, 17, 17+129);
+		assertEquals(unpacked.size(), random1000A.size());
+		assertThat(BitGenome::sameSequence, unpacked, random1000A);
+	}
+
+}
@@ -0,0 +1,83 @@
+package genome.binary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs all {@link BitGenomeTest} cases on {@link PersistentBitGenome}, and checks that copies share structure without affecting each other.
+ */
+class PersistentBitGenomeTest extends BitGenomeTest {
+
+	@Override
+	@BeforeEach
+	public void setUpGenomes() {
+		super.setUpGenomes();
+
+		zeroes5 = BitGenome.persistentOf(zeroes5);
+		ones5 = BitGenome.persistentOf(ones5);
+		g11011 = BitGenome.persistentOf(g11011);
+		zero1 = BitGenome.persistentOf(zero1);
+		random5A = BitGenome.persistentOf(random5A);
+		random5B = BitGenome.persistentOf(random5B);
+		randomA = BitGenome.persistentOf(randomA);
+		randomB = BitGenome.persistentOf(randomB);
+		random1000A = BitGenome.persistentOf(random1000A);
+		random1000B = BitGenome.persistentOf(random1000B);
+		randomlong = BitGenome.persistentOf(randomlong);
+
+		this.cases = List.of(zeroes5, ones5, g11011, zero1, randomA, randomB, randomlong);
+	}
+
+	@Test
+	public void testCopy_shared() {
+		BitGenome copy = randomlong.copy();
+		assertTrue(copy instanceof PersistentBitGenome);
+		assertSame(((PersistentBitGenome) randomlong).root, ((PersistentBitGenome) copy).root);
+
+		copy.flip(12345);
+		assertNotEquals(randomlong.get(12345), copy.get(12345));
+		assertThat(BitGenome::sameSequence, randomlongref, randomlong);
+	}
+
+	@RepeatedTest(10)
+	public void testEdits_sameAsUnpacked() {
+		BitGenome unpacked = BitGenome.of(randomlong);
+		BitGenome parent = randomlong.copy();
+
+		for (int k=0; k<200; k++) {
+			int i = rng.nextInt(randomlong.size()-100);
+			int len = 1 + rng.nextInt(99);
+			switch (rng.nextInt(4)) {
+			case 0:
+				randomlong.flip(i);
+				unpacked.flip(i);
+				break;
+			case 1:
+				randomlong.delete(i, i+len);
+				unpacked.delete(i, i+len);
+				break;
+			case 2:
+				randomlong.insert(i, random1000A, 0, len);
+				unpacked.insert(i, random1000A, 0, len);
+				break;
+			case 3:
+				randomlong.paste(i, randomlong, i+1, i+1+len);
+				unpacked.paste(i, unpacked, i+1, i+1+len);
+				break;
+			}
+		}
+
+		assertEquals(unpacked.size(), randomlong.size());
+		assertThat(BitGenome::sameSequence, unpacked, randomlong);
+		assertThat(BitGenome::sameSequence, randomlongref, parent);
+	}
+
+}
@@ -0,0 +1,99 @@
+package mutation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import alignment.DerivedAlignment;
+import alignment.PerfectAlignment;
+import genome.binary.BitGenomeWithHistory;
+import genome.binary.BitGenomeWithHistoryInit;
+import mutation.binary.InDel;
+import mutation.binary.PointMutation;
+import mutation.string.Deletion;
+import mutation.string.Inversion;
+import mutation.string.Translocation;
+import util.IntPair;
+
+class EditScriptTest extends BitGenomeWithHistoryInit {
+
+	@RepeatedTest(50)
+	void testHomology_sameAsHistory() {
+		MutationRule<BitGenomeWithHistory> mutation = MutationRule.compose(List.of(
+				PointMutation.<BitGenomeWithHistory>repeatN(10),
+				InDel.<BitGenomeWithHistory>withSize((g) -> (r) -> 1 + r.nextInt(20)).repeatN(5),
+				Translocation.<BitGenomeWithHistory>withSize((g) -> (r) -> 1 + r.nextInt(100)).repeatN(2)));
+		BitGenomeWithHistory child = random1000A.copy();
+		Optional<EditScript> script = mutation.apply(rng).mutateAndGetEditScript(child);
+
+		assertTrue(script.isPresent());
+		assertEquals(random1000A.size(), script.get().originalSize());
+		assertEquals(child.size(), script.get().size());
+		assertEquals(
+				new TreeSet<>(PerfectAlignment.alignFromHistory(random1000A, child).getPairs()),
+				new TreeSet<>(DerivedAlignment.homology(script.get(), random1000A, child).getPairs()));
+	}
+
+	@Test
+	void testEdits_inOrder() {
+		MutationStats stats = MutationStats.withEditScript(random1000A.size());
+		Deletion.perform(Optional.of(stats), random1000A, 100, 10);
+		Translocation.perform(Optional.of(stats), random1000A, 0, 500, 50);
+		EditScript script = stats.editScript().get();
+
+		assertTrue(stats.isEditScriptComplete());
+		assertEquals(2, script.edits().size());
+		assertEquals(EditScript.Edit.Kind.DELETION, script.edits().get(0).kind);
+		assertEquals(100, script.edits().get(0).locus);
+		assertEquals(EditScript.Edit.Kind.TRANSLOCATION, script.edits().get(1).kind);
+		assertEquals(500, script.edits().get(1).target);
+		assertEquals(990, script.size());
+		// The rest of the part before the deletion, the part after the deletion split where the moved segment went in, and the moved segment in between
+		assertEquals(4, script.blockCount());
+		assertEquals(50, script.blockParent(0));
+		assertEquals(0, script.blockChild(0));
+		assertEquals(110, script.blockParent(1));
+		assertEquals(50, script.blockChild(1));
+		assertEquals(0, script.blockParent(2));
+		assertEquals(500, script.blockChild(2));
+		assertEquals(560, script.blockParent(3));
+		assertEquals(550, script.blockChild(3));
+	}
+
+	@Test
+	void testInversion_notHomologous() {
+		MutationStats stats = MutationStats.withEditScript(random1000A.size());
+		Inversion.perform(Optional.of(stats), random1000A, 200, 100);
+		SortedSet<IntPair> pairs = DerivedAlignment.homology(stats.editScript().get(), random1000Aref, random1000A).getPairs();
+
+		assertEquals(900, pairs.size());
+		assertFalse(pairs.contains(IntPair.of(250, 250)));
+		assertTrue(pairs.contains(IntPair.of(300, 300)));
+	}
+
+	@Test
+	void testUnrecordedMutation_noScript() {
+		MutationOp<BitGenomeWithHistory> unrecorded = (g, stats) -> {
+			g.flip(0);
+			stats.ifPresent((s) -> s.add(PointMutation.TYPE, 1));
+		};
+		assertFalse(unrecorded.mutateAndGetEditScript(random1000A).isPresent());
+	}
+
+	@Test
+	void testOutOfBounds() {
+		EditScript script = new EditScript(10);
+		assertThrows(IllegalArgumentException.class, () -> script.delete(Deletion.TYPE, 5, 6));
+		assertThrows(IllegalArgumentException.class, () -> script.translocate(Translocation.TYPE, 0, 8, 3));
+	}
+
+}